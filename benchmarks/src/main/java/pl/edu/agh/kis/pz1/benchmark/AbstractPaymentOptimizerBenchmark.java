@@ -0,0 +1,68 @@
+package pl.edu.agh.kis.pz1.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.domain.PaymentCatalog;
+import pl.edu.agh.kis.pz1.domain.Result;
+import pl.edu.agh.kis.pz1.optimizer.FullPaymentEngine;
+import pl.edu.agh.kis.pz1.optimizer.NotFoundPaymentsException;
+import pl.edu.agh.kis.pz1.optimizer.PaymentOptimizer;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link PaymentOptimizer#optimize()} on generated inputs.
+ * Each operation builds the optimizer from the order list and a payment catalog shared by all operations
+ * and runs the whole optimization, as {@code Main} does after parsing.
+ * Subclasses choose the order counts and the heap of the forked JVM, so that small inputs are not
+ * measured with a heap sized for the largest ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public abstract class AbstractPaymentOptimizerBenchmark {
+
+    @Param({"4", "16", "64"})
+    private int methodCount;
+
+    @Param({"0.05", "0.25"})
+    private double promotionDensity;
+
+    @Param({"GREEDY", "MIN_COST_FLOW", "KNAPSACK"})
+    private FullPaymentEngine engine;
+
+    private List<Order> orders;
+    private PaymentCatalog catalog;
+
+    /**
+     * Returns the number of orders to generate, a parameter of the subclass.
+     *
+     * @return The number of orders.
+     */
+    protected abstract int orderCount();
+
+    /**
+     * Generates the orders and payment methods once per trial.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        orders = BenchmarkData.orders(orderCount(), methodCount, promotionDensity);
+        catalog = PaymentCatalog.of(BenchmarkData.paymentMethods(methodCount, BenchmarkData.totalCents(orders)));
+    }
+
+    /**
+     * Runs one complete optimization.
+     *
+     * @return The results, consumed by JMH.
+     * @throws NotFoundPaymentsException If the generated input cannot be paid.
+     */
+    @Benchmark
+    public List<Result> optimize() throws NotFoundPaymentsException {
+        PaymentOptimizer optimizer = new PaymentOptimizer(orders, catalog);
+        optimizer.setFullPaymentEngine(engine);
+        return optimizer.optimize();
+    }
+}
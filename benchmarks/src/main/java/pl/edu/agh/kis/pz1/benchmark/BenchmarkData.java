@@ -0,0 +1,159 @@
+package pl.edu.agh.kis.pz1.benchmark;
+
+import pl.edu.agh.kis.pz1.domain.MethodDictionary;
+import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+import pl.edu.agh.kis.pz1.utils.MoneyUtil;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded generator of benchmark inputs.
+ * Produces PUNKTY plus {@code methodCount - 1} cards, and orders whose promotions list
+ * each card with probability {@code promotionDensity}. The last card has a limit covering
+ * every order, so the optimizer always finds a complete allocation.
+ */
+final class BenchmarkData {
+
+    static final long SEED = 42L;
+
+    // Order values between 1.00 and 1000.00
+    private static final int MAX_ORDER_CENTS = 100_000;
+
+    private BenchmarkData() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Generates the payment method IDs: PUNKTY followed by CARD1 to CARD{methodCount - 1}.
+     *
+     * @param methodCount The number of payment methods, at least 2.
+     * @return The payment method IDs.
+     */
+    static List<String> methodIds(int methodCount) {
+        List<String> ids = new ArrayList<>(methodCount);
+        ids.add(MethodDictionary.POINTS_METHOD_ID);
+        for (int i = 1; i < methodCount; i++) {
+            ids.add("CARD" + i);
+        }
+        return ids;
+    }
+
+    /**
+     * Generates payment methods with fresh limits. Every method except the last one gets a limit
+     * of about a tenth of the total order value divided among the methods, so the R2/R4 step
+     * fills them up and the remaining orders reach R3 and base payments.
+     *
+     * @param methodCount The number of payment methods, at least 2.
+     * @param totalOrderCents The total value of all orders in cents.
+     * @return New payment methods with initialized remaining limits.
+     */
+    static List<PaymentMethod> paymentMethods(int methodCount, long totalOrderCents) {
+        Random random = new Random(SEED);
+        long sharedLimit = Math.max(1, totalOrderCents / 10 / methodCount);
+
+        List<PaymentMethod> methods = new ArrayList<>(methodCount);
+        for (String id : methodIds(methodCount)) {
+            boolean spare = methods.size() == methodCount - 1;
+            long limit = spare ? totalOrderCents : sharedLimit;
+            int discount = spare ? 0 : 5 + random.nextInt(16);
+            PaymentMethod method = new PaymentMethod(id, discount, MoneyUtil.toBigDecimal(limit), null, BigDecimal.ZERO);
+            method.initializeRemainingLimit();
+            methods.add(method);
+        }
+        return methods;
+    }
+
+    /**
+     * Generates orders with uniformly distributed values.
+     *
+     * @param orderCount The number of orders.
+     * @param methodCount The number of payment methods, at least 2.
+     * @param promotionDensity The probability of each card being listed in an order's promotions.
+     * @return New unpaid orders.
+     */
+    static List<Order> orders(int orderCount, int methodCount, double promotionDensity) {
+        Random random = new Random(SEED);
+        List<String> ids = methodIds(methodCount);
+
+        List<Order> orders = new ArrayList<>(orderCount);
+        for (int i = 0; i < orderCount; i++) {
+            List<String> promotions = new ArrayList<>();
+            for (int method = 1; method < methodCount; method++) {
+                if (random.nextDouble() < promotionDensity) {
+                    promotions.add(ids.get(method));
+                }
+            }
+            BigDecimal value = MoneyUtil.toBigDecimal(100 + random.nextInt(MAX_ORDER_CENTS));
+            Order order = new Order("ORDER" + i, value, promotions, false, null);
+            order.initializeRemainingValue();
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    /**
+     * Sums the values of the orders.
+     *
+     * @param orders The orders.
+     * @return The total value in cents.
+     */
+    static long totalCents(List<Order> orders) {
+        long total = 0;
+        for (Order order : orders) {
+            total = MoneyUtil.add(total, order.getValueCents());
+        }
+        return total;
+    }
+
+    /**
+     * Writes orders in the format of the orders input file.
+     *
+     * @param path The file to write.
+     * @param orders The orders to write.
+     * @throws IOException If the file cannot be written.
+     */
+    static void writeOrders(Path path, List<Order> orders) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            writer.write('[');
+            for (int i = 0; i < orders.size(); i++) {
+                Order order = orders.get(i);
+                writer.write(i == 0 ? "\n" : ",\n");
+                writer.write("  {\"id\": \"" + order.getId() + "\", \"value\": \"" + order.getValue() + "\", \"promotions\": [");
+                List<String> promotions = order.getPromotions();
+                for (int j = 0; j < promotions.size(); j++) {
+                    writer.write((j == 0 ? "\"" : ", \"") + promotions.get(j) + "\"");
+                }
+                writer.write("]}");
+            }
+            writer.write("\n]\n");
+        }
+    }
+
+    /**
+     * Writes payment methods in the format of the payment methods input file.
+     *
+     * @param path The file to write.
+     * @param methods The payment methods to write.
+     * @throws IOException If the file cannot be written.
+     */
+    static void writePaymentMethods(Path path, List<PaymentMethod> methods) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            writer.write('[');
+            for (int i = 0; i < methods.size(); i++) {
+                PaymentMethod method = methods.get(i);
+                writer.write(i == 0 ? "\n" : ",\n");
+                writer.write("  {\"id\": \"" + method.getId() + "\", \"discount\": \"" + method.getDiscount()
+                        + "\", \"limit\": \"" + method.getLimit() + "\"}");
+            }
+            writer.write("\n]\n");
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package pl.edu.agh.kis.pz1.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ * Entry point of the benchmark jar.
+ * Accepts the regular JMH command-line options (e.g. a benchmark regex, {@code -p orderCount=1000},
+ * {@code -rf json}) and always enables the GC profiler, so every run reports the allocation rate
+ * next to throughput and average time.
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Private constructor to prevent instantiation of this class.
+     */
+    private BenchmarkRunner() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Runs the benchmarks selected on the command line.
+     *
+     * @param args JMH command-line options.
+     * @throws CommandLineOptionException If the options cannot be parsed.
+     * @throws RunnerException If a benchmark fails.
+     * @throws IOException If the benchmark list cannot be printed.
+     */
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+
+        Runner runner = new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build());
+
+        if (commandLine.shouldList()) {
+            runner.list();
+            return;
+        }
+        runner.run();
+    }
+}
@@ -0,0 +1,79 @@
+package pl.edu.agh.kis.pz1.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+import pl.edu.agh.kis.pz1.utils.JsonParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link JsonParser} on generated input files written to a temporary directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonParserBenchmark {
+
+    @Param({"1000", "100000"})
+    private int orderCount;
+
+    @Param({"4", "64"})
+    private int methodCount;
+
+    private Path directory;
+    private String ordersPath;
+    private String paymentMethodsPath;
+
+    /**
+     * Writes the input files once per trial.
+     *
+     * @throws IOException If the files cannot be written.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<Order> orderList = BenchmarkData.orders(orderCount, methodCount, 0.25);
+        directory = Files.createTempDirectory("ocado-bench");
+        Path orders = directory.resolve("orders.json");
+        Path methods = directory.resolve("paymentmethods.json");
+        BenchmarkData.writeOrders(orders, orderList);
+        BenchmarkData.writePaymentMethods(methods, BenchmarkData.paymentMethods(methodCount, BenchmarkData.totalCents(orderList)));
+        ordersPath = orders.toString();
+        paymentMethodsPath = methods.toString();
+    }
+
+    /**
+     * Deletes the input files.
+     *
+     * @throws IOException If the files cannot be deleted.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(Path.of(ordersPath));
+        Files.deleteIfExists(Path.of(paymentMethodsPath));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public List<Order> parseOrders() throws IOException {
+        return JsonParser.parseOrders(ordersPath);
+    }
+
+    @Benchmark
+    public void streamOrders(Blackhole blackhole) throws IOException {
+        JsonParser.streamOrders(ordersPath, blackhole::consume);
+    }
+
+    @Benchmark
+    public List<PaymentMethod> parsePaymentMethods() throws IOException {
+        return JsonParser.parsePaymentMethods(paymentMethodsPath);
+    }
+}
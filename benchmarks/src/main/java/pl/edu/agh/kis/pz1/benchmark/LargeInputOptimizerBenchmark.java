@@ -0,0 +1,21 @@
+package pl.edu.agh.kis.pz1.benchmark;
+
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Benchmarks {@link pl.edu.agh.kis.pz1.optimizer.PaymentOptimizer#optimize()} on ten million orders,
+ * see {@link AbstractPaymentOptimizerBenchmark}. These inputs need a 16 GB heap, so they are kept apart
+ * from {@link PaymentOptimizerBenchmark} and only run on machines that have one.
+ */
+@Fork(value = 1, jvmArgsAppend = {"-Xms16g", "-Xmx16g"})
+public class LargeInputOptimizerBenchmark extends AbstractPaymentOptimizerBenchmark {
+
+    @Param({"10000000"})
+    private int orderCount;
+
+    @Override
+    protected int orderCount() {
+        return orderCount;
+    }
+}
@@ -0,0 +1,75 @@
+package pl.edu.agh.kis.pz1.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import pl.edu.agh.kis.pz1.utils.BigDecimalUtil;
+import pl.edu.agh.kis.pz1.utils.MoneyUtil;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the discount arithmetic of {@link BigDecimalUtil} against the cents arithmetic
+ * of {@link MoneyUtil} used by the optimizer. Each operation processes one value;
+ * the values and percentages are random so that no branch or result is constant.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private static final int VALUES = 1024;
+
+    private final BigDecimal[] values = new BigDecimal[VALUES];
+    private final long[] cents = new long[VALUES];
+    private final int[] percents = new int[VALUES];
+
+    /**
+     * Generates the values once per trial.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(BenchmarkData.SEED);
+        for (int i = 0; i < VALUES; i++) {
+            cents[i] = 100 + random.nextInt(1_000_000);
+            values[i] = MoneyUtil.toBigDecimal(cents[i]);
+            percents[i] = random.nextInt(101);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void bigDecimalApplyDiscount(Blackhole blackhole) {
+        for (int i = 0; i < VALUES; i++) {
+            blackhole.consume(BigDecimalUtil.applyDiscount(values[i], percents[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void bigDecimalPercentage(Blackhole blackhole) {
+        for (int i = 0; i < VALUES; i++) {
+            blackhole.consume(BigDecimalUtil.percentage(values[i], percents[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void centsApplyDiscount(Blackhole blackhole) {
+        for (int i = 0; i < VALUES; i++) {
+            blackhole.consume(MoneyUtil.applyDiscount(cents[i], percents[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public void centsPercentage(Blackhole blackhole) {
+        for (int i = 0; i < VALUES; i++) {
+            blackhole.consume(MoneyUtil.percentage(cents[i], percents[i]));
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package pl.edu.agh.kis.pz1.benchmark;
+
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Benchmarks {@link pl.edu.agh.kis.pz1.optimizer.PaymentOptimizer#optimize()} on up to a million orders,
+ * see {@link AbstractPaymentOptimizerBenchmark}. A 4 GB heap holds the largest of these inputs.
+ */
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class PaymentOptimizerBenchmark extends AbstractPaymentOptimizerBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    private int orderCount;
+
+    @Override
+    protected int orderCount() {
+        return orderCount;
+    }
+}
@@ -1,15 +1,37 @@
 // pl.edu.agh.kis.pz1.Main.java
 package pl.edu.agh.kis.pz1;
 
+import pl.edu.agh.kis.pz1.allocation.AllocationWriter;
+import pl.edu.agh.kis.pz1.batch.BatchJob;
+import pl.edu.agh.kis.pz1.binary.BinaryOrderReader;
+import pl.edu.agh.kis.pz1.binary.BinaryOrderWriter;
+import pl.edu.agh.kis.pz1.batch.BatchRunner;
+import pl.edu.agh.kis.pz1.cache.ResultCache;
 import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.domain.PaymentCatalog;
 import pl.edu.agh.kis.pz1.domain.PaymentMethod;
 import pl.edu.agh.kis.pz1.domain.Result;
+import pl.edu.agh.kis.pz1.optimizer.AllocationListener;
+import pl.edu.agh.kis.pz1.optimizer.FullPaymentEngine;
 import pl.edu.agh.kis.pz1.optimizer.NotFoundPaymentsException;
+import pl.edu.agh.kis.pz1.optimizer.OptimizerPhaseListener;
 import pl.edu.agh.kis.pz1.optimizer.PaymentOptimizer;
+import pl.edu.agh.kis.pz1.server.OptimizerServer;
+import pl.edu.agh.kis.pz1.stats.RunReport;
+import pl.edu.agh.kis.pz1.stats.RunStats;
 import pl.edu.agh.kis.pz1.utils.JsonParser;
+import pl.edu.agh.kis.pz1.utils.ParallelOrderScanner;
 
+import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 
 /**
@@ -18,48 +40,130 @@ import java.util.List;
  * runs the payment optimization logic, and prints the results.
  */
 public class Main {
+
+    private static final String SERVER_OPTION = "--server";
+    private static final int DEFAULT_SERVER_PORT = 8080;
+    private static final String BATCH_OPTION = "--batch";
+    private static final String PARALLELISM_OPTION = "--parallelism=";
+    private static final String MEMORY_OPTION = "--memory=";
+    private static final String STATS_OPTION = "--stats";
+    private static final String REPEAT_OPTION = "--repeat=";
+    private static final String ALLOCATIONS_OPTION = "--allocations=";
+    private static final String ENGINE_OPTION = "--engine=";
+    private static final String CACHE_OPTION = "--cache=";
+    private static final String CACHE_DIR_OPTION = "--cache-dir=";
+    private static final int DEFAULT_CACHE_CAPACITY = 10_000;
+    private static final String STATS_TEXT = "text";
+    private static final String STATS_JSON = "json";
+    // Orders JSON files from this size on are read by all processors with the ParallelOrderScanner
+    private static final long PARALLEL_SCAN_BYTES = 64L << 20;
+
     /**
      * The main method that starts the payment optimization process.
      * It expects two command-line arguments: the paths to the orders JSON file
-     * and the payment methods JSON file.
+     * and the payment methods JSON file. The orders file may also be a binary orders file written by {@link BinaryOrderWriter};
+     * orders JSON files of 64 MiB or more are read in parallel by a {@link ParallelOrderScanner}.
+     * With {@code --server [port]} it instead starts an {@link OptimizerServer} and serves requests until stopped,
+     * and with {@code --batch <manifest_or_directory> <output_directory>} it optimizes many customers with a {@link BatchRunner}.
+     * The paths may be followed by {@code --repeat=n} to optimize the orders n times, and by {@code --stats}
+     * or {@code --stats=json} to print a {@link RunReport} of the run to standard error, and by {@code --allocations=path}
+     * to write how every order was paid to a per-order ledger file. With {@code --engine=greedy} or
+     * {@code --engine=min-cost-flow}, full payments are chosen by that {@link FullPaymentEngine} instead of
+     * the default knapsack.
      *
-     * @param args Command-line arguments: args[0] = path to orders JSON, args[1] = path to payment methods JSON.
+     * @param args Command-line arguments: args[0] = path to orders JSON, args[1] = path to payment methods JSON,
+     *             followed by the optional {@code --repeat=n}, {@code --stats[=text|json]}, {@code --allocations=path}
+     *             and {@code --engine=greedy|min-cost-flow|knapsack}.
      */
     public static void main(String... args) {
 
+        if (args.length >= 1 && SERVER_OPTION.equals(args[0])) {
+            runServer(args);
+            return;
+        }
+        if (args.length >= 1 && BATCH_OPTION.equals(args[0])) {
+            runBatch(args);
+            return;
+        }
+
         if (args.length < 2) {
-            System.err.println("Usage: java -jar target\\app.jar <orders_file_path> <payment_methods_file_path>");
+            System.err.println("Usage: java -jar target\\app.jar <orders_file_path> <payment_methods_file_path> [" + REPEAT_OPTION + "n] [" + STATS_OPTION + "[=json]] [" + ALLOCATIONS_OPTION + "path] [" + ENGINE_OPTION + "greedy|min-cost-flow|knapsack]");
+            System.err.println("       java -jar target\\app.jar " + SERVER_OPTION + " [port] [" + CACHE_OPTION + "entries] [" + CACHE_DIR_OPTION + "path]");
+            System.err.println("       java -jar target\\app.jar " + BATCH_OPTION + " <manifest_or_directory> <output_directory> [" + PARALLELISM_OPTION + "n] [" + MEMORY_OPTION + "size] [" + STATS_OPTION + "[=json]]");
             System.exit(1);
         }
 
         String ordersPath = args[0];
         String paymentMethodsPath = args[1];
 
-        List<Order> orders;
-        List<PaymentMethod> paymentMethods;
+        int repeat = 1;
+        String statsFormat = null;
+        Path allocationsPath = null;
+        FullPaymentEngine engine = null;
+        try {
+            for (int i = 2; i < args.length; i++) {
+                if (args[i].startsWith(REPEAT_OPTION)) {
+                    repeat = Integer.parseInt(args[i].substring(REPEAT_OPTION.length()));
+                    if (repeat < 1) {
+                        throw new IllegalArgumentException("Repeat count must be at least 1, got " + repeat);
+                    }
+                } else if (args[i].startsWith(STATS_OPTION)) {
+                    statsFormat = parseStatsFormat(args[i]);
+                } else if (args[i].startsWith(ALLOCATIONS_OPTION)) {
+                    allocationsPath = Path.of(args[i].substring(ALLOCATIONS_OPTION.length()));
+                } else if (args[i].startsWith(ENGINE_OPTION)) {
+                    engine = parseEngine(args[i].substring(ENGINE_OPTION.length()));
+                } else {
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid options: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        RunStats stats = new RunStats();
+
+        // Loading data for payment methods in the background while orders are streamed
+        CompletableFuture<List<PaymentMethod>> paymentMethods = JsonParser.parsePaymentMethodsAsync(paymentMethodsPath);
 
         // Loading data for orders
+        PaymentOptimizer optimizer;
         try {
-            orders = JsonParser.parseOrders(ordersPath);
+            stats.phaseStarted(OptimizerPhaseListener.PARSE);
+            if (BinaryOrderReader.isBinary(Path.of(ordersPath))) {
+                optimizer = readBinaryOrders(ordersPath, paymentMethods);
+            } else if (new File(ordersPath).length() >= PARALLEL_SCAN_BYTES) {
+                optimizer = scanOrders(ordersPath, paymentMethods);
+            } else {
+                optimizer = streamOrders(ordersPath, paymentMethods);
+            }
+            stats.phaseCompleted(OptimizerPhaseListener.PARSE);
         } catch (IOException e) {
             System.err.println("Error reading or parsing orders file: " + e.getMessage());
             System.exit(1);
             return;
+        } catch (CompletionException e) {
+            System.err.println("Error reading or parsing payment methods file: " + e.getCause().getMessage());
+            System.exit(1);
+            return;
         }
 
-        // Loading data for payment methods
+        // optimize() has no side effects, so repeated runs give the same results
+        optimizer.setPhaseListener(stats);
+        if (engine != null) {
+            optimizer.setFullPaymentEngine(engine);
+        }
+        List<Result> results = null;
         try {
-            paymentMethods = JsonParser.parsePaymentMethods(paymentMethodsPath);
+            results = allocationsPath == null ? optimizer.optimize() : optimizeWithLedger(optimizer, allocationsPath);
+            for (int i = 1; i < repeat; i++) {
+                results = optimizer.optimize();
+            }
         } catch (IOException e) {
-            System.err.println("Error reading or parsing payment methods file: " + e.getMessage());
+            System.err.println("Error writing allocations file: " + e.getMessage());
             System.exit(1);
             return;
-        }
-
-        PaymentOptimizer optimizer = new PaymentOptimizer(orders, paymentMethods);
-        List<Result> results;
-        try {
-            results = optimizer.optimize();
         } catch (RuntimeException | NotFoundPaymentsException e) {
             System.err.println("Optimization failed: " + e.getMessage());
             System.exit(1);
@@ -70,5 +174,255 @@ public class Main {
             System.out.println(result);
         }
 
+        if (statsFormat != null) {
+            printReport(stats.report(), statsFormat);
+        }
+    }
+
+    /**
+     * Optimizes once while streaming the payment of every order to a ledger file with an {@link AllocationWriter},
+     * as CSV if the file name ends in {@code .csv} and as NDJSON otherwise.
+     * If the optimization fails, the incomplete ledger is deleted.
+     *
+     * @param optimizer The optimizer.
+     * @param allocationsPath The ledger file.
+     * @return The results of the optimization.
+     * @throws IOException If the ledger file cannot be written.
+     * @throws NotFoundPaymentsException if not all orders can be paid.
+     */
+    private static List<Result> optimizeWithLedger(PaymentOptimizer optimizer, Path allocationsPath) throws IOException, NotFoundPaymentsException {
+        boolean complete = false;
+        try (AllocationWriter writer = AllocationWriter.open(allocationsPath, AllocationWriter.Format.forPath(allocationsPath))) {
+            optimizer.setAllocationListener(writer);
+            List<Result> results = optimizer.optimize();
+            complete = true;
+            return results;
+        } finally {
+            optimizer.setAllocationListener(AllocationListener.NONE);
+            if (!complete) {
+                Files.deleteIfExists(allocationsPath);
+            }
+        }
+    }
+
+    /**
+     * Returns the full payment engine named by an {@code --engine} option, e.g. {@code min-cost-flow}.
+     *
+     * @param name The engine name, case-insensitive, with dashes for underscores.
+     * @return The engine.
+     * @throws IllegalArgumentException if there is no such engine.
+     */
+    private static FullPaymentEngine parseEngine(String name) {
+        try {
+            return FullPaymentEngine.valueOf(name.toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown full payment engine: " + name);
+        }
+    }
+
+    /**
+     * Returns the report format of a {@code --stats} option: {@code text} (the default) or {@code json}.
+     *
+     * @param option The option, {@code --stats} or {@code --stats=<format>}.
+     * @return The format.
+     * @throws IllegalArgumentException if the option or format is invalid.
+     */
+    private static String parseStatsFormat(String option) {
+        if (option.equals(STATS_OPTION)) {
+            return STATS_TEXT;
+        }
+        String format = option.startsWith(STATS_OPTION + "=") ? option.substring(STATS_OPTION.length() + 1) : "";
+        if (!format.equals(STATS_TEXT) && !format.equals(STATS_JSON)) {
+            throw new IllegalArgumentException("Unknown option: " + option);
+        }
+        return format;
+    }
+
+    /**
+     * Prints a run report to standard error, so that standard output keeps only the results.
+     *
+     * @param report The report.
+     * @param format The format, {@code text} or {@code json}.
+     */
+    private static void printReport(RunReport report, String format) {
+        if (format.equals(STATS_JSON)) {
+            System.err.println(report.toJson());
+        } else {
+            System.err.print(report.toText());
+        }
+    }
+
+    /**
+     * Streams the orders file into a new optimizer. Orders read before the payment methods
+     * are available are buffered; afterward candidate generation runs while the file is still being read.
+     *
+     * @param ordersPath The path to the orders JSON file.
+     * @param paymentMethods The payment methods being loaded concurrently.
+     * @return An optimizer holding all orders from the file.
+     * @throws IOException If the orders file cannot be read or parsed.
+     * @throws CompletionException If the payment methods could not be loaded.
+     */
+    private static PaymentOptimizer streamOrders(String ordersPath, CompletableFuture<List<PaymentMethod>> paymentMethods) throws IOException {
+        List<Order> pending = new ArrayList<>();
+        PaymentOptimizer[] optimizer = new PaymentOptimizer[1];
+
+        JsonParser.streamOrders(ordersPath, order -> {
+            if (optimizer[0] == null) {
+                if (!paymentMethods.isDone()) {
+                    pending.add(order);
+                    return;
+                }
+                optimizer[0] = new PaymentOptimizer(pending, paymentMethods.join());
+                pending.clear();
+            }
+            optimizer[0].addOrder(order);
+        });
+
+        if (optimizer[0] == null) {
+            optimizer[0] = new PaymentOptimizer(pending, paymentMethods.join());
+        }
+        return optimizer[0];
+    }
+
+    /**
+     * Reads a binary orders file, written by {@link BinaryOrderWriter}, into a new optimizer
+     * without creating Order objects.
+     *
+     * @param ordersPath The path to the binary orders file.
+     * @param paymentMethods The payment methods being loaded concurrently.
+     * @return An optimizer holding all orders from the file.
+     * @throws IOException If the orders file cannot be read or is invalid.
+     * @throws CompletionException If the payment methods could not be loaded.
+     */
+    private static PaymentOptimizer readBinaryOrders(String ordersPath, CompletableFuture<List<PaymentMethod>> paymentMethods) throws IOException {
+        PaymentCatalog catalog = PaymentCatalog.of(paymentMethods.join());
+        return new PaymentOptimizer(BinaryOrderReader.read(Path.of(ordersPath), catalog.getDictionary()), catalog);
+    }
+
+    /**
+     * Reads a large orders JSON file into a new optimizer on all processors, see {@link ParallelOrderScanner}.
+     *
+     * @param ordersPath The path to the orders JSON file.
+     * @param paymentMethods The payment methods being loaded concurrently.
+     * @return An optimizer holding all orders from the file.
+     * @throws IOException If the orders file cannot be read or parsed.
+     * @throws CompletionException If the payment methods could not be loaded.
+     */
+    private static PaymentOptimizer scanOrders(String ordersPath, CompletableFuture<List<PaymentMethod>> paymentMethods) throws IOException {
+        PaymentCatalog catalog = PaymentCatalog.of(paymentMethods.join());
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        return new PaymentOptimizer(ParallelOrderScanner.scan(Path.of(ordersPath), catalog.getDictionary(), parallelism), catalog);
+    }
+
+    /**
+     * Starts the HTTP server on the port given after {@code --server} (8080 by default)
+     * and stops it when the JVM shuts down.
+     * With {@code --cache=entries} and/or {@code --cache-dir=path}, repeated requests are answered from a
+     * {@link ResultCache} of that size (10000 entries by default), persisted in the directory if one is given.
+     *
+     * @param args Command-line arguments: args[0] = {@code --server}, followed by the optional port,
+     *             {@code --cache=entries} and {@code --cache-dir=path}.
+     */
+    private static void runServer(String... args) {
+        int port = DEFAULT_SERVER_PORT;
+        int cacheCapacity = 0;
+        Path cacheDirectory = null;
+        try {
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].startsWith(CACHE_OPTION)) {
+                    cacheCapacity = Integer.parseInt(args[i].substring(CACHE_OPTION.length()));
+                    if (cacheCapacity < 1) {
+                        throw new IllegalArgumentException("Cache size must be at least 1, got " + cacheCapacity);
+                    }
+                } else if (args[i].startsWith(CACHE_DIR_OPTION)) {
+                    cacheDirectory = Path.of(args[i].substring(CACHE_DIR_OPTION.length()));
+                } else if (i == 1) {
+                    port = Integer.parseInt(args[i]);
+                } else {
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid server options: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        OptimizerServer server;
+        try {
+            ResultCache cache = null;
+            if (cacheCapacity > 0 || cacheDirectory != null) {
+                int capacity = cacheCapacity > 0 ? cacheCapacity : DEFAULT_CACHE_CAPACITY;
+                cache = cacheDirectory == null ? new ResultCache(capacity) : new ResultCache(capacity, cacheDirectory);
+            }
+            server = new OptimizerServer(new InetSocketAddress(port), cache);
+        } catch (IOException e) {
+            System.err.println("Could not start server: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.start();
+        System.out.println("Listening on port " + server.getPort());
+    }
+
+    /**
+     * Runs a batch of customers and prints a summary. Exits with status 1 if any customer failed.
+     * Parallelism defaults to the number of processors and the memory ceiling to three quarters of the maximum heap.
+     *
+     * @param args Command-line arguments: args[0] = {@code --batch}, args[1] = manifest file or batch directory,
+     *             args[2] = output directory, followed by the optional {@code --parallelism=n}, {@code --memory=size}
+     *             and {@code --stats[=text|json]}.
+     */
+    private static void runBatch(String... args) {
+        if (args.length < 3) {
+            System.err.println("Usage: java -jar target\\app.jar " + BATCH_OPTION + " <manifest_or_directory> <output_directory> [" + PARALLELISM_OPTION + "n] [" + MEMORY_OPTION + "size] [" + STATS_OPTION + "[=json]]");
+            System.exit(1);
+        }
+
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        long memoryCeiling = Runtime.getRuntime().maxMemory() / 4 * 3;
+        String statsFormat = null;
+        RunStats stats = new RunStats();
+        BatchRunner.Summary summary;
+        try {
+            for (int i = 3; i < args.length; i++) {
+                if (args[i].startsWith(PARALLELISM_OPTION)) {
+                    parallelism = Integer.parseInt(args[i].substring(PARALLELISM_OPTION.length()));
+                } else if (args[i].startsWith(MEMORY_OPTION)) {
+                    memoryCeiling = BatchRunner.parseSize(args[i].substring(MEMORY_OPTION.length()));
+                } else if (args[i].startsWith(STATS_OPTION)) {
+                    statsFormat = parseStatsFormat(args[i]);
+                } else {
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+            List<BatchJob> jobs = BatchRunner.loadJobs(Path.of(args[1]));
+            BatchRunner runner = new BatchRunner(parallelism, memoryCeiling);
+            runner.setPhaseListener(stats);
+            summary = runner.run(jobs, Path.of(args[2]));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid batch options: " + e.getMessage());
+            System.exit(1);
+            return;
+        } catch (IOException e) {
+            System.err.println("Error preparing batch: " + e.getMessage());
+            System.exit(1);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Batch interrupted");
+            System.exit(1);
+            return;
+        }
+
+        System.out.println("Optimized " + summary.succeeded() + " customers, " + summary.failures().size() + " failed");
+        summary.failures().forEach(System.err::println);
+        if (statsFormat != null) {
+            printReport(stats.report(), statsFormat);
+        }
+        if (!summary.failures().isEmpty()) {
+            System.exit(1);
+        }
     }
-}
\ No newline at end of file
+}
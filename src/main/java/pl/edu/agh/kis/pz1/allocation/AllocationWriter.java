@@ -0,0 +1,240 @@
+package pl.edu.agh.kis.pz1.allocation;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import pl.edu.agh.kis.pz1.domain.MethodDictionary;
+import pl.edu.agh.kis.pz1.optimizer.Allocation;
+import pl.edu.agh.kis.pz1.optimizer.AllocationListener;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Writes the payment of every order to a per-order ledger as the optimizer allocates it, one line per order,
+ * so that memory use does not depend on the number of orders. Amounts are written with two decimal places.
+ * <ul>
+ *     <li>{@link Format#NDJSON}: one JSON object per line, e.g.
+ *     {@code {"order":"ORDER3","value":150.00,"rule":"R3","discount":15.00,"payments":[{"method":"PUNKTY","amount":100.00},{"method":"mZysk","amount":35.00}]}}</li>
+ *     <li>{@link Format#CSV}: a header line {@value #CSV_HEADER}, then one record per order.</li>
+ * </ul>
+ * Lines are buffered; they are complete once the writer is closed. Write errors are thrown as
+ * {@link UncheckedIOException} from {@link #allocated(Allocation)}, which makes the optimization fail.
+ * Allocations may be reported by several threads; each line is written in one piece.
+ */
+public class AllocationWriter implements AllocationListener, Closeable {
+
+    /**
+     * Header line of the CSV format.
+     */
+    public static final String CSV_HEADER = "order,value,rule,discount,points_amount,card,card_amount";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Format of the ledger lines.
+     */
+    public enum Format {
+        /**
+         * Newline-delimited JSON objects.
+         */
+        NDJSON,
+
+        /**
+         * Comma-separated values with a header line.
+         */
+        CSV;
+
+        /**
+         * Chooses the format from a file name: CSV for names ending in {@code .csv}, NDJSON otherwise.
+         *
+         * @param file The ledger file.
+         * @return The format.
+         */
+        public static Format forPath(Path file) {
+            return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? CSV : NDJSON;
+        }
+    }
+
+    private final BufferedWriter out;
+    private final Format format;
+    private final JsonStringEncoder encoder = JsonStringEncoder.getInstance();
+    // Line being formatted, and the buffer it is copied to for writing
+    private final StringBuilder line = new StringBuilder(256);
+    private char[] chars = new char[256];
+    private long count;
+
+    /**
+     * Creates a writer appending the ledger to a character stream. The CSV header is written immediately.
+     *
+     * @param writer The stream receiving the ledger; closed with this writer.
+     * @param format The format of the lines.
+     * @throws IOException If the header cannot be written.
+     */
+    public AllocationWriter(Writer writer, Format format) throws IOException {
+        this.out = new BufferedWriter(writer, BUFFER_SIZE);
+        this.format = format;
+        if (format == Format.CSV) {
+            out.write(CSV_HEADER);
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Creates a writer of a UTF-8 ledger file, replacing the file if it exists.
+     *
+     * @param file The ledger file.
+     * @param format The format of the lines.
+     * @return The writer.
+     * @throws IOException If the file cannot be created.
+     */
+    public static AllocationWriter open(Path file, Format format) throws IOException {
+        return new AllocationWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8), format);
+    }
+
+    /**
+     * Writes the line of an order.
+     *
+     * @param allocation The payment of the order.
+     * @throws UncheckedIOException If the line cannot be written.
+     */
+    @Override
+    public synchronized void allocated(Allocation allocation) {
+        line.setLength(0);
+        if (format == Format.CSV) {
+            appendCsv(allocation);
+        } else {
+            appendJson(allocation);
+        }
+        line.append('\n');
+
+        // The line is copied out in one piece, so the buffered writer is called once per order
+        if (chars.length < line.length()) {
+            chars = new char[Math.max(line.length(), chars.length * 2)];
+        }
+        line.getChars(0, line.length(), chars, 0);
+        try {
+            out.write(chars, 0, line.length());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write allocation of order " + allocation.orderId(), e);
+        }
+        count++;
+    }
+
+    /**
+     * Returns the number of orders written so far.
+     *
+     * @return The number of lines written, not counting the CSV header.
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Flushes the buffered lines and closes the underlying stream.
+     *
+     * @throws IOException If the lines cannot be written.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    private void appendJson(Allocation allocation) {
+        line.append("{\"order\":");
+        appendJsonString(allocation.orderId());
+        line.append(",\"value\":");
+        appendCents(allocation.valueCents());
+        line.append(",\"rule\":\"").append(allocation.rule().name()).append("\",\"discount\":");
+        appendCents(allocation.discountCents());
+        line.append(",\"payments\":[");
+        boolean points = allocation.pointsCents() > 0 || allocation.cardId() == null;
+        if (points) {
+            appendJsonPayment(MethodDictionary.POINTS_METHOD_ID, allocation.pointsCents());
+        }
+        if (allocation.cardId() != null) {
+            if (points) {
+                line.append(',');
+            }
+            appendJsonPayment(allocation.cardId(), allocation.cardCents());
+        }
+        line.append("]}");
+    }
+
+    private void appendJsonPayment(String method, long cents) {
+        line.append("{\"method\":");
+        appendJsonString(method);
+        line.append(",\"amount\":");
+        appendCents(cents);
+        line.append('}');
+    }
+
+    private void appendJsonString(String text) {
+        if (text == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        if (needsJsonEscape(text)) {
+            encoder.quoteAsString(text, line);
+        } else {
+            line.append(text);
+        }
+        line.append('"');
+    }
+
+    private static boolean needsJsonEscape(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x20 || c == '"' || c == '\\') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void appendCsv(Allocation allocation) {
+        appendCsvField(allocation.orderId());
+        line.append(',');
+        appendCents(allocation.valueCents());
+        line.append(',').append(allocation.rule().name()).append(',');
+        appendCents(allocation.discountCents());
+        line.append(',');
+        appendCents(allocation.pointsCents());
+        line.append(',');
+        appendCsvField(allocation.cardId());
+        line.append(',');
+        appendCents(allocation.cardCents());
+    }
+
+    /**
+     * Appends a CSV field, quoted if it contains a separator, quote or line break.
+     */
+    private void appendCsvField(String text) {
+        if (text == null) {
+            return;
+        }
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            line.append(text);
+            return;
+        }
+        line.append('"').append(text.replace("\"", "\"\"")).append('"');
+    }
+
+    /**
+     * Appends an amount in cents with two decimal places, without creating a BigDecimal.
+     */
+    private void appendCents(long cents) {
+        if (cents < 0) {
+            line.append('-');
+        }
+        long fraction = Math.abs(cents % 100);
+        line.append(Math.abs(cents / 100)).append('.').append((char) ('0' + fraction / 10)).append((char) ('0' + fraction % 10));
+    }
+}
@@ -0,0 +1,28 @@
+package pl.edu.agh.kis.pz1.batch;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * One customer's problem in a batch: an orders file and a payment methods file.
+ *
+ * @param customer The customer name, used as the name of the result file; must not contain path separators.
+ * @param ordersPath The path to the orders JSON file.
+ * @param paymentMethodsPath The path to the payment methods JSON file.
+ */
+public record BatchJob(String customer, Path ordersPath, Path paymentMethodsPath) {
+
+    /**
+     * Validates the job.
+     *
+     * @throws IllegalArgumentException if the customer name is empty or is not a plain file name.
+     */
+    public BatchJob {
+        Objects.requireNonNull(ordersPath);
+        Objects.requireNonNull(paymentMethodsPath);
+        if (customer == null || customer.isBlank() || customer.equals(".") || customer.equals("..")
+                || customer.contains("/") || customer.contains("\\")) {
+            throw new IllegalArgumentException("Invalid customer name: " + customer);
+        }
+    }
+}
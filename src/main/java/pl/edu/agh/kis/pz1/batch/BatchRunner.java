@@ -0,0 +1,301 @@
+package pl.edu.agh.kis.pz1.batch;
+
+import pl.edu.agh.kis.pz1.domain.Result;
+import pl.edu.agh.kis.pz1.optimizer.NotFoundPaymentsException;
+import pl.edu.agh.kis.pz1.optimizer.OptimizerPhaseListener;
+import pl.edu.agh.kis.pz1.optimizer.PaymentOptimizer;
+import pl.edu.agh.kis.pz1.utils.JsonParser;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Optimizes many independent customers' problems in one JVM, so that startup, Jackson
+ * and JIT warm-up are paid once for the whole batch instead of once per customer.
+ * <p>
+ * Jobs run on a fixed number of pool threads. A job is only submitted once a thread is free,
+ * so the job list is never turned into thousands of pending tasks and no other thread runs jobs. Before a job starts, its memory use is estimated from the
+ * size of its input files and reserved against a memory ceiling; a job that would exceed it waits
+ * until enough running jobs have finished. A job larger than the whole ceiling runs alone.
+ * <p>
+ * For every customer, the results are written to {@code <customer>.txt} in the output directory,
+ * in the format printed by the command-line application. A failing customer gets a
+ * {@code <customer>.error} file with the reason instead, and the batch continues.
+ */
+public class BatchRunner {
+
+    /**
+     * File name of the orders file of each customer subdirectory in a batch directory.
+     */
+    public static final String ORDERS_FILE = "orders.json";
+
+    /**
+     * File name of the payment methods file of each customer subdirectory in a batch directory.
+     */
+    public static final String PAYMENT_METHODS_FILE = "paymentmethods.json";
+
+    // Estimated heap bytes per byte of input JSON (beans, order table, candidates), and a fixed overhead per job
+    private static final long HEAP_BYTES_PER_INPUT_BYTE = 8;
+    private static final long JOB_OVERHEAD_BYTES = 1L << 20;
+    // Memory is reserved in units of 1 KiB so that the ceiling fits in the int permits of a Semaphore
+    private static final int MEMORY_UNIT_SHIFT = 10;
+
+    private final int parallelism;
+    private final int memoryUnits;
+    private OptimizerPhaseListener phaseListener = OptimizerPhaseListener.NONE;
+
+    /**
+     * Result of a batch run.
+     *
+     * @param succeeded The number of customers whose results were written.
+     * @param failures One "customer: reason" entry for every customer that failed, in no particular order.
+     */
+    public record Summary(int succeeded, List<String> failures) {
+    }
+
+    /**
+     * Creates a batch runner.
+     *
+     * @param parallelism The maximum number of customers optimized at the same time, at least 1.
+     * @param memoryCeilingBytes The maximum estimated heap use of all running jobs together, at least 1 MiB.
+     * @throws IllegalArgumentException if a parameter is out of range.
+     */
+    public BatchRunner(int parallelism, long memoryCeilingBytes) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, got " + parallelism);
+        }
+        if (memoryCeilingBytes < JOB_OVERHEAD_BYTES) {
+            throw new IllegalArgumentException("Memory ceiling must be at least 1 MiB, got " + memoryCeilingBytes);
+        }
+        this.parallelism = parallelism;
+        this.memoryUnits = (int) Math.min(Integer.MAX_VALUE, memoryCeilingBytes >> MEMORY_UNIT_SHIFT);
+    }
+
+    /**
+     * Sets the listener receiving the phases of every job's optimization, including
+     * {@link OptimizerPhaseListener#PARSE} for reading its input. It is called from all worker threads.
+     * Defaults to {@link OptimizerPhaseListener#NONE}.
+     *
+     * @param phaseListener The thread-safe phase listener.
+     */
+    public void setPhaseListener(OptimizerPhaseListener phaseListener) {
+        this.phaseListener = Objects.requireNonNull(phaseListener);
+    }
+
+    /**
+     * Loads the jobs of a batch from a manifest file or a directory, see {@link #readManifest(Path)}
+     * and {@link #scanDirectory(Path)}.
+     *
+     * @param source A manifest file or a batch directory.
+     * @return The jobs, in manifest order or sorted by customer name.
+     * @throws IOException If the source cannot be read or is invalid.
+     */
+    public static List<BatchJob> loadJobs(Path source) throws IOException {
+        return Files.isDirectory(source) ? scanDirectory(source) : readManifest(source);
+    }
+
+    /**
+     * Reads a manifest: one job per line, as {@code <customer> <orders_file_path> <payment_methods_file_path>}
+     * separated by whitespace. Relative paths are resolved against the manifest's directory.
+     * Empty lines and lines starting with {@code #} are ignored.
+     *
+     * @param manifest The manifest file.
+     * @return The jobs in manifest order.
+     * @throws IOException If the manifest cannot be read, a line is malformed or a customer appears twice.
+     */
+    public static List<BatchJob> readManifest(Path manifest) throws IOException {
+        Path base = manifest.toAbsolutePath().getParent();
+        List<BatchJob> jobs = new ArrayList<>();
+        Set<String> customers = new HashSet<>();
+
+        List<String> lines = Files.readAllLines(manifest);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            if (fields.length != 3) {
+                throw new IOException("Line " + (i + 1) + " of " + manifest + ": expected <customer> <orders_file_path> <payment_methods_file_path>");
+            }
+            if (!customers.add(fields[0])) {
+                throw new IOException("Line " + (i + 1) + " of " + manifest + ": duplicate customer " + fields[0]);
+            }
+            try {
+                jobs.add(new BatchJob(fields[0], base.resolve(fields[1]), base.resolve(fields[2])));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Line " + (i + 1) + " of " + manifest + ": " + e.getMessage(), e);
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Scans a batch directory: every subdirectory containing both {@value #ORDERS_FILE}
+     * and {@value #PAYMENT_METHODS_FILE} is one job, named after the subdirectory.
+     *
+     * @param directory The batch directory.
+     * @return The jobs sorted by customer name.
+     * @throws IOException If the directory cannot be listed.
+     */
+    public static List<BatchJob> scanDirectory(Path directory) throws IOException {
+        try (Stream<Path> entries = Files.list(directory)) {
+            return entries
+                    .filter(entry -> Files.isRegularFile(entry.resolve(ORDERS_FILE)) && Files.isRegularFile(entry.resolve(PAYMENT_METHODS_FILE)))
+                    .sorted()
+                    .map(entry -> new BatchJob(entry.getFileName().toString(), entry.resolve(ORDERS_FILE), entry.resolve(PAYMENT_METHODS_FILE)))
+                    .toList();
+        }
+    }
+
+    /**
+     * Parses a memory size such as {@code 512m}, {@code 4g} or {@code 1048576} (bytes).
+     * The suffixes k, m and g are binary multiples and case-insensitive.
+     *
+     * @param size The size to parse.
+     * @return The size in bytes.
+     * @throws IllegalArgumentException if the size is not a positive number with an optional suffix.
+     */
+    public static long parseSize(String size) {
+        String value = size.strip().toLowerCase(Locale.ROOT);
+        int shift = switch (value.isEmpty() ? ' ' : value.charAt(value.length() - 1)) {
+            case 'k' -> 10;
+            case 'm' -> 20;
+            case 'g' -> 30;
+            default -> 0;
+        };
+        String digits = shift == 0 ? value : value.substring(0, value.length() - 1);
+        try {
+            long number = Long.parseLong(digits);
+            if (number <= 0 || number > (Long.MAX_VALUE >> shift)) {
+                throw new IllegalArgumentException("Memory size out of range: " + size);
+            }
+            return number << shift;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid memory size: " + size, e);
+        }
+    }
+
+    /**
+     * Optimizes every job and writes its results to the output directory, which is created if needed.
+     * Returns once all jobs have finished.
+     *
+     * @param jobs The jobs to run.
+     * @param outputDirectory The directory receiving one result or error file per customer.
+     * @return The number of succeeded customers and the failures.
+     * @throws IOException If the output directory cannot be created.
+     * @throws InterruptedException If the calling thread is interrupted while waiting for the jobs.
+     */
+    public Summary run(List<BatchJob> jobs, Path outputDirectory) throws IOException, InterruptedException {
+        Files.createDirectories(outputDirectory);
+
+        Semaphore memory = new Semaphore(memoryUnits, true);
+        AtomicInteger succeeded = new AtomicInteger();
+        List<String> failures = Collections.synchronizedList(new ArrayList<>());
+
+        // A permit per pool thread: submission waits for a free thread, so at most parallelism jobs run at once
+        Semaphore slots = new Semaphore(parallelism);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            for (BatchJob job : jobs) {
+                slots.acquire();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            String failure = runJob(job, outputDirectory, memory);
+                            if (failure == null) {
+                                succeeded.incrementAndGet();
+                            } else {
+                                failures.add(job.customer() + ": " + failure);
+                            }
+                        } finally {
+                            slots.release();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    slots.release();
+                    throw e;
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        if (!executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+            throw new IllegalStateException("Batch did not terminate");
+        }
+        return new Summary(succeeded.get(), List.copyOf(failures));
+    }
+
+    /**
+     * Private method running one job within the memory ceiling.
+     *
+     * @return null on success, otherwise the reason of the failure.
+     */
+    private String runJob(BatchJob job, Path outputDirectory, Semaphore memory) {
+        int units;
+        try {
+            units = estimateUnits(job);
+            memory.acquire(units);
+        } catch (IOException e) {
+            return writeError(job, outputDirectory, "Cannot read input: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "Interrupted";
+        }
+
+        try {
+            phaseListener.phaseStarted(OptimizerPhaseListener.PARSE);
+            PaymentOptimizer optimizer = new PaymentOptimizer(
+                    JsonParser.parseOrders(job.ordersPath().toString()),
+                    JsonParser.parsePaymentMethods(job.paymentMethodsPath().toString()));
+            phaseListener.phaseCompleted(OptimizerPhaseListener.PARSE);
+            optimizer.setPhaseListener(phaseListener);
+            List<Result> results = optimizer.optimize();
+            Files.write(outputDirectory.resolve(job.customer() + ".txt"), results.stream().map(Result::toString).toList());
+            // An error file left by an earlier run would contradict the new results
+            Files.deleteIfExists(outputDirectory.resolve(job.customer() + ".error"));
+            return null;
+        } catch (IOException e) {
+            return writeError(job, outputDirectory, "Error reading or parsing input: " + e.getMessage());
+        } catch (RuntimeException | NotFoundPaymentsException e) {
+            return writeError(job, outputDirectory, "Optimization failed: " + e.getMessage());
+        } finally {
+            memory.release(units);
+        }
+    }
+
+    /**
+     * Private method estimating the heap use of a job, in memory units, capped at the whole ceiling.
+     */
+    private int estimateUnits(BatchJob job) throws IOException {
+        long inputBytes = Files.size(job.ordersPath()) + Files.size(job.paymentMethodsPath());
+        long estimate = JOB_OVERHEAD_BYTES + inputBytes * HEAP_BYTES_PER_INPUT_BYTE;
+        return (int) Math.min(memoryUnits, Math.max(1, estimate >> MEMORY_UNIT_SHIFT));
+    }
+
+    /**
+     * Private method replacing the customer's results, if any, with an error file.
+     *
+     * @return The message, extended if the error file could not be written.
+     */
+    private static String writeError(BatchJob job, Path outputDirectory, String message) {
+        try {
+            Files.deleteIfExists(outputDirectory.resolve(job.customer() + ".txt"));
+            Files.writeString(outputDirectory.resolve(job.customer() + ".error"), message + System.lineSeparator());
+            return message;
+        } catch (IOException e) {
+            return message + " (error file not written: " + e.getMessage() + ")";
+        }
+    }
+}
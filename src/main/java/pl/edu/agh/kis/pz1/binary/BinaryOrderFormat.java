@@ -0,0 +1,54 @@
+package pl.edu.agh.kis.pz1.binary;
+
+import java.nio.ByteOrder;
+
+/**
+ * Layout of the binary orders file written by {@link BinaryOrderWriter} and read by {@link BinaryOrderReader}.
+ * All numbers are little-endian. The file consists of:
+ * <ol>
+ *     <li>A {@value #HEADER_SIZE}-byte header: magic {@code OCPB}, version (short), reserved (short),
+ *     method count (int), mask words per order (int), record size (int), reserved (int), order count (long),
+ *     and the offsets of the method table, the records and the ID heap, and the ID heap length (longs).</li>
+ *     <li>The method table: every payment method ID used in a promotion, interned once,
+ *     as an int length followed by its UTF-8 bytes. The position of an ID is its bit in the promotion masks.</li>
+ *     <li>One fixed-width record per order, in file order: value in cents (long), offset of the ID in the heap (long),
+ *     length of the ID in bytes (int), flags (int, bit 0 = paid) and the promotion mask (mask words longs).</li>
+ *     <li>The ID heap: the UTF-8 bytes of all order IDs, back to back.</li>
+ * </ol>
+ */
+final class BinaryOrderFormat {
+
+    static final int MAGIC = 'O' | 'C' << 8 | 'P' << 16 | 'B' << 24;
+    static final short VERSION = 1;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static final int HEADER_SIZE = 64;
+    static final int VERSION_OFFSET = 4;
+    static final int METHOD_COUNT_OFFSET = 8;
+    static final int MASK_WORDS_OFFSET = 12;
+    static final int RECORD_SIZE_OFFSET = 16;
+    static final int ORDER_COUNT_OFFSET = 24;
+    static final int METHOD_TABLE_OFFSET_OFFSET = 32;
+    static final int RECORDS_OFFSET_OFFSET = 40;
+    static final int ID_HEAP_OFFSET_OFFSET = 48;
+    static final int ID_HEAP_LENGTH_OFFSET = 56;
+
+    // Fields of an order record
+    static final int VALUE_FIELD = 0;
+    static final int ID_OFFSET_FIELD = 8;
+    static final int ID_LENGTH_FIELD = 16;
+    static final int FLAGS_FIELD = 20;
+    static final int MASK_FIELD = 24;
+    static final int PAID_FLAG = 1;
+
+    private BinaryOrderFormat() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Returns the size of an order record with the given number of mask words.
+     */
+    static int recordSize(int maskWords) {
+        return MASK_FIELD + maskWords * Long.BYTES;
+    }
+}
@@ -0,0 +1,203 @@
+package pl.edu.agh.kis.pz1.binary;
+
+import pl.edu.agh.kis.pz1.domain.MethodDictionary;
+import pl.edu.agh.kis.pz1.domain.OrderTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static pl.edu.agh.kis.pz1.binary.BinaryOrderFormat.*;
+
+/**
+ * Reads binary orders files (see {@link BinaryOrderFormat}) straight into an {@link OrderTable},
+ * without creating Order objects, BigDecimals or promotion lists.
+ * The file is memory-mapped with {@link FileChannel#map} in windows of up to 1 GiB, and the fixed-width
+ * records are read in place from the mapping; only the order IDs are decoded into Strings.
+ * When the file's method table matches the payment methods of the table, promotion masks are copied word by word;
+ * otherwise each promotion bit is remapped, and promotions of unknown payment methods are dropped.
+ */
+public class BinaryOrderReader {
+
+    private static final long WINDOW_BYTES = 1L << 30;
+
+    private BinaryOrderReader() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Checks whether a file starts with the magic number of the binary orders format.
+     *
+     * @param file The file to check.
+     * @return Whether the file is a binary orders file.
+     * @throws IOException If the file cannot be read.
+     */
+    public static boolean isBinary(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Integer.BYTES).order(BYTE_ORDER);
+            while (magic.hasRemaining() && channel.read(magic) >= 0) {
+                // Keep reading until the magic number is complete or the file ends
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Reads a binary orders file into a new order table.
+     *
+     * @param file The binary orders file.
+     * @param dictionary The payment methods the table's promotion masks refer to.
+     * @return A table with one row per order, in file order.
+     * @throws IOException If the file cannot be read or is not a valid binary orders file.
+     */
+    public static OrderTable read(Path file, MethodDictionary dictionary) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException("Not a binary orders file: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(BYTE_ORDER);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a binary orders file: " + file);
+            }
+            if (header.getShort(VERSION_OFFSET) != VERSION) {
+                throw new IOException("Unsupported binary orders version " + header.getShort(VERSION_OFFSET) + " in " + file);
+            }
+            int methodCount = header.getInt(METHOD_COUNT_OFFSET);
+            int maskWords = header.getInt(MASK_WORDS_OFFSET);
+            int recordSize = header.getInt(RECORD_SIZE_OFFSET);
+            long orderCount = header.getLong(ORDER_COUNT_OFFSET);
+            long methodTableOffset = header.getLong(METHOD_TABLE_OFFSET_OFFSET);
+            long recordsOffset = header.getLong(RECORDS_OFFSET_OFFSET);
+            long idHeapOffset = header.getLong(ID_HEAP_OFFSET_OFFSET);
+            long idHeapLength = header.getLong(ID_HEAP_LENGTH_OFFSET);
+
+            if (methodCount < 0 || maskWords < 1 || maskWords > (Integer.MAX_VALUE - MASK_FIELD) / Long.BYTES
+                    || (long) maskWords * Long.SIZE < methodCount
+                    || recordSize != recordSize(maskWords) || orderCount < 0 || orderCount > Integer.MAX_VALUE
+                    || methodTableOffset < HEADER_SIZE || recordsOffset < methodTableOffset || recordsOffset > fileSize
+                    || idHeapOffset != recordsOffset + orderCount * recordSize
+                    || idHeapLength < 0 || idHeapOffset + idHeapLength > fileSize) {
+                throw new IOException("Corrupt binary orders header in " + file);
+            }
+
+            int[] remap = readMethodTable(channel, methodTableOffset, recordsOffset - methodTableOffset, methodCount, dictionary);
+            boolean identity = maskWords == dictionary.getMaskWords();
+            for (int method = 0; method < methodCount && identity; method++) {
+                identity = remap[method] == method;
+            }
+
+            OrderTable table = new OrderTable(dictionary, (int) orderCount);
+            long[] mask = new long[dictionary.getMaskWords()];
+            IdHeap ids = new IdHeap(channel, idHeapOffset, idHeapLength);
+            long recordsPerWindow = Math.max(1, WINDOW_BYTES / recordSize);
+
+            for (long first = 0; first < orderCount; first += recordsPerWindow) {
+                int count = (int) Math.min(recordsPerWindow, orderCount - first);
+                MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY,
+                        recordsOffset + first * recordSize, (long) count * recordSize);
+                records.order(BYTE_ORDER);
+
+                for (int i = 0; i < count; i++) {
+                    int base = i * recordSize;
+                    if (identity) {
+                        for (int word = 0; word < maskWords; word++) {
+                            mask[word] = records.getLong(base + MASK_FIELD + word * Long.BYTES);
+                        }
+                    } else {
+                        remapMask(records, base, maskWords, methodCount, remap, mask);
+                    }
+                    String id = ids.read(records.getLong(base + ID_OFFSET_FIELD), records.getInt(base + ID_LENGTH_FIELD));
+                    table.addMasked(id, records.getLong(base + VALUE_FIELD), mask, (records.getInt(base + FLAGS_FIELD) & PAID_FLAG) != 0);
+                }
+            }
+            return table;
+        }
+    }
+
+    /**
+     * Private method reading the method table and mapping each file method to its index in the dictionary, or -1.
+     */
+    private static int[] readMethodTable(FileChannel channel, long offset, long length, int methodCount,
+                                         MethodDictionary dictionary) throws IOException {
+        ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(BYTE_ORDER);
+        int[] remap = new int[methodCount];
+        for (int method = 0; method < methodCount; method++) {
+            if (table.remaining() < Integer.BYTES) {
+                throw new IOException("Corrupt binary orders method table");
+            }
+            int idLength = table.getInt();
+            if (idLength < 0 || idLength > table.remaining()) {
+                throw new IOException("Corrupt binary orders method table");
+            }
+            byte[] id = new byte[idLength];
+            table.get(id);
+            remap[method] = dictionary.indexOf(new String(id, StandardCharsets.UTF_8));
+        }
+        return remap;
+    }
+
+    /**
+     * Private method translating a record's promotion mask from file method bits to dictionary bits.
+     */
+    private static void remapMask(ByteBuffer records, int base, int maskWords, int methodCount, int[] remap, long[] mask)
+            throws IOException {
+        Arrays.fill(mask, 0);
+        for (int word = 0; word < maskWords; word++) {
+            long bits = records.getLong(base + MASK_FIELD + word * Long.BYTES);
+            while (bits != 0) {
+                int fileMethod = (word << 6) + Long.numberOfTrailingZeros(bits);
+                if (fileMethod >= methodCount) {
+                    throw new IOException("Corrupt binary orders record: promotion bit " + fileMethod);
+                }
+                int method = remap[fileMethod];
+                if (method >= 0) {
+                    mask[method >>> 6] |= 1L << method;
+                }
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    /**
+     * Sliding memory-mapped window over the ID heap. IDs are read in file order,
+     * so the window only moves forward and is remapped about once per gigabyte.
+     */
+    private static final class IdHeap {
+
+        private final FileChannel channel;
+        private final long start;
+        private final long length;
+        private MappedByteBuffer window;
+        private long windowStart;
+        private long windowLength;
+        private byte[] scratch = new byte[64];
+
+        IdHeap(FileChannel channel, long start, long length) {
+            this.channel = channel;
+            this.start = start;
+            this.length = length;
+        }
+
+        String read(long offset, int idLength) throws IOException {
+            if (offset < 0 || idLength < 0 || offset > length - idLength) {
+                throw new IOException("Corrupt binary orders record: ID outside the heap");
+            }
+            if (window == null || offset < windowStart || offset + idLength > windowStart + windowLength) {
+                windowStart = offset;
+                windowLength = Math.min(length - offset, Math.max(WINDOW_BYTES, idLength));
+                window = channel.map(FileChannel.MapMode.READ_ONLY, start + offset, windowLength);
+            }
+            if (scratch.length < idLength) {
+                scratch = new byte[Math.max(idLength, scratch.length * 2)];
+            }
+            window.get((int) (offset - windowStart), scratch, 0, idLength);
+            return new String(scratch, 0, idLength, StandardCharsets.UTF_8);
+        }
+    }
+}
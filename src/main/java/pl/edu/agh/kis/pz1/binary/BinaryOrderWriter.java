@@ -0,0 +1,210 @@
+package pl.edu.agh.kis.pz1.binary;
+
+import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.utils.JsonParser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static pl.edu.agh.kis.pz1.binary.BinaryOrderFormat.*;
+
+/**
+ * Converts an orders JSON file into the binary format described by {@link BinaryOrderFormat}.
+ * The JSON file is streamed twice: once to intern the promotion IDs and count the orders,
+ * then to write the records and the ID heap through two buffered regions of the output file,
+ * so memory use does not depend on the number of orders.
+ */
+public class BinaryOrderWriter {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private BinaryOrderWriter() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Converts an orders JSON file into a binary orders file, replacing it if it exists.
+     *
+     * @param ordersJson The orders JSON file, in the format read by {@link JsonParser#streamOrders}.
+     * @param output The binary file to write.
+     * @throws IOException If a file cannot be read or written, or the JSON is invalid.
+     */
+    public static void convert(Path ordersJson, Path output) throws IOException {
+        Map<String, Integer> methods = new LinkedHashMap<>();
+        long[] orderCount = new long[1];
+        JsonParser.streamOrders(ordersJson.toString(), order -> {
+            orderCount[0]++;
+            if (order.getPromotions() != null) {
+                order.getPromotions().forEach(promotion -> methods.putIfAbsent(promotion, methods.size()));
+            }
+        });
+
+        int maskWords = Math.max(1, (methods.size() + 63) >>> 6);
+        int recordSize = recordSize(maskWords);
+        ByteBuffer methodTable = encodeMethodTable(methods);
+        long methodTableOffset = HEADER_SIZE;
+        long recordsOffset = align(methodTableOffset + methodTable.remaining());
+        long idHeapOffset = Math.addExact(recordsOffset, Math.multiplyExact(orderCount[0], recordSize));
+
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, methodTable, methodTableOffset);
+
+            RegionWriter records = new RegionWriter(channel, recordsOffset, Math.max(BUFFER_SIZE, recordSize));
+            RegionWriter idHeap = new RegionWriter(channel, idHeapOffset, BUFFER_SIZE);
+            long[] mask = new long[maskWords];
+            long[] written = new long[1];
+            JsonParser.streamOrders(ordersJson.toString(), order -> {
+                byte[] id = order.getId().getBytes(StandardCharsets.UTF_8);
+                encodeMask(order, methods, mask);
+                try {
+                    ByteBuffer record = records.reserve(recordSize);
+                    record.putLong(order.getValueCents());
+                    record.putLong(idHeap.position() - idHeapOffset);
+                    record.putInt(id.length);
+                    record.putInt(order.isPaid() ? PAID_FLAG : 0);
+                    for (long word : mask) {
+                        record.putLong(word);
+                    }
+                    idHeap.write(id);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                written[0]++;
+            });
+            records.flush();
+            idHeap.flush();
+            if (written[0] != orderCount[0]) {
+                throw new IOException("Orders file " + ordersJson + " changed during conversion");
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(BYTE_ORDER);
+            header.putInt(MAGIC)
+                    .putShort(VERSION)
+                    .putShort((short) 0)
+                    .putInt(methods.size())
+                    .putInt(maskWords)
+                    .putInt(recordSize)
+                    .putInt(0)
+                    .putLong(orderCount[0])
+                    .putLong(methodTableOffset)
+                    .putLong(recordsOffset)
+                    .putLong(idHeapOffset)
+                    .putLong(idHeap.position() - idHeapOffset)
+                    .flip();
+            writeFully(channel, header, 0);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Converts an orders JSON file from the command line.
+     *
+     * @param args Command-line arguments: args[0] = orders JSON file, args[1] = binary file to write.
+     */
+    public static void main(String... args) {
+        if (args.length != 2) {
+            System.err.println("Usage: java -cp target\\app.jar " + BinaryOrderWriter.class.getName()
+                    + " <orders_file_path> <binary_orders_file_path>");
+            System.exit(1);
+        }
+        try {
+            convert(Path.of(args[0]), Path.of(args[1]));
+        } catch (IOException e) {
+            System.err.println("Error converting orders file: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static ByteBuffer encodeMethodTable(Map<String, Integer> methods) {
+        List<byte[]> ids = methods.keySet().stream().map(id -> id.getBytes(StandardCharsets.UTF_8)).toList();
+        ByteBuffer table = ByteBuffer.allocate(ids.stream().mapToInt(id -> Integer.BYTES + id.length).sum()).order(BYTE_ORDER);
+        for (byte[] id : ids) {
+            table.putInt(id.length).put(id);
+        }
+        return table.flip();
+    }
+
+    private static void encodeMask(Order order, Map<String, Integer> methods, long[] mask) {
+        Arrays.fill(mask, 0);
+        if (order.getPromotions() != null) {
+            for (String promotion : order.getPromotions()) {
+                int method = methods.get(promotion);
+                mask[method >>> 6] |= 1L << method;
+            }
+        }
+    }
+
+    private static long align(long offset) {
+        return (offset + Long.BYTES - 1) & -Long.BYTES;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Buffered sequential writer for one region of the output file, written with positional writes,
+     * so that several regions can be filled at the same time.
+     */
+    private static final class RegionWriter {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        // File position of the first buffered byte
+        private long flushed;
+
+        RegionWriter(FileChannel channel, long start, int bufferSize) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(bufferSize).order(BYTE_ORDER);
+            this.flushed = start;
+        }
+
+        /**
+         * Returns the file position of the next byte written.
+         */
+        long position() {
+            return flushed + buffer.position();
+        }
+
+        /**
+         * Makes room for the given number of bytes and returns the buffer to put them into.
+         */
+        ByteBuffer reserve(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+            return buffer;
+        }
+
+        void write(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.capacity()) {
+                flush();
+                writeFully(channel, ByteBuffer.wrap(bytes), flushed);
+                flushed += bytes.length;
+                return;
+            }
+            reserve(bytes.length).put(bytes);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            int length = buffer.remaining();
+            writeFully(channel, buffer, flushed);
+            flushed += length;
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package pl.edu.agh.kis.pz1.cache;
+
+import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+import pl.edu.agh.kis.pz1.domain.Result;
+import pl.edu.agh.kis.pz1.optimizer.NotFoundPaymentsException;
+import pl.edu.agh.kis.pz1.optimizer.PaymentOptimizer;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Bounded cache of optimization results, keyed by a SHA-256 hash of the canonical form of the inputs,
+ * so that re-submitted problems are answered without running the optimizer.
+ * <p>
+ * The canonical form keeps the orders and payment methods in the caller's order, because the optimizer's
+ * tie-breaks and card choices depend on it, uses amounts in cents and ignores the order and duplicates
+ * of each order's promotions, which do not affect the results. On a miss the optimizer runs on the caller's
+ * inputs, so enabling the cache never changes the results. Failed optimizations are not cached.
+ * <p>
+ * When the cache is full, the least recently used entry is evicted. With a directory, every entry is also
+ * written there as {@code <key>.txt} in the output format of the application, and evicted entries are deleted,
+ * so a new cache on the same directory starts with the most recently stored entries of the previous one.
+ * A failure to write the directory is reported on standard error and does not fail the lookup.
+ * The cache is thread-safe; two threads missing the same key at the same time both run the optimizer.
+ */
+public final class ResultCache {
+
+    // Prefix of the hashed canonical form, changed whenever the form or the optimizer's tie-breaking changes
+    private static final String KEY_VERSION = "results-v2";
+    private static final String FILE_SUFFIX = ".txt";
+
+    private final int capacity;
+    private final Path directory;
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, List<Result>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates an in-memory cache.
+     *
+     * @param capacity The maximum number of entries, at least 1.
+     * @throws IllegalArgumentException if the capacity is less than 1.
+     */
+    public ResultCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1, got " + capacity);
+        }
+        this.capacity = capacity;
+        this.directory = null;
+    }
+
+    /**
+     * Creates a cache persisted in a directory, which is created if needed.
+     * The most recently written entries found in the directory are loaded, up to the capacity,
+     * and the older ones are deleted.
+     *
+     * @param capacity The maximum number of entries, at least 1.
+     * @param directory The directory holding the entries.
+     * @throws IOException If the directory cannot be created or read.
+     * @throws IllegalArgumentException if the capacity is less than 1.
+     */
+    public ResultCache(int capacity, Path directory) throws IOException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1, got " + capacity);
+        }
+        this.capacity = capacity;
+        this.directory = Files.createDirectories(directory);
+
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(file -> file.getFileName().toString().endsWith(FILE_SUFFIX))
+                    .sorted(Comparator.comparing(ResultCache::lastModified).reversed())
+                    .toList();
+        }
+        for (int i = 0; i < files.size(); i++) {
+            if (i < capacity) {
+                String fileName = files.get(i).getFileName().toString();
+                entries.putFirst(fileName.substring(0, fileName.length() - FILE_SUFFIX.length()), readResults(files.get(i)));
+            } else {
+                Files.deleteIfExists(files.get(i));
+            }
+        }
+    }
+
+    /**
+     * Returns the results for the given inputs, from the cache or from a new optimization of the inputs.
+     *
+     * @param orders The orders, with their remaining values initialized.
+     * @param paymentMethods The payment methods, with their remaining limits initialized.
+     * @return The total amounts spent per payment method, in the order of {@code paymentMethods}.
+     * @throws NotFoundPaymentsException if not all orders can be paid.
+     */
+    public List<Result> optimize(List<Order> orders, List<PaymentMethod> paymentMethods) throws NotFoundPaymentsException {
+        String key = hash(orders, paymentMethods);
+
+        List<Result> results;
+        synchronized (entries) {
+            results = entries.get(key);
+        }
+        if (results != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            results = List.copyOf(new PaymentOptimizer(orders, paymentMethods).optimize());
+            store(key, results);
+        }
+        return results;
+    }
+
+    /**
+     * Returns the cache key of the given inputs: the hex SHA-256 hash of their canonical form.
+     *
+     * @param orders The orders.
+     * @param paymentMethods The payment methods, with their remaining limits initialized.
+     * @return The key, 64 hex digits.
+     */
+    public static String key(List<Order> orders, List<PaymentMethod> paymentMethods) {
+        return hash(orders, paymentMethods);
+    }
+
+    /**
+     * Returns the number of lookups answered from the cache.
+     *
+     * @return The number of hits.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups that ran the optimizer.
+     *
+     * @return The number of misses.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of entries evicted to stay within the capacity.
+     *
+     * @return The number of evictions.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the number of cached entries.
+     *
+     * @return The number of entries.
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Private method adding an entry, evicting the least recently used ones beyond the capacity,
+     * and updating the directory.
+     */
+    private void store(String key, List<Result> results) {
+        List<String> evicted = new ArrayList<>();
+        synchronized (entries) {
+            entries.put(key, results);
+            Iterator<String> oldest = entries.keySet().iterator();
+            while (entries.size() > capacity) {
+                evicted.add(oldest.next());
+                oldest.remove();
+            }
+        }
+        evictions.addAndGet(evicted.size());
+
+        if (directory != null) {
+            try {
+                writeResults(key, results);
+                for (String evictedKey : evicted) {
+                    Files.deleteIfExists(directory.resolve(evictedKey + FILE_SUFFIX));
+                }
+            } catch (IOException e) {
+                // The results are valid and stay cached in memory; only persistence failed
+                System.err.println("Warning: Cannot update result cache directory " + directory + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Private method writing an entry to the directory, replacing the file atomically.
+     */
+    private void writeResults(String key, List<Result> results) throws IOException {
+        Path temporary = Files.createTempFile(directory, key, ".tmp");
+        try {
+            Files.write(temporary, results.stream().map(Result::toString).toList());
+            Files.move(temporary, directory.resolve(key + FILE_SUFFIX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Private method reading an entry written by {@link #writeResults(String, List)}.
+     */
+    private static List<Result> readResults(Path file) throws IOException {
+        List<Result> results = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            int separator = line.lastIndexOf(' ');
+            if (separator <= 0) {
+                throw new IOException("Malformed result line in " + file + ": " + line);
+            }
+            try {
+                results.add(new Result(line.substring(0, separator), new BigDecimal(line.substring(separator + 1))));
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed amount in " + file + ": " + line, e);
+            }
+        }
+        return List.copyOf(results);
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Private method returning the distinct promotions of an order, sorted.
+     * Null entries match no payment method, like unknown IDs, so they are left out.
+     */
+    private static SortedSet<String> canonicalPromotions(Order order) {
+        SortedSet<String> promotions = new TreeSet<>();
+        if (order.getPromotions() != null) {
+            for (String promotion : order.getPromotions()) {
+                if (promotion != null) {
+                    promotions.add(promotion);
+                }
+            }
+        }
+        return promotions;
+    }
+
+    /**
+     * Private method hashing the canonical form of the inputs.
+     * Every string is written with its length, so that different inputs cannot encode to the same bytes.
+     */
+    private static String hash(List<Order> orders, List<PaymentMethod> paymentMethods) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        try (DataOutputStream output = new DataOutputStream(new DigestOutputStream(OutputStream.nullOutputStream(), digest))) {
+            writeString(output, KEY_VERSION);
+            output.writeInt(paymentMethods.size());
+            for (PaymentMethod method : paymentMethods) {
+                writeString(output, method.getId());
+                output.writeInt(method.getDiscount());
+                output.writeLong(method.getRemainingLimitCents());
+            }
+            output.writeInt(orders.size());
+            for (Order order : orders) {
+                writeString(output, order.getId());
+                output.writeLong(order.getValueCents());
+                output.writeBoolean(order.isPaid());
+                SortedSet<String> promotions = canonicalPromotions(order);
+                output.writeInt(promotions.size());
+                for (String promotion : promotions) {
+                    writeString(output, promotion);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+}
@@ -0,0 +1,147 @@
+package pl.edu.agh.kis.pz1.domain;
+
+import java.util.*;
+
+/**
+ * Dictionary interning payment method IDs into dense integer indices
+ * (0 to {@code size() - 1}, in input order).
+ * The indices are the bit positions used in promotion masks, so that
+ * eligibility checks in the optimizer are bit operations instead of
+ * string comparisons. Masks are stored as {@code long} words,
+ * one word for up to 64 methods and more words beyond that.
+ */
+public final class MethodDictionary {
+
+    /**
+     * The ID of the loyalty points payment method.
+     */
+    public static final String POINTS_METHOD_ID = "PUNKTY";
+
+    private final List<String> ids;
+    private final Map<String, Integer> indexById;
+    private final int pointsIndex;
+    private final int maskWords;
+    // Bits of every method that is a card, i.e. every method except PUNKTY
+    private final long[] cardMask;
+
+    /**
+     * Creates a dictionary for the given payment method IDs.
+     *
+     * @param methodIds The payment method IDs; the position of an ID becomes its index.
+     * @throws IllegalArgumentException if an ID occurs more than once.
+     */
+    public MethodDictionary(List<String> methodIds) {
+        this.ids = List.copyOf(methodIds);
+        this.indexById = new HashMap<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (indexById.putIfAbsent(ids.get(i), i) != null) {
+                throw new IllegalArgumentException("Duplicate payment method ID: " + ids.get(i));
+            }
+        }
+        this.pointsIndex = indexById.getOrDefault(POINTS_METHOD_ID, -1);
+        this.maskWords = Math.max(1, (ids.size() + Long.SIZE - 1) / Long.SIZE);
+
+        this.cardMask = new long[maskWords];
+        for (int i = 0; i < ids.size(); i++) {
+            if (i != pointsIndex) {
+                cardMask[i >>> 6] |= 1L << i;
+            }
+        }
+    }
+
+    /**
+     * Creates a dictionary for the IDs of the given payment methods.
+     *
+     * @param paymentMethods The payment methods, in index order.
+     * @return A new dictionary.
+     * @throws IllegalArgumentException if an ID occurs more than once.
+     */
+    public static MethodDictionary of(List<PaymentMethod> paymentMethods) {
+        return new MethodDictionary(paymentMethods.stream().map(PaymentMethod::getId).toList());
+    }
+
+    /**
+     * Returns the number of payment methods in the dictionary.
+     *
+     * @return The number of payment methods.
+     */
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Returns the payment method IDs in index order.
+     *
+     * @return An unmodifiable list of the IDs.
+     */
+    public List<String> getIds() {
+        return ids;
+    }
+
+    /**
+     * Returns the ID of the payment method with the given index.
+     *
+     * @param method The index of the payment method.
+     * @return The payment method ID.
+     */
+    public String getId(int method) {
+        return ids.get(method);
+    }
+
+    /**
+     * Looks up the index of a payment method ID.
+     *
+     * @param id The payment method ID.
+     * @return The index of the payment method, or -1 if it is not in the dictionary.
+     */
+    public int indexOf(String id) {
+        return indexById.getOrDefault(id, -1);
+    }
+
+    /**
+     * Returns the index of the PUNKTY payment method.
+     *
+     * @return The index of PUNKTY, or -1 if it is not in the dictionary.
+     */
+    public int getPointsIndex() {
+        return pointsIndex;
+    }
+
+    /**
+     * Checks whether the payment method with the given index is a card (not PUNKTY).
+     *
+     * @param method The index of the payment method.
+     * @return Whether the method is a card.
+     */
+    public boolean isCard(int method) {
+        return (cardMask[method >>> 6] & (1L << method)) != 0;
+    }
+
+    /**
+     * Returns the number of card payment methods (all methods except PUNKTY).
+     *
+     * @return The number of cards.
+     */
+    public int cardCount() {
+        return pointsIndex < 0 ? ids.size() : ids.size() - 1;
+    }
+
+    /**
+     * Returns the number of {@code long} words needed for a mask over all payment methods.
+     *
+     * @return The number of mask words.
+     */
+    public int getMaskWords() {
+        return maskWords;
+    }
+
+    /**
+     * Returns the mask word with the bits of card methods.
+     *
+     * @param word The index of the mask word.
+     * @return The card bits in this word.
+     */
+    long cardMaskWord(int word) {
+        return cardMask[word];
+    }
+}
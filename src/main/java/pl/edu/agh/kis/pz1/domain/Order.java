@@ -1,6 +1,9 @@
 package pl.edu.agh.kis.pz1.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
+import pl.edu.agh.kis.pz1.utils.MoneyUtil;
+
 import java.math.BigDecimal;
 import java.util.List;
 
@@ -13,7 +16,6 @@ import java.util.List;
 @Setter
 @ToString
 @NoArgsConstructor
-@AllArgsConstructor
 public class Order {
 
     /**
@@ -26,6 +28,14 @@ public class Order {
      */
     private BigDecimal value;
 
+    /**
+     * The total value of the order in cents, normalized once when the value is set.
+     * Used by the optimizer so that it does not need to allocate BigDecimal objects.
+     */
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private long valueCents;
+
     /**
      * An optional list of payment method IDs that are eligible for promotion R2
      * when used for full payment of this order.
@@ -45,6 +55,34 @@ public class Order {
      */
     private BigDecimal remainingValueToPay;
 
+    /**
+     * Creates a new order.
+     *
+     * @param id                  The unique identifier of the order.
+     * @param value               The total value of the order.
+     * @param promotions          The payment method IDs eligible for promotion R2.
+     * @param isPaid              Whether the order has already been paid.
+     * @param remainingValueToPay The remaining amount to be paid.
+     */
+    public Order(String id, BigDecimal value, List<String> promotions, boolean isPaid, BigDecimal remainingValueToPay) {
+        this.id = id;
+        setValue(value);
+        this.promotions = promotions;
+        this.isPaid = isPaid;
+        this.remainingValueToPay = remainingValueToPay;
+    }
+
+    /**
+     * Sets the total value of the order and normalizes it to cents.
+     *
+     * @param value The total value of the order.
+     * @throws ArithmeticException if the value does not fit into a {@code long} amount of cents.
+     */
+    public void setValue(BigDecimal value) {
+        this.value = value;
+        this.valueCents = MoneyUtil.toCents(value);
+    }
+
     /**
      * Initializes the {@code remainingValueToPay} to the order's full {@code value}.
      * This should be called after parsing or creating a new Order object
@@ -0,0 +1,354 @@
+package pl.edu.agh.kis.pz1.domain;
+
+import pl.edu.agh.kis.pz1.utils.MoneyUtil;
+
+import java.util.*;
+
+/**
+ * Columnar (struct-of-arrays) store of orders.
+ * Each order is a row index into parallel primitive arrays holding its value in cents,
+ * its paid flag and its promotion mask, so the optimizer can scan orders
+ * without chasing object references.
+ * Promotion masks have one bit per payment method, indexed by the table's
+ * {@link MethodDictionary}; {@code maskWords} longs are stored per order.
+ */
+public class OrderTable {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final MethodDictionary dictionary;
+    private final int maskWords;
+
+    private String[] ids;
+    private long[] valueCents;
+    private boolean[] paid;
+    private long[] promotionMasks;
+    private int size;
+
+    // Built lazily on the first lookup by ID
+    private Map<String, Integer> rowById;
+
+    /**
+     * Creates an empty table whose promotion masks refer to the given payment method IDs.
+     *
+     * @param methodIds The payment method IDs; the position of an ID is its bit in the promotion masks.
+     */
+    public OrderTable(List<String> methodIds) {
+        this(new MethodDictionary(methodIds));
+    }
+
+    /**
+     * Creates an empty table whose promotion masks refer to the payment methods of a dictionary.
+     *
+     * @param dictionary The dictionary assigning bit positions to payment methods.
+     */
+    public OrderTable(MethodDictionary dictionary) {
+        this(dictionary, INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates an empty table with room for the given number of orders,
+     * e.g. when the number of orders is known from a file header.
+     *
+     * @param dictionary The dictionary assigning bit positions to payment methods.
+     * @param capacity The number of orders that can be added before the arrays grow.
+     * @throws IllegalArgumentException if the capacity is negative.
+     */
+    public OrderTable(MethodDictionary dictionary, int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative, got " + capacity);
+        }
+        this.dictionary = dictionary;
+        this.maskWords = dictionary.getMaskWords();
+
+        this.ids = new String[capacity];
+        this.valueCents = new long[capacity];
+        this.paid = new boolean[capacity];
+        this.promotionMasks = new long[Math.multiplyExact(capacity, maskWords)];
+    }
+
+    /**
+     * Builds a table from a list of Order objects.
+     *
+     * @param orders The orders to copy into the table, in row order.
+     * @param methodIds The payment method IDs used for the promotion masks.
+     * @return A new table with one row per order.
+     */
+    public static OrderTable fromOrders(List<Order> orders, List<String> methodIds) {
+        return fromOrders(orders, new MethodDictionary(methodIds));
+    }
+
+    /**
+     * Builds a table from a list of Order objects.
+     *
+     * @param orders The orders to copy into the table, in row order.
+     * @param dictionary The dictionary assigning bit positions to payment methods.
+     * @return A new table with one row per order.
+     */
+    public static OrderTable fromOrders(List<Order> orders, MethodDictionary dictionary) {
+        OrderTable table = new OrderTable(dictionary);
+        orders.forEach(table::add);
+        return table;
+    }
+
+    /**
+     * Concatenates tables into one, e.g. tables read in parallel from consecutive parts of a file.
+     *
+     * @param dictionary The dictionary shared by all parts.
+     * @param parts The tables to copy, in row order.
+     * @return A new table with the rows of all parts.
+     * @throws IllegalArgumentException if a part refers to another dictionary.
+     * @throws ArithmeticException if the parts hold more than {@code Integer.MAX_VALUE} orders together.
+     */
+    public static OrderTable concat(MethodDictionary dictionary, List<OrderTable> parts) {
+        int total = 0;
+        for (OrderTable part : parts) {
+            if (part.dictionary != dictionary) {
+                throw new IllegalArgumentException("All parts must refer to the same dictionary");
+            }
+            total = Math.addExact(total, part.size);
+        }
+
+        OrderTable table = new OrderTable(dictionary, total);
+        for (OrderTable part : parts) {
+            int row = table.size;
+            System.arraycopy(part.ids, 0, table.ids, row, part.size);
+            System.arraycopy(part.valueCents, 0, table.valueCents, row, part.size);
+            System.arraycopy(part.paid, 0, table.paid, row, part.size);
+            System.arraycopy(part.promotionMasks, 0, table.promotionMasks, row * table.maskWords, part.size * table.maskWords);
+            table.size += part.size;
+        }
+        return table;
+    }
+
+    /**
+     * Appends an order to the table.
+     * Promotions that do not refer to one of the table's payment methods are ignored.
+     *
+     * @param order The order to append.
+     * @return The row index of the appended order.
+     */
+    public int add(Order order) {
+        return add(order.getId(), order.getValueCents(), order.getPromotions(), order.isPaid());
+    }
+
+    /**
+     * Appends an order to the table.
+     * Promotions that do not refer to one of the table's payment methods are ignored.
+     *
+     * @param id The unique identifier of the order.
+     * @param valueCents The total value of the order in cents.
+     * @param promotions The payment method IDs eligible for promotion R2, may be null.
+     * @param isPaid Whether the order has already been paid.
+     * @return The row index of the appended order.
+     */
+    public int add(String id, long valueCents, List<String> promotions, boolean isPaid) {
+        ensureCapacity(size + 1);
+        int row = size++;
+
+        ids[row] = id;
+        this.valueCents[row] = valueCents;
+        paid[row] = isPaid;
+        if (promotions != null) {
+            for (String promoId : promotions) {
+                int method = dictionary.indexOf(promoId);
+                if (method >= 0) {
+                    promotionMasks[row * maskWords + (method >>> 6)] |= 1L << method;
+                }
+            }
+        }
+        if (rowById != null) {
+            rowById.putIfAbsent(id, row);
+        }
+        return row;
+    }
+
+    /**
+     * Appends an order whose promotions are already a mask over the table's payment methods,
+     * as laid out by {@link #getDictionary()}: bit {@code m} of word {@code m / 64} is set for method {@code m}.
+     *
+     * @param id The unique identifier of the order.
+     * @param valueCents The total value of the order in cents.
+     * @param promotionMask The promotion mask; its first {@code getDictionary().getMaskWords()} words are copied.
+     * @param isPaid Whether the order has already been paid.
+     * @return The row index of the appended order.
+     */
+    public int addMasked(String id, long valueCents, long[] promotionMask, boolean isPaid) {
+        ensureCapacity(size + 1);
+        int row = size++;
+
+        ids[row] = id;
+        this.valueCents[row] = valueCents;
+        paid[row] = isPaid;
+        System.arraycopy(promotionMask, 0, promotionMasks, row * maskWords, maskWords);
+        if (rowById != null) {
+            rowById.putIfAbsent(id, row);
+        }
+        return row;
+    }
+
+    /**
+     * Converts the table back into Order objects.
+     * Paid orders have no remaining value to pay, all others the full value.
+     *
+     * @return A new list with one Order per row.
+     */
+    public List<Order> toOrders() {
+        List<Order> orders = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            List<String> promotions = new ArrayList<>();
+            for (int method = nextPromotion(row, 0); method >= 0; method = nextPromotion(row, method + 1)) {
+                promotions.add(dictionary.getId(method));
+            }
+            Order order = new Order(ids[row], MoneyUtil.toBigDecimal(valueCents[row]), promotions, false, null);
+            order.initializeRemainingValue();
+            if (paid[row]) {
+                order.markAsPaid();
+            }
+            orders.add(order);
+        }
+        return orders;
+    }
+
+    /**
+     * Returns the number of orders stored in the table.
+     *
+     * @return The number of orders in the table.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the dictionary the promotion masks refer to.
+     *
+     * @return The dictionary assigning bit positions to payment methods.
+     */
+    public MethodDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Returns the ID of the order in the given row.
+     *
+     * @param row The row index.
+     * @return The unique identifier of the order.
+     */
+    public String getId(int row) {
+        return ids[row];
+    }
+
+    /**
+     * Returns the value of the order in the given row.
+     *
+     * @param row The row index.
+     * @return The total value of the order in cents.
+     */
+    public long getValueCents(int row) {
+        return valueCents[row];
+    }
+
+    /**
+     * Checks whether the order in the given row has been paid.
+     *
+     * @param row The row index.
+     * @return Whether the order has been fully paid.
+     */
+    public boolean isPaid(int row) {
+        return paid[row];
+    }
+
+    /**
+     * Marks the order in the given row as paid.
+     *
+     * @param row The row index.
+     */
+    public void markAsPaid(int row) {
+        paid[row] = true;
+    }
+
+    /**
+     * Checks whether a payment method is eligible for promotion R2 on the order in the given row.
+     *
+     * @param row The row index.
+     * @param method The bit position of the payment method.
+     * @return Whether the payment method is listed in the order's promotions.
+     */
+    public boolean hasPromotion(int row, int method) {
+        return (promotionMasks[row * maskWords + (method >>> 6)] & (1L << method)) != 0;
+    }
+
+    /**
+     * Finds the next payment method listed in the order's promotions, starting at the given bit.
+     * Intended for loops of the form
+     * {@code for (int m = nextPromotion(row, 0); m >= 0; m = nextPromotion(row, m + 1))}.
+     *
+     * @param row The row index.
+     * @param fromMethod The first bit position to check.
+     * @return The bit position of the next promoted payment method, or -1 if there is none.
+     */
+    public int nextPromotion(int row, int fromMethod) {
+        return nextSetBit(row, fromMethod, false);
+    }
+
+    /**
+     * Finds the next card (any payment method except PUNKTY) listed in the order's promotions,
+     * starting at the given bit. The order's mask is intersected with the dictionary's card mask,
+     * so no method IDs are compared.
+     *
+     * @param row The row index.
+     * @param fromMethod The first bit position to check.
+     * @return The bit position of the next promoted card, or -1 if there is none.
+     */
+    public int nextCardPromotion(int row, int fromMethod) {
+        return nextSetBit(row, fromMethod, true);
+    }
+
+    private int nextSetBit(int row, int fromMethod, boolean cardsOnly) {
+        int word = fromMethod >>> 6;
+        if (word >= maskWords) {
+            return -1;
+        }
+        int base = row * maskWords;
+        long bits = promotionMasks[base + word] & (-1L << fromMethod);
+        while (true) {
+            if (cardsOnly) {
+                bits &= dictionary.cardMaskWord(word);
+            }
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == maskWords) {
+                return -1;
+            }
+            bits = promotionMasks[base + word];
+        }
+    }
+
+    /**
+     * Looks up the row of an order by its ID.
+     *
+     * @param id The unique identifier of the order.
+     * @return The row index of the first order with this ID, or -1 if there is none.
+     */
+    public int indexOf(String id) {
+        if (rowById == null) {
+            rowById = new HashMap<>();
+            for (int row = 0; row < size; row++) {
+                rowById.putIfAbsent(ids[row], row);
+            }
+        }
+        return rowById.getOrDefault(id, -1);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(Math.max(capacity, INITIAL_CAPACITY), ids.length + (ids.length >> 1));
+        ids = Arrays.copyOf(ids, newCapacity);
+        valueCents = Arrays.copyOf(valueCents, newCapacity);
+        paid = Arrays.copyOf(paid, newCapacity);
+        promotionMasks = Arrays.copyOf(promotionMasks, Math.multiplyExact(newCapacity, maskWords));
+    }
+}
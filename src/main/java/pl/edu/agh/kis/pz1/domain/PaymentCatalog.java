@@ -0,0 +1,106 @@
+package pl.edu.agh.kis.pz1.domain;
+
+import java.util.List;
+
+/**
+ * Immutable snapshot of the available payment methods: their IDs, discounts and remaining limits in cents,
+ * addressed by {@link MethodDictionary} index.
+ * A catalog is taken once from the PaymentMethod objects and is not affected by later changes to them,
+ * so one catalog can be shared by any number of concurrent optimizations without locking or copying.
+ */
+public final class PaymentCatalog {
+
+    private final MethodDictionary dictionary;
+    private final int[] discounts;
+    private final long[] remainingLimitCents;
+
+    private PaymentCatalog(MethodDictionary dictionary, int[] discounts, long[] remainingLimitCents) {
+        this.dictionary = dictionary;
+        this.discounts = discounts;
+        this.remainingLimitCents = remainingLimitCents;
+    }
+
+    /**
+     * Takes a snapshot of the given payment methods.
+     * Each method contributes its current remaining limit, i.e. the limit still available for the orders to optimize.
+     *
+     * @param paymentMethods The payment methods, in index order.
+     * @return A new catalog.
+     * @throws IllegalArgumentException if an ID occurs more than once.
+     */
+    public static PaymentCatalog of(List<PaymentMethod> paymentMethods) {
+        int[] discounts = new int[paymentMethods.size()];
+        long[] remainingLimitCents = new long[paymentMethods.size()];
+        for (int method = 0; method < paymentMethods.size(); method++) {
+            discounts[method] = paymentMethods.get(method).getDiscount();
+            remainingLimitCents[method] = paymentMethods.get(method).getRemainingLimitCents();
+        }
+        return new PaymentCatalog(MethodDictionary.of(paymentMethods), discounts, remainingLimitCents);
+    }
+
+    /**
+     * Returns the dictionary of the catalog's payment method IDs.
+     *
+     * @return The dictionary assigning indices to payment methods.
+     */
+    public MethodDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Returns the number of payment methods.
+     *
+     * @return The number of payment methods.
+     */
+    public int size() {
+        return discounts.length;
+    }
+
+    /**
+     * Returns the ID of a payment method.
+     *
+     * @param method The payment method index.
+     * @return The payment method ID.
+     */
+    public String getId(int method) {
+        return dictionary.getId(method);
+    }
+
+    /**
+     * Returns the discount of a payment method.
+     *
+     * @param method The payment method index.
+     * @return The discount percentage.
+     */
+    public int getDiscount(int method) {
+        return discounts[method];
+    }
+
+    /**
+     * Returns the remaining limit of a payment method when the snapshot was taken.
+     *
+     * @param method The payment method index.
+     * @return The remaining limit in cents.
+     */
+    public long getRemainingLimitCents(int method) {
+        return remainingLimitCents[method];
+    }
+
+    /**
+     * Returns a new array with the remaining limits of all payment methods, e.g. to start a ledger.
+     *
+     * @return The remaining limits in cents, by payment method index.
+     */
+    public long[] copyRemainingLimitsCents() {
+        return remainingLimitCents.clone();
+    }
+
+    /**
+     * Returns the index of the PUNKTY payment method.
+     *
+     * @return The index of PUNKTY, or -1 if the catalog does not contain it.
+     */
+    public int getPointsIndex() {
+        return dictionary.getPointsIndex();
+    }
+}
@@ -1,18 +1,22 @@
 package pl.edu.agh.kis.pz1.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.*;
+import pl.edu.agh.kis.pz1.utils.MoneyUtil;
+
 import java.math.BigDecimal;
 
 /**
  * Represents a payment method available to the customer.
  * Includes details like ID, discount percentage, total limit,
  * remaining limit, and total amount spent using this method.
+ * Every monetary field is mirrored in cents, which is what the optimizer works on;
+ * the BigDecimal fields are refreshed from the cents with {@link #syncFromCents()}.
  */
 @Getter
 @Setter
 @ToString
 @NoArgsConstructor
-@AllArgsConstructor
 public class PaymentMethod {
 
     /**
@@ -42,6 +46,75 @@ public class PaymentMethod {
      */
     private BigDecimal totalSpent = BigDecimal.ZERO;
 
+    /**
+     * The total initial limit in cents.
+     */
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private long limitCents;
+
+    /**
+     * The remaining limit in cents.
+     */
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private long remainingLimitCents;
+
+    /**
+     * The total amount spent in cents.
+     */
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    private long totalSpentCents;
+
+    /**
+     * Creates a new payment method.
+     *
+     * @param id             The unique identifier of the payment method.
+     * @param discount       The discount percentage offered by this payment method.
+     * @param limit          The total initial limit of funds.
+     * @param remainingLimit The remaining limit of funds.
+     * @param totalSpent     The total amount already spent.
+     */
+    public PaymentMethod(String id, int discount, BigDecimal limit, BigDecimal remainingLimit, BigDecimal totalSpent) {
+        this.id = id;
+        this.discount = discount;
+        setLimit(limit);
+        setRemainingLimit(remainingLimit);
+        setTotalSpent(totalSpent);
+    }
+
+    /**
+     * Sets the total limit and normalizes it to cents.
+     *
+     * @param limit The total initial limit of funds.
+     * @throws ArithmeticException if the limit does not fit into a {@code long} amount of cents.
+     */
+    public void setLimit(BigDecimal limit) {
+        this.limit = limit;
+        this.limitCents = MoneyUtil.toCents(limit);
+    }
+
+    /**
+     * Sets the remaining limit and normalizes it to cents.
+     *
+     * @param remainingLimit The remaining limit of funds.
+     */
+    public void setRemainingLimit(BigDecimal remainingLimit) {
+        this.remainingLimit = remainingLimit;
+        this.remainingLimitCents = MoneyUtil.toCents(remainingLimit);
+    }
+
+    /**
+     * Sets the total amount spent and normalizes it to cents.
+     *
+     * @param totalSpent The total amount spent.
+     */
+    public void setTotalSpent(BigDecimal totalSpent) {
+        this.totalSpent = totalSpent;
+        this.totalSpentCents = MoneyUtil.toCents(totalSpent);
+    }
+
     /**
      * Initializes the {@code remainingLimit} to the full {@code limit} amount.
      * This should be called after parsing or creating a new PaymentMethod object
@@ -49,6 +122,7 @@ public class PaymentMethod {
      */
     public void initializeRemainingLimit() {
         this.remainingLimit = this.limit;
+        this.remainingLimitCents = this.limitCents;
     }
 
     /**
@@ -62,6 +136,7 @@ public class PaymentMethod {
             return;
         }
         this.totalSpent = this.totalSpent.add(amount);
+        this.totalSpentCents = MoneyUtil.add(this.totalSpentCents, MoneyUtil.toCents(amount));
     }
 
     /**
@@ -75,5 +150,45 @@ public class PaymentMethod {
             return;
         }
         this.remainingLimit = this.remainingLimit.subtract(amount);
+        this.remainingLimitCents = MoneyUtil.subtract(this.remainingLimitCents, MoneyUtil.toCents(amount));
+    }
+
+    /**
+     * Adds a specified amount in cents to the {@code totalSpentCents}.
+     * Ensures the amount is non-negative. The BigDecimal {@code totalSpent}
+     * is not updated until {@link #syncFromCents()} is called.
+     *
+     * @param cents The amount spent in cents.
+     * @throws ArithmeticException if the total overflows.
+     */
+    public void addSpentCents(long cents) {
+        if (cents < 0) {
+            return;
+        }
+        this.totalSpentCents = MoneyUtil.add(this.totalSpentCents, cents);
+    }
+
+    /**
+     * Deducts a specified amount in cents from the {@code remainingLimitCents}.
+     * Ensures the amount is non-negative. The BigDecimal {@code remainingLimit}
+     * is not updated until {@link #syncFromCents()} is called.
+     *
+     * @param cents The amount to deduct in cents.
+     * @throws ArithmeticException if the remaining limit overflows.
+     */
+    public void deductLimitCents(long cents) {
+        if (cents < 0) {
+            return;
+        }
+        this.remainingLimitCents = MoneyUtil.subtract(this.remainingLimitCents, cents);
+    }
+
+    /**
+     * Refreshes the BigDecimal {@code remainingLimit} and {@code totalSpent}
+     * from their cents counterparts after a run of cents-based updates.
+     */
+    public void syncFromCents() {
+        this.remainingLimit = MoneyUtil.toBigDecimal(this.remainingLimitCents);
+        this.totalSpent = MoneyUtil.toBigDecimal(this.totalSpentCents);
     }
 }
\ No newline at end of file
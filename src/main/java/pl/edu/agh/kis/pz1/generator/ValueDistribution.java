@@ -0,0 +1,66 @@
+package pl.edu.agh.kis.pz1.generator;
+
+import java.util.SplittableRandom;
+
+/**
+ * Distribution of order values used by the {@link WorkloadGenerator}.
+ * Every distribution is bounded by a minimum and a maximum value in cents.
+ */
+public enum ValueDistribution {
+
+    /**
+     * Every value between the minimum and the maximum is equally likely.
+     */
+    UNIFORM {
+        @Override
+        long sample(SplittableRandom random, long minCents, long maxCents) {
+            return random.nextLong(minCents, maxCents + 1);
+        }
+    },
+
+    /**
+     * Log-normal values centered on the geometric mean of the bounds:
+     * most orders are mid-sized, with fewer very small and very large ones.
+     */
+    LOG_NORMAL {
+        @Override
+        long sample(SplittableRandom random, long minCents, long maxCents) {
+            double logMin = Math.log(Math.max(1, minCents));
+            double logMax = Math.log(Math.max(1, maxCents));
+            // The bounds lie three standard deviations from the mean
+            double logValue = (logMin + logMax) / 2 + nextGaussian(random) * (logMax - logMin) / 6;
+            return clamp(Math.round(Math.exp(logValue)), minCents, maxCents);
+        }
+    },
+
+    /**
+     * Pareto values with shape 1.5 starting at the minimum: mostly small orders
+     * with a heavy tail of large ones, capped at the maximum.
+     */
+    PARETO {
+        @Override
+        long sample(SplittableRandom random, long minCents, long maxCents) {
+            double value = Math.max(1, minCents) / Math.pow(1 - random.nextDouble(), 1 / 1.5);
+            return clamp(Math.round(Math.min(value, maxCents)), minCents, maxCents);
+        }
+    };
+
+    /**
+     * Draws an order value.
+     *
+     * @param random The source of randomness.
+     * @param minCents The smallest value in cents.
+     * @param maxCents The largest value in cents, not less than minCents.
+     * @return A value between minCents and maxCents, inclusive.
+     */
+    abstract long sample(SplittableRandom random, long minCents, long maxCents);
+
+    private static long clamp(long value, long min, long max) {
+        return Math.min(max, Math.max(min, value));
+    }
+
+    private static double nextGaussian(SplittableRandom random) {
+        // Box-Muller transform; 1 - nextDouble() is never 0
+        return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+}
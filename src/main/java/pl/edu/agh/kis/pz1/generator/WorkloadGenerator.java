@@ -0,0 +1,196 @@
+package pl.edu.agh.kis.pz1.generator;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import pl.edu.agh.kis.pz1.domain.MethodDictionary;
+import pl.edu.agh.kis.pz1.utils.MoneyUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * Generates synthetic orders and payment methods files in the formats read by
+ * {@link pl.edu.agh.kis.pz1.utils.JsonParser}.
+ * Orders are written one at a time with Jackson's streaming generator, so memory use
+ * does not depend on the number of orders. Payment method limits are derived from a
+ * feasible allocation built while the orders are written: every order is assigned to
+ * a random card, and each card's limit is the value assigned to it times the limit slack.
+ */
+public class WorkloadGenerator {
+
+    private static final JsonFactory FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private final WorkloadSpec spec;
+
+    /**
+     * Creates a generator for the given workload.
+     *
+     * @param spec The workload parameters.
+     * @throws IllegalArgumentException if a parameter is out of range.
+     */
+    public WorkloadGenerator(WorkloadSpec spec) {
+        spec.validate();
+        this.spec = spec;
+    }
+
+    /**
+     * Writes the orders and payment methods files.
+     *
+     * @param ordersPath The orders file to write.
+     * @param paymentMethodsPath The payment methods file to write.
+     * @throws IOException If a file cannot be written.
+     */
+    public void generate(Path ordersPath, Path paymentMethodsPath) throws IOException {
+        try (OutputStream orders = Files.newOutputStream(ordersPath);
+             OutputStream paymentMethods = Files.newOutputStream(paymentMethodsPath)) {
+            generate(orders, paymentMethods);
+        }
+    }
+
+    /**
+     * Writes the orders and payment methods as JSON arrays. The streams are not closed.
+     *
+     * @param orders The stream receiving the orders.
+     * @param paymentMethods The stream receiving the payment methods, written after all orders.
+     * @throws IOException If a stream cannot be written.
+     */
+    public void generate(OutputStream orders, OutputStream paymentMethods) throws IOException {
+        SplittableRandom random = new SplittableRandom(spec.getSeed());
+        SplittableRandom orderRandom = random.split();
+        SplittableRandom methodRandom = random.split();
+
+        long[] assignedCents = new long[spec.cardCount()];
+        long totalCents = writeOrders(orders, orderRandom, assignedCents);
+        writePaymentMethods(paymentMethods, methodRandom, assignedCents, totalCents);
+    }
+
+    private long writeOrders(OutputStream out, SplittableRandom random, long[] assignedCents) throws IOException {
+        int cards = assignedCents.length;
+        long minCents = MoneyUtil.toCents(spec.getMinValue());
+        long maxCents = MoneyUtil.toCents(spec.getMaxValue());
+        double promotionProbability = spec.getPromotionsPerOrder() / cards;
+        long totalCents = 0;
+
+        try (JsonGenerator json = FACTORY.createGenerator(out)) {
+            json.writeStartArray();
+            for (long i = 1; i <= spec.getOrderCount(); i++) {
+                long valueCents = spec.getValueDistribution().sample(random, minCents, maxCents);
+                int assignedCard = random.nextInt(cards);
+                assignedCents[assignedCard] = MoneyUtil.add(assignedCents[assignedCard], valueCents);
+                totalCents = MoneyUtil.add(totalCents, valueCents);
+
+                json.writeStartObject();
+                json.writeStringField("id", "ORDER" + i);
+                json.writeStringField("value", MoneyUtil.toBigDecimal(valueCents).toPlainString());
+                json.writeArrayFieldStart("promotions");
+                for (int card = 0; card < cards; card++) {
+                    if (random.nextDouble() < promotionProbability) {
+                        json.writeString(cardId(card));
+                    }
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+        }
+        return totalCents;
+    }
+
+    private void writePaymentMethods(OutputStream out, SplittableRandom random, long[] assignedCents, long totalCents) throws IOException {
+        try (JsonGenerator json = FACTORY.createGenerator(out)) {
+            json.writeStartArray();
+            if (spec.isIncludePoints()) {
+                writePaymentMethod(json, MethodDictionary.POINTS_METHOD_ID, randomDiscount(random), scale(totalCents, spec.getPointsShare()));
+            }
+            for (int card = 0; card < assignedCents.length; card++) {
+                long limitCents = Math.max(assignedCents[card], scale(assignedCents[card], spec.getLimitSlack()));
+                writePaymentMethod(json, cardId(card), randomDiscount(random), limitCents);
+            }
+            json.writeEndArray();
+        }
+    }
+
+    private static void writePaymentMethod(JsonGenerator json, String id, int discount, long limitCents) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", id);
+        json.writeStringField("discount", Integer.toString(discount));
+        json.writeStringField("limit", MoneyUtil.toBigDecimal(limitCents).toPlainString());
+        json.writeEndObject();
+    }
+
+    private int randomDiscount(SplittableRandom random) {
+        return random.nextInt(spec.getMinDiscount(), spec.getMaxDiscount() + 1);
+    }
+
+    private static long scale(long cents, double factor) {
+        return (long) Math.ceil(cents * factor);
+    }
+
+    private static String cardId(int card) {
+        return "CARD" + (card + 1);
+    }
+
+    /**
+     * Command-line entry point.
+     * Options are given as {@code --name=value} after the two output paths; see {@link WorkloadSpec} for their meaning.
+     *
+     * @param args args[0] = orders output path, args[1] = payment methods output path, followed by options.
+     */
+    public static void main(String... args) {
+        if (args.length < 2) {
+            System.err.println("Usage: java -cp target\\app.jar " + WorkloadGenerator.class.getName()
+                    + " <orders_file_path> <payment_methods_file_path> [--seed=42] [--orders=1000] [--methods=4]"
+                    + " [--points=true] [--values=UNIFORM|LOG_NORMAL|PARETO] [--min-value=1.00] [--max-value=1000.00]"
+                    + " [--promotions=1.5] [--min-discount=5] [--max-discount=20] [--limit-slack=2.0] [--points-share=0.1]");
+            System.exit(1);
+        }
+
+        WorkloadGenerator generator;
+        try {
+            generator = new WorkloadGenerator(parseOptions(args));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid option: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        try {
+            generator.generate(Path.of(args[0]), Path.of(args[1]));
+        } catch (IOException e) {
+            System.err.println("Error writing workload files: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static WorkloadSpec parseOptions(String... args) {
+        WorkloadSpec.WorkloadSpecBuilder builder = WorkloadSpec.builder();
+        for (int i = 2; i < args.length; i++) {
+            String[] option = args[i].split("=", 2);
+            if (option.length != 2 || !option[0].startsWith("--")) {
+                throw new IllegalArgumentException("expected --name=value, got " + args[i]);
+            }
+            String value = option[1];
+            switch (option[0]) {
+                case "--seed" -> builder.seed(Long.parseLong(value));
+                case "--orders" -> builder.orderCount(Long.parseLong(value));
+                case "--methods" -> builder.methodCount(Integer.parseInt(value));
+                case "--points" -> builder.includePoints(Boolean.parseBoolean(value));
+                case "--values" -> builder.valueDistribution(ValueDistribution.valueOf(value));
+                case "--min-value" -> builder.minValue(new BigDecimal(value));
+                case "--max-value" -> builder.maxValue(new BigDecimal(value));
+                case "--promotions" -> builder.promotionsPerOrder(Double.parseDouble(value));
+                case "--min-discount" -> builder.minDiscount(Integer.parseInt(value));
+                case "--max-discount" -> builder.maxDiscount(Integer.parseInt(value));
+                case "--limit-slack" -> builder.limitSlack(Double.parseDouble(value));
+                case "--points-share" -> builder.pointsShare(Double.parseDouble(value));
+                default -> throw new IllegalArgumentException("unknown option " + option[0]);
+            }
+        }
+        return builder.build();
+    }
+}
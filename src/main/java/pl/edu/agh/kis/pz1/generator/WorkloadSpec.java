@@ -0,0 +1,121 @@
+package pl.edu.agh.kis.pz1.generator;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Parameters of a synthetic workload produced by the {@link WorkloadGenerator}.
+ * The same specification, including the seed, always produces the same files.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class WorkloadSpec {
+
+    /**
+     * The seed of the random generator.
+     */
+    @Builder.Default
+    private long seed = 42L;
+
+    /**
+     * The number of orders to generate.
+     */
+    @Builder.Default
+    private long orderCount = 1000L;
+
+    /**
+     * The number of payment methods, including PUNKTY if it is generated.
+     */
+    @Builder.Default
+    private int methodCount = 4;
+
+    /**
+     * Whether PUNKTY is generated as the first payment method.
+     */
+    @Builder.Default
+    private boolean includePoints = true;
+
+    /**
+     * The distribution of order values.
+     */
+    @Builder.Default
+    private ValueDistribution valueDistribution = ValueDistribution.UNIFORM;
+
+    /**
+     * The smallest order value.
+     */
+    @Builder.Default
+    private BigDecimal minValue = new BigDecimal("1.00");
+
+    /**
+     * The largest order value.
+     */
+    @Builder.Default
+    private BigDecimal maxValue = new BigDecimal("1000.00");
+
+    /**
+     * The average number of cards listed in an order's promotions.
+     * Each card is listed independently with probability {@code promotionsPerOrder / cards}.
+     */
+    @Builder.Default
+    private double promotionsPerOrder = 1.5;
+
+    /**
+     * The smallest discount percentage of a payment method.
+     */
+    @Builder.Default
+    private int minDiscount = 5;
+
+    /**
+     * The largest discount percentage of a payment method.
+     */
+    @Builder.Default
+    private int maxDiscount = 20;
+
+    /**
+     * How much card limits exceed a known feasible allocation.
+     * Every order is assigned to a random card and each card's limit is the total value assigned to it
+     * multiplied by this factor, so 1.0 is barely feasible and larger values are increasingly loose.
+     */
+    @Builder.Default
+    private double limitSlack = 2.0;
+
+    /**
+     * The limit of PUNKTY as a fraction of the total value of all orders.
+     */
+    @Builder.Default
+    private double pointsShare = 0.1;
+
+    /**
+     * Checks that the parameters describe a valid workload.
+     *
+     * @throws IllegalArgumentException if a parameter is out of range.
+     */
+    public void validate() {
+        require(orderCount >= 0, "Order count must not be negative");
+        require(cardCount() >= 1, "At least one card payment method is required");
+        require(valueDistribution != null, "Value distribution must be set");
+        require(minValue.signum() > 0 && minValue.compareTo(maxValue) <= 0, "Order values must satisfy 0 < min <= max");
+        require(promotionsPerOrder >= 0 && promotionsPerOrder <= cardCount(), "Promotions per order must be between 0 and the number of cards");
+        require(minDiscount >= 0 && minDiscount <= maxDiscount && maxDiscount <= 100, "Discounts must satisfy 0 <= min <= max <= 100");
+        require(limitSlack >= 1.0, "Limit slack must be at least 1.0");
+        require(pointsShare >= 0, "Points share must not be negative");
+    }
+
+    /**
+     * Returns the number of card payment methods (all methods except PUNKTY).
+     *
+     * @return The number of cards.
+     */
+    public int cardCount() {
+        return includePoints ? methodCount - 1 : methodCount;
+    }
+
+    private static void require(boolean condition, String message) {
+        if (!condition) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+/**
+ * How the {@link PaymentOptimizer} paid one order: with points, with a card, or with both (R3).
+ *
+ * @param orderId The ID of the order.
+ * @param valueCents The value of the order before discounts, in cents.
+ * @param rule The promotion rule applied.
+ * @param pointsCents The amount paid with points, in cents; 0 if points were not used.
+ * @param cardId The ID of the card used, or null if the order was paid with points only.
+ * @param cardCents The amount paid with the card, in cents; 0 if no card was used.
+ */
+public record Allocation(String orderId, long valueCents, AllocationRule rule, long pointsCents, String cardId, long cardCents) {
+
+    /**
+     * Returns the discount the order received.
+     *
+     * @return The value of the order minus the amounts paid, in cents.
+     */
+    public long discountCents() {
+        return valueCents - pointsCents - cardCents;
+    }
+}
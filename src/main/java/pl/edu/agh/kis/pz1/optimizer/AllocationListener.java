@@ -0,0 +1,26 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+/**
+ * Receives every payment made by a {@link PaymentOptimizer} optimization as soon as it is made,
+ * e.g. to write a per-order ledger without keeping the allocations in memory.
+ * Orders are reported in allocation order: first the full payments (R2 and R4) in the order they were applied,
+ * then the R3 and base payments by order row. Orders already paid in the input are not reported.
+ * All calls of one optimization are made on the thread calling {@code optimize}; if the optimization fails,
+ * the orders reported before the failure do not form a complete allocation.
+ */
+@FunctionalInterface
+public interface AllocationListener {
+
+    /**
+     * Listener ignoring all allocations, used when none is set. The optimizer then creates no Allocation objects.
+     */
+    AllocationListener NONE = allocation -> {
+    };
+
+    /**
+     * Called when an order has been paid.
+     *
+     * @param allocation The payment of the order.
+     */
+    void allocated(Allocation allocation);
+}
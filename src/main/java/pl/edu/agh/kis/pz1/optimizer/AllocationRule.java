@@ -0,0 +1,27 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+/**
+ * The promotion rule under which the {@link PaymentOptimizer} paid an order.
+ */
+public enum AllocationRule {
+
+    /**
+     * Paid in full with a card the order is promoted for, with the card's discount.
+     */
+    R2,
+
+    /**
+     * Paid at least 10% with points and the rest with a card, with a 10% discount on the whole order.
+     */
+    R3,
+
+    /**
+     * Paid in full with points, with the points' discount.
+     */
+    R4,
+
+    /**
+     * Paid in full with a card, without a discount.
+     */
+    BASE
+}
@@ -0,0 +1,437 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+import pl.edu.agh.kis.pz1.domain.MethodDictionary;
+import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.domain.OrderTable;
+import pl.edu.agh.kis.pz1.domain.PaymentCatalog;
+import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+import pl.edu.agh.kis.pz1.domain.Result;
+import pl.edu.agh.kis.pz1.utils.MoneyUtil;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Anytime payment optimizer that improves on the greedy {@link PaymentOptimizer}
+ * with a depth-first branch-and-bound search under a wall-clock budget.
+ * <p>
+ * The greedy allocation is computed first and becomes the incumbent. The search then
+ * assigns orders one by one, largest first, trying for each order its payment options
+ * (R2 with a promoted card, R4, R3 with the most or the fewest points, and base payment with a card)
+ * in descending order of discount. Payments that differ only by card are symmetric, so R3 and base
+ * payments use the best-fitting card only, and the options of each order are sorted once, by packed
+ * primitive keys, and kept while the orders after it are explored. A branch is pruned when the discount collected so far plus
+ * the best discount every remaining order could get on its own cannot beat the incumbent, or when
+ * the remaining limits cannot cover the cheapest payment of every remaining order.
+ * When the budget runs out, the best complete allocation found so far is returned, so orders
+ * that the greedy cannot pay may still be paid if the search finds a feasible allocation in time.
+ * <p>
+ * Like {@link PaymentOptimizer}, the engine maximizes the total discount and has no side effects:
+ * the payment methods are captured in a {@link PaymentCatalog} when the optimizer is created,
+ * each call searches on its own copy of the remaining limits, and neither the Order and PaymentMethod
+ * objects nor the order table are modified. Repeated calls with the same budget therefore start
+ * from the same state; an instance must not be used by several threads at once.
+ */
+public class BranchAndBoundOptimizer {
+
+    // Minimum percentage of the order value paid with points, which is also the R3 discount
+    private static final int R3_PERCENTAGE = 10;
+    // Number of search nodes between two checks of the clock
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+    // Kinds of payment options, in trial order among options with the same discount percentage
+    private static final int KIND_R4 = 0;
+    private static final int KIND_R3_MOST_POINTS = 1;
+    private static final int KIND_R3_FEWEST_POINTS = 2;
+    private static final int KIND_CARD = 3;
+
+    private final OrderTable orderTable;
+    private final MethodDictionary dictionary;
+    private final PaymentCatalog catalog;
+    private final int methodCount;
+    private final int pointsIndex;
+
+    // Whether the last search explored the whole tree, proving its result optimal among the options above
+    private boolean searchComplete;
+
+    // Search state, valid during optimize()
+    private int depthCount;
+    private int[] rows;
+    private long[] suffixMaxDiscount;
+    private long[] suffixMinCost;
+    private long[] remaining;
+    private long[] spent;
+    private long totalRemaining;
+    private long discount;
+    private long bestDiscount;
+    private long[] bestSpent;
+
+    private CardLimitIndex cardIndex;
+
+    // Option stack: the options of depth d, in trial order, are at optionStart[d] .. optionStart[d + 1] - 1
+    private int[] optionStart;
+    private int[] optionCard;
+    private long[] optionCardAmount;
+    private long[] optionPoints;
+    private long[] optionDiscount;
+
+    // Options of the order being expanded, before sorting, with their packed sort keys
+    private int[] newCard;
+    private long[] newCardAmount;
+    private long[] newPoints;
+    private long[] newDiscount;
+    private long[] optionKeys;
+    private int optionIndexBits;
+    private long optionIndexMask;
+    private long optionSlackMask;
+
+    /**
+     * Creates a new instance of the branch-and-bound optimizer.
+     *
+     * @param orders A list of orders to process.
+     * @param paymentMethods A list of available payment methods.
+     */
+    public BranchAndBoundOptimizer(List<Order> orders, List<PaymentMethod> paymentMethods) {
+        this.catalog = PaymentCatalog.of(paymentMethods);
+        this.dictionary = catalog.getDictionary();
+        this.orderTable = OrderTable.fromOrders(orders, dictionary);
+        this.methodCount = catalog.size();
+        this.pointsIndex = catalog.getPointsIndex();
+    }
+
+    /**
+     * Runs the greedy optimizer followed by the branch-and-bound search until the search
+     * completes or the time budget, which includes the greedy run, is used up.
+     *
+     * @param timeBudget The wall-clock time the optimization may take.
+     * @return A list of Result objects with the total amount spent on each used payment method, in input order.
+     * @throws NotFoundPaymentsException if no allocation paying every order was found within the budget.
+     */
+    public List<Result> optimize(Duration timeBudget) throws NotFoundPaymentsException {
+        long deadline = System.nanoTime() + timeBudget.toNanos();
+
+        initializeSearch();
+        runGreedy();
+        search(deadline);
+
+        if (bestSpent == null) {
+            throw new NotFoundPaymentsException("No allocation paying all orders was found within " + timeBudget.toMillis() + " ms.");
+        }
+        return collectBest();
+    }
+
+    /**
+     * Checks whether the last optimization explored the whole search tree,
+     * i.e. the result was not cut short by the time budget.
+     *
+     * @return Whether the last search completed.
+     */
+    public boolean isSearchComplete() {
+        return searchComplete;
+    }
+
+    private void initializeSearch() {
+        List<Integer> unpaid = new ArrayList<>();
+        for (int row = 0; row < orderTable.size(); row++) {
+            if (!orderTable.isPaid(row)) {
+                unpaid.add(row);
+            }
+        }
+        // Large orders first: they are the hardest to fit, so infeasible branches fail early
+        unpaid.sort(Comparator.comparingLong(orderTable::getValueCents).reversed().thenComparingInt(Integer::intValue));
+
+        depthCount = unpaid.size();
+        rows = unpaid.stream().mapToInt(Integer::intValue).toArray();
+
+        remaining = catalog.copyRemainingLimitsCents();
+        spent = new long[methodCount];
+        totalRemaining = 0;
+        for (int method = 0; method < methodCount; method++) {
+            totalRemaining = MoneyUtil.add(totalRemaining, remaining[method]);
+        }
+
+        suffixMaxDiscount = new long[depthCount + 1];
+        suffixMinCost = new long[depthCount + 1];
+        for (int depth = depthCount - 1; depth >= 0; depth--) {
+            long value = orderTable.getValueCents(rows[depth]);
+            long maxDiscount = maxDiscount(rows[depth]);
+            suffixMaxDiscount[depth] = suffixMaxDiscount[depth + 1] + maxDiscount;
+            suffixMinCost[depth] = suffixMinCost[depth + 1] + value - maxDiscount;
+        }
+
+        cardIndex = new CardLimitIndex(dictionary, remaining, CardFitPolicy.BEST_FIT);
+
+        // At most one R2 option per card, R4, two R3 options and a base payment
+        int maxOptions = methodCount + 4;
+        newCard = new int[maxOptions];
+        newCardAmount = new long[maxOptions];
+        newPoints = new long[maxOptions];
+        newDiscount = new long[maxOptions];
+        optionKeys = new long[maxOptions];
+        optionIndexBits = 32 - Integer.numberOfLeadingZeros(maxOptions);
+        optionIndexMask = (1L << optionIndexBits) - 1;
+        optionSlackMask = (1L << (54 - optionIndexBits)) - 1;
+
+        optionStart = new int[depthCount + 1];
+        int stackCapacity = 2 * maxOptions;
+        optionCard = new int[stackCapacity];
+        optionCardAmount = new long[stackCapacity];
+        optionPoints = new long[stackCapacity];
+        optionDiscount = new long[stackCapacity];
+
+        discount = 0;
+        bestDiscount = -1;
+        bestSpent = null;
+        searchComplete = false;
+    }
+
+    /**
+     * Private method computing the largest discount an order could get if limits were unbounded.
+     * This is the per-order relaxation used for the upper bound.
+     *
+     * @param row The order table row.
+     * @return The largest discount in cents.
+     */
+    private long maxDiscount(int row) {
+        long value = orderTable.getValueCents(row);
+        long best = 0;
+        for (int method = orderTable.nextCardPromotion(row, 0); method >= 0; method = orderTable.nextCardPromotion(row, method + 1)) {
+            best = Math.max(best, MoneyUtil.calculateDiscountAmount(value, catalog.getDiscount(method)));
+        }
+        if (pointsIndex >= 0) {
+            best = Math.max(best, MoneyUtil.calculateDiscountAmount(value, catalog.getDiscount(pointsIndex)));
+            best = Math.max(best, MoneyUtil.calculateDiscountAmount(value, R3_PERCENTAGE));
+        }
+        return best;
+    }
+
+    /**
+     * Private method running the greedy optimizer to seed the incumbent; it does not modify the input.
+     * If the greedy optimizer cannot pay every order, the search starts without an incumbent.
+     */
+    private void runGreedy() {
+        List<Result> results;
+        try {
+            results = new PaymentOptimizer(orderTable, catalog).optimize();
+        } catch (NotFoundPaymentsException e) {
+            return;
+        }
+
+        long[] greedySpent = new long[methodCount];
+        long totalSpent = 0;
+        for (Result result : results) {
+            long spent = MoneyUtil.toCents(result.getAmountSpend());
+            greedySpent[dictionary.indexOf(result.getMethodId())] = spent;
+            totalSpent += spent;
+        }
+        long totalValue = 0;
+        for (int row : rows) {
+            totalValue += orderTable.getValueCents(row);
+        }
+        bestDiscount = totalValue - totalSpent;
+        bestSpent = greedySpent;
+    }
+
+    /**
+     * Private method running the iterative depth-first search. Each depth is one order;
+     * {@code cursor[depth]} is the position of the next option to try for it, or -1 before its options
+     * are generated. The options of a depth are generated and sorted once, when the depth is entered,
+     * and kept on the option stack while deeper orders are explored: the limits are restored on
+     * backtracking, so regenerating them would yield the same list.
+     *
+     * @param deadline The {@link System#nanoTime()} value at which the search stops.
+     */
+    private void search(long deadline) {
+        int[] cursor = new int[depthCount + 1];
+        int[] chosen = new int[depthCount];
+        cursor[0] = -1;
+        optionStart[0] = 0;
+
+        int depth = 0;
+        long nodes = 0;
+        while (true) {
+            if (++nodes % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() - deadline >= 0) {
+                return;
+            }
+
+            boolean exhausted;
+            if (depth == depthCount) {
+                recordSolution();
+                exhausted = true;
+            } else if (discount + suffixMaxDiscount[depth] <= bestDiscount || totalRemaining < suffixMinCost[depth]) {
+                exhausted = true;
+            } else {
+                if (cursor[depth] < 0) {
+                    generateOptions(depth);
+                    cursor[depth] = 0;
+                }
+                int option = optionStart[depth] + cursor[depth];
+                exhausted = option >= optionStart[depth + 1];
+                if (!exhausted) {
+                    cursor[depth]++;
+                    chosen[depth] = option;
+                    pay(option, 1);
+                    depth++;
+                    cursor[depth] = -1;
+                }
+            }
+
+            if (exhausted) {
+                if (depth == 0) {
+                    searchComplete = true;
+                    return;
+                }
+                depth--;
+                pay(chosen[depth], -1);
+            }
+        }
+    }
+
+    private void recordSolution() {
+        if (discount > bestDiscount) {
+            bestDiscount = discount;
+            bestSpent = spent.clone();
+        }
+    }
+
+    /**
+     * Private method applying ({@code sign = 1}) or undoing ({@code sign = -1}) an option on the option stack.
+     */
+    private void pay(int option, int sign) {
+        int card = optionCard[option];
+        long cardAmount = optionCardAmount[option];
+        long points = optionPoints[option];
+        if (card >= 0) {
+            remaining[card] -= sign * cardAmount;
+            spent[card] += sign * cardAmount;
+            cardIndex.update(card, remaining[card]);
+        }
+        if (points > 0) {
+            remaining[pointsIndex] -= sign * points;
+            spent[pointsIndex] += sign * points;
+        }
+        totalRemaining -= sign * (cardAmount + points);
+        discount += sign * optionDiscount[option];
+    }
+
+    /**
+     * Private method pushing the payment options of the order at a depth that fit the current limits
+     * onto the option stack, in trial order: by discount percentage (descending), then R4, R3 with the most
+     * points, R3 with the fewest points and card-only payments, then remaining card limit after payment
+     * (ascending, i.e. best fit) and card index.
+     * <p>
+     * Payments of the same amount that differ only by card are symmetric, so R3 and base payments
+     * only use the best-fitting card; a promoted card without a discount is a base payment as well.
+     * An order therefore has at most P + 4 options for P promoted cards.
+     *
+     * @param depth The depth; its options are stored from {@code optionStart[depth]} and
+     *              {@code optionStart[depth + 1]} is set to the end of them.
+     */
+    private void generateOptions(int depth) {
+        int row = rows[depth];
+        long value = orderTable.getValueCents(row);
+        int count = 0;
+
+        // R2: full payment with a promoted card
+        for (int card = orderTable.nextCardPromotion(row, 0); card >= 0; card = orderTable.nextCardPromotion(row, card + 1)) {
+            int percentage = catalog.getDiscount(card);
+            long cost = MoneyUtil.applyDiscount(value, percentage);
+            if (cost < value && remaining[card] >= cost) {
+                count = addOption(count, percentage, KIND_CARD, card, cost, 0, value - cost);
+            }
+        }
+
+        if (pointsIndex >= 0) {
+            long points = remaining[pointsIndex];
+
+            // R4: full payment with points
+            int percentage = catalog.getDiscount(pointsIndex);
+            long costR4 = MoneyUtil.applyDiscount(value, percentage);
+            if (points >= costR4) {
+                count = addOption(count, percentage, KIND_R4, -1, 0, costR4, value - costR4);
+            }
+
+            // R3: at least 10% of the value with points, the rest of the discounted value with one card
+            long minPoints = MoneyUtil.percentage(value, R3_PERCENTAGE);
+            long costR3 = MoneyUtil.applyDiscount(value, R3_PERCENTAGE);
+            if (points >= minPoints) {
+                long maxPoints = Math.min(points, costR3);
+                count = addR3Option(count, KIND_R3_MOST_POINTS, maxPoints, costR3, value - costR3);
+                if (minPoints < maxPoints) {
+                    count = addR3Option(count, KIND_R3_FEWEST_POINTS, minPoints, costR3, value - costR3);
+                }
+            }
+        }
+
+        // Base payment: the full value with a card
+        int card = cardIndex.find(value);
+        if (card >= 0) {
+            count = addOption(count, 0, KIND_CARD, card, value, 0, 0);
+        }
+
+        // Sort the packed keys, then copy the options onto the stack in key order
+        Arrays.sort(optionKeys, 0, count);
+        int start = optionStart[depth];
+        ensureStackCapacity(start + count);
+        for (int i = 0; i < count; i++) {
+            int option = (int) (optionKeys[i] & optionIndexMask);
+            optionCard[start + i] = newCard[option];
+            optionCardAmount[start + i] = newCardAmount[option];
+            optionPoints[start + i] = newPoints[option];
+            optionDiscount[start + i] = newDiscount[option];
+        }
+        optionStart[depth + 1] = start + count;
+    }
+
+    private int addR3Option(int count, int kind, long points, long cost, long optionDiscountCents) {
+        long cardAmount = cost - points;
+        if (cardAmount == 0) {
+            return addOption(count, R3_PERCENTAGE, kind, -1, 0, points, optionDiscountCents);
+        }
+        int card = cardIndex.find(cardAmount);
+        return card < 0 ? count : addOption(count, R3_PERCENTAGE, kind, card, cardAmount, points, optionDiscountCents);
+    }
+
+    /**
+     * Private method recording a generated option and its sort key. From the highest bits, the key holds
+     * 100 minus the discount percentage, the kind of payment, the remaining card limit after payment
+     * (saturated, so larger limits tie and fall back to generation order) and the option's index.
+     */
+    private int addOption(int count, int percentage, int kind, int card, long cardAmount, long points, long optionDiscountCents) {
+        newCard[count] = card;
+        newCardAmount[count] = cardAmount;
+        newPoints[count] = points;
+        newDiscount[count] = optionDiscountCents;
+
+        long slack = card < 0 ? optionSlackMask : Math.min(remaining[card] - cardAmount, optionSlackMask);
+        optionKeys[count] = (long) (100 - Math.clamp(percentage, 0, 100)) << 56
+                | (long) kind << 54
+                | slack << optionIndexBits
+                | count;
+        return count + 1;
+    }
+
+    private void ensureStackCapacity(int capacity) {
+        if (capacity > optionCard.length) {
+            int length = Math.max(capacity, 2 * optionCard.length);
+            optionCard = Arrays.copyOf(optionCard, length);
+            optionCardAmount = Arrays.copyOf(optionCardAmount, length);
+            optionPoints = Arrays.copyOf(optionPoints, length);
+            optionDiscount = Arrays.copyOf(optionDiscount, length);
+        }
+    }
+
+    /**
+     * Private method collecting the results of the best allocation.
+     *
+     * @return The total spent with each used payment method, in input order.
+     */
+    private List<Result> collectBest() {
+        List<Result> results = new ArrayList<>();
+        for (int method = 0; method < methodCount; method++) {
+            if (bestSpent[method] > 0) {
+                results.add(new Result(catalog.getId(method), MoneyUtil.toBigDecimal(bestSpent[method])));
+            }
+        }
+        return results;
+    }
+}
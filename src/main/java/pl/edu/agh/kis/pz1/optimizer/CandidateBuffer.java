@@ -0,0 +1,166 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+import java.util.Arrays;
+
+/**
+ * Growable buffer of candidate full payments (R2 and R4) packed into primitive arrays.
+ * Each candidate is a discount in cents plus a reference packing the order table row
+ * (high 32 bits) and the payment method index (low 32 bits), so millions of candidates
+ * cost two {@code long}s each and no objects.
+ * <p>
+ * Candidates must be appended in ascending (row, method) order. Sorting is a stable
+ * LSD radix sort on the discount, so candidates with equal discounts keep that order,
+ * which is the tie-break of the greedy algorithm.
+ */
+final class CandidateBuffer {
+
+    private static final int INITIAL_CAPACITY = 64;
+    // Bits per radix sort digit; 2^11 buckets keep the histogram small and most discounts need 2-3 passes
+    private static final int RADIX_BITS = 11;
+    private static final int RADIX_MASK = (1 << RADIX_BITS) - 1;
+
+    private long[] discounts;
+    private long[] refs;
+    private int size;
+
+    /**
+     * Creates an empty buffer.
+     */
+    CandidateBuffer() {
+        this.discounts = new long[INITIAL_CAPACITY];
+        this.refs = new long[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Appends a candidate.
+     *
+     * @param row The order table row.
+     * @param method The payment method index.
+     * @param discount The discount in cents, must be positive.
+     */
+    void add(int row, int method, long discount) {
+        if (size == discounts.length) {
+            int newCapacity = Math.max(INITIAL_CAPACITY, size + (size >> 1));
+            discounts = Arrays.copyOf(discounts, newCapacity);
+            refs = Arrays.copyOf(refs, newCapacity);
+        }
+        discounts[size] = discount;
+        refs[size] = ((long) row << 32) | (method & 0xFFFFFFFFL);
+        size++;
+    }
+
+    /**
+     * Returns the number of candidates in the buffer.
+     *
+     * @return The number of candidates.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the discount of a candidate.
+     *
+     * @param index The position of the candidate in the buffer.
+     * @return The discount in cents.
+     */
+    long getDiscount(int index) {
+        return discounts[index];
+    }
+
+    /**
+     * Returns the order table row of a candidate.
+     *
+     * @param index The position of the candidate in the buffer.
+     * @return The order table row.
+     */
+    int getRow(int index) {
+        return (int) (refs[index] >>> 32);
+    }
+
+    /**
+     * Returns the payment method index of a candidate.
+     *
+     * @param index The position of the candidate in the buffer.
+     * @return The payment method index.
+     */
+    int getMethod(int index) {
+        return (int) refs[index];
+    }
+
+    /**
+     * Sorts the candidates by discount in descending order with a stable LSD radix sort.
+     * Only as many digits as the largest discount needs are processed.
+     */
+    void sortByDiscountDescending() {
+        if (size < 2) {
+            return;
+        }
+        long maxDiscount = 0;
+        for (int i = 0; i < size; i++) {
+            maxDiscount = Math.max(maxDiscount, discounts[i]);
+        }
+
+        long[] sourceDiscounts = discounts;
+        long[] sourceRefs = refs;
+        long[] targetDiscounts = new long[size];
+        long[] targetRefs = new long[size];
+        int[] offsets = new int[RADIX_MASK + 2];
+
+        for (int shift = 0; shift < Long.SIZE && (maxDiscount >>> shift) != 0; shift += RADIX_BITS) {
+            Arrays.fill(offsets, 0);
+            // Digits are inverted so that larger discounts land in earlier buckets
+            for (int i = 0; i < size; i++) {
+                offsets[RADIX_MASK - (int) ((sourceDiscounts[i] >>> shift) & RADIX_MASK) + 1]++;
+            }
+            for (int bucket = 1; bucket < offsets.length; bucket++) {
+                offsets[bucket] += offsets[bucket - 1];
+            }
+            for (int i = 0; i < size; i++) {
+                int position = offsets[RADIX_MASK - (int) ((sourceDiscounts[i] >>> shift) & RADIX_MASK)]++;
+                targetDiscounts[position] = sourceDiscounts[i];
+                targetRefs[position] = sourceRefs[i];
+            }
+
+            long[] swapDiscounts = sourceDiscounts;
+            long[] swapRefs = sourceRefs;
+            sourceDiscounts = targetDiscounts;
+            sourceRefs = targetRefs;
+            targetDiscounts = swapDiscounts;
+            targetRefs = swapRefs;
+        }
+
+        discounts = sourceDiscounts;
+        refs = sourceRefs;
+    }
+
+    /**
+     * Merges two buffers sorted by discount in descending order into a new sorted buffer.
+     * On equal discounts candidates of the first buffer come first, so merging buffers
+     * that cover consecutive ranges of rows keeps the (row, method) tie-break.
+     *
+     * @param first The buffer with the lower rows.
+     * @param second The buffer with the higher rows.
+     * @return A new buffer with all candidates, sorted by discount in descending order.
+     */
+    static CandidateBuffer merge(CandidateBuffer first, CandidateBuffer second) {
+        CandidateBuffer merged = new CandidateBuffer();
+        int total = first.size + second.size;
+        merged.discounts = new long[Math.max(INITIAL_CAPACITY, total)];
+        merged.refs = new long[merged.discounts.length];
+
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < total; k++) {
+            if (j == second.size || (i < first.size && first.discounts[i] >= second.discounts[j])) {
+                merged.discounts[k] = first.discounts[i];
+                merged.refs[k] = first.refs[i++];
+            } else {
+                merged.discounts[k] = second.discounts[j];
+                merged.refs[k] = second.refs[j++];
+            }
+        }
+        merged.size = total;
+        return merged;
+    }
+}
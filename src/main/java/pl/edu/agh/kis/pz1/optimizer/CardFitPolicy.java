@@ -0,0 +1,25 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+/**
+ * Policy used by the {@link PaymentOptimizer} to choose a card when an order
+ * (or the card part of an R3 payment) can be paid with any card that has enough limit left.
+ * Ties are always broken by the lowest payment method index, so results are deterministic.
+ */
+public enum CardFitPolicy {
+
+    /**
+     * The first card, in payment method order, whose remaining limit covers the amount.
+     */
+    FIRST_FIT,
+
+    /**
+     * The card with the smallest remaining limit that still covers the amount,
+     * which keeps large limits available for large orders.
+     */
+    BEST_FIT,
+
+    /**
+     * The card with the largest remaining limit.
+     */
+    WORST_FIT
+}
@@ -0,0 +1,136 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+import pl.edu.agh.kis.pz1.domain.MethodDictionary;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Ordered index over the remaining limits (in cents) of card payment methods,
+ * answering "which card can pay this amount" in O(log M) instead of scanning every method.
+ * First-fit and worst-fit queries use a max segment tree over payment method indices;
+ * best-fit queries use a map from remaining limit to the cards having it.
+ * The index must be told about every change of a card's remaining limit with {@link #update(int, long)}.
+ */
+final class CardLimitIndex {
+
+    // Marks leaves that do not hold a card, so that they never satisfy a query
+    private static final long NO_CARD = Long.MIN_VALUE;
+
+    private final CardFitPolicy policy;
+    private final long[] remaining;
+    private final int leaves;
+    // Max segment tree: node i has children 2i and 2i+1, leaves start at index 'leaves'
+    private final long[] tree;
+    // Cards grouped by remaining limit, maintained only for BEST_FIT
+    private final NavigableMap<Long, TreeSet<Integer>> cardsByRemaining;
+
+    /**
+     * Creates an index over the cards of a dictionary.
+     *
+     * @param dictionary The dictionary telling which payment methods are cards.
+     * @param remainingCents The current remaining limit of every payment method, by dictionary index.
+     * @param policy The policy used by {@link #find(long)}.
+     */
+    CardLimitIndex(MethodDictionary dictionary, long[] remainingCents, CardFitPolicy policy) {
+        this.policy = policy;
+        this.remaining = new long[remainingCents.length];
+
+        int size = 1;
+        while (size < Math.max(1, remainingCents.length)) {
+            size <<= 1;
+        }
+        this.leaves = size;
+        this.tree = new long[2 * size];
+        Arrays.fill(tree, NO_CARD);
+        this.cardsByRemaining = policy == CardFitPolicy.BEST_FIT ? new TreeMap<>() : null;
+
+        for (int method = 0; method < remainingCents.length; method++) {
+            if (dictionary.isCard(method)) {
+                remaining[method] = remainingCents[method];
+                tree[leaves + method] = remainingCents[method];
+                if (cardsByRemaining != null) {
+                    cardsByRemaining.computeIfAbsent(remainingCents[method], k -> new TreeSet<>()).add(method);
+                }
+            } else {
+                remaining[method] = NO_CARD;
+            }
+        }
+        for (int node = leaves - 1; node >= 1; node--) {
+            tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    /**
+     * Finds a card whose remaining limit covers the amount, according to the index's policy.
+     *
+     * @param amount The amount in cents to cover.
+     * @return The payment method index of the chosen card, or -1 if no card has enough limit left.
+     */
+    int find(long amount) {
+        return switch (policy) {
+            case FIRST_FIT -> firstFit(amount);
+            case BEST_FIT -> bestFit(amount);
+            case WORST_FIT -> worstFit(amount);
+        };
+    }
+
+    /**
+     * Records a new remaining limit for a card.
+     *
+     * @param method The payment method index of the card.
+     * @param remainingCents The card's new remaining limit in cents.
+     */
+    void update(int method, long remainingCents) {
+        long previous = remaining[method];
+        if (previous == NO_CARD || previous == remainingCents) {
+            return;
+        }
+        remaining[method] = remainingCents;
+
+        if (cardsByRemaining != null) {
+            TreeSet<Integer> cards = cardsByRemaining.get(previous);
+            cards.remove(method);
+            if (cards.isEmpty()) {
+                cardsByRemaining.remove(previous);
+            }
+            cardsByRemaining.computeIfAbsent(remainingCents, k -> new TreeSet<>()).add(method);
+        }
+
+        int node = leaves + method;
+        tree[node] = remainingCents;
+        for (node >>= 1; node >= 1; node >>= 1) {
+            tree[node] = Math.max(tree[2 * node], tree[2 * node + 1]);
+        }
+    }
+
+    private int firstFit(long amount) {
+        if (tree[1] < amount) {
+            return -1;
+        }
+        int node = 1;
+        while (node < leaves) {
+            node = tree[2 * node] >= amount ? 2 * node : 2 * node + 1;
+        }
+        return node - leaves;
+    }
+
+    private int worstFit(long amount) {
+        if (tree[1] < amount) {
+            return -1;
+        }
+        int node = 1;
+        while (node < leaves) {
+            node = tree[2 * node] == tree[node] ? 2 * node : 2 * node + 1;
+        }
+        return node - leaves;
+    }
+
+    private int bestFit(long amount) {
+        Map.Entry<Long, TreeSet<Integer>> entry = cardsByRemaining.ceilingEntry(amount);
+        return entry == null ? -1 : entry.getValue().first();
+    }
+}
@@ -0,0 +1,31 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+/**
+ * Engine used by the {@link PaymentOptimizer} to decide which orders are paid in full
+ * with a discounted method (promotions R2 and R4).
+ * Orders left over by either engine go on to the R3 and base payment step.
+ */
+public enum FullPaymentEngine {
+
+    /**
+     * Candidates are sorted by discount and applied while limits allow.
+     */
+    GREEDY,
+
+    /**
+     * The assignment is solved as a min-cost flow from orders to the methods they are eligible for,
+     * with the methods' limits as capacities (see {@link MinCostFlowAssignment}). Orders that the
+     * flow does not place are then offered the greedy candidates with the limits that are left.
+     */
+    MIN_COST_FLOW,
+
+    /**
+     * Methods with small limits, where the limit in cents times the eligible orders is under a threshold,
+     * choose their orders by a knapsack (see {@link KnapsackAssignment}). The other methods and the
+     * limits left over are then filled by the greedy candidates. The knapsack values are estimates,
+     * so the allocation is also made with the greedy alone and the knapsack is only kept if its total
+     * discount is larger. Without small methods, or with limits shared with other threads, this is the greedy.
+     * This is the default engine.
+     */
+    KNAPSACK
+}
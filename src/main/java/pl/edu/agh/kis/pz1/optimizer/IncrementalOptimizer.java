@@ -0,0 +1,220 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+import pl.edu.agh.kis.pz1.domain.MethodDictionary;
+import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+import pl.edu.agh.kis.pz1.domain.Result;
+import pl.edu.agh.kis.pz1.utils.MoneyUtil;
+
+import java.util.*;
+
+/**
+ * Online counterpart of {@link PaymentOptimizer} for streams of orders.
+ * Each submitted order is paid immediately from live per-method ledgers using the same rules
+ * and priorities as the batch path: the full payment (R2 or R4) with the highest discount that
+ * fits (ties by payment method index), otherwise R3 with as many points as possible and a card
+ * for the rest, otherwise the full value with a card chosen by the {@link CardFitPolicy}.
+ * A cancelled order returns its amounts to the ledgers; the freed limits are only used by orders submitted
+ * later, and orders already paid are never moved to a better method.
+ * <p>
+ * {@link #submit(Order)} costs O(P + log M) for an order with P promotions and M payment methods,
+ * {@link #cancel(String)} O(log M) and {@link #snapshot()} O(M), independent of the number of orders.
+ * Because orders are decided as they arrive, the allocation can differ from the batch path,
+ * which sorts the full payments of all orders before applying any of them.
+ * The payment methods and orders passed in are not modified. This class is not thread-safe.
+ */
+public class IncrementalOptimizer {
+
+    // Minimum percentage of the original order value that must be paid with points for promotion R3 (10% general discount)
+    private static final int MIN_POINTS_PERCENTAGE_FOR_R3 = 10;
+
+    private final MethodDictionary dictionary;
+    private final PaymentMethod[] methods;
+    private final int pointsIndex;
+
+    // Live ledgers by dictionary index
+    private final long[] remainingCents;
+    private final long[] spentCents;
+    private final CardLimitIndex cardIndex;
+
+    // Payments of the orders currently submitted, by order ID
+    private final Map<String, Payment> payments = new HashMap<>();
+
+    /**
+     * Creates an incremental optimizer with the {@link CardFitPolicy#FIRST_FIT} policy.
+     *
+     * @param paymentMethods The available payment methods; their remaining limits are the starting ledgers.
+     */
+    public IncrementalOptimizer(List<PaymentMethod> paymentMethods) {
+        this(paymentMethods, CardFitPolicy.FIRST_FIT);
+    }
+
+    /**
+     * Creates an incremental optimizer.
+     *
+     * @param paymentMethods The available payment methods; their remaining limits are the starting ledgers.
+     * @param cardFitPolicy The policy for choosing a card for R3 and base payments.
+     */
+    public IncrementalOptimizer(List<PaymentMethod> paymentMethods, CardFitPolicy cardFitPolicy) {
+        this.dictionary = MethodDictionary.of(paymentMethods);
+        this.methods = paymentMethods.toArray(new PaymentMethod[0]);
+        this.pointsIndex = dictionary.getPointsIndex();
+
+        this.remainingCents = new long[methods.length];
+        this.spentCents = new long[methods.length];
+        for (int method = 0; method < methods.length; method++) {
+            remainingCents[method] = methods[method].getRemainingLimitCents();
+        }
+        this.cardIndex = new CardLimitIndex(dictionary, remainingCents, Objects.requireNonNull(cardFitPolicy));
+    }
+
+    /**
+     * Pays an order from the current ledgers.
+     *
+     * @param order The order to pay; already paid orders are recorded without a payment.
+     * @throws IllegalArgumentException if an order with the same ID has been submitted and not cancelled.
+     * @throws NotFoundPaymentsException if no payment method can pay the order; the ledgers are unchanged.
+     */
+    public void submit(Order order) throws NotFoundPaymentsException {
+        if (payments.containsKey(order.getId())) {
+            throw new IllegalArgumentException("Order " + order.getId() + " has already been submitted");
+        }
+
+        Payment payment = order.isPaid() ? Payment.NONE : allocate(order);
+        if (payment == null) {
+            throw new NotFoundPaymentsException("Could not find a payment method for Order " + order.getId() + ". Check available payment methods limits.");
+        }
+        apply(payment, 1);
+        payments.put(order.getId(), payment);
+    }
+
+    /**
+     * Cancels a submitted order and returns its payment to the ledgers.
+     *
+     * @param orderId The ID of the order.
+     * @return Whether the order was submitted and has now been cancelled.
+     */
+    public boolean cancel(String orderId) {
+        Payment payment = payments.remove(orderId);
+        if (payment == null) {
+            return false;
+        }
+        apply(payment, -1);
+        return true;
+    }
+
+    /**
+     * Returns the total amounts spent on each used payment method by the orders currently submitted.
+     *
+     * @return A list of Result objects in payment method input order, as returned by {@link PaymentOptimizer#optimize()}.
+     */
+    public List<Result> snapshot() {
+        List<Result> results = new ArrayList<>();
+        for (int method = 0; method < methods.length; method++) {
+            if (spentCents[method] > 0) {
+                results.add(new Result(methods[method].getId(), MoneyUtil.toBigDecimal(spentCents[method])));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Private method choosing the payment of an order without changing the ledgers.
+     *
+     * @param order The order to pay.
+     * @return The payment, or null if the order cannot be paid.
+     */
+    private Payment allocate(Order order) {
+        long value = order.getValueCents();
+
+        Payment fullPayment = findFullPayment(order, value);
+        if (fullPayment != null) {
+            return fullPayment;
+        }
+
+        // R3: at least 10% of the value with points, the rest of the discounted value with a card
+        if (pointsIndex >= 0 && remainingCents[pointsIndex] >= MoneyUtil.percentage(value, MIN_POINTS_PERCENTAGE_FOR_R3)) {
+            long costR3 = MoneyUtil.applyDiscount(value, MIN_POINTS_PERCENTAGE_FOR_R3);
+            long points = Math.min(costR3, remainingCents[pointsIndex]);
+            int card = findCardWithSufficientLimit(costR3 - points);
+            if (card >= 0) {
+                return new Payment(card, costR3 - points, points);
+            }
+        }
+
+        // Base payment: the full value with a card
+        int card = findCardWithSufficientLimit(value);
+        return card >= 0 ? new Payment(card, value, 0) : null;
+    }
+
+    /**
+     * Private method finding the R2 or R4 payment with the highest discount that fits the ledgers,
+     * ties broken by the lowest payment method index.
+     */
+    private Payment findFullPayment(Order order, long value) {
+        int bestMethod = -1;
+        long bestDiscount = 0;
+
+        if (order.getPromotions() != null) {
+            for (String promotion : order.getPromotions()) {
+                int method = dictionary.indexOf(promotion);
+                if (method >= 0 && dictionary.isCard(method)) {
+                    long discount = MoneyUtil.calculateDiscountAmount(value, methods[method].getDiscount());
+                    if (isBetter(method, discount, bestMethod, bestDiscount) && remainingCents[method] >= value - discount) {
+                        bestMethod = method;
+                        bestDiscount = discount;
+                    }
+                }
+            }
+        }
+        if (pointsIndex >= 0) {
+            long discount = MoneyUtil.calculateDiscountAmount(value, methods[pointsIndex].getDiscount());
+            if (isBetter(pointsIndex, discount, bestMethod, bestDiscount) && remainingCents[pointsIndex] >= value - discount) {
+                bestMethod = pointsIndex;
+                bestDiscount = discount;
+            }
+        }
+
+        if (bestMethod < 0) {
+            return null;
+        }
+        long cost = value - bestDiscount;
+        return bestMethod == pointsIndex ? new Payment(-1, 0, cost) : new Payment(bestMethod, cost, 0);
+    }
+
+    private static boolean isBetter(int method, long discount, int bestMethod, long bestDiscount) {
+        return discount > bestDiscount || (discount > 0 && discount == bestDiscount && method < bestMethod);
+    }
+
+    private int findCardWithSufficientLimit(long amount) {
+        // As in the batch path, a card is only looked for when there is something to pay
+        if (amount <= 0) {
+            return -1;
+        }
+        return cardIndex.find(amount);
+    }
+
+    /**
+     * Private method charging ({@code sign = 1}) or refunding ({@code sign = -1}) a payment.
+     */
+    private void apply(Payment payment, int sign) {
+        if (payment.card() >= 0) {
+            int card = payment.card();
+            remainingCents[card] = MoneyUtil.subtract(remainingCents[card], sign * payment.cardCents());
+            spentCents[card] = MoneyUtil.add(spentCents[card], sign * payment.cardCents());
+            cardIndex.update(card, remainingCents[card]);
+        }
+        if (payment.pointsCents() > 0) {
+            remainingCents[pointsIndex] = MoneyUtil.subtract(remainingCents[pointsIndex], sign * payment.pointsCents());
+            spentCents[pointsIndex] = MoneyUtil.add(spentCents[pointsIndex], sign * payment.pointsCents());
+        }
+    }
+
+    /**
+     * Payment of one order: an amount on a card (card -1 if none) and an amount in points.
+     */
+    private record Payment(int card, long cardCents, long pointsCents) {
+
+        static final Payment NONE = new Payment(-1, 0, 0);
+    }
+}
@@ -0,0 +1,224 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+import pl.edu.agh.kis.pz1.domain.OrderTable;
+import pl.edu.agh.kis.pz1.domain.PaymentCatalog;
+import pl.edu.agh.kis.pz1.utils.MoneyUtil;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Assignment of orders to discounted full payments (R2 and R4) for payment methods with small limits,
+ * solved as one 0/1 knapsack per method by dynamic programming over the remaining limit in cents.
+ * <p>
+ * A discounted method is small when its capacity, the remaining limit capped at the total price of its
+ * eligible orders, is at most {@value #MAX_CAPACITY_CENTS} cents and capacity times eligible orders is at
+ * most {@value #MAX_CELLS}. The items of a small method are its unpaid eligible orders, weighing their
+ * discounted price. An item is worth its discount minus the best discount the order could get from a method
+ * that is not small, since those methods have room for the greedy to place it; orders that gain nothing are
+ * left out. The table is filled one order at a time into two rolling {@code long[]} rows over all capacities,
+ * with one decision bit per cell for reconstructing the chosen orders. Small methods are solved independently,
+ * in parallel on a ForkJoinPool if requested.
+ * <p>
+ * Each method's choice is optimal for these values, which are only estimates: the best method that is not small
+ * may run out of room, and points kept for R3 payments are not valued. An order chosen by several small methods is kept by the method
+ * with the highest discount (ties by method index); the limits this frees are left for the caller,
+ * like methods that are not small. The caller keeps the assignment only if it beats the greedy alone.
+ */
+final class KnapsackAssignment {
+
+    /**
+     * Largest capacity, in cents, of a method solved by dynamic programming.
+     */
+    static final int MAX_CAPACITY_CENTS = 1 << 20;
+
+    /**
+     * Largest number of table cells (capacity times eligible orders) of a method solved by dynamic programming.
+     */
+    static final long MAX_CELLS = 1L << 28;
+
+    private final OrderTable orderTable;
+    private final PaymentCatalog catalog;
+    private final long[] remainingCents;
+    private final int pointsIndex;
+
+    private KnapsackAssignment(OrderTable orderTable, PaymentCatalog catalog, long[] remainingCents) {
+        this.orderTable = orderTable;
+        this.catalog = catalog;
+        this.remainingCents = remainingCents;
+        this.pointsIndex = catalog.getPointsIndex();
+    }
+
+    /**
+     * Assigns unpaid orders to the small discounted methods without exceeding their remaining limits.
+     * Neither the order table nor the remaining limits are modified.
+     *
+     * @param orderTable The orders; paid orders are skipped.
+     * @param catalog The payment methods by dictionary index, with their discounts.
+     * @param remainingCents The remaining limits in cents, by dictionary index.
+     * @param parallelism The number of methods solved at the same time, at least 1.
+     * @return The method paying each row in full, or -1 for rows left unassigned.
+     */
+    static int[] assign(OrderTable orderTable, PaymentCatalog catalog, long[] remainingCents, int parallelism) {
+        return new KnapsackAssignment(orderTable, catalog, remainingCents).assign(parallelism);
+    }
+
+    private int[] assign(int parallelism) {
+        int rows = orderTable.size();
+        int methods = catalog.size();
+
+        // Count the eligible orders of every method and the total price they would pay
+        long[] eligibleCount = new long[methods];
+        long[] eligiblePrice = new long[methods];
+        for (int row = 0; row < rows; row++) {
+            if (orderTable.isPaid(row)) {
+                continue;
+            }
+            for (int method = nextEligible(row, 0); method >= 0; method = nextEligible(row, method + 1)) {
+                eligibleCount[method]++;
+                eligiblePrice[method] = MoneyUtil.add(eligiblePrice[method], price(row, method));
+            }
+        }
+
+        boolean[] small = new boolean[methods];
+        int[] capacity = new int[methods];
+        for (int method = 0; method < methods; method++) {
+            long methodCapacity = Math.min(remainingCents[method], eligiblePrice[method]);
+            if (eligibleCount[method] > 0 && methodCapacity <= MAX_CAPACITY_CENTS
+                    && (methodCapacity + 1) * eligibleCount[method] <= MAX_CELLS) {
+                small[method] = true;
+                capacity[method] = (int) methodCapacity;
+            }
+        }
+        int[] smallMethods = IntStream.range(0, methods).filter(method -> small[method]).toArray();
+
+        int[] assignment = new int[rows];
+        Arrays.fill(assignment, -1);
+        if (smallMethods.length == 0) {
+            return assignment;
+        }
+
+        // Collect the items of every small method, worth what they gain over the methods that are not small
+        int[][] itemRows = new int[methods][];
+        long[][] itemValues = new long[methods][];
+        int[] itemCount = new int[methods];
+        for (int method : smallMethods) {
+            itemRows[method] = new int[(int) eligibleCount[method]];
+            itemValues[method] = new long[(int) eligibleCount[method]];
+        }
+        for (int row = 0; row < rows; row++) {
+            if (orderTable.isPaid(row)) {
+                continue;
+            }
+            long bestOther = 0;
+            for (int method = nextEligible(row, 0); method >= 0; method = nextEligible(row, method + 1)) {
+                if (!small[method]) {
+                    bestOther = Math.max(bestOther, discount(row, method));
+                }
+            }
+            for (int method = nextEligible(row, 0); method >= 0; method = nextEligible(row, method + 1)) {
+                long gain = discount(row, method) - bestOther;
+                if (small[method] && gain > 0 && price(row, method) <= capacity[method]) {
+                    itemRows[method][itemCount[method]] = row;
+                    itemValues[method][itemCount[method]++] = gain;
+                }
+            }
+        }
+
+        boolean[][] chosen = new boolean[methods][];
+        if (parallelism > 1 && smallMethods.length > 1) {
+            try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+                pool.submit(() -> Arrays.stream(smallMethods).parallel().forEach(method ->
+                        chosen[method] = solve(method, capacity[method], itemRows[method], itemValues[method], itemCount[method]))).join();
+            }
+        } else {
+            for (int method : smallMethods) {
+                chosen[method] = solve(method, capacity[method], itemRows[method], itemValues[method], itemCount[method]);
+            }
+        }
+
+        // An order chosen by several methods goes to the highest discount, then the lowest method index
+        for (int method : smallMethods) {
+            for (int item = 0; item < itemCount[method]; item++) {
+                if (chosen[method][item]) {
+                    int row = itemRows[method][item];
+                    int current = assignment[row];
+                    if (current < 0 || catalog.getDiscount(method) > catalog.getDiscount(current)) {
+                        assignment[row] = method;
+                    }
+                }
+            }
+        }
+        return assignment;
+    }
+
+    /**
+     * Private method solving the knapsack of one method.
+     * Row {@code next} of the table is filled from row {@code previous}: the best value within capacity c
+     * either skips the item or adds it to the best value within c minus its price.
+     *
+     * @return Whether each item is chosen.
+     */
+    private boolean[] solve(int method, int capacity, int[] rows, long[] values, int count) {
+        int width = capacity + 1;
+        long[] previous = new long[width];
+        long[] next = new long[width];
+        long[] decisions = new long[(int) ((count * (long) width + 63) >>> 6)];
+
+        for (int item = 0; item < count; item++) {
+            int weight = (int) price(rows[item], method);
+            long value = values[item];
+            long base = item * (long) width;
+            System.arraycopy(previous, 0, next, 0, weight);
+            for (int c = weight; c < width; c++) {
+                long take = previous[c - weight] + value;
+                if (take > previous[c]) {
+                    next[c] = take;
+                    long cell = base + c;
+                    decisions[(int) (cell >>> 6)] |= 1L << cell;
+                } else {
+                    next[c] = previous[c];
+                }
+            }
+            long[] rolled = previous;
+            previous = next;
+            next = rolled;
+        }
+
+        // Values never decrease with capacity, so the best choice fits the full capacity
+        boolean[] chosen = new boolean[count];
+        int c = capacity;
+        for (int item = count - 1; item >= 0; item--) {
+            long cell = item * (long) width + c;
+            if ((decisions[(int) (cell >>> 6)] & (1L << cell)) != 0) {
+                chosen[item] = true;
+                c -= (int) price(rows[item], method);
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Private method finding the next discounted method an order can pay in full with:
+     * a promoted card or PUNKTY, if its discount on the order is positive.
+     *
+     * @return The method index, or -1 if there is none.
+     */
+    private int nextEligible(int row, int fromMethod) {
+        int card = orderTable.nextCardPromotion(row, fromMethod);
+        while (card >= 0 && discount(row, card) <= 0) {
+            card = orderTable.nextCardPromotion(row, card + 1);
+        }
+        boolean points = pointsIndex >= fromMethod && (card < 0 || pointsIndex < card) && discount(row, pointsIndex) > 0;
+        return points ? pointsIndex : card;
+    }
+
+    private long discount(int row, int method) {
+        return MoneyUtil.calculateDiscountAmount(orderTable.getValueCents(row), catalog.getDiscount(method));
+    }
+
+    private long price(int row, int method) {
+        return orderTable.getValueCents(row) - discount(row, method);
+    }
+}
@@ -0,0 +1,510 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+import pl.edu.agh.kis.pz1.domain.MethodDictionary;
+import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.domain.OrderTable;
+import pl.edu.agh.kis.pz1.domain.PaymentCatalog;
+import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+import pl.edu.agh.kis.pz1.domain.Result;
+import pl.edu.agh.kis.pz1.utils.MoneyUtil;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Anytime payment optimizer that improves on the greedy {@link PaymentOptimizer} by local search.
+ * <p>
+ * The greedy allocation of every order is taken as the starting point. Each worker then repeatedly
+ * picks a random move and keeps it if the total discount does not decrease:
+ * <ul>
+ *     <li>relocate: an order switches to another payment, either in full with a promoted card (R2) or points (R4),
+ *     R3 with the most or the fewest points and a random card for the rest, or the full value with a random card;</li>
+ *     <li>swap: an order paid in full hands its method to another eligible order and switches to another payment
+ *     itself, e.g. from R2 or R4 to R3.</li>
+ * </ul>
+ * Every payment is an amount of points plus an amount on one card, so a move releases and charges at most
+ * four remaining limits and its change of discount is known without recomputing any totals.
+ * Workers run independent randomized searches in parallel until the time budget is used up,
+ * and the best allocation found by any of them is returned. If the calling thread is interrupted,
+ * the workers stop early as if the budget were used up; the best allocation found so far is returned
+ * once they have all stopped, and the thread's interrupt status is kept.
+ * <p>
+ * The payment methods and orders passed in are not modified.
+ */
+public class LocalSearchOptimizer {
+
+    // Minimum percentage of the order value paid with points, which is also the R3 discount
+    private static final int R3_PERCENTAGE = 10;
+    // Number of moves between two checks of the clock and of the interrupt status
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+    private final OrderTable orderTable;
+    private final PaymentCatalog catalog;
+    private final int pointsIndex;
+    private final int[] cards;
+
+    private int parallelism = 1;
+    private long seed = 42L;
+
+    /**
+     * Creates a new instance of the local search optimizer.
+     *
+     * @param orders A list of orders to process.
+     * @param paymentMethods A list of available payment methods.
+     */
+    public LocalSearchOptimizer(List<Order> orders, List<PaymentMethod> paymentMethods) {
+        this(orders, PaymentCatalog.of(paymentMethods));
+    }
+
+    /**
+     * Creates a new instance of the local search optimizer for a shared payment catalog.
+     *
+     * @param orders A list of orders to process.
+     * @param catalog The available payment methods.
+     */
+    public LocalSearchOptimizer(List<Order> orders, PaymentCatalog catalog) {
+        this(OrderTable.fromOrders(orders, catalog.getDictionary()), catalog);
+    }
+
+    /**
+     * Creates a new instance of the local search optimizer working directly on a columnar order table.
+     *
+     * @param orderTable The orders to process; its promotion masks must refer to the catalog's payment methods in order.
+     * @param catalog The available payment methods.
+     * @throws IllegalArgumentException if the table was built for different payment methods.
+     */
+    public LocalSearchOptimizer(OrderTable orderTable, PaymentCatalog catalog) {
+        MethodDictionary dictionary = orderTable.getDictionary();
+        if (!dictionary.getIds().equals(catalog.getDictionary().getIds())) {
+            throw new IllegalArgumentException("Order table promotion masks do not match the payment methods");
+        }
+        this.orderTable = orderTable;
+        this.catalog = catalog;
+        this.pointsIndex = dictionary.getPointsIndex();
+        this.cards = IntStream.range(0, dictionary.size()).filter(dictionary::isCard).toArray();
+    }
+
+    /**
+     * Sets the number of workers searching in parallel, each on its own thread. Defaults to 1.
+     *
+     * @param parallelism The number of workers, at least 1.
+     * @throws IllegalArgumentException if parallelism is less than 1.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, got " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the seed of the workers' random moves; worker i uses {@code seed + i}. Defaults to 42.
+     *
+     * @param seed The seed.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Runs the greedy optimizer followed by the local search until the time budget,
+     * which includes the greedy run, is used up.
+     *
+     * @param timeBudget The wall-clock time the optimization may take.
+     * @return A list of Result objects with the total amount spent on each used payment method, in input order.
+     * @throws NotFoundPaymentsException if the greedy optimizer cannot pay every order.
+     */
+    public List<Result> optimize(Duration timeBudget) throws NotFoundPaymentsException {
+        return optimize(timeBudget, Long.MAX_VALUE);
+    }
+
+    /**
+     * Runs the greedy optimizer followed by the local search until the time budget is used up
+     * or every worker has tried the given number of moves, which makes the result reproducible.
+     */
+    List<Result> optimize(Duration timeBudget, long maxMoves) throws NotFoundPaymentsException {
+        long deadline = System.nanoTime() + timeBudget.toNanos();
+
+        Allocations start = runGreedy();
+        long[] bestRemaining = start == null ? null : search(start, deadline, maxMoves);
+        if (bestRemaining == null) {
+            // The greedy results are kept when orders could not be told apart by their IDs
+            return greedyOptimizer().optimize();
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (int method = 0; method < catalog.size(); method++) {
+            long spent = catalog.getRemainingLimitCents(method) - bestRemaining[method];
+            if (spent > 0) {
+                results.add(new Result(catalog.getId(method), MoneyUtil.toBigDecimal(spent)));
+            }
+        }
+        return results;
+    }
+
+    private PaymentOptimizer greedyOptimizer() {
+        return new PaymentOptimizer(orderTable, catalog);
+    }
+
+    /**
+     * Private method running the greedy optimizer and recording how it paid every order.
+     *
+     * @return The greedy payments, or null if two orders share an ID so that payments cannot be matched to rows.
+     */
+    private Allocations runGreedy() throws NotFoundPaymentsException {
+        List<Allocation> allocations = new ArrayList<>();
+        PaymentOptimizer optimizer = greedyOptimizer();
+        optimizer.setAllocationListener(allocations::add);
+        optimizer.optimize();
+
+        Allocations start = new Allocations(allocations.size());
+        boolean[] seen = new boolean[orderTable.size()];
+        for (int i = 0; i < allocations.size(); i++) {
+            Allocation allocation = allocations.get(i);
+            int row = orderTable.indexOf(allocation.orderId());
+            if (seen[row]) {
+                return null;
+            }
+            seen[row] = true;
+            start.rows[i] = row;
+            start.points[i] = allocation.pointsCents();
+            start.card[i] = allocation.cardId() == null ? -1 : catalog.getDictionary().indexOf(allocation.cardId());
+            start.cardCents[i] = allocation.cardCents();
+        }
+        return start;
+    }
+
+    /**
+     * Private method running the workers from the greedy payments.
+     *
+     * @return The remaining limits of the best allocation found.
+     */
+    private long[] search(Allocations start, long deadline, long maxMoves) {
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < parallelism; i++) {
+            workers.add(new Worker(start, new Random(seed + i)));
+        }
+
+        if (parallelism == 1) {
+            workers.getFirst().run(deadline, maxMoves);
+        } else {
+            ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+            boolean interrupted = false;
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (Worker worker : workers) {
+                    futures.add(executor.submit(() -> worker.run(deadline, maxMoves)));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Local search worker failed", e.getCause());
+            } finally {
+                // Workers check for interrupts with the clock; their state is only read once all have returned
+                executor.shutdownNow();
+                interrupted |= awaitTermination(executor);
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Ties go to the lowest worker, so the choice does not depend on thread timing
+        Worker best = workers.getFirst();
+        for (Worker worker : workers) {
+            if (worker.bestDiscount > best.bestDiscount) {
+                best = worker;
+            }
+        }
+        return best.bestRemaining;
+    }
+
+    /**
+     * Private method waiting until every task of a shut down executor has returned.
+     *
+     * @return Whether the calling thread was interrupted while waiting.
+     */
+    private static boolean awaitTermination(ExecutorService executor) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS)) {
+                    return interrupted;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+    }
+
+    /**
+     * Payments of the orders, indexed by search position: an amount of points and an amount on one card.
+     */
+    private static final class Allocations {
+        final int[] rows;
+        final long[] points;
+        final int[] card;
+        final long[] cardCents;
+
+        Allocations(int size) {
+            rows = new int[size];
+            points = new long[size];
+            card = new int[size];
+            cardCents = new long[size];
+        }
+
+        Allocations(Allocations other) {
+            rows = other.rows;
+            points = other.points.clone();
+            card = other.card.clone();
+            cardCents = other.cardCents.clone();
+        }
+    }
+
+    /**
+     * One randomized search on its own copy of the payments and remaining limits.
+     */
+    private final class Worker {
+
+        private final Allocations payments;
+        private final Random random;
+        private final long[] remaining;
+        private long discount;
+        private long bestDiscount;
+        private long[] bestRemaining;
+
+        // The payment a move offers an order, written by choosePayment
+        private long newPoints;
+        private int newCard;
+        private long newCardCents;
+
+        Worker(Allocations start, Random random) {
+            this.payments = new Allocations(start);
+            this.random = random;
+            this.remaining = catalog.copyRemainingLimitsCents();
+            for (int i = 0; i < payments.rows.length; i++) {
+                charge(payments.points[i], payments.card[i], payments.cardCents[i], -1);
+                discount += discountOf(i);
+            }
+            this.bestDiscount = discount;
+            this.bestRemaining = remaining.clone();
+        }
+
+        void run(long deadline, long maxMoves) {
+            int size = payments.rows.length;
+            if (size == 0) {
+                return;
+            }
+            for (long move = 1; move <= maxMoves; move++) {
+                if (move % DEADLINE_CHECK_INTERVAL == 0
+                        && (System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted())) {
+                    return;
+                }
+                int order = random.nextInt(size);
+                if (size > 1 && random.nextInt(4) == 0) {
+                    trySwap(order, random.nextInt(size));
+                } else {
+                    tryRelocate(order);
+                }
+                if (discount > bestDiscount) {
+                    bestDiscount = discount;
+                    System.arraycopy(remaining, 0, bestRemaining, 0, remaining.length);
+                }
+            }
+        }
+
+        /**
+         * Private method moving an order to another payment if the discount does not decrease.
+         */
+        private void tryRelocate(int order) {
+            long oldDiscount = discountOf(order);
+            release(order);
+            if (choosePayment(order, -1) && fits(newPoints, newCard, newCardCents)) {
+                long newDiscount = orderTable.getValueCents(payments.rows[order]) - newPoints - newCardCents;
+                if (newDiscount >= oldDiscount) {
+                    assign(order, newPoints, newCard, newCardCents);
+                    discount += newDiscount - oldDiscount;
+                    return;
+                }
+            }
+            restore(order);
+        }
+
+        /**
+         * Private method giving the method an order pays in full with to another eligible order,
+         * and another payment to the first order, if the discount does not decrease.
+         */
+        private void trySwap(int order, int other) {
+            int method = fullPaymentMethod(order);
+            if (order == other || method < 0 || !eligible(payments.rows[other], method)) {
+                return;
+            }
+            long oldDiscount = discountOf(order) + discountOf(other);
+            release(order);
+            release(other);
+
+            long otherPrice = price(payments.rows[other], method);
+            long otherPoints = method == pointsIndex ? otherPrice : 0;
+            int otherCard = method == pointsIndex ? -1 : method;
+            long otherCardCents = method == pointsIndex ? 0 : otherPrice;
+            if (fits(otherPoints, otherCard, otherCardCents)) {
+                charge(otherPoints, otherCard, otherCardCents, -1);
+                if (choosePayment(order, method) && fits(newPoints, newCard, newCardCents)) {
+                    long newDiscount = orderTable.getValueCents(payments.rows[order]) - newPoints - newCardCents
+                            + orderTable.getValueCents(payments.rows[other]) - otherPrice;
+                    if (newDiscount >= oldDiscount) {
+                        assign(order, newPoints, newCard, newCardCents);
+                        payments.points[other] = otherPoints;
+                        payments.card[other] = otherCard;
+                        payments.cardCents[other] = otherCardCents;
+                        discount += newDiscount - oldDiscount;
+                        return;
+                    }
+                }
+                charge(otherPoints, otherCard, otherCardCents, 1);
+            }
+            restore(order);
+            restore(other);
+        }
+
+        /**
+         * Private method choosing a random payment for an order from the current remaining limits.
+         * The payment is left in newPoints, newCard and newCardCents; it may not fit the limits.
+         *
+         * @param excludedMethod A method the order must not pay in full with, or -1.
+         * @return Whether a payment was chosen.
+         */
+        private boolean choosePayment(int order, int excludedMethod) {
+            int row = payments.rows[order];
+            long value = orderTable.getValueCents(row);
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    // Full payment with a random promoted card or points, if they give a discount
+                    int method = randomFullPaymentMethod(row);
+                    if (method < 0 || method == excludedMethod) {
+                        return false;
+                    }
+                    long price = price(row, method);
+                    newPoints = method == pointsIndex ? price : 0;
+                    newCard = method == pointsIndex ? -1 : method;
+                    newCardCents = method == pointsIndex ? 0 : price;
+                }
+                case 1 -> {
+                    // R3 with the most or the fewest points, the rest with a random card
+                    if (pointsIndex < 0) {
+                        return false;
+                    }
+                    long cost = MoneyUtil.applyDiscount(value, R3_PERCENTAGE);
+                    long minPoints = MoneyUtil.percentage(value, R3_PERCENTAGE);
+                    long points = random.nextBoolean() ? Math.min(cost, remaining[pointsIndex]) : minPoints;
+                    if (points < minPoints || points > cost) {
+                        return false;
+                    }
+                    newPoints = points;
+                    newCardCents = cost - points;
+                    newCard = newCardCents == 0 ? -1 : randomCard();
+                    if (newCardCents > 0 && newCard < 0) {
+                        return false;
+                    }
+                }
+                default -> {
+                    // The full value with a random card
+                    newPoints = 0;
+                    newCard = randomCard();
+                    newCardCents = value;
+                    if (newCard < 0) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        private int randomFullPaymentMethod(int row) {
+            int count = 0;
+            int chosen = -1;
+            // Reservoir sampling over the order's discounted options
+            if (pointsIndex >= 0 && catalog.getDiscount(pointsIndex) > 0 && random.nextInt(++count) == 0) {
+                chosen = pointsIndex;
+            }
+            for (int method = orderTable.nextCardPromotion(row, 0); method >= 0; method = orderTable.nextCardPromotion(row, method + 1)) {
+                if (catalog.getDiscount(method) > 0 && random.nextInt(++count) == 0) {
+                    chosen = method;
+                }
+            }
+            return chosen;
+        }
+
+        private int randomCard() {
+            return cards.length == 0 ? -1 : cards[random.nextInt(cards.length)];
+        }
+
+        /**
+         * Private method returning the method an order pays in full with a discount (R2 or R4), or -1.
+         */
+        private int fullPaymentMethod(int order) {
+            int row = payments.rows[order];
+            int card = payments.card[order];
+            if (card < 0) {
+                return pointsIndex >= 0 && eligible(row, pointsIndex) && payments.points[order] == price(row, pointsIndex) ? pointsIndex : -1;
+            }
+            return payments.points[order] == 0 && eligible(row, card) && payments.cardCents[order] == price(row, card) ? card : -1;
+        }
+
+        private boolean eligible(int row, int method) {
+            if (catalog.getDiscount(method) <= 0) {
+                return false;
+            }
+            return method == pointsIndex || orderTable.hasPromotion(row, method);
+        }
+
+        private long price(int row, int method) {
+            long value = orderTable.getValueCents(row);
+            return value - MoneyUtil.calculateDiscountAmount(value, catalog.getDiscount(method));
+        }
+
+        private long discountOf(int order) {
+            return orderTable.getValueCents(payments.rows[order]) - payments.points[order] - payments.cardCents[order];
+        }
+
+        private boolean fits(long points, int card, long cardCents) {
+            return (points == 0 || remaining[pointsIndex] >= points) && (card < 0 || remaining[card] >= cardCents);
+        }
+
+        /**
+         * Private method adding a payment to the remaining limits (sign 1) or taking it from them (sign -1).
+         */
+        private void charge(long points, int card, long cardCents, int sign) {
+            if (points != 0) {
+                remaining[pointsIndex] += sign * points;
+            }
+            if (card >= 0) {
+                remaining[card] += sign * cardCents;
+            }
+        }
+
+        private void release(int order) {
+            charge(payments.points[order], payments.card[order], payments.cardCents[order], 1);
+        }
+
+        private void restore(int order) {
+            charge(payments.points[order], payments.card[order], payments.cardCents[order], -1);
+        }
+
+        private void assign(int order, long points, int card, long cardCents) {
+            charge(points, card, cardCents, -1);
+            payments.points[order] = points;
+            payments.card[order] = card;
+            payments.cardCents[order] = cardCents;
+        }
+    }
+}
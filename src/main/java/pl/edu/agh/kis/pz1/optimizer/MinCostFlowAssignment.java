@@ -0,0 +1,370 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+import pl.edu.agh.kis.pz1.domain.OrderTable;
+import pl.edu.agh.kis.pz1.domain.PaymentCatalog;
+import pl.edu.agh.kis.pz1.utils.MoneyUtil;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Assignment of orders to discounted full payments (R2 and R4) solved as a min-cost flow.
+ * <p>
+ * The network is source &rarr; order &rarr; eligible method &rarr; sink, where flow is order value in cents,
+ * each order supplies its value, and each method accepts the value whose discounted price fits
+ * its remaining limit. An arc into method m costs minus its discount rate, so a min-cost flow maximizes
+ * the total discount of the (fractional) relaxation. Because the cost depends only on the method,
+ * orders with the same set of eligible methods are interchangeable and are merged into one node,
+ * and the successive shortest paths algorithm reduces to one phase per method in descending
+ * discount order: every augmenting path of a phase has the same cost, so each phase is a max-flow
+ * (Dinic) into the newly opened method that may reroute flow between methods opened earlier.
+ * <p>
+ * The flow is then rounded to whole orders: within each group, orders are placed largest first
+ * into the amounts the flow sends to each method, checking the exact discounted price against the
+ * remaining limit. Orders that do not fit are left for the caller.
+ */
+final class MinCostFlowAssignment {
+
+    private static final long INFINITE = Long.MAX_VALUE / 4;
+    private static final int SOURCE = 0;
+    private static final int SINK = 1;
+
+    private final OrderTable orderTable;
+    private final PaymentCatalog catalog;
+    private final long[] remainingCents;
+    // Methods with a positive discount, highest discount first
+    private final int[] methodOrder;
+
+    // Groups of orders with the same eligible methods
+    private int groupCount;
+    private int[] groupOfRow;
+    private long[] groupSupply;
+    // Per group, the arcs to its eligible methods in methodOrder order
+    private List<int[]> groupArcs;
+
+    // Flow network in compressed sparse row form: the edges leaving node v are start[v] to start[v + 1] - 1,
+    // so scanning a node's edges reads consecutive memory. reverse[e] is the residual edge of e.
+    private int nodeCount;
+    private int[] start;
+    private int[] to;
+    private long[] capacity;
+    private int[] reverse;
+    // Edge from each method to the sink, -1 for methods without a discount
+    private int[] sinkEdge;
+    private int[] level;
+    private int[] iterator;
+
+    private MinCostFlowAssignment(OrderTable orderTable, PaymentCatalog catalog, long[] remainingCents) {
+        this.orderTable = orderTable;
+        this.catalog = catalog;
+        this.remainingCents = remainingCents;
+        this.methodOrder = IntStream.range(0, catalog.size())
+                .filter(method -> catalog.getDiscount(method) > 0)
+                .boxed()
+                .sorted(Comparator.comparingInt((Integer method) -> catalog.getDiscount(method)).reversed()
+                        .thenComparingInt(Integer::intValue))
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    /**
+     * Assigns unpaid orders to discounted full payments without exceeding the methods' remaining limits.
+     * Neither the order table nor the remaining limits are modified.
+     *
+     * @param orderTable The orders; paid orders are skipped.
+     * @param catalog The payment methods by dictionary index, with their discounts.
+     * @param remainingCents The remaining limits in cents, by dictionary index.
+     * @return The method paying each row in full, or -1 for rows left unassigned.
+     */
+    static int[] assign(OrderTable orderTable, PaymentCatalog catalog, long[] remainingCents) {
+        MinCostFlowAssignment assignment = new MinCostFlowAssignment(orderTable, catalog, remainingCents);
+        assignment.groupOrders();
+        assignment.buildNetwork();
+        assignment.solve();
+        return assignment.roundToOrders();
+    }
+
+    /**
+     * Private method merging orders with the same eligible methods into groups.
+     */
+    private void groupOrders() {
+        int pointsIndex = orderTable.getDictionary().getPointsIndex();
+        boolean pointsEligible = pointsIndex >= 0 && catalog.getDiscount(pointsIndex) > 0;
+        int maskWords = orderTable.getDictionary().getMaskWords();
+
+        Map<MaskKey, Integer> groupByMask = new HashMap<>();
+        List<long[]> groupMasks = new ArrayList<>();
+        groupOfRow = new int[orderTable.size()];
+        long[] supply = new long[16];
+
+        long[] mask = new long[maskWords];
+        for (int row = 0; row < orderTable.size(); row++) {
+            groupOfRow[row] = -1;
+            if (orderTable.isPaid(row)) {
+                continue;
+            }
+
+            Arrays.fill(mask, 0);
+            boolean eligible = false;
+            for (int card = orderTable.nextCardPromotion(row, 0); card >= 0; card = orderTable.nextCardPromotion(row, card + 1)) {
+                if (catalog.getDiscount(card) > 0) {
+                    mask[card >>> 6] |= 1L << card;
+                    eligible = true;
+                }
+            }
+            if (pointsEligible) {
+                mask[pointsIndex >>> 6] |= 1L << pointsIndex;
+                eligible = true;
+            }
+            if (!eligible) {
+                continue;
+            }
+
+            Integer group = groupByMask.get(new MaskKey(mask));
+            if (group == null) {
+                group = groupMasks.size();
+                long[] copy = mask.clone();
+                groupMasks.add(copy);
+                groupByMask.put(new MaskKey(copy), group);
+                if (group == supply.length) {
+                    supply = Arrays.copyOf(supply, supply.length * 2);
+                }
+            }
+            groupOfRow[row] = group;
+            supply[group] = MoneyUtil.add(supply[group], orderTable.getValueCents(row));
+        }
+
+        groupCount = groupMasks.size();
+        groupSupply = supply;
+        groupArcs = new ArrayList<>(groupCount);
+        for (long[] groupMask : groupMasks) {
+            groupArcs.add(Arrays.stream(methodOrder)
+                    .filter(method -> (groupMask[method >>> 6] & (1L << method)) != 0)
+                    .toArray());
+        }
+    }
+
+    /**
+     * Private method building the flow network. Arcs from the methods to the sink start closed;
+     * {@link #solve()} opens them one at a time.
+     */
+    private void buildNetwork() {
+        nodeCount = 2 + groupCount + catalog.size();
+        int arcCount = groupCount + methodOrder.length;
+        for (int[] arcs : groupArcs) {
+            arcCount += arcs.length;
+        }
+        int[] arcFrom = new int[arcCount];
+        int[] arcTo = new int[arcCount];
+        long[] arcCapacity = new long[arcCount];
+
+        int arc = 0;
+        for (int group = 0; group < groupCount; group++) {
+            arcFrom[arc] = SOURCE;
+            arcTo[arc] = groupNode(group);
+            arcCapacity[arc++] = groupSupply[group];
+            for (int method : groupArcs.get(group)) {
+                arcFrom[arc] = groupNode(group);
+                arcTo[arc] = methodNode(method);
+                arcCapacity[arc++] = INFINITE;
+            }
+        }
+        for (int method : methodOrder) {
+            arcFrom[arc] = methodNode(method);
+            arcTo[arc] = SINK;
+            arcCapacity[arc++] = 0;
+        }
+
+        // Counting sort of the arcs and their residuals by tail node
+        start = new int[nodeCount + 1];
+        for (int i = 0; i < arcCount; i++) {
+            start[arcFrom[i] + 1]++;
+            start[arcTo[i] + 1]++;
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            start[node + 1] += start[node];
+        }
+        int[] fill = Arrays.copyOf(start, nodeCount);
+        to = new int[2 * arcCount];
+        capacity = new long[2 * arcCount];
+        reverse = new int[2 * arcCount];
+        int[] arcEdge = new int[arcCount];
+        for (int i = 0; i < arcCount; i++) {
+            int forward = fill[arcFrom[i]]++;
+            int backward = fill[arcTo[i]]++;
+            to[forward] = arcTo[i];
+            capacity[forward] = arcCapacity[i];
+            reverse[forward] = backward;
+            to[backward] = arcFrom[i];
+            reverse[backward] = forward;
+            arcEdge[i] = forward;
+        }
+
+        // Replace the method indices in the group arcs by the edges to those methods
+        arc = 0;
+        for (int[] arcs : groupArcs) {
+            arc++;
+            for (int i = 0; i < arcs.length; i++) {
+                arcs[i] = arcEdge[arc++];
+            }
+        }
+        sinkEdge = new int[catalog.size()];
+        Arrays.fill(sinkEdge, -1);
+        for (int method : methodOrder) {
+            sinkEdge[method] = arcEdge[arc++];
+        }
+
+        level = new int[nodeCount];
+        iterator = new int[nodeCount];
+    }
+
+    /**
+     * Private method running one max-flow phase per method in descending discount order,
+     * i.e. successive shortest paths where all paths of a phase have the same cost.
+     */
+    private void solve() {
+        for (int method : methodOrder) {
+            capacity[sinkEdge[method]] = valueCapacity(catalog.getDiscount(method), remainingCents[method]);
+            maxFlow();
+        }
+    }
+
+    /**
+     * Private method calculating how much order value a method can pay in full:
+     * the largest value whose discounted price fits the remaining limit.
+     */
+    private static long valueCapacity(int discount, long remainingLimitCents) {
+        int payablePercent = 100 - discount;
+        long remaining = Math.max(0, remainingLimitCents);
+        if (payablePercent <= 0 || remaining >= INFINITE / 100) {
+            return INFINITE;
+        }
+        return remaining * 100 / payablePercent;
+    }
+
+    /**
+     * Private method rounding the group flows to whole orders, largest orders first.
+     *
+     * @return The method paying each row in full, or -1.
+     */
+    private int[] roundToOrders() {
+        // Amount of order value the flow sends over each group-to-method arc
+        long[] quota = new long[capacity.length];
+        for (int[] arcs : groupArcs) {
+            for (int edge : arcs) {
+                quota[edge] = capacity[reverse[edge]];
+            }
+        }
+        long[] remaining = remainingCents.clone();
+
+        // The candidate buffer doubles as a primitive sort of rows by value, largest first
+        CandidateBuffer byValue = new CandidateBuffer();
+        for (int row = 0; row < groupOfRow.length; row++) {
+            if (groupOfRow[row] >= 0) {
+                byValue.add(row, groupOfRow[row], orderTable.getValueCents(row));
+            }
+        }
+        byValue.sortByDiscountDescending();
+
+        int[] assignment = new int[orderTable.size()];
+        Arrays.fill(assignment, -1);
+        for (int i = 0; i < byValue.size(); i++) {
+            int row = byValue.getRow(i);
+            long value = byValue.getDiscount(i);
+            for (int edge : groupArcs.get(byValue.getMethod(i))) {
+                int method = to[edge] - 2 - groupCount;
+                long cost = MoneyUtil.applyDiscount(value, catalog.getDiscount(method));
+                if (quota[edge] >= value && remaining[method] >= cost) {
+                    quota[edge] -= value;
+                    remaining[method] -= cost;
+                    assignment[row] = method;
+                    break;
+                }
+            }
+        }
+        return assignment;
+    }
+
+    private long maxFlow() {
+        long total = 0;
+        while (buildLevels()) {
+            System.arraycopy(start, 0, iterator, 0, nodeCount);
+            long pushed;
+            while ((pushed = augment(SOURCE, INFINITE)) > 0) {
+                total += pushed;
+            }
+        }
+        return total;
+    }
+
+    private boolean buildLevels() {
+        Arrays.fill(level, -1);
+        int[] queue = new int[nodeCount];
+        int queueHead = 0;
+        int queueTail = 0;
+        queue[queueTail++] = SOURCE;
+        level[SOURCE] = 0;
+        while (queueHead < queueTail) {
+            int node = queue[queueHead++];
+            for (int edge = start[node]; edge < start[node + 1]; edge++) {
+                if (capacity[edge] > 0 && level[to[edge]] < 0) {
+                    level[to[edge]] = level[node] + 1;
+                    queue[queueTail++] = to[edge];
+                }
+            }
+        }
+        return level[SINK] >= 0;
+    }
+
+    /**
+     * Private method pushing flow along one path of the level graph. Paths alternate between
+     * groups and distinct methods, so the recursion depth is bounded by twice the number of methods.
+     */
+    private long augment(int node, long limit) {
+        if (node == SINK) {
+            return limit;
+        }
+        for (; iterator[node] < start[node + 1]; iterator[node]++) {
+            int edge = iterator[node];
+            int target = to[edge];
+            if (capacity[edge] > 0 && level[target] == level[node] + 1) {
+                long pushed = augment(target, Math.min(limit, capacity[edge]));
+                if (pushed > 0) {
+                    capacity[edge] -= pushed;
+                    capacity[reverse[edge]] += pushed;
+                    return pushed;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private int groupNode(int group) {
+        return 2 + group;
+    }
+
+    private int methodNode(int method) {
+        return 2 + groupCount + method;
+    }
+
+    /**
+     * Mask of eligible methods used as a hash key.
+     */
+    private record MaskKey(long[] words) {
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof MaskKey key && Arrays.equals(words, key.words);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(words);
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(words);
+        }
+    }
+}
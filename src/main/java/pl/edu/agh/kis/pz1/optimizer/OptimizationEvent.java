@@ -0,0 +1,59 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event covering one {@link PaymentOptimizer} optimization, from candidate generation to the results.
+ * The phases are recorded as {@link OptimizerPhaseEvent}s on the same thread.
+ * When the event is not enabled in a recording, creating and committing it costs next to nothing.
+ */
+@Name("pl.edu.agh.kis.pz1.Optimization")
+@Label("Payment Optimization")
+@Category({"Payment Optimizer"})
+@Description("One run of PaymentOptimizer.optimize")
+@StackTrace(false)
+final class OptimizationEvent extends jdk.jfr.Event {
+
+    @Label("Orders")
+    int orders;
+
+    @Label("Payment Methods")
+    int paymentMethods;
+
+    @Label("Full Payment Engine")
+    String engine;
+
+    @Label("Parallelism")
+    int parallelism;
+
+    @Label("Shared Limits")
+    @Description("Whether the limits were reserved in a SharedLimitLedger")
+    boolean sharedLimits;
+
+    @Label("Candidates")
+    @Description("Candidate full payments (R2 and R4) considered")
+    long candidates;
+
+    @Label("Candidates Rejected For Limit")
+    @Description("Candidates of unpaid orders skipped because the payment method's limit was too small")
+    long candidatesRejectedForLimit;
+
+    @Label("Full Payments")
+    @Description("Orders paid in full with a discounted method (R2 or R4)")
+    long fullPayments;
+
+    @Label("R3 Payments")
+    @Description("Orders paid partially with points and the rest by card")
+    long r3Payments;
+
+    @Label("Base Payments")
+    @Description("Orders paid in full by card without discount")
+    long basePayments;
+
+    @Label("Succeeded")
+    boolean succeeded;
+}
@@ -0,0 +1,65 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event covering one phase of a {@link PaymentOptimizer} optimization.
+ * The counts are those of the optimization up to the end of the phase, so the difference
+ * between two phases shows what the later one did.
+ */
+@Name("pl.edu.agh.kis.pz1.OptimizerPhase")
+@Label("Payment Optimizer Phase")
+@Category({"Payment Optimizer"})
+@Description("One phase of PaymentOptimizer.optimize")
+@StackTrace(false)
+final class OptimizerPhaseEvent extends jdk.jfr.Event {
+
+    @Label("Phase")
+    @Description("Name of the phase, as in OptimizerPhaseListener")
+    String phase;
+
+    @Label("Orders")
+    int orders;
+
+    @Label("Candidates Generated")
+    @Description("Candidate full payments generated for orders added since the previous optimization")
+    long candidatesGenerated;
+
+    @Label("Candidates")
+    @Description("Candidate full payments (R2 and R4) considered")
+    long candidates;
+
+    @Label("Candidates Rejected For Limit")
+    @Description("Candidates of unpaid orders skipped because the payment method's limit was too small")
+    long candidatesRejectedForLimit;
+
+    @Label("Full Payments")
+    long fullPayments;
+
+    @Label("R3 Payments")
+    long r3Payments;
+
+    @Label("Base Payments")
+    long basePayments;
+
+    @Label("Card Lookups")
+    @Description("Searches of the card limit index for a card with a sufficient limit")
+    long cardLookups;
+
+    /**
+     * Creates and begins the event of a phase.
+     *
+     * @param phase The name of the phase, one of the constants of {@link OptimizerPhaseListener}.
+     * @return The started event.
+     */
+    static OptimizerPhaseEvent start(String phase) {
+        OptimizerPhaseEvent event = new OptimizerPhaseEvent();
+        event.phase = phase;
+        event.begin();
+        return event;
+    }
+}
@@ -0,0 +1,72 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+/**
+ * Receives the phase boundaries of {@link PaymentOptimizer} optimizations, e.g. to measure their duration
+ * and allocations. All calls of one optimization are made on the thread calling {@code optimize},
+ * one phase after another; a listener shared by optimizers on several threads must be thread-safe.
+ * All methods do nothing by default.
+ */
+public interface OptimizerPhaseListener {
+
+    /**
+     * Listener ignoring all calls, used when none is set.
+     */
+    OptimizerPhaseListener NONE = new OptimizerPhaseListener() {
+    };
+
+    /**
+     * Reading and parsing the input; not reported by the optimizer itself, but by callers that parse before optimizing.
+     */
+    String PARSE = "parse";
+
+    /**
+     * Generating and sorting the candidate full payments (R2 and R4).
+     */
+    String CANDIDATES = "candidates";
+
+    /**
+     * Allocating the full payments with a discount.
+     */
+    String FULL_PAYMENTS = "fullPayments";
+
+    /**
+     * Allocating the R3 and base payments.
+     */
+    String REMAINING_PAYMENTS = "remainingPayments";
+
+    /**
+     * Verifying that every order is paid.
+     */
+    String VERIFY = "verify";
+
+    /**
+     * Collecting the results.
+     */
+    String COLLECT_RESULTS = "collectResults";
+
+    /**
+     * Called when a phase starts.
+     *
+     * @param phase The name of the phase, one of the constants of this interface.
+     */
+    default void phaseStarted(String phase) {
+    }
+
+    /**
+     * Called when a phase has completed. Not called for a phase that throws an exception.
+     *
+     * @param phase The name of the phase, one of the constants of this interface.
+     */
+    default void phaseCompleted(String phase) {
+    }
+
+    /**
+     * Called when an optimization has completed successfully.
+     *
+     * @param orders The number of orders optimized.
+     * @param candidates The number of candidate full payments considered.
+     * @param nanos The wall time of the optimization in nanoseconds.
+     */
+    default void optimizationCompleted(int orders, long candidates, long nanos) {
+    }
+}
@@ -0,0 +1,132 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+import pl.edu.agh.kis.pz1.domain.OrderTable;
+
+import java.util.Arrays;
+
+/**
+ * Connected components of the bipartite graph linking unpaid orders to the cards listed in their promotions.
+ * Components are found with a union-find over the cards: the promoted cards of every order are joined,
+ * so each component is a set of cards together with the orders promoting them. Orders without promoted
+ * cards belong to no component.
+ * <p>
+ * Two orders in different components never compete for the same card limit when paid in full with R2,
+ * so the full payments of each component can be allocated on their own. The rows of a component are
+ * kept in ascending order, which is the tie-break order of the candidates.
+ */
+final class PaymentComponents {
+
+    // Rows of component c are rows[start[c]] .. rows[start[c + 1] - 1]
+    private final int[] start;
+    private final int[] rows;
+
+    private PaymentComponents(int[] start, int[] rows) {
+        this.start = start;
+        this.rows = rows;
+    }
+
+    /**
+     * Finds the components of the unpaid orders of a table.
+     *
+     * @param orderTable The orders.
+     * @param paid The paid flags of the rows to consider; rows beyond its length are ignored.
+     * @return The components, in the order of their first row.
+     */
+    static PaymentComponents find(OrderTable orderTable, boolean[] paid) {
+        int[] parent = new int[orderTable.getDictionary().size()];
+        Arrays.setAll(parent, method -> method);
+
+        for (int row = 0; row < paid.length; row++) {
+            if (paid[row]) {
+                continue;
+            }
+            int first = orderTable.nextCardPromotion(row, 0);
+            if (first < 0) {
+                continue;
+            }
+            int root = findRoot(parent, first);
+            for (int method = orderTable.nextCardPromotion(row, first + 1); method >= 0; method = orderTable.nextCardPromotion(row, method + 1)) {
+                int other = findRoot(parent, method);
+                if (other != root) {
+                    // The lower card becomes the root, so roots do not depend on the order of the unions
+                    parent[Math.max(root, other)] = Math.min(root, other);
+                    root = Math.min(root, other);
+                }
+            }
+        }
+
+        // Number the components by their first row and count their rows
+        int[] componentOfRoot = new int[parent.length];
+        Arrays.fill(componentOfRoot, -1);
+        int[] componentOfRow = new int[paid.length];
+        int[] sizes = new int[parent.length + 1];
+        int count = 0;
+        for (int row = 0; row < paid.length; row++) {
+            int first = paid[row] ? -1 : orderTable.nextCardPromotion(row, 0);
+            if (first < 0) {
+                componentOfRow[row] = -1;
+                continue;
+            }
+            int root = findRoot(parent, first);
+            if (componentOfRoot[root] < 0) {
+                componentOfRoot[root] = count++;
+            }
+            componentOfRow[row] = componentOfRoot[root];
+            sizes[componentOfRow[row] + 1]++;
+        }
+
+        int[] start = new int[count + 1];
+        for (int component = 0; component < count; component++) {
+            start[component + 1] = start[component] + sizes[component + 1];
+        }
+        int[] rows = new int[start[count]];
+        int[] next = Arrays.copyOf(start, count);
+        for (int row = 0; row < paid.length; row++) {
+            if (componentOfRow[row] >= 0) {
+                rows[next[componentOfRow[row]]++] = row;
+            }
+        }
+        return new PaymentComponents(start, rows);
+    }
+
+    /**
+     * Private method finding the root of a card, halving the path on the way.
+     */
+    private static int findRoot(int[] parent, int method) {
+        while (parent[method] != method) {
+            parent[method] = parent[parent[method]];
+            method = parent[method];
+        }
+        return method;
+    }
+
+    /**
+     * Returns the number of components.
+     *
+     * @return The number of components.
+     */
+    int count() {
+        return start.length - 1;
+    }
+
+    /**
+     * Returns the number of orders in a component.
+     *
+     * @param component The component index.
+     * @return The number of rows of the component.
+     */
+    int size(int component) {
+        return start[component + 1] - start[component];
+    }
+
+    /**
+     * Returns an order of a component.
+     *
+     * @param component The component index.
+     * @param index The position of the order within the component, rows ascending.
+     * @return The order table row.
+     */
+    int row(int component, int index) {
+        return rows[start[component] + index];
+    }
+}
@@ -1,151 +1,694 @@
 package pl.edu.agh.kis.pz1.optimizer;
 
-import lombok.Getter;
+import pl.edu.agh.kis.pz1.domain.MethodDictionary;
 import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.domain.OrderTable;
+import pl.edu.agh.kis.pz1.domain.PaymentCatalog;
 import pl.edu.agh.kis.pz1.domain.PaymentMethod;
 import pl.edu.agh.kis.pz1.domain.Result;
-import pl.edu.agh.kis.pz1.utils.BigDecimalUtil;
+import pl.edu.agh.kis.pz1.utils.MoneyUtil;
 
-import java.math.BigDecimal;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
 
 /**
  * Class responsible for optimally allocating payments for a list of orders
  * based on available payment methods and their limits, considering
  * promotion rules.
  * It implements a greedy algorithm prioritizing discounts.
+ * All amounts are handled as {@code long} cents (see {@link MoneyUtil});
+ * BigDecimal values are only produced once the results are collected.
+ * Orders are processed from a columnar {@link OrderTable} and payment methods are
+ * addressed by their {@link MethodDictionary} index, so eligibility checks are bit operations.
+ * <p>
+ * {@link #optimize()} has no side effects: each call allocates its own ledger of remaining limits,
+ * spent amounts and paid flags, starting from the {@link PaymentCatalog} and the order table,
+ * and neither the Order and PaymentMethod objects nor the order table are modified.
+ * Repeated calls therefore return the same results, and concurrent calls on one instance,
+ * or on instances sharing a catalog, are safe. Orders must not be added while an optimization is running.
+ * With {@link #optimize(SharedLimitLedger)}, the limits are instead taken from a pool shared with other threads.
  */
 public class PaymentOptimizer {
 
-    private final List<Order> orders;
-    private final Map<String, PaymentMethod> paymentMethodsMap;
-    private final PaymentMethod pointsMethod;
+    private final OrderTable orderTable;
+    private final MethodDictionary dictionary;
+    private final PaymentCatalog catalog;
+    private final int pointsIndex;
+
+    // Candidates for the R2/R4 step generated as orders arrive and not sorted yet
+    private CandidateBuffer potentialPayments = new CandidateBuffer();
+    // Sorted candidates of the orders before them; never modified once published, so optimizations can share it
+    private CandidateBuffer sortedPayments = new CandidateBuffer();
+    // Number of leading orders for which candidates have already been generated
+    private int ordersWithCandidates = 0;
+
+    // Policy for choosing a card in the R3 and base payment step
+    private CardFitPolicy cardFitPolicy = CardFitPolicy.FIRST_FIT;
+    // Engine deciding the R2/R4 full payments
+    private FullPaymentEngine fullPaymentEngine = FullPaymentEngine.KNAPSACK;
+    // Number of threads used to generate and sort candidates, 1 for the sequential path
+    private int parallelism = 1;
+    // Whether the full payments are allocated per connected component when that is safe
+    private boolean componentDecomposition = false;
+    // Receives the phase boundaries of every optimization
+    private OptimizerPhaseListener phaseListener = OptimizerPhaseListener.NONE;
+    // Receives the payment of every order
+    private AllocationListener allocationListener = AllocationListener.NONE;
 
-    private static final String POINTS_METHOD_ID = "PUNKTY";
     // Minimum percentage of the original order value that must be paid with points for promotion R3 (10% general discount)
-    private static final BigDecimal MIN_POINTS_PERCENTAGE_FOR_R3 = BigDecimal.valueOf(10);
+    private static final int MIN_POINTS_PERCENTAGE_FOR_R3 = 10;
+    // Number of orders per task when candidates are generated in parallel
+    private static final int CANDIDATE_CHUNK_SIZE = 8192;
 
     /**
      * Creates a new instance of the payment optimizer.
+     * The orders are copied into an order table and the payment methods into a catalog,
+     * so later changes to these objects do not affect the optimizer.
      *
      * @param orders A list of orders to process.
      * @param paymentMethods A list of available payment methods.
      */
     public PaymentOptimizer(List<Order> orders, List<PaymentMethod> paymentMethods) {
-        this.orders = orders;
+        this(orders, PaymentCatalog.of(paymentMethods));
+    }
 
-        this.paymentMethodsMap = paymentMethods.stream()
-                .collect(Collectors.toMap(PaymentMethod::getId, pm -> pm));
+    /**
+     * Creates a new instance of the payment optimizer for a shared payment catalog.
+     *
+     * @param orders A list of orders to process.
+     * @param catalog The available payment methods.
+     */
+    public PaymentOptimizer(List<Order> orders, PaymentCatalog catalog) {
+        this(OrderTable.fromOrders(orders, catalog.getDictionary()), catalog);
+    }
 
+    /**
+     * Creates a new instance of the payment optimizer working directly on a columnar order table.
+     *
+     * @param orderTable The orders to process; its promotion masks must refer to the given payment methods in order.
+     * @param paymentMethods A list of available payment methods.
+     * @throws IllegalArgumentException if the table was built for different payment methods.
+     */
+    public PaymentOptimizer(OrderTable orderTable, List<PaymentMethod> paymentMethods) {
+        this(orderTable, PaymentCatalog.of(paymentMethods));
+    }
 
-        this.pointsMethod = paymentMethodsMap.get(POINTS_METHOD_ID);
+    /**
+     * Creates a new instance of the payment optimizer without any orders.
+     * Orders are then supplied one by one with {@link #addOrder(Order)},
+     * e.g. while they are streamed from a file.
+     *
+     * @param paymentMethods A list of available payment methods.
+     */
+    public PaymentOptimizer(List<PaymentMethod> paymentMethods) {
+        this(PaymentCatalog.of(paymentMethods));
+    }
 
+    /**
+     * Creates a new instance of the payment optimizer without any orders for a shared payment catalog.
+     *
+     * @param catalog The available payment methods.
+     */
+    public PaymentOptimizer(PaymentCatalog catalog) {
+        this(new OrderTable(catalog.getDictionary()), catalog);
+    }
 
-        if (pointsMethod == null) {
-            System.err.println("Warning: Payment method '" + POINTS_METHOD_ID + "' not found. R3 and R4 promotions will not be available.");
+    /**
+     * Creates a new instance of the payment optimizer working directly on a columnar order table
+     * for a shared payment catalog.
+     *
+     * @param orderTable The orders to process; its promotion masks must refer to the catalog's payment methods in order.
+     * @param catalog The available payment methods.
+     * @throws IllegalArgumentException if the table was built for different payment methods.
+     */
+    public PaymentOptimizer(OrderTable orderTable, PaymentCatalog catalog) {
+        this.dictionary = orderTable.getDictionary();
+        if (!dictionary.getIds().equals(catalog.getDictionary().getIds())) {
+            throw new IllegalArgumentException("Order table promotion masks do not match the payment methods");
         }
+        this.orderTable = orderTable;
+        this.catalog = catalog;
+        this.pointsIndex = dictionary.getPointsIndex();
 
-        boolean anyCardMethodExists = paymentMethods.stream()
-                .anyMatch(pm -> !pm.getId().equals(POINTS_METHOD_ID));
-        if (!anyCardMethodExists) {
+        if (pointsIndex < 0) {
+            System.err.println("Warning: Payment method '" + MethodDictionary.POINTS_METHOD_ID + "' not found. R3 and R4 promotions will not be available.");
+        }
+
+        if (dictionary.cardCount() == 0) {
             System.err.println("Warning: No card payment methods found. Only PUNKTY payments are possible if available.");
         }
     }
 
+    /**
+     * Adds an order to be processed and immediately generates its candidate
+     * full payments (R2 and R4), so that this work overlaps with reading the input.
+     * The order is copied into the order table; its own paid flag is not updated.
+     *
+     * @param order The order to add.
+     */
+    public synchronized void addOrder(Order order) {
+        orderTable.add(order);
+        generateCandidates();
+    }
+
+    /**
+     * Sets the policy for choosing a card when an order, or the card part of an R3 payment,
+     * can be paid with any card. Defaults to {@link CardFitPolicy#FIRST_FIT}.
+     *
+     * @param cardFitPolicy The card fit policy.
+     */
+    public void setCardFitPolicy(CardFitPolicy cardFitPolicy) {
+        this.cardFitPolicy = Objects.requireNonNull(cardFitPolicy);
+    }
+
+    /**
+     * Sets the engine deciding which orders are paid in full with a discounted method (R2 and R4).
+     * Defaults to {@link FullPaymentEngine#KNAPSACK}, which only differs from {@link FullPaymentEngine#GREEDY}
+     * when some methods have small limits and solving them by dynamic programming gives a larger total discount.
+     *
+     * @param fullPaymentEngine The full payment engine.
+     */
+    public void setFullPaymentEngine(FullPaymentEngine fullPaymentEngine) {
+        this.fullPaymentEngine = Objects.requireNonNull(fullPaymentEngine);
+    }
+
+    /**
+     * Sets the number of threads used to generate and sort the R2/R4 candidates,
+     * and to solve the knapsacks of the {@link FullPaymentEngine#KNAPSACK} engine.
+     * With more than one thread, candidates of the orders not processed yet are generated
+     * and sorted per chunk of orders on a dedicated ForkJoinPool and merged in parallel.
+     * The allocation is identical to the sequential path. Defaults to 1 (sequential).
+     *
+     * @param parallelism The number of threads, at least 1.
+     * @throws IllegalArgumentException if parallelism is less than 1.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, got " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Enables allocating the full payments (R2) per connected component of the order–card graph.
+     * Orders are linked to the cards in their promotions, and the components are found with a union-find
+     * over the cards; components share no card, so their full payments are allocated independently,
+     * concurrently on a ForkJoinPool if the parallelism is above 1. The R3 and base payments can use any card
+     * and are still allocated afterwards for all orders at once, so the allocation is the same as without
+     * decomposition.
+     * <p>
+     * Decomposition is skipped, without building the graph, when PUNKTY offers a discount (R4 links every order
+     * to PUNKTY), with the {@link FullPaymentEngine#MIN_COST_FLOW} engine, when the {@link FullPaymentEngine#KNAPSACK}
+     * engine assigns any order and when an allocation listener is set,
+     * whose calls must come from the calling thread in allocation order. It is also skipped when all orders
+     * form a single component. Defaults to false.
+     *
+     * @param componentDecomposition Whether to decompose the full payments.
+     */
+    public void setComponentDecomposition(boolean componentDecomposition) {
+        this.componentDecomposition = componentDecomposition;
+    }
+
+    /**
+     * Sets the listener receiving the phase boundaries of every optimization, e.g. to measure them.
+     * Defaults to {@link OptimizerPhaseListener#NONE}.
+     *
+     * @param phaseListener The phase listener.
+     */
+    public void setPhaseListener(OptimizerPhaseListener phaseListener) {
+        this.phaseListener = Objects.requireNonNull(phaseListener);
+    }
+
+    /**
+     * Sets the listener receiving the payment of every order as it is allocated, e.g. an allocation writer.
+     * An optimization uses the listener set when it starts.
+     * Defaults to {@link AllocationListener#NONE}, which keeps the totals-only path free of per-order objects.
+     *
+     * @param allocationListener The allocation listener.
+     */
+    public void setAllocationListener(AllocationListener allocationListener) {
+        this.allocationListener = Objects.requireNonNull(allocationListener);
+    }
+
     /**
      * Executes the payment optimization process, allocating available funds
      * for each order according to the adopted greedy strategy.
      * Upon completion, all orders should be paid,
      * and the method returns the total amounts spent per payment method.
+     * The allocation is made on a new ledger, so the inputs are not modified and every call gives the same results.
      *
      * @return A list of Result objects containing the total amounts spent on each payment method.
-     * @throws RuntimeException if not all orders can be paid within the available limits
-     *                          and the adopted allocation strategy.
+     * @throws NotFoundPaymentsException if not all orders can be paid within the available limits
+     *                                   and the adopted allocation strategy.
      */
     public List<Result> optimize() throws NotFoundPaymentsException {
+        return optimize(new Ledger(catalog, null, allocationListener));
+    }
 
-        paymentMethodsMap.values().forEach(pm -> pm.setTotalSpent(BigDecimal.ZERO)); // Reset total spent amounts
-
-        // Account for only the most rewarding promotions
-        allocateFullPaymentsWithDiscount();
+    /**
+     * Executes the payment optimization process against limits shared with other threads.
+     * Every payment is reserved in the pool with {@link SharedLimitLedger#tryReserve(int, long)}, so concurrent
+     * optimizations drawing on the same pool never overdraw a limit; a payment whose reservation fails
+     * because another thread took the limit first falls back to the next option for that order.
+     * If not all orders can be paid, everything this call reserved is released again.
+     * The catalog's discounts apply; its limits are ignored.
+     *
+     * @param pool The shared limits; must contain the same payment methods as the catalog, in the same order.
+     * @return A list of Result objects containing the amounts this call spent on each payment method.
+     * @throws NotFoundPaymentsException if not all orders can be paid within the limits left in the pool.
+     * @throws IllegalArgumentException if the pool holds different payment methods.
+     */
+    public List<Result> optimize(SharedLimitLedger pool) throws NotFoundPaymentsException {
+        if (!dictionary.getIds().equals(pool.getDictionary().getIds())) {
+            throw new IllegalArgumentException("Shared ledger payment methods do not match the optimizer's payment methods");
+        }
+        Ledger ledger = new Ledger(catalog, Objects.requireNonNull(pool), allocationListener);
+        try {
+            return optimize(ledger);
+        } catch (NotFoundPaymentsException | RuntimeException e) {
+            ledger.rollback();
+            throw e;
+        }
+    }
 
-        // If we didn't find match for an order, we can try remaining promotions
-        allocateRemainingPayments();
+    /**
+     * Private method running the optimization phases on a ledger.
+     * The optimization and each completed phase are recorded as JFR events and reported to the phase listener.
+     */
+    private List<Result> optimize(Ledger ledger) throws NotFoundPaymentsException {
+        long startNanos = System.nanoTime();
+        OptimizationEvent event = new OptimizationEvent();
+        event.begin();
+        boolean succeeded = false;
+        try {
+            // Candidates are prepared first, so they cover every row of the ledger;
+            // decomposed full payments generate the candidates of each component on their own
+            OptimizerPhaseEvent phase = startPhase(OptimizerPhaseListener.CANDIDATES);
+            int[] knapsack = knapsackAssignment(ledger);
+            PaymentComponents components = knapsack == null ? findComponents(ledger) : null;
+            CandidateBuffer candidates = null;
+            if (components == null) {
+                candidates = sortedCandidates(ledger);
+                ledger.trackRows(orderTable);
+            }
+            completePhase(phase, ledger);
+
+            // Account for only the most rewarding promotions
+            phase = startPhase(OptimizerPhaseListener.FULL_PAYMENTS);
+            if (components == null) {
+                allocateFullPaymentsWithDiscount(ledger, candidates, fullPaymentAssignment(ledger, candidates, knapsack));
+            } else {
+                allocateFullPaymentsByComponent(ledger, components);
+            }
+            completePhase(phase, ledger);
+
+            // If we didn't find match for an order, we can try remaining promotions
+            phase = startPhase(OptimizerPhaseListener.REMAINING_PAYMENTS);
+            allocateRemainingPayments(ledger);
+            completePhase(phase, ledger);
+
+            // If not, throw an exception.
+            phase = startPhase(OptimizerPhaseListener.VERIFY);
+            verifyAllOrdersPaid(ledger);
+            completePhase(phase, ledger);
+
+            phase = startPhase(OptimizerPhaseListener.COLLECT_RESULTS);
+            List<Result> results = collectResults(ledger);
+            completePhase(phase, ledger);
+
+            succeeded = true;
+            phaseListener.optimizationCompleted(ledger.paid.length, ledger.candidates, System.nanoTime() - startNanos);
+            return results;
+        } finally {
+            if (event.shouldCommit()) {
+                event.orders = ledger.paid == null ? 0 : ledger.paid.length;
+                event.paymentMethods = catalog.size();
+                event.engine = fullPaymentEngine.name();
+                event.parallelism = parallelism;
+                event.sharedLimits = ledger.pool != null;
+                event.candidates = ledger.candidates;
+                event.candidatesRejectedForLimit = ledger.candidatesRejectedForLimit;
+                event.fullPayments = ledger.fullPayments;
+                event.r3Payments = ledger.r3Payments;
+                event.basePayments = ledger.basePayments;
+                event.succeeded = succeeded;
+                event.commit();
+            }
+        }
+    }
 
-        // If not, throw an exception.
-        verifyAllOrdersPaid();
+    /**
+     * Private method starting a phase: notifies the phase listener and begins the phase's JFR event.
+     */
+    private OptimizerPhaseEvent startPhase(String name) {
+        phaseListener.phaseStarted(name);
+        return OptimizerPhaseEvent.start(name);
+    }
 
-        return collectResults();
+    /**
+     * Private method completing a phase: commits its JFR event, if it is enabled, with the ledger's counts
+     * and notifies the phase listener.
+     */
+    private void completePhase(OptimizerPhaseEvent event, Ledger ledger) {
+        if (event.shouldCommit()) {
+            event.orders = ledger.paid.length;
+            event.candidatesGenerated = ledger.candidatesGenerated;
+            event.candidates = ledger.candidates;
+            event.candidatesRejectedForLimit = ledger.candidatesRejectedForLimit;
+            event.fullPayments = ledger.fullPayments;
+            event.r3Payments = ledger.r3Payments;
+            event.basePayments = ledger.basePayments;
+            event.cardLookups = ledger.cardLookups;
+            event.commit();
+        }
+        phaseListener.phaseCompleted(event.phase);
     }
 
     /**
      * Private method allocating full payments for orders that offer
      * an additional discount (R2 and R4 promotions).
      * Potential payments are sorted in descending order by discount value
-     * and applied in that order, if limits allow.
-     * Modifies the state of Order and PaymentMethod objects.
+     * (ties by order row, then payment method index) and applied in that order, if limits allow.
+     * Candidates are packed in a {@link CandidateBuffer}, so this step allocates no object per candidate.
+     * An assignment chosen by another engine is applied first, and the candidates only fill the limits it leaves.
+     * Modifies the state of the ledger.
+     *
+     * @param assignment The method paying each row in full, or null to use the candidates alone.
      */
-    private void allocateFullPaymentsWithDiscount() {
-
-        List<PotentialFullPayment> potentialPayments = new ArrayList<>();
+    private void allocateFullPaymentsWithDiscount(Ledger ledger, CandidateBuffer candidates, int[] assignment) {
 
-        for (Order order : orders) {
+        if (assignment != null) {
+            applyAssignment(ledger, assignment);
+        }
 
-            if (order.isPaid()) {
-                continue;
+        // The greedy algorithm attempts to apply the most favorable discounts first.
+        // Iterate through the sorted options and apply the payment if the order has not been paid yet
+        // and the payment method has a sufficient limit.
+        for (int i = 0; i < candidates.size(); i++) {
+            int row = candidates.getRow(i);
+            int method = candidates.getMethod(i);
+            long amountToPay = orderTable.getValueCents(row) - candidates.getDiscount(i);
+
+            if (!ledger.paid[row]) {
+                if (ledger.tryCharge(method, amountToPay)) {
+                    ledger.paid[row] = true;
+                    ledger.fullPayments++;
+                    reportFullPayment(ledger, row, method, amountToPay);
+                } else {
+                    ledger.candidatesRejectedForLimit++;
+                }
             }
+        }
+    }
 
-            // Full payment with points (if PUNKTY exists and offers a discount > 0)
-            findFullPaymentWithPoints(order, potentialPayments);
+    /**
+     * Private method solving the methods with small limits for the {@link FullPaymentEngine#KNAPSACK} engine.
+     * Limits shared with other threads may change during the solution, so the knapsack is not used with them.
+     *
+     * @return The knapsack assignment, or null if the engine is not used or assigns no order.
+     */
+    private int[] knapsackAssignment(Ledger ledger) {
+        if (fullPaymentEngine != FullPaymentEngine.KNAPSACK || ledger.pool != null) {
+            return null;
+        }
+        int[] assignment = KnapsackAssignment.assign(orderTable, catalog, ledger.remainingCents, parallelism);
+        return Arrays.stream(assignment).anyMatch(method -> method >= 0) ? assignment : null;
+    }
 
-            // Full payment with a qualifying bank card (if the promotions list is not null/empty)
-            findfullPaymentWithCard(order, potentialPayments);
+    /**
+     * Private method choosing the assignment applied before the greedy candidates: the min-cost flow
+     * for {@link FullPaymentEngine#MIN_COST_FLOW}, and the knapsack assignment if it pays off.
+     * <p>
+     * The knapsack values orders by estimates, so it is kept only if it gives a strictly larger total discount
+     * than the greedy alone. Both are tried, with the R3 and base payments that follow, on private copies
+     * of the ledger without the allocation listener. The order values are fixed, so the larger discount is
+     * the smaller total spent, and an allocation that leaves an order unpaid loses.
+     *
+     * @param knapsack The knapsack assignment, or null.
+     * @return The assignment to apply, or null for the greedy alone.
+     */
+    private int[] fullPaymentAssignment(Ledger ledger, CandidateBuffer candidates, int[] knapsack) {
+        if (fullPaymentEngine == FullPaymentEngine.MIN_COST_FLOW) {
+            return MinCostFlowAssignment.assign(orderTable, catalog, ledger.remainingCents);
+        }
+        if (knapsack == null) {
+            return null;
         }
+        return trialSpent(ledger, candidates, knapsack) < trialSpent(ledger, candidates, null) ? knapsack : null;
+    }
 
-        // The greedy algorithm attempts to apply the most favorable discounts first.
-        potentialPayments.sort(Comparator.comparing(PotentialFullPayment::getDiscountAmount).reversed());
+    /**
+     * Private method allocating all remaining orders on a copy of the ledger.
+     *
+     * @return The total spent, or Long.MAX_VALUE if not all orders could be paid.
+     */
+    private long trialSpent(Ledger ledger, CandidateBuffer candidates, int[] assignment) {
+        Ledger trial = ledger.copy();
+        allocateFullPaymentsWithDiscount(trial, candidates, assignment);
+        try {
+            allocateRemainingPayments(trial);
+        } catch (NotFoundPaymentsException e) {
+            return Long.MAX_VALUE;
+        }
+        long spent = 0;
+        for (long methodSpent : trial.spentCents) {
+            spent = MoneyUtil.add(spent, methodSpent);
+        }
+        return spent;
+    }
 
-        // Iterate through the sorted options and apply the payment if the order has not been paid yet
-        // and the payment method has a sufficient limit.
-        for (PotentialFullPayment payment : potentialPayments) {
-            Order order = payment.getOrder();
-            PaymentMethod method = payment.getPaymentMethod();
-            BigDecimal amountToPay = payment.getAmountToPay();
-
-            if (!order.isPaid() && method.getRemainingLimit().compareTo(amountToPay) >= 0) {
-                method.deductLimit(amountToPay);
-                method.addSpent(amountToPay);
-                order.markAsPaid();
+    /**
+     * Private method deciding whether the full payments can be allocated per component, see
+     * {@link #setComponentDecomposition(boolean)}. If they can, the ledger's rows are tracked.
+     *
+     * @return The components of the ledger's orders, or null to allocate all full payments at once.
+     */
+    private PaymentComponents findComponents(Ledger ledger) {
+        if (!componentDecomposition || fullPaymentEngine == FullPaymentEngine.MIN_COST_FLOW
+                || ledger.allocationListener != AllocationListener.NONE
+                || (pointsIndex >= 0 && catalog.getDiscount(pointsIndex) > 0)) {
+            return null;
+        }
+        ledger.trackRows(orderTable);
+        PaymentComponents components = PaymentComponents.find(orderTable, ledger.paid);
+        return components.count() > 1 ? components : null;
+    }
+
+    /**
+     * Private method allocating the full payments of each component with the greedy algorithm.
+     * A component's candidates are generated and sorted on their own; they are in the same relative order
+     * as among all candidates, and accepting one depends only on the component's orders and cards,
+     * so the allocation is the same as with all candidates at once.
+     * Components write disjoint rows and methods of the ledger, each through a view with its own counts.
+     */
+    private void allocateFullPaymentsByComponent(Ledger ledger, PaymentComponents components) {
+        Ledger[] views = new Ledger[components.count()];
+        Arrays.setAll(views, component -> new Ledger(ledger));
+
+        if (parallelism > 1) {
+            try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+                pool.submit(() -> IntStream.range(0, views.length).parallel()
+                        .forEach(component -> allocateComponent(views[component], components, component))).join();
             }
+        } else {
+            for (int component = 0; component < views.length; component++) {
+                allocateComponent(views[component], components, component);
+            }
+        }
+
+        for (Ledger view : views) {
+            ledger.addCounts(view);
         }
     }
 
-    private void findFullPaymentWithPoints(Order order, List<PotentialFullPayment> potentialPayments) {
-        if (pointsMethod != null) {
-            BigDecimal costR4 = BigDecimalUtil.applyDiscount(order.getValue(), pointsMethod.getDiscount());
-            BigDecimal discountR4 = BigDecimalUtil.calculateDiscountAmount(order.getValue(), pointsMethod.getDiscount());
+    /**
+     * Private method generating, sorting and applying the candidates of one component.
+     */
+    private void allocateComponent(Ledger view, PaymentComponents components, int component) {
+        CandidateBuffer candidates = new CandidateBuffer();
+        for (int i = 0; i < components.size(component); i++) {
+            int row = components.row(component, i);
+            findfullPaymentWithCard(row, findFullPaymentWithPoints(row), candidates);
+        }
+        candidates.sortByDiscountDescending();
+        view.candidatesGenerated = candidates.size();
+        view.candidates = candidates.size();
+        allocateFullPaymentsWithDiscount(view, candidates, null);
+    }
 
-            if (discountR4.compareTo(BigDecimal.ZERO) > 0) {
-                potentialPayments.add(new PotentialFullPayment(order, pointsMethod, costR4, discountR4));
+    /**
+     * Private method applying the full payments chosen by a {@link MinCostFlowAssignment} or a {@link KnapsackAssignment}.
+     *
+     * @param assignment The method paying each row in full, or -1 for rows left to the candidates.
+     */
+    private void applyAssignment(Ledger ledger, int[] assignment) {
+        for (int row = 0; row < ledger.paid.length; row++) {
+            if (assignment[row] >= 0) {
+                long amountToPay = MoneyUtil.applyDiscount(orderTable.getValueCents(row), catalog.getDiscount(assignment[row]));
+                // Always succeeds on a private ledger; on a shared one, other threads may have taken the limit since
+                if (ledger.tryCharge(assignment[row], amountToPay)) {
+                    ledger.paid[row] = true;
+                    ledger.fullPayments++;
+                    reportFullPayment(ledger, row, assignment[row], amountToPay);
+                }
             }
         }
     }
 
-    private void findfullPaymentWithCard(Order order, List<PotentialFullPayment> potentialPayments) {
-        if (order.getPromotions() != null && !order.getPromotions().isEmpty()) {
-            for (String promoId : order.getPromotions()) {
+    /**
+     * Private method returning the candidates of all orders added so far, sorted.
+     * Candidates of orders added since the previous call are generated and sorted on their own,
+     * then merged into a new buffer with the earlier ones, which are never modified,
+     * so an optimization still reading the earlier buffer is not affected.
+     * Earlier candidates belong to lower rows, so the merge gives the same order as sorting all candidates at once.
+     *
+     * @param ledger The ledger receiving the candidate counts.
+     * @return The sorted candidates; the caller must not modify them.
+     */
+    private synchronized CandidateBuffer sortedCandidates(Ledger ledger) {
+        CandidateBuffer fresh;
+        if (parallelism > 1) {
+            fresh = generateAndSortCandidatesInParallel();
+        } else {
+            generateCandidates();
+            potentialPayments.sortByDiscountDescending();
+            fresh = potentialPayments;
+        }
+        potentialPayments = new CandidateBuffer();
 
-                if (!promoId.equals(POINTS_METHOD_ID) && paymentMethodsMap.containsKey(promoId)) {
-                    PaymentMethod cardMethod = paymentMethodsMap.get(promoId);
-                    BigDecimal costR2 = BigDecimalUtil.applyDiscount(order.getValue(), cardMethod.getDiscount());
-                    BigDecimal discountR2 = BigDecimalUtil.calculateDiscountAmount(order.getValue(), cardMethod.getDiscount());
+        if (fresh.size() > 0) {
+            sortedPayments = sortedPayments.size() == 0 ? fresh : CandidateBuffer.merge(sortedPayments, fresh);
+        }
+        ledger.candidatesGenerated = fresh.size();
+        ledger.candidates = sortedPayments.size();
+        return sortedPayments;
+    }
 
-                    if (discountR2.compareTo(BigDecimal.ZERO) > 0) {
-                        potentialPayments.add(new PotentialFullPayment(order, cardMethod, costR2, discountR2));
-                    }
+    /**
+     * Private method generating the candidate full payments (R2 and R4)
+     * for every order that does not have them yet.
+     */
+    private void generateCandidates() {
+        int size = orderTable.size();
+        generateCandidates(ordersWithCandidates, size, potentialPayments);
+        ordersWithCandidates = size;
+    }
+
+    private void generateCandidates(int fromRow, int toRow, CandidateBuffer candidates) {
+        for (int row = fromRow; row < toRow; row++) {
+
+            if (orderTable.isPaid(row)) {
+                continue;
+            }
+
+            // Full payment with points (if PUNKTY exists and offers a discount > 0)
+            long discountR4 = findFullPaymentWithPoints(row);
+
+            // Full payment with a qualifying bank card (if the order has any promotions)
+            findfullPaymentWithCard(row, discountR4, candidates);
+        }
+    }
+
+    /**
+     * Private method generating the missing candidates per chunk of orders on a ForkJoinPool.
+     * Each chunk is radix-sorted by its own task and the sorted chunks are merged pairwise in parallel.
+     * Chunks cover consecutive rows and merges prefer the lower chunk on equal discounts,
+     * so the result is the same as sorting all candidates at once.
+     * Candidate generation only reads the order table and payment catalog, so the chunks are independent.
+     *
+     * @return The sorted candidates of the unsorted buffer and the orders without candidates.
+     */
+    private CandidateBuffer generateAndSortCandidatesInParallel() {
+        int fromRow = ordersWithCandidates;
+        int toRow = orderTable.size();
+
+        try (ForkJoinPool pool = new ForkJoinPool(parallelism)) {
+            CandidateBuffer sorted = pool.submit(() -> {
+                List<ForkJoinTask<CandidateBuffer>> chunks = new ArrayList<>();
+                // Candidates generated earlier cover the lowest rows
+                CandidateBuffer existing = potentialPayments;
+                chunks.add(ForkJoinTask.adapt(() -> {
+                    existing.sortByDiscountDescending();
+                    return existing;
+                }).fork());
+                for (int chunkStart = fromRow; chunkStart < toRow; chunkStart += CANDIDATE_CHUNK_SIZE) {
+                    int start = chunkStart;
+                    int end = Math.min(toRow, chunkStart + CANDIDATE_CHUNK_SIZE);
+                    chunks.add(ForkJoinTask.adapt(() -> {
+                        CandidateBuffer candidates = new CandidateBuffer();
+                        generateCandidates(start, end, candidates);
+                        candidates.sortByDiscountDescending();
+                        return candidates;
+                    }).fork());
                 }
+                return mergeSortedChunks(chunks, 0, chunks.size());
+            }).join();
+
+            ordersWithCandidates = toRow;
+            return sorted;
+        }
+    }
+
+    /**
+     * Private method merging a range of sorted candidate chunks, forking the left half.
+     *
+     * @param chunks The forked chunk tasks, in row order.
+     * @param from The first chunk of the range.
+     * @param to The end of the range (exclusive).
+     * @return One buffer with the candidates of all chunks in the range, sorted.
+     */
+    private static CandidateBuffer mergeSortedChunks(List<ForkJoinTask<CandidateBuffer>> chunks, int from, int to) {
+        if (to - from == 1) {
+            return chunks.get(from).join();
+        }
+        int middle = (from + to) >>> 1;
+        ForkJoinTask<CandidateBuffer> left = ForkJoinTask.adapt(() -> mergeSortedChunks(chunks, from, middle)).fork();
+        CandidateBuffer right = mergeSortedChunks(chunks, middle, to);
+        return CandidateBuffer.merge(left.join(), right);
+    }
+
+    /**
+     * Private method calculating the discount of paying an order in full with points (R4).
+     *
+     * @param row The order table row.
+     * @return The discount in cents, or 0 if PUNKTY is not available or offers no discount.
+     */
+    private long findFullPaymentWithPoints(int row) {
+        if (pointsIndex < 0) {
+            return 0;
+        }
+        return MoneyUtil.calculateDiscountAmount(orderTable.getValueCents(row), catalog.getDiscount(pointsIndex));
+    }
+
+    /**
+     * Private method adding the R2 candidates of an order, together with its R4 candidate,
+     * in ascending payment method index order as required by the candidate buffer.
+     *
+     * @param row The order table row.
+     * @param discountR4 The discount of paying the order in full with points, 0 if there is none.
+     * @param candidates The buffer receiving the candidates.
+     */
+    private void findfullPaymentWithCard(int row, long discountR4, CandidateBuffer candidates) {
+        long valueCents = orderTable.getValueCents(row);
+        boolean pointsPending = discountR4 > 0;
+
+        // Promoted methods intersected with the card mask, so PUNKTY is never visited here
+        for (int method = orderTable.nextCardPromotion(row, 0); method >= 0; method = orderTable.nextCardPromotion(row, method + 1)) {
+            if (pointsPending && pointsIndex < method) {
+                candidates.add(row, pointsIndex, discountR4);
+                pointsPending = false;
             }
+
+            long discountR2 = MoneyUtil.calculateDiscountAmount(valueCents, catalog.getDiscount(method));
+            if (discountR2 > 0) {
+                candidates.add(row, method, discountR2);
+            }
+        }
+
+        if (pointsPending) {
+            candidates.add(row, pointsIndex, discountR4);
         }
     }
 
@@ -154,66 +697,75 @@ public class PaymentOptimizer {
      * It attempts to apply the R3 discount (10% for paying >= 10% of value with points)
      * or, if R3 is not possible, the base payment without discount (0%)
      * using any available card.
-     * Modifies the state of Order and PaymentMethod objects.
+     * Modifies the state of the ledger.
      * Throws an exception if a payment method cannot be found for an order.
      */
-    private void allocateRemainingPayments() throws NotFoundPaymentsException {
+    private void allocateRemainingPayments(Ledger ledger) throws NotFoundPaymentsException {
+
+        ledger.cardIndex = new CardLimitIndex(dictionary, ledger.remainingCents, cardFitPolicy);
 
-        for (Order order : orders) {
-            if (order.isPaid()) {
+        for (int row = 0; row < ledger.paid.length; row++) {
+            if (ledger.paid[row]) {
                 continue;
             }
 
             boolean paidThisOrder = false;
 
             // Partial payment with points + remainder with card
-            paidThisOrder = canPayPartiallyWithPoints(order, paidThisOrder);
+            paidThisOrder = canPayPartiallyWithPoints(ledger, row, paidThisOrder);
 
             if (!paidThisOrder) {
-                BigDecimal fullValue = order.getValue(); // Full order value, because no discount.
+                long fullValue = orderTable.getValueCents(row); // Full order value, because no discount.
 
-                PaymentMethod cardForBase = findCardWithSufficientLimit(fullValue);
+                int cardForBase = payWithCard(ledger, fullValue);
 
-                if (cardForBase != null) {
-                    cardForBase.deductLimit(fullValue);
-                    cardForBase.addSpent(fullValue);
-                    order.markAsPaid();
+                if (cardForBase >= 0) {
+                    ledger.paid[row] = true;
+                    ledger.basePayments++;
                     paidThisOrder = true;
+                    reportAllocation(ledger, row, AllocationRule.BASE, 0, cardForBase, fullValue);
                 }
             }
 
             // If order remains unpaid, algorithm failed to find correct payment match
             if (!paidThisOrder) {
-                throw new NotFoundPaymentsException("Could not find a payment method for Order " + order.getId() + ". Check available payment methods limits or algorithm logic.");
+                throw new NotFoundPaymentsException("Could not find a payment method for Order " + orderTable.getId(row) + ". Check available payment methods limits or algorithm logic.");
             }
         }
     }
 
-    private boolean canPayPartiallyWithPoints(Order order, boolean paidThisOrder) {
-        if (pointsMethod != null) {
+    private boolean canPayPartiallyWithPoints(Ledger ledger, int row, boolean paidThisOrder) {
+        if (pointsIndex >= 0) {
+            long valueCents = orderTable.getValueCents(row);
             // Calculate 10% of the original order value - the threshold for R3.
-            BigDecimal tenPercentOfValue = BigDecimalUtil.percentage(order.getValue(), MIN_POINTS_PERCENTAGE_FOR_R3.intValue());
+            long tenPercentOfValue = MoneyUtil.percentage(valueCents, MIN_POINTS_PERCENTAGE_FOR_R3);
+
+            long availablePoints = ledger.available(pointsIndex);
 
             // Check if PUNKTY has a sufficient limit for this minimum 10% threshold
-            if (pointsMethod.getRemainingLimit().compareTo(tenPercentOfValue) >= 0) {
+            if (availablePoints >= tenPercentOfValue) {
                 // We can apply discount then
-                BigDecimal costR3 = BigDecimalUtil.applyDiscount(order.getValue(), 10);
+                long costR3 = MoneyUtil.applyDiscount(valueCents, 10);
                 // Calculate the maximum possible amount to pay with points within the R3 cost
                 // and the available points limit (we prefer points in R3).
-                BigDecimal maxPointsForR3 = BigDecimalUtil.min(costR3, pointsMethod.getRemainingLimit());
+                long maxPointsForR3 = Math.min(costR3, availablePoints);
                 // Calculate the remaining amount that needs to be paid with a card.
-                BigDecimal remainingCardPayment = costR3.subtract(maxPointsForR3);
+                long remainingCardPayment = costR3 - maxPointsForR3;
 
-                PaymentMethod cardForR3 = findCardWithSufficientLimit(remainingCardPayment);
+                int cardForR3 = payWithCard(ledger, remainingCardPayment);
 
                 // If PUNKTY is available for the >= 10% threshold AND a card is found for the remainder:
-                if (cardForR3 != null) {
-                    pointsMethod.deductLimit(maxPointsForR3);
-                    pointsMethod.addSpent(maxPointsForR3);
-                    cardForR3.deductLimit(remainingCardPayment);
-                    cardForR3.addSpent(remainingCardPayment);
-                    order.markAsPaid();
-                    paidThisOrder = true;
+                if (cardForR3 >= 0) {
+                    if (ledger.tryCharge(pointsIndex, maxPointsForR3)) {
+                        ledger.paid[row] = true;
+                        ledger.r3Payments++;
+                        paidThisOrder = true;
+                        reportAllocation(ledger, row, AllocationRule.R3, maxPointsForR3, cardForR3, remainingCardPayment);
+                    } else {
+                        // Only on a shared ledger: another thread took the points, so give the card payment back
+                        ledger.refund(cardForR3, remainingCardPayment);
+                        ledger.cardIndex.update(cardForR3, ledger.remainingCents[cardForR3]);
+                    }
                 }
             }
         }
@@ -221,38 +773,81 @@ public class PaymentOptimizer {
     }
 
     /**
-     * Private helper method to find the first available payment method
-     * that is a card (other than PUNKTY) with a sufficient remaining limit
-     * to cover the given amount.
+     * Private method reporting a full payment (R4 with points, otherwise R2) to the ledger's allocation listener.
+     */
+    private void reportFullPayment(Ledger ledger, int row, int method, long amount) {
+        if (method == pointsIndex) {
+            reportAllocation(ledger, row, AllocationRule.R4, amount, -1, 0);
+        } else {
+            reportAllocation(ledger, row, AllocationRule.R2, 0, method, amount);
+        }
+    }
+
+    /**
+     * Private method reporting the payment of an order to the ledger's allocation listener, if there is one.
      *
-     * @param amount The amount for which we are looking for a card with a sufficient limit.
-     * @return A PaymentMethod object representing the found card, or {@code null} if no matching card is found.
+     * @param card The card index, or -1 if no card was used.
      */
-    private PaymentMethod findCardWithSufficientLimit(BigDecimal amount) {
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            return null;
+    private void reportAllocation(Ledger ledger, int row, AllocationRule rule, long pointsCents, int card, long cardCents) {
+        if (ledger.allocationListener != AllocationListener.NONE) {
+            ledger.allocationListener.allocated(new Allocation(orderTable.getId(row), orderTable.getValueCents(row), rule,
+                    pointsCents, card < 0 ? null : catalog.getId(card), cardCents));
         }
+    }
 
-        return paymentMethodsMap.values().stream()
-                .filter(pm -> !pm.getId().equals(POINTS_METHOD_ID))
-                .filter(pm -> pm.getRemainingLimit().compareTo(amount) >= 0)
-                .findFirst()
-                .orElse(null);
+    /**
+     * Private helper method to find a payment method that is a card (other than PUNKTY)
+     * with a sufficient remaining limit to cover the given amount.
+     * The card is chosen from the card limit index according to the card fit policy.
+     *
+     * @param ledger The ledger of the current optimization.
+     * @param amount The amount in cents for which we are looking for a card with a sufficient limit.
+     * @return The index of the found card, or -1 if no matching card is found.
+     */
+    private static int findCardWithSufficientLimit(Ledger ledger, long amount) {
+        if (amount <= 0) {
+            return -1;
+        }
+        ledger.cardLookups++;
+        return ledger.cardIndex.find(amount);
+    }
+
+    /**
+     * Private helper method charging an amount to a card with a sufficient limit
+     * and keeping the card limit index up to date.
+     * On a shared ledger, the index may be behind other threads; a card whose reservation fails
+     * is refreshed in the index and the search is repeated.
+     *
+     * @param ledger The ledger of the current optimization.
+     * @param amount The amount in cents to charge.
+     * @return The index of the charged card, or -1 if no card has a sufficient limit.
+     */
+    private static int payWithCard(Ledger ledger, long amount) {
+        while (true) {
+            int card = findCardWithSufficientLimit(ledger, amount);
+            if (card < 0) {
+                return -1;
+            }
+            boolean charged = ledger.tryCharge(card, amount);
+            ledger.cardIndex.update(card, ledger.remainingCents[card]);
+            if (charged) {
+                return card;
+            }
+        }
     }
 
     /**
      * Private method verifying that all orders have been successfully
      * marked as paid after the allocation processes are complete.
      *
-     * @throws RuntimeException if at least one order has not been paid.
-     */
-    private void verifyAllOrdersPaid() throws NotFoundPaymentsException {
-        boolean allPaid = orders.stream().allMatch(Order::isPaid);
-        if (!allPaid) {
-            List<String> unpaidOrderIds = orders.stream()
-                    .filter(order -> !order.isPaid())
-                    .map(Order::getId)
-                    .toList();
+     * @throws NotFoundPaymentsException if at least one order has not been paid.
+     */
+    private void verifyAllOrdersPaid(Ledger ledger) throws NotFoundPaymentsException {
+        List<String> unpaidOrderIds = IntStream.range(0, ledger.paid.length)
+                .filter(row -> !ledger.paid[row])
+                .mapToObj(orderTable::getId)
+                .toList();
+        if (!unpaidOrderIds.isEmpty()) {
             throw new NotFoundPaymentsException("Not all orders were paid successfully after optimization attempt. Unpaid orders: " + unpaidOrderIds);
         }
     }
@@ -263,42 +858,165 @@ public class PaymentOptimizer {
      *
      * @return A list of Result objects containing the method ID and the total spent amount (formatted).
      */
-    private List<Result> collectResults() {
+    private List<Result> collectResults(Ledger ledger) {
 
-        return paymentMethodsMap.values().stream()
+        return IntStream.range(0, catalog.size())
                 // Filter only methods for which the total spent amount is greater than zero.
-                .filter(pm -> pm.getTotalSpent().compareTo(BigDecimal.ZERO) > 0)
-                // Map each PaymentMethod object to a new Result object,
+                .filter(method -> ledger.spentCents[method] > 0)
+                // Map each payment method to a new Result object,
                 // using the method ID and the total spent amount.
-                .map(pm -> new Result(pm.getId(), pm.getTotalSpent()))
+                .mapToObj(method -> new Result(catalog.getId(method), MoneyUtil.toBigDecimal(ledger.spentCents[method])))
                 .toList();
     }
 
     /**
-     * Private static helper class for storing data about a potential full payment
-     * for a specific order in the discount payment allocation step (R2 and R4).
+     * Per-invocation state of an optimization: remaining limits and spent amounts in cents
+     * by payment method index, and paid flags by order table row.
+     * A private ledger starts from the catalog's remaining limits and owns them. A ledger backed by
+     * a {@link SharedLimitLedger} reserves every charge in the shared pool; its remaining limits are then
+     * only its latest view of the pool and its spent amounts are what this invocation reserved.
      */
-    @Getter
-    private static class PotentialFullPayment {
+    private static final class Ledger {
+
+        // Shared pool, or null for a private ledger
+        private final SharedLimitLedger pool;
+        // Receives the payment of every order of this optimization
+        final AllocationListener allocationListener;
+        final long[] remainingCents;
+        final long[] spentCents;
+        boolean[] paid;
+        // Index over the cards' remaining limits, built for the R3 and base payment step
+        CardLimitIndex cardIndex;
+        // Counts reported in the JFR events
+        long candidatesGenerated;
+        long candidates;
+        long candidatesRejectedForLimit;
+        long fullPayments;
+        long r3Payments;
+        long basePayments;
+        long cardLookups;
+
+        Ledger(PaymentCatalog catalog, SharedLimitLedger pool, AllocationListener allocationListener) {
+            this.pool = pool;
+            this.allocationListener = allocationListener;
+            this.spentCents = new long[catalog.size()];
+            if (pool == null) {
+                this.remainingCents = catalog.copyRemainingLimitsCents();
+            } else {
+                this.remainingCents = new long[catalog.size()];
+                for (int method = 0; method < remainingCents.length; method++) {
+                    remainingCents[method] = pool.getRemainingCents(method);
+                }
+            }
+        }
 
-        private final Order order;
-        private final PaymentMethod paymentMethod;
-        private final BigDecimal amountToPay;
-        private final BigDecimal discountAmount;
+        /**
+         * Creates a view of a ledger sharing its limits, spent amounts and paid flags, with counts of its own,
+         * for allocating a part of the orders on another thread.
+         */
+        Ledger(Ledger ledger) {
+            this.pool = ledger.pool;
+            this.allocationListener = ledger.allocationListener;
+            this.remainingCents = ledger.remainingCents;
+            this.spentCents = ledger.spentCents;
+            this.paid = ledger.paid;
+        }
+
+        private Ledger(long[] remainingCents, long[] spentCents, boolean[] paid) {
+            this.pool = null;
+            this.allocationListener = AllocationListener.NONE;
+            this.remainingCents = remainingCents;
+            this.spentCents = spentCents;
+            this.paid = paid;
+        }
 
         /**
-         * Creates a new instance of PotentialFullPayment.
+         * Creates a copy of a private ledger without its allocation listener, for trying an allocation.
+         */
+        Ledger copy() {
+            return new Ledger(remainingCents.clone(), spentCents.clone(), paid.clone());
+        }
+
+        /**
+         * Adds the counts of a view to this ledger's counts.
+         */
+        void addCounts(Ledger view) {
+            candidatesGenerated += view.candidatesGenerated;
+            candidates += view.candidates;
+            candidatesRejectedForLimit += view.candidatesRejectedForLimit;
+            fullPayments += view.fullPayments;
+            r3Payments += view.r3Payments;
+            basePayments += view.basePayments;
+            cardLookups += view.cardLookups;
+        }
+
+        /**
+         * Takes the paid flags of all rows currently in the order table; must be called before allocating.
+         */
+        void trackRows(OrderTable orderTable) {
+            paid = new boolean[orderTable.size()];
+            for (int row = 0; row < paid.length; row++) {
+                paid[row] = orderTable.isPaid(row);
+            }
+        }
+
+        /**
+         * Returns the remaining limit of a payment method, read from the pool for a shared ledger.
+         */
+        long available(int method) {
+            if (pool != null) {
+                remainingCents[method] = pool.getRemainingCents(method);
+            }
+            return remainingCents[method];
+        }
+
+        /**
+         * Charges an amount to a payment method if its remaining limit covers it.
          *
-         * @param order          The order concerned by the potential payment.
-         * @param paymentMethod  The payment method proposed for this order.
-         * @param amountToPay    The amount that needs to be paid with this method (after discount).
-         * @param discountAmount The discount amount obtained by this payment.
+         * @param method The payment method index.
+         * @param cents The amount in cents, not negative.
+         * @return Whether the amount was charged.
+         * @throws ArithmeticException if a total overflows.
+         */
+        boolean tryCharge(int method, long cents) {
+            if (pool == null) {
+                if (remainingCents[method] < cents) {
+                    return false;
+                }
+                remainingCents[method] = MoneyUtil.subtract(remainingCents[method], cents);
+            } else {
+                boolean reserved = pool.tryReserve(method, cents);
+                remainingCents[method] = pool.getRemainingCents(method);
+                if (!reserved) {
+                    return false;
+                }
+            }
+            spentCents[method] = MoneyUtil.add(spentCents[method], cents);
+            return true;
+        }
+
+        /**
+         * Gives back an amount charged earlier.
          */
-        public PotentialFullPayment(Order order, PaymentMethod paymentMethod, BigDecimal amountToPay, BigDecimal discountAmount) {
-            this.order = order;
-            this.paymentMethod = paymentMethod;
-            this.amountToPay = amountToPay;
-            this.discountAmount = discountAmount;
+        void refund(int method, long cents) {
+            if (pool == null) {
+                remainingCents[method] = MoneyUtil.add(remainingCents[method], cents);
+            } else {
+                pool.release(method, cents);
+                remainingCents[method] = pool.getRemainingCents(method);
+            }
+            spentCents[method] = MoneyUtil.subtract(spentCents[method], cents);
+        }
+
+        /**
+         * Gives back everything charged by this ledger.
+         */
+        void rollback() {
+            for (int method = 0; method < spentCents.length; method++) {
+                if (spentCents[method] > 0) {
+                    refund(method, spentCents[method]);
+                }
+            }
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,141 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+import pl.edu.agh.kis.pz1.domain.MethodDictionary;
+import pl.edu.agh.kis.pz1.domain.PaymentCatalog;
+import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+import pl.edu.agh.kis.pz1.domain.Result;
+import pl.edu.agh.kis.pz1.utils.MoneyUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free pool of payment method limits shared by concurrent allocations,
+ * e.g. several order streams paid from the same cards and points.
+ * Remaining limits are {@link AtomicLong} cents reserved with a compare-and-set loop,
+ * so a reservation either takes the whole amount or nothing and a limit never goes below zero.
+ * Spent amounts are {@link LongAdder}s, which do not contend when many threads record payments.
+ * Payment methods are addressed by {@link MethodDictionary} index.
+ *
+ * @see PaymentOptimizer#optimize(SharedLimitLedger)
+ */
+public final class SharedLimitLedger {
+
+    private final MethodDictionary dictionary;
+    private final AtomicLong[] remainingCents;
+    private final LongAdder[] spentCents;
+
+    /**
+     * Creates a pool holding the remaining limits of a catalog, with nothing spent.
+     *
+     * @param catalog The payment methods and their starting limits.
+     */
+    public SharedLimitLedger(PaymentCatalog catalog) {
+        this.dictionary = catalog.getDictionary();
+        this.remainingCents = new AtomicLong[catalog.size()];
+        this.spentCents = new LongAdder[catalog.size()];
+        for (int method = 0; method < catalog.size(); method++) {
+            remainingCents[method] = new AtomicLong(catalog.getRemainingLimitCents(method));
+            spentCents[method] = new LongAdder();
+        }
+    }
+
+    /**
+     * Creates a pool holding the current remaining limits of the given payment methods.
+     *
+     * @param paymentMethods The payment methods, in index order.
+     * @return A new pool.
+     */
+    public static SharedLimitLedger of(List<PaymentMethod> paymentMethods) {
+        return new SharedLimitLedger(PaymentCatalog.of(paymentMethods));
+    }
+
+    /**
+     * Returns the dictionary of the pool's payment method IDs.
+     *
+     * @return The dictionary assigning indices to payment methods.
+     */
+    public MethodDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Atomically takes an amount from a payment method's remaining limit, if the limit covers it,
+     * and records it as spent.
+     *
+     * @param method The payment method index.
+     * @param cents The amount in cents.
+     * @return Whether the amount was reserved; if not, nothing was changed.
+     * @throws IllegalArgumentException if the amount is negative.
+     */
+    public boolean tryReserve(int method, long cents) {
+        if (cents < 0) {
+            throw new IllegalArgumentException("Amount must not be negative, got " + cents);
+        }
+        AtomicLong remaining = remainingCents[method];
+        long current = remaining.get();
+        while (current >= cents) {
+            if (remaining.compareAndSet(current, current - cents)) {
+                spentCents[method].add(cents);
+                return true;
+            }
+            current = remaining.get();
+        }
+        return false;
+    }
+
+    /**
+     * Returns an amount reserved earlier with {@link #tryReserve(int, long)} to a payment method.
+     *
+     * @param method The payment method index.
+     * @param cents The amount in cents.
+     * @throws IllegalArgumentException if the amount is negative.
+     * @throws ArithmeticException if the remaining limit overflows.
+     */
+    public void release(int method, long cents) {
+        if (cents < 0) {
+            throw new IllegalArgumentException("Amount must not be negative, got " + cents);
+        }
+        remainingCents[method].accumulateAndGet(cents, MoneyUtil::add);
+        spentCents[method].add(-cents);
+    }
+
+    /**
+     * Returns the current remaining limit of a payment method.
+     *
+     * @param method The payment method index.
+     * @return The remaining limit in cents.
+     */
+    public long getRemainingCents(int method) {
+        return remainingCents[method].get();
+    }
+
+    /**
+     * Returns the amount spent on a payment method so far.
+     * While reservations are in progress, the sum is not an atomic snapshot.
+     *
+     * @param method The payment method index.
+     * @return The spent amount in cents.
+     */
+    public long getSpentCents(int method) {
+        return spentCents[method].sum();
+    }
+
+    /**
+     * Returns the total amounts spent on each used payment method by all allocations so far.
+     *
+     * @return A list of Result objects in payment method index order.
+     */
+    public List<Result> getTotals() {
+        List<Result> results = new ArrayList<>();
+        for (int method = 0; method < spentCents.length; method++) {
+            long spent = getSpentCents(method);
+            if (spent > 0) {
+                results.add(new Result(dictionary.getId(method), MoneyUtil.toBigDecimal(spent)));
+            }
+        }
+        return results;
+    }
+}
@@ -0,0 +1,28 @@
+package pl.edu.agh.kis.pz1.server;
+
+import lombok.*;
+import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+
+import java.util.List;
+
+/**
+ * Body of an optimization request sent to the {@link OptimizerServer}:
+ * the same orders and payment methods as in the two input files of the command-line application.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OptimizationRequest {
+
+    /**
+     * The orders to pay, in the format of the orders input file.
+     */
+    private List<Order> orders;
+
+    /**
+     * The available payment methods, in the format of the payment methods input file.
+     */
+    private List<PaymentMethod> paymentMethods;
+}
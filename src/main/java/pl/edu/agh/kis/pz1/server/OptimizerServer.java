@@ -0,0 +1,200 @@
+package pl.edu.agh.kis.pz1.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import pl.edu.agh.kis.pz1.cache.ResultCache;
+import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.domain.PaymentCatalog;
+import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+import pl.edu.agh.kis.pz1.domain.Result;
+import pl.edu.agh.kis.pz1.optimizer.NotFoundPaymentsException;
+import pl.edu.agh.kis.pz1.optimizer.PaymentOptimizer;
+import pl.edu.agh.kis.pz1.utils.JsonParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Long-running HTTP server answering optimization requests, so that JVM startup, class loading,
+ * Jackson warm-up and JIT compilation of the optimizer are paid once instead of on every run.
+ * Built on the JDK's {@code com.sun.net.httpserver}; every exchange runs on its own virtual thread.
+ * <p>
+ * Endpoints:
+ * <ul>
+ *     <li>{@code POST /optimize} with an {@link OptimizationRequest} body returns the list of
+ *     {@link Result} objects as JSON ({@code [{"methodId": "...", "amountSpend": 0.00}, ...]}).
+ *     Malformed requests get status 400 and orders that cannot be paid status 422,
+ *     both with a body {@code {"error": "..."}}.</li>
+ *     <li>{@code GET /health} returns status 200, with the hit, miss and eviction counts of the result cache, if any.</li>
+ * </ul>
+ * Requests are independent: each one parses its own orders and payment methods and runs a new {@link PaymentOptimizer}.
+ * With a {@link ResultCache}, requests whose inputs were seen before are answered from the cache instead.
+ */
+public class OptimizerServer implements AutoCloseable {
+
+    // Readers and writers are immutable and thread-safe, so one instance serves all requests
+    private static final ObjectReader REQUEST_READER = JsonParser.getMapper().readerFor(OptimizationRequest.class);
+    private static final ObjectWriter RESULTS_WRITER = JsonParser.getMapper().writerFor(new TypeReference<List<Result>>() {});
+    private static final ObjectWriter MESSAGE_WRITER = JsonParser.getMapper().writerFor(new TypeReference<Map<String, String>>() {});
+    private static final ObjectWriter HEALTH_WRITER = JsonParser.getMapper().writerFor(new TypeReference<Map<String, Object>>() {});
+
+    private static final int STATUS_OK = 200;
+    private static final int STATUS_BAD_REQUEST = 400;
+    private static final int STATUS_METHOD_NOT_ALLOWED = 405;
+    private static final int STATUS_UNPROCESSABLE = 422;
+    private static final int STATUS_INTERNAL_ERROR = 500;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    // Cache of earlier results, or null to optimize every request
+    private final ResultCache cache;
+
+    /**
+     * Creates a server bound to the given address. The server does not accept requests until {@link #start()}.
+     *
+     * @param address The address to bind to; port 0 picks a free port.
+     * @throws IOException If the address cannot be bound.
+     */
+    public OptimizerServer(InetSocketAddress address) throws IOException {
+        this(address, null);
+    }
+
+    /**
+     * Creates a server bound to the given address, answering repeated requests from a result cache.
+     * The server does not accept requests until {@link #start()}.
+     *
+     * @param address The address to bind to; port 0 picks a free port.
+     * @param cache The result cache, or null to optimize every request.
+     * @throws IOException If the address cannot be bound.
+     */
+    public OptimizerServer(InetSocketAddress address, ResultCache cache) throws IOException {
+        this.cache = cache;
+        this.server = HttpServer.create(address, 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/optimize", this::handleOptimize);
+        server.createContext("/health", this::handleHealth);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Returns the port the server is bound to.
+     *
+     * @return The local port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server, waiting up to one second for exchanges in progress, and shuts down its executor.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.close();
+    }
+
+    private void handleOptimize(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendError(exchange, STATUS_METHOD_NOT_ALLOWED, "Use POST");
+                return;
+            }
+
+            OptimizationRequest request;
+            try (InputStream body = exchange.getRequestBody()) {
+                request = REQUEST_READER.readValue(body);
+            } catch (JsonProcessingException e) {
+                sendError(exchange, STATUS_BAD_REQUEST, "Malformed request: " + e.getOriginalMessage());
+                return;
+            }
+            if (request == null || request.getOrders() == null || request.getPaymentMethods() == null) {
+                sendError(exchange, STATUS_BAD_REQUEST, "Request must contain 'orders' and 'paymentMethods'");
+                return;
+            }
+            if (request.getOrders().contains(null) || request.getPaymentMethods().contains(null)) {
+                sendError(exchange, STATUS_BAD_REQUEST, "'orders' and 'paymentMethods' must not contain null");
+                return;
+            }
+
+            List<Order> orders = request.getOrders();
+            List<PaymentMethod> paymentMethods = request.getPaymentMethods();
+            orders.forEach(Order::initializeRemainingValue);
+            paymentMethods.forEach(PaymentMethod::initializeRemainingLimit);
+
+            // Invalid payment methods, e.g. duplicate IDs, are a client error; the cache would only fail on a miss
+            PaymentCatalog catalog;
+            try {
+                catalog = PaymentCatalog.of(paymentMethods);
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, STATUS_BAD_REQUEST, "Invalid payment methods: " + e.getMessage());
+                return;
+            }
+
+            List<Result> results;
+            try {
+                results = optimize(orders, paymentMethods, catalog);
+            } catch (NotFoundPaymentsException e) {
+                sendError(exchange, STATUS_UNPROCESSABLE, e.getMessage());
+                return;
+            } catch (RuntimeException e) {
+                sendError(exchange, STATUS_INTERNAL_ERROR, "Optimization failed: " + e.getMessage());
+                return;
+            }
+            send(exchange, STATUS_OK, RESULTS_WRITER.writeValueAsBytes(results));
+        }
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getRequestBody().readAllBytes();
+            Map<String, Object> health = new LinkedHashMap<>();
+            health.put("status", "UP");
+            if (cache != null) {
+                health.put("cacheEntries", cache.size());
+                health.put("cacheHits", cache.getHits());
+                health.put("cacheMisses", cache.getMisses());
+                health.put("cacheEvictions", cache.getEvictions());
+            }
+            send(exchange, STATUS_OK, HEALTH_WRITER.writeValueAsBytes(health));
+        }
+    }
+
+    private List<Result> optimize(List<Order> orders, List<PaymentMethod> paymentMethods, PaymentCatalog catalog) throws NotFoundPaymentsException {
+        if (cache != null) {
+            return cache.optimize(orders, paymentMethods);
+        }
+        return new PaymentOptimizer(orders, catalog).optimize();
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, MESSAGE_WRITER.writeValueAsBytes(Map.of("error", String.valueOf(message))));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
+        }
+    }
+}
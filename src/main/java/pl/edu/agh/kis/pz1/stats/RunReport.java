@@ -0,0 +1,108 @@
+package pl.edu.agh.kis.pz1.stats;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import pl.edu.agh.kis.pz1.utils.JsonParser;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Report of a run collected by {@link RunStats}, printable as text or JSON.
+ * Throughput is computed over the time spent in successful optimizations, excluding parsing.
+ *
+ * @param wallNanos The wall time of the whole run in nanoseconds.
+ * @param optimizations The number of successful optimizations.
+ * @param orders The number of orders optimized, summed over the optimizations.
+ * @param candidates The number of candidate full payments considered, summed over the optimizations.
+ * @param ordersPerSecond Orders optimized per second of optimization time.
+ * @param candidatesPerSecond Candidates considered per second of optimization time.
+ * @param phases The phases in the order they first completed.
+ * @param gcCount The number of garbage collections during the run.
+ * @param gcPauseMillis The accumulated collection time reported by the garbage collectors, in milliseconds.
+ * @param peakHeapBytes The sum of the peak usages of the heap memory pools during the run.
+ * @param latency Latency percentiles of the optimizations, or null if fewer than two were run.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record RunReport(long wallNanos, long optimizations, long orders, long candidates,
+                        double ordersPerSecond, double candidatesPerSecond, List<Phase> phases,
+                        long gcCount, long gcPauseMillis, long peakHeapBytes, Latency latency) {
+
+    /**
+     * Totals of one phase over all optimizations.
+     *
+     * @param name The phase name, see {@link pl.edu.agh.kis.pz1.optimizer.OptimizerPhaseListener}.
+     * @param calls The number of times the phase completed.
+     * @param wallNanos The accumulated wall time in nanoseconds; phases on several threads are added up.
+     * @param allocatedBytes The bytes allocated by the threads running the phase, or -1 if the JVM cannot measure it.
+     */
+    public record Phase(String name, long calls, long wallNanos, long allocatedBytes) {
+    }
+
+    /**
+     * Latency percentiles of the optimizations, in nanoseconds.
+     *
+     * @param count The number of optimizations.
+     * @param p50Nanos The median.
+     * @param p90Nanos The 90th percentile.
+     * @param p99Nanos The 99th percentile.
+     * @param p999Nanos The 99.9th percentile.
+     * @param maxNanos The maximum.
+     */
+    public record Latency(long count, long p50Nanos, long p90Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+
+        /**
+         * Takes the percentiles of a histogram.
+         *
+         * @param histogram The histogram of optimization latencies.
+         * @return The percentiles.
+         */
+        public static Latency of(LatencyHistogram histogram) {
+            return new Latency(histogram.getCount(), histogram.getPercentile(50), histogram.getPercentile(90),
+                    histogram.getPercentile(99), histogram.getPercentile(99.9), histogram.getMax());
+        }
+    }
+
+    /**
+     * Formats the report as JSON on one line.
+     *
+     * @return The JSON report.
+     */
+    public String toJson() {
+        try {
+            return JsonParser.getMapper().writeValueAsString(this);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Formats the report as human-readable text, one item per line.
+     *
+     * @return The text report.
+     */
+    public String toText() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "Wall time: %.3f ms%n", millis(wallNanos)));
+        text.append(String.format(Locale.ROOT, "Optimizations: %d, orders: %d, candidates: %d%n", optimizations, orders, candidates));
+        text.append(String.format(Locale.ROOT, "Throughput: %.0f orders/s, %.0f candidates/s%n", ordersPerSecond, candidatesPerSecond));
+        text.append(String.format(Locale.ROOT, "%-20s %8s %14s %16s%n", "Phase", "Calls", "Time (ms)", "Allocated (KiB)"));
+        for (Phase phase : phases) {
+            text.append(String.format(Locale.ROOT, "%-20s %8d %14.3f %16s%n", phase.name(), phase.calls(), millis(phase.wallNanos()),
+                    phase.allocatedBytes() < 0 ? "n/a" : Long.toString(phase.allocatedBytes() >> 10)));
+        }
+        text.append(String.format(Locale.ROOT, "GC: %d collections, %d ms%n", gcCount, gcPauseMillis));
+        text.append(String.format(Locale.ROOT, "Peak heap: %.1f MiB%n", peakHeapBytes / (1024.0 * 1024.0)));
+        if (latency != null) {
+            text.append(String.format(Locale.ROOT, "Latency (ms): p50 %.3f, p90 %.3f, p99 %.3f, p99.9 %.3f, max %.3f%n",
+                    millis(latency.p50Nanos()), millis(latency.p90Nanos()), millis(latency.p99Nanos()),
+                    millis(latency.p999Nanos()), millis(latency.maxNanos())));
+        }
+        return text.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
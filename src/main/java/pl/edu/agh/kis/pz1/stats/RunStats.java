@@ -0,0 +1,133 @@
+package pl.edu.agh.kis.pz1.stats;
+
+import pl.edu.agh.kis.pz1.optimizer.OptimizerPhaseListener;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects a {@link RunReport} of a run without a profiler: set it as the phase listener of the optimizers
+ * (and report {@link OptimizerPhaseListener#PARSE} around parsing) and call {@link #report()} at the end.
+ * <p>
+ * Phase wall time and allocated bytes are measured on the thread running the phase, with
+ * {@link com.sun.management.ThreadMXBean#getCurrentThreadAllocatedBytes()}; work a phase hands to other threads,
+ * such as parallel candidate generation, is not included in its allocations.
+ * Garbage collections and peak heap usage are taken from the JVM's management beans for the whole process;
+ * the peaks of the heap pools are reset when the collector is created.
+ * The collector is thread-safe, so one instance can serve the optimizers of a whole batch.
+ */
+public final class RunStats implements OptimizerPhaseListener {
+
+    private final long startNanos;
+    private final long gcCountAtStart;
+    private final long gcMillisAtStart;
+    // Start time and allocated bytes of the phase running on each thread
+    private final ThreadLocal<long[]> phaseStart = ThreadLocal.withInitial(() -> new long[2]);
+    // Calls, wall time and allocated bytes by phase name, in completion order
+    private final Map<String, long[]> phases = new LinkedHashMap<>();
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private long optimizations;
+    private long orders;
+    private long candidates;
+    private long optimizationNanos;
+
+    /**
+     * Creates a collector and starts the clock of the run.
+     */
+    public RunStats() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid()) {
+                pool.resetPeakUsage();
+            }
+        }
+        long[] gc = gcTotals();
+        this.gcCountAtStart = gc[0];
+        this.gcMillisAtStart = gc[1];
+        this.startNanos = System.nanoTime();
+    }
+
+    @Override
+    public void phaseStarted(String phase) {
+        long[] start = phaseStart.get();
+        start[0] = System.nanoTime();
+        start[1] = allocatedBytes();
+    }
+
+    @Override
+    public void phaseCompleted(String phase) {
+        long nanos = System.nanoTime();
+        long bytes = allocatedBytes();
+        long[] start = phaseStart.get();
+        synchronized (phases) {
+            long[] totals = phases.computeIfAbsent(phase, name -> new long[3]);
+            totals[0]++;
+            totals[1] += nanos - start[0];
+            totals[2] = bytes < 0 || totals[2] < 0 ? -1 : totals[2] + bytes - start[1];
+        }
+    }
+
+    @Override
+    public synchronized void optimizationCompleted(int orders, long candidates, long nanos) {
+        this.optimizations++;
+        this.orders += orders;
+        this.candidates += candidates;
+        this.optimizationNanos += nanos;
+        latencies.record(nanos);
+    }
+
+    /**
+     * Builds the report of the run so far.
+     *
+     * @return The report.
+     */
+    public synchronized RunReport report() {
+        long wallNanos = System.nanoTime() - startNanos;
+        List<RunReport.Phase> phaseReports = new ArrayList<>();
+        synchronized (phases) {
+            phases.forEach((name, totals) -> phaseReports.add(new RunReport.Phase(name, totals[0], totals[1], totals[2])));
+        }
+        long[] gc = gcTotals();
+        long peakHeapBytes = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid() && pool.getPeakUsage() != null) {
+                peakHeapBytes += pool.getPeakUsage().getUsed();
+            }
+        }
+        double seconds = optimizationNanos / 1e9;
+        return new RunReport(wallNanos, optimizations, orders, candidates,
+                seconds > 0 ? orders / seconds : 0, seconds > 0 ? candidates / seconds : 0, phaseReports,
+                gc[0] - gcCountAtStart, gc[1] - gcMillisAtStart, peakHeapBytes,
+                optimizations > 1 ? RunReport.Latency.of(latencies) : null);
+    }
+
+    /**
+     * Private method returning the bytes allocated by the current thread so far, or -1 if the JVM cannot measure it.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean allocations
+                && allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled()) {
+            return allocations.getCurrentThreadAllocatedBytes();
+        }
+        return -1;
+    }
+
+    /**
+     * Private method returning the collection count and time of all garbage collectors.
+     */
+    private static long[] gcTotals() {
+        long[] totals = new long[2];
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            totals[0] += Math.max(0, collector.getCollectionCount());
+            totals[1] += Math.max(0, collector.getCollectionTime());
+        }
+        return totals;
+    }
+}
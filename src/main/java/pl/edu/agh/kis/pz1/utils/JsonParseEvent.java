@@ -0,0 +1,65 @@
+package pl.edu.agh.kis.pz1.utils;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.io.File;
+
+/**
+ * JFR event covering the parsing of one input file by {@link JsonParser}.
+ */
+@Name("pl.edu.agh.kis.pz1.JsonParse")
+@Label("JSON Parse")
+@Category({"Payment Optimizer"})
+@Description("Parsing of an orders or payment methods file")
+@StackTrace(false)
+final class JsonParseEvent extends jdk.jfr.Event {
+
+    @Label("Path")
+    String path;
+
+    @Label("Content")
+    @Description("orders or paymentMethods")
+    String content;
+
+    @Label("Items")
+    @Description("Number of orders or payment methods read")
+    int items;
+
+    @Label("File Size")
+    @DataAmount
+    long bytes;
+
+    /**
+     * Commits the event, if it is enabled, with the file size and number of items read.
+     *
+     * @param file The parsed file.
+     * @param items The number of items read.
+     */
+    void commit(File file, int items) {
+        if (shouldCommit()) {
+            this.items = items;
+            this.bytes = file.length();
+            commit();
+        }
+    }
+
+    /**
+     * Creates and begins the event of a file.
+     *
+     * @param path The path of the file.
+     * @param content The kind of items in the file.
+     * @return The started event.
+     */
+    static JsonParseEvent start(String path, String content) {
+        JsonParseEvent event = new JsonParseEvent();
+        event.path = path;
+        event.content = content;
+        event.begin();
+        return event;
+    }
+}
@@ -1,5 +1,6 @@
 package pl.edu.agh.kis.pz1.utils;
 
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import pl.edu.agh.kis.pz1.domain.Order;
@@ -7,16 +8,24 @@ import pl.edu.agh.kis.pz1.domain.PaymentMethod;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Utility class for parsing JSON files containing Order and PaymentMethod data.
  * Uses the Jackson library for JSON processing.
+ * Every parsed file is recorded as a {@link JsonParseEvent} when JFR is recording it.
  */
 public class JsonParser {
 
     private static final ObjectMapper mapper = new ObjectMapper();
 
+    // Content names of the JFR parse events
+    private static final String ORDERS = "orders";
+    private static final String PAYMENT_METHODS = "paymentMethods";
+
     /**
      * Private constructor to prevent instantiation of this utility class.
      */
@@ -24,6 +33,17 @@ public class JsonParser {
         throw new IllegalStateException("Utility class");
     }
 
+    /**
+     * Returns the ObjectMapper shared by all parsing methods, so that other readers and writers
+     * (such as the HTTP server) reuse its configuration and cached (de)serializers.
+     * It must not be reconfigured.
+     *
+     * @return The shared ObjectMapper.
+     */
+    public static ObjectMapper getMapper() {
+        return mapper;
+    }
+
     /**
      * Parses a JSON file containing a list of orders into a List of Order objects.
      * Initializes the remaining value to pay for each order after parsing.
@@ -34,13 +54,48 @@ public class JsonParser {
      */
     public static List<Order> parseOrders(String path) throws IOException {
         File file = new File(path);
+        JsonParseEvent event = JsonParseEvent.start(path, ORDERS);
 
         List<Order> orders = mapper.readValue(file, new TypeReference<>() {});
         orders.forEach(Order::initializeRemainingValue);
 
+        event.commit(file, orders.size());
         return orders;
     }
 
+    /**
+     * Streams a JSON file containing a list of orders, passing each Order to the consumer
+     * as soon as it has been read. Only one order is materialized at a time, so memory
+     * use does not depend on the size of the file.
+     * Initializes the remaining value to pay for each order before passing it on.
+     *
+     * @param path The absolute path to the orders JSON file.
+     * @param consumer The consumer receiving the orders in file order.
+     * @throws IOException If an error occurs while reading or parsing the file,
+     *                     or if the file does not contain a JSON array.
+     */
+    public static void streamOrders(String path, Consumer<Order> consumer) throws IOException {
+        File file = new File(path);
+        JsonParseEvent event = JsonParseEvent.start(path, ORDERS);
+        int count = 0;
+
+        try (com.fasterxml.jackson.core.JsonParser parser = mapper.getFactory().createParser(file)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of orders in " + path);
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                Order order = mapper.readValue(parser, Order.class);
+                order.initializeRemainingValue();
+                consumer.accept(order);
+                count++;
+            }
+            if (parser.currentToken() != JsonToken.END_ARRAY) {
+                throw new IOException("Unexpected token " + parser.currentToken() + " in orders array of " + path);
+            }
+        }
+        event.commit(file, count);
+    }
+
     /**
      * Parses a JSON file containing a list of payment methods into a List of PaymentMethod objects.
      * Initializes the remaining limit for each payment method after parsing.
@@ -51,10 +106,29 @@ public class JsonParser {
      */
     public static List<PaymentMethod> parsePaymentMethods(String path) throws IOException {
         File file = new File(path);
+        JsonParseEvent event = JsonParseEvent.start(path, PAYMENT_METHODS);
 
         List<PaymentMethod> paymentMethods = mapper.readValue(file, new TypeReference<>() {});
         paymentMethods.forEach(PaymentMethod::initializeRemainingLimit);
 
+        event.commit(file, paymentMethods.size());
         return paymentMethods;
     }
+
+    /**
+     * Parses a JSON file containing a list of payment methods on a background thread.
+     * I/O errors complete the returned future exceptionally with an {@link UncheckedIOException}.
+     *
+     * @param path The absolute path to the payment methods JSON file.
+     * @return A future completed with the List of populated PaymentMethod objects.
+     */
+    public static CompletableFuture<List<PaymentMethod>> parsePaymentMethodsAsync(String path) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return parsePaymentMethods(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
 }
\ No newline at end of file
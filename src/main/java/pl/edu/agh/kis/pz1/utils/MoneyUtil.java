@@ -0,0 +1,143 @@
+package pl.edu.agh.kis.pz1.utils;
+
+import java.math.BigDecimal;
+
+/**
+ * Utility class for fixed-point currency arithmetic on {@code long} amounts
+ * expressed in cents (scale 2).
+ * Rounding matches {@link BigDecimalUtil} ({@link BigDecimalUtil#ROUNDING_MODE HALF_UP})
+ * for every value that is already normalized to two decimal places, so the optimizer
+ * can run without allocating BigDecimal objects.
+ * All arithmetic is overflow-checked and throws {@link ArithmeticException}
+ * instead of silently wrapping.
+ */
+public class MoneyUtil {
+
+    /**
+     * Number of cents in one currency unit.
+     */
+    public static final long CENTS_PER_UNIT = 100L;
+
+    /**
+     * Private constructor to prevent instantiation of this utility class.
+     */
+    private MoneyUtil() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Normalizes a BigDecimal amount to cents using the standard scale and rounding mode.
+     * Returns 0 if the input value is null.
+     *
+     * @param value The BigDecimal value to convert.
+     * @return The value expressed in cents.
+     * @throws ArithmeticException if the value does not fit into a {@code long} amount of cents.
+     */
+    public static long toCents(BigDecimal value) {
+        if (value == null) {
+            return 0L;
+        }
+        try {
+            return value.setScale(BigDecimalUtil.SCALE, BigDecimalUtil.ROUNDING_MODE)
+                    .unscaledValue()
+                    .longValueExact();
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Monetary value out of range: " + value);
+        }
+    }
+
+    /**
+     * Converts an amount in cents back to a BigDecimal with the standard scale.
+     *
+     * @param cents The amount in cents.
+     * @return The amount as a BigDecimal with two decimal places.
+     */
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, BigDecimalUtil.SCALE);
+    }
+
+    /**
+     * Calculates a percentage of an amount in cents.
+     * Example: percentage(10000, 10) returns 1000.
+     *
+     * @param cents The base amount in cents.
+     * @param percent The percentage as an integer (e.g., 10 for 10%). Must be between 0 and 100.
+     * @return The calculated percentage in cents, rounded half up. Returns 0 if percent is out of bounds.
+     */
+    public static long percentage(long cents, int percent) {
+        if (percent < 0 || percent > 100) {
+            return 0L;
+        }
+        return divideHalfUp(Math.multiplyExact(cents, percent), CENTS_PER_UNIT);
+    }
+
+    /**
+     * Calculates the amount in cents remaining after applying a percentage discount.
+     * Example: applyDiscount(10000, 10) returns 9000.
+     *
+     * @param cents The original amount in cents.
+     * @param percent The discount percentage as an integer (e.g., 10 for 10%). Must be between 0 and 100.
+     * @return The discounted amount in cents, rounded half up. Returns the original amount if percent is out of bounds.
+     */
+    public static long applyDiscount(long cents, int percent) {
+        if (percent < 0 || percent > 100) {
+            return cents;
+        }
+        return divideHalfUp(Math.multiplyExact(cents, 100L - percent), CENTS_PER_UNIT);
+    }
+
+    /**
+     * Calculates the absolute discount in cents for a given amount and percentage.
+     * Example: calculateDiscountAmount(10000, 10) returns 1000.
+     *
+     * @param cents The original amount in cents.
+     * @param percent The discount percentage as an integer (e.g., 10 for 10%). Must be between 0 and 100.
+     * @return The discount amount in cents. Returns 0 if percent is out of bounds.
+     */
+    public static long calculateDiscountAmount(long cents, int percent) {
+        if (percent < 0 || percent > 100) {
+            return 0L;
+        }
+        return subtract(cents, applyDiscount(cents, percent));
+    }
+
+    /**
+     * Adds two amounts in cents.
+     *
+     * @param a The first amount.
+     * @param b The second amount.
+     * @return The sum of both amounts.
+     * @throws ArithmeticException if the result overflows a {@code long}.
+     */
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    /**
+     * Subtracts one amount in cents from another.
+     *
+     * @param a The amount to subtract from.
+     * @param b The amount to subtract.
+     * @return The difference of both amounts.
+     * @throws ArithmeticException if the result overflows a {@code long}.
+     */
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /**
+     * Divides with rounding half away from zero, which is what {@link java.math.RoundingMode#HALF_UP} does.
+     *
+     * @param dividend The value to divide.
+     * @param divisor The positive divisor.
+     * @return The rounded quotient.
+     */
+    private static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) * 2 >= divisor) {
+            quotient += Long.signum(dividend);
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,735 @@
+package pl.edu.agh.kis.pz1.utils;
+
+import pl.edu.agh.kis.pz1.domain.MethodDictionary;
+import pl.edu.agh.kis.pz1.domain.OrderTable;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Reads very large orders JSON files on several threads, straight into an {@link OrderTable}.
+ * Unlike {@link JsonParser}, it only understands the order schema ({@code id}, {@code value}, {@code promotions},
+ * {@code paid} and the ignored {@code remainingValueToPay}) and creates no Order objects, BigDecimals or promotion lists:
+ * values are parsed from the bytes directly to cents, and promotions are looked up by their UTF-8 bytes.
+ * <p>
+ * The file is memory-mapped and split into byte ranges. A first parallel pass computes, for each range,
+ * whether it ends inside a string for every state it may start in; chaining these gives the exact state at the start
+ * of every range. In the second parallel pass each range skips to its first order outside a string, so that it
+ * resynchronizes on a top-level object boundary, and parses every order starting in the range into its own table,
+ * finishing the last one past the range's end. The tables are concatenated in file order, so the result is the same as
+ * {@link OrderTable#fromOrders} of {@link JsonParser#parseOrders}. The ranges are checked to join up exactly,
+ * so malformed arrays are rejected.
+ */
+public final class ParallelOrderScanner {
+
+    private static final long MIN_CHUNK_BYTES = 1L << 20;
+    private static final long MAX_CHUNK_BYTES = 256L << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+    // Mapped beyond the end of a chunk, so that its last order rarely needs a second mapping
+    private static final long WINDOW_SLACK_BYTES = 1L << 20;
+
+    // String states at a byte position
+    private static final int OUTSIDE = 0;
+    private static final int INSIDE = 1;
+    private static final int ESCAPED = 2;
+
+    // Position of the next order of a chunk that reached the end of the array
+    private static final long CLOSED = -1;
+
+    private static final byte[] ID = bytes("id");
+    private static final byte[] VALUE = bytes("value");
+    private static final byte[] PROMOTIONS = bytes("promotions");
+    private static final byte[] PAID = bytes("paid");
+    private static final byte[] REMAINING_VALUE_TO_PAY = bytes("remainingValueToPay");
+    private static final byte[][] FIELDS = {ID, VALUE, PROMOTIONS, PAID, REMAINING_VALUE_TO_PAY};
+
+    private ParallelOrderScanner() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Reads an orders JSON file into a new order table, using up to the given number of threads.
+     *
+     * @param file The orders JSON file.
+     * @param dictionary The payment methods the table's promotion masks refer to; other promotions are ignored.
+     * @param parallelism The number of threads, at least 1.
+     * @return A table with one row per order, in file order.
+     * @throws IOException If the file cannot be read or is not a valid orders array.
+     * @throws IllegalArgumentException if parallelism is less than 1.
+     */
+    public static OrderTable scan(Path file, MethodDictionary dictionary, int parallelism) throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1, got " + parallelism);
+        }
+        long size = file.toFile().length();
+        // A single thread reads the file as one chunk, which needs no first pass
+        long chunkBytes = parallelism == 1 ? Math.max(1, size)
+                : Math.clamp(size / ((long) parallelism * CHUNKS_PER_THREAD), MIN_CHUNK_BYTES, MAX_CHUNK_BYTES);
+        return scan(file, dictionary, parallelism, chunkBytes);
+    }
+
+    /**
+     * Reads an orders JSON file split into chunks of the given size.
+     */
+    static OrderTable scan(Path file, MethodDictionary dictionary, int parallelism, long chunkBytes) throws IOException {
+        JsonParseEvent event = JsonParseEvent.start(file.toString(), "orders");
+        MethodKeys keys = new MethodKeys(dictionary);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+             ExecutorService executor = Executors.newFixedThreadPool(parallelism)) {
+            long size = channel.size();
+            long chunkCount = Math.max(1, Math.ceilDiv(size, chunkBytes));
+            if (chunkCount > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Chunk size too small for " + file);
+            }
+            long windowBytes = Math.min(Integer.MAX_VALUE, chunkBytes + WINDOW_SLACK_BYTES);
+            long[] starts = new long[(int) chunkCount + 1];
+            for (int chunk = 0; chunk <= chunkCount; chunk++) {
+                starts[chunk] = Math.min(size, chunk * chunkBytes);
+            }
+
+            // First pass: the string state at the end of each chunk, for each state it may start in
+            List<Future<int[]>> transitions = new ArrayList<>();
+            for (int chunk = 0; chunk < chunkCount - 1; chunk++) {
+                long start = starts[chunk];
+                long end = starts[chunk + 1];
+                transitions.add(executor.submit(() -> stringTransitions(new Window(channel, size, windowBytes), start, end)));
+            }
+            int[] startStates = new int[(int) chunkCount];
+            for (int chunk = 1; chunk < chunkCount; chunk++) {
+                startStates[chunk] = get(transitions.get(chunk - 1))[startStates[chunk - 1]];
+            }
+
+            // Second pass: the orders starting in each chunk
+            List<Future<Chunk>> parsed = new ArrayList<>();
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                ChunkParser parser = new ChunkParser(file, new Window(channel, size, windowBytes), keys, starts[chunk], starts[chunk + 1]);
+                int startState = startStates[chunk];
+                boolean first = chunk == 0;
+                parsed.add(executor.submit(() -> first ? parser.parseFirst() : parser.parse(startState)));
+            }
+
+            List<OrderTable> tables = new ArrayList<>();
+            long expected = CLOSED;
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                Chunk result = get(parsed.get(chunk));
+                if (chunk > 0 && result.first() != expected
+                        && (result.first() >= 0 || expected >= starts[chunk] && expected < starts[chunk + 1])) {
+                    throw new IOException("Malformed orders array in " + file + " near byte " + starts[chunk]);
+                }
+                if (chunk == 0 || result.first() >= 0) {
+                    expected = result.next();
+                }
+                tables.add(result.table());
+            }
+            if (expected != CLOSED) {
+                throw new IOException("Unterminated orders array in " + file);
+            }
+
+            OrderTable table = OrderTable.concat(dictionary, tables);
+            event.commit(file.toFile(), table.size());
+            return table;
+        }
+    }
+
+    /**
+     * Private method waiting for a chunk task and rethrowing its failure.
+     */
+    private static <T> T get(Future<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading orders");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Private method simulating the string state over a chunk from each possible start state.
+     *
+     * @return The end state, indexed by start state.
+     */
+    private static int[] stringTransitions(Window window, long start, long end) throws IOException {
+        int fromOutside = OUTSIDE;
+        int fromInside = INSIDE;
+        int fromEscaped = ESCAPED;
+        boolean escaping = true;
+        for (long pos = start; pos < end; pos++) {
+            int b = window.get(pos);
+            // Other bytes only change the state right after a backslash
+            if (b == '"' || b == '\\' || escaping) {
+                fromOutside = nextStringState(fromOutside, b);
+                fromInside = nextStringState(fromInside, b);
+                fromEscaped = nextStringState(fromEscaped, b);
+                escaping = fromOutside == ESCAPED || fromInside == ESCAPED || fromEscaped == ESCAPED;
+            }
+        }
+        return new int[]{fromOutside, fromInside, fromEscaped};
+    }
+
+    private static int nextStringState(int state, int b) {
+        return switch (state) {
+            case OUTSIDE -> b == '"' ? INSIDE : OUTSIDE;
+            case INSIDE -> b == '"' ? OUTSIDE : (b == '\\' ? ESCAPED : INSIDE);
+            default -> INSIDE;
+        };
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The orders starting in one chunk.
+     *
+     * @param table The orders, in file order.
+     * @param first The position of the first order starting in the chunk, or -1 if none does.
+     * @param next The position of the first order after the chunk, or {@link #CLOSED} if the array ended.
+     */
+    private record Chunk(OrderTable table, long first, long next) {
+    }
+
+    /**
+     * Memory-mapped window over the file, moved when a position outside it is read.
+     */
+    private static final class Window {
+
+        private final FileChannel channel;
+        private final long fileSize;
+        private final long windowBytes;
+        private MappedByteBuffer buffer;
+        private long base;
+        private int limit;
+
+        Window(FileChannel channel, long fileSize, long windowBytes) {
+            this.channel = channel;
+            this.fileSize = fileSize;
+            this.windowBytes = windowBytes;
+        }
+
+        /**
+         * Returns the unsigned byte at a position, or -1 at the end of the file.
+         */
+        int get(long pos) throws IOException {
+            long offset = pos - base;
+            if (offset >= 0 && offset < limit) {
+                return buffer.get((int) offset) & 0xFF;
+            }
+            if (pos >= fileSize) {
+                return -1;
+            }
+            base = pos;
+            limit = (int) Math.min(fileSize - pos, windowBytes);
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, base, limit);
+            return buffer.get(0) & 0xFF;
+        }
+    }
+
+    /**
+     * Hash table from the UTF-8 bytes of payment method IDs to their dictionary indices,
+     * so that promotions are resolved without decoding them. Read-only once built, and shared by all chunks.
+     */
+    private static final class MethodKeys {
+
+        private final MethodDictionary dictionary;
+        private final byte[][] ids;
+        private final int[] methods;
+        private final int mask;
+
+        MethodKeys(MethodDictionary dictionary) {
+            this.dictionary = dictionary;
+            int capacity = Integer.highestOneBit(Math.max(1, dictionary.size()) * 4 - 1);
+            this.ids = new byte[capacity][];
+            this.methods = new int[capacity];
+            this.mask = capacity - 1;
+            for (int method = 0; method < dictionary.size(); method++) {
+                byte[] id = bytes(dictionary.getId(method));
+                int slot = hash(id, id.length) & mask;
+                while (ids[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                ids[slot] = id;
+                methods[slot] = method;
+            }
+        }
+
+        MethodDictionary dictionary() {
+            return dictionary;
+        }
+
+        int indexOf(byte[] id, int length) {
+            for (int slot = hash(id, length) & mask; ids[slot] != null; slot = (slot + 1) & mask) {
+                if (Arrays.equals(ids[slot], 0, ids[slot].length, id, 0, length)) {
+                    return methods[slot];
+                }
+            }
+            return -1;
+        }
+
+        private static int hash(byte[] bytes, int length) {
+            int hash = 1;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + bytes[i];
+            }
+            return hash ^ (hash >>> 16);
+        }
+    }
+
+    /**
+     * Parser of the orders starting in one chunk. The current token is read into {@code scratch} as raw bytes.
+     */
+    private static final class ChunkParser {
+
+        private final Path file;
+        private final Window window;
+        private final MethodKeys keys;
+        private final long start;
+        private final long end;
+        private final OrderTable table;
+        private final long[] mask;
+
+        private long pos;
+        private byte[] scratch = new byte[64];
+        private int length;
+        private boolean escaped;
+
+        ChunkParser(Path file, Window window, MethodKeys keys, long start, long end) {
+            this.file = file;
+            this.window = window;
+            this.keys = keys;
+            this.start = start;
+            this.end = end;
+            this.table = new OrderTable(keys.dictionary());
+            this.mask = new long[keys.dictionary().getMaskWords()];
+        }
+
+        /**
+         * Parses the first chunk, which starts with the array itself.
+         */
+        Chunk parseFirst() throws IOException {
+            pos = start;
+            if (window.get(pos) == 0xEF && window.get(pos + 1) == 0xBB && window.get(pos + 2) == 0xBF) {
+                pos += 3;
+            }
+            skipWhitespace();
+            if (window.get(pos) != '[') {
+                throw new IOException("Expected a JSON array of orders in " + file);
+            }
+            pos++;
+            skipWhitespace();
+            if (window.get(pos) == ']') {
+                pos++;
+                checkTrailing();
+                return new Chunk(table, -1, CLOSED);
+            }
+            expect('{', "an order");
+            long first = pos < end ? pos : -1;
+            return new Chunk(table, first, parseOrders());
+        }
+
+        /**
+         * Parses a later chunk, skipping to its first order outside a string.
+         */
+        Chunk parse(int startState) throws IOException {
+            int state = startState;
+            for (pos = start; pos < end; pos++) {
+                int b = window.get(pos);
+                if (state == OUTSIDE && b == '{') {
+                    long first = pos;
+                    return new Chunk(table, first, parseOrders());
+                }
+                state = nextStringState(state, b);
+            }
+            return new Chunk(table, -1, CLOSED);
+        }
+
+        /**
+         * Parses orders from the current position, an opening brace, until the next order starts after the chunk.
+         *
+         * @return The position of that order, or {@link #CLOSED} if the array ended.
+         */
+        private long parseOrders() throws IOException {
+            while (pos < end) {
+                parseOrder();
+                skipWhitespace();
+                int b = window.get(pos);
+                if (b == ']') {
+                    pos++;
+                    checkTrailing();
+                    return CLOSED;
+                }
+                if (b != ',') {
+                    throw malformed("expected ',' or ']' after an order");
+                }
+                pos++;
+                skipWhitespace();
+                expect('{', "an order");
+            }
+            return pos;
+        }
+
+        private void parseOrder() throws IOException {
+            String id = null;
+            long valueCents = 0;
+            boolean paid = false;
+            Arrays.fill(mask, 0);
+
+            pos++;
+            skipWhitespace();
+            if (window.get(pos) == '}') {
+                pos++;
+                table.addMasked(id, valueCents, mask, paid);
+                return;
+            }
+            while (true) {
+                expect('"', "a field name");
+                readString();
+                byte[] field = fieldName();
+                skipWhitespace();
+                expect(':', "':'");
+                pos++;
+                skipWhitespace();
+
+                if (field == ID) {
+                    id = readId();
+                } else if (field == VALUE) {
+                    valueCents = readCents();
+                } else if (field == PROMOTIONS) {
+                    readPromotions();
+                } else if (field == PAID) {
+                    paid = readBoolean();
+                } else {
+                    // remainingValueToPay is reset to the value after parsing
+                    readScalar();
+                }
+
+                skipWhitespace();
+                int b = window.get(pos++);
+                if (b == '}') {
+                    break;
+                }
+                if (b != ',') {
+                    pos--;
+                    throw malformed("expected ',' or '}' in an order");
+                }
+                skipWhitespace();
+            }
+            table.addMasked(id, valueCents, mask, paid);
+        }
+
+        /**
+         * Returns the constant of the field name in {@code scratch}.
+         */
+        private byte[] fieldName() throws IOException {
+            byte[] name = scratch;
+            int nameLength = length;
+            if (escaped) {
+                name = bytes(decodeString());
+                nameLength = name.length;
+            }
+            for (byte[] field : FIELDS) {
+                if (Arrays.equals(field, 0, field.length, name, 0, nameLength)) {
+                    return field;
+                }
+            }
+            throw malformed("unrecognized field \"" + new String(name, 0, nameLength, StandardCharsets.UTF_8) + "\"");
+        }
+
+        private String readId() throws IOException {
+            int b = window.get(pos);
+            if (b == '"') {
+                readString();
+                return decodeString();
+            }
+            if (b == 'n') {
+                expectLiteral("null");
+                return null;
+            }
+            if (b == '-' || (b >= '0' && b <= '9')) {
+                readNumber();
+                return new String(scratch, 0, length, StandardCharsets.US_ASCII);
+            }
+            throw malformed("expected an order ID");
+        }
+
+        private long readCents() throws IOException {
+            int b = window.get(pos);
+            if (b == '"') {
+                readString();
+                if (escaped) {
+                    byte[] value = bytes(decodeString());
+                    return parseCents(value, value.length);
+                }
+                return parseCents(scratch, length);
+            }
+            if (b == 'n') {
+                expectLiteral("null");
+                return 0;
+            }
+            if (b == '-' || (b >= '0' && b <= '9')) {
+                readNumber();
+                return parseCents(scratch, length);
+            }
+            throw malformed("expected an order value");
+        }
+
+        private void readPromotions() throws IOException {
+            if (window.get(pos) == 'n') {
+                expectLiteral("null");
+                return;
+            }
+            expect('[', "a promotions array");
+            pos++;
+            skipWhitespace();
+            if (window.get(pos) == ']') {
+                pos++;
+                return;
+            }
+            while (true) {
+                if (window.get(pos) == 'n') {
+                    expectLiteral("null");
+                } else {
+                    expect('"', "a payment method ID");
+                    readString();
+                    int method = escaped ? keys.dictionary().indexOf(decodeString()) : keys.indexOf(scratch, length);
+                    if (method >= 0) {
+                        mask[method >>> 6] |= 1L << method;
+                    }
+                }
+                skipWhitespace();
+                int b = window.get(pos++);
+                if (b == ']') {
+                    return;
+                }
+                if (b != ',') {
+                    pos--;
+                    throw malformed("expected ',' or ']' in promotions");
+                }
+                skipWhitespace();
+            }
+        }
+
+        private boolean readBoolean() throws IOException {
+            return switch (window.get(pos)) {
+                case 't' -> expectLiteral("true");
+                case 'f' -> expectLiteral("false");
+                case 'n' -> expectLiteral("null");
+                default -> throw malformed("expected a boolean");
+            };
+        }
+
+        private void readScalar() throws IOException {
+            int b = window.get(pos);
+            if (b == '"') {
+                readString();
+            } else if (b == 'n') {
+                expectLiteral("null");
+            } else if (b == '-' || (b >= '0' && b <= '9')) {
+                readNumber();
+            } else {
+                throw malformed("expected a string, number or null");
+            }
+        }
+
+        /**
+         * Reads the raw bytes of the string at the current position into {@code scratch}, escapes included.
+         */
+        private void readString() throws IOException {
+            pos++;
+            length = 0;
+            escaped = false;
+            while (true) {
+                int b = window.get(pos++);
+                if (b == '"') {
+                    return;
+                }
+                if (b < 0x20) {
+                    pos--;
+                    throw malformed(b < 0 ? "unterminated string" : "control character in string");
+                }
+                if (b == '\\') {
+                    escaped = true;
+                    append(b);
+                    b = window.get(pos++);
+                    if (b < 0x20) {
+                        pos--;
+                        throw malformed("unterminated string");
+                    }
+                }
+                append(b);
+            }
+        }
+
+        /**
+         * Reads the bytes of the number at the current position into {@code scratch}.
+         */
+        private void readNumber() throws IOException {
+            length = 0;
+            for (int b = window.get(pos); (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.' || b == 'e' || b == 'E'; b = window.get(++pos)) {
+                append(b);
+            }
+        }
+
+        private void append(int b) {
+            if (length == scratch.length) {
+                scratch = Arrays.copyOf(scratch, length * 2);
+            }
+            scratch[length++] = (byte) b;
+        }
+
+        /**
+         * Decodes the string in {@code scratch}, resolving escape sequences.
+         */
+        private String decodeString() throws IOException {
+            if (!escaped) {
+                return new String(scratch, 0, length, StandardCharsets.UTF_8);
+            }
+            StringBuilder text = new StringBuilder(length);
+            int segment = 0;
+            for (int i = 0; i < length; i++) {
+                if (scratch[i] != '\\') {
+                    continue;
+                }
+                text.append(new String(scratch, segment, i - segment, StandardCharsets.UTF_8));
+                char c = (char) scratch[++i];
+                switch (c) {
+                    case '"', '\\', '/' -> text.append(c);
+                    case 'b' -> text.append('\b');
+                    case 'f' -> text.append('\f');
+                    case 'n' -> text.append('\n');
+                    case 'r' -> text.append('\r');
+                    case 't' -> text.append('\t');
+                    case 'u' -> {
+                        if (i + 4 >= length) {
+                            throw malformed("invalid unicode escape");
+                        }
+                        try {
+                            text.append((char) Integer.parseInt(new String(scratch, i + 1, 4, StandardCharsets.US_ASCII), 16));
+                        } catch (NumberFormatException e) {
+                            throw malformed("invalid unicode escape");
+                        }
+                        i += 4;
+                    }
+                    default -> throw malformed("invalid escape \\" + c);
+                }
+                segment = i + 1;
+            }
+            return text.append(new String(scratch, segment, length - segment, StandardCharsets.UTF_8)).toString();
+        }
+
+        /**
+         * Parses a decimal amount to cents, rounding half up like {@link MoneyUtil#toCents}.
+         * Exponents are rare enough to be left to BigDecimal.
+         */
+        private long parseCents(byte[] text, int textLength) throws IOException {
+            int from = 0;
+            int to = textLength;
+            while (from < to && text[from] == ' ') {
+                from++;
+            }
+            while (to > from && text[to - 1] == ' ') {
+                to--;
+            }
+            if (from == to) {
+                return 0;
+            }
+
+            boolean negative = text[from] == '-';
+            int i = negative || text[from] == '+' ? from + 1 : from;
+            long units = 0;
+            int digits = 0;
+            int fractionDigits = -1;
+            boolean roundUp = false;
+            try {
+                for (; i < to; i++) {
+                    int b = text[i];
+                    if (b >= '0' && b <= '9') {
+                        digits++;
+                        if (fractionDigits < 0) {
+                            units = Math.addExact(Math.multiplyExact(units, 10), b - '0');
+                        } else if (fractionDigits < 2) {
+                            units = Math.addExact(Math.multiplyExact(units, 10), b - '0');
+                            fractionDigits++;
+                        } else if (fractionDigits++ == 2) {
+                            roundUp = b >= '5';
+                        }
+                    } else if (b == '.' && fractionDigits < 0) {
+                        fractionDigits = 0;
+                    } else if (b == 'e' || b == 'E') {
+                        return MoneyUtil.toCents(new BigDecimal(new String(text, from, to - from, StandardCharsets.US_ASCII)));
+                    } else {
+                        throw malformed("invalid order value");
+                    }
+                }
+                if (digits == 0) {
+                    throw malformed("invalid order value");
+                }
+                for (int scale = Math.max(0, fractionDigits); scale < 2; scale++) {
+                    units = Math.multiplyExact(units, 10);
+                }
+                if (roundUp) {
+                    units = Math.addExact(units, 1);
+                }
+            } catch (NumberFormatException e) {
+                throw malformed("invalid order value");
+            } catch (ArithmeticException e) {
+                throw malformed("monetary value out of range");
+            }
+            return negative ? -units : units;
+        }
+
+        private boolean expectLiteral(String literal) throws IOException {
+            for (int i = 0; i < literal.length(); i++) {
+                if (window.get(pos + i) != literal.charAt(i)) {
+                    throw malformed("expected " + literal);
+                }
+            }
+            pos += literal.length();
+            return literal.equals("true");
+        }
+
+        private void expect(int b, String what) throws IOException {
+            if (window.get(pos) != b) {
+                throw malformed("expected " + what);
+            }
+        }
+
+        private void skipWhitespace() throws IOException {
+            for (int b = window.get(pos); b == ' ' || b == '\n' || b == '\r' || b == '\t'; b = window.get(++pos)) {
+                // Skipping whitespace
+            }
+        }
+
+        private void checkTrailing() throws IOException {
+            skipWhitespace();
+            if (window.get(pos) >= 0) {
+                throw malformed("unexpected content after the orders array");
+            }
+        }
+
+        private IOException malformed(String message) {
+            return new IOException("Malformed orders JSON in " + file + " at byte " + pos + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package pl.edu.agh.kis.pz1.allocation;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+import pl.edu.agh.kis.pz1.optimizer.Allocation;
+import pl.edu.agh.kis.pz1.optimizer.AllocationRule;
+import pl.edu.agh.kis.pz1.optimizer.NotFoundPaymentsException;
+import pl.edu.agh.kis.pz1.optimizer.PaymentOptimizer;
+import pl.edu.agh.kis.pz1.utils.JsonParser;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AllocationWriterTest {
+
+    @TempDir
+    Path directory;
+
+    private static List<Order> exampleOrders() {
+        return List.of(
+                new Order("ORDER1", new BigDecimal("100.00"), List.of("mZysk"), false, null),
+                new Order("ORDER2", new BigDecimal("200.00"), List.of("BosBankrut"), false, null),
+                new Order("ORDER3", new BigDecimal("150.00"), List.of("mZysk", "BosBankrut"), false, null),
+                new Order("ORDER4", new BigDecimal("50.00"), null, false, null));
+    }
+
+    private static List<PaymentMethod> exampleMethods() {
+        List<PaymentMethod> methods = List.of(
+                new PaymentMethod("PUNKTY", 15, new BigDecimal("100.00"), null, null),
+                new PaymentMethod("mZysk", 10, new BigDecimal("180.00"), null, null),
+                new PaymentMethod("BosBankrut", 5, new BigDecimal("200.00"), null, null));
+        methods.forEach(PaymentMethod::initializeRemainingLimit);
+        return methods;
+    }
+
+    @Test
+    @DisplayName("Should stream the example allocation as NDJSON")
+    void writesExampleAsNdjson() throws IOException, NotFoundPaymentsException {
+        Path ledger = directory.resolve("allocations.ndjson");
+        PaymentOptimizer optimizer = new PaymentOptimizer(exampleOrders(), exampleMethods());
+        try (AllocationWriter writer = AllocationWriter.open(ledger, AllocationWriter.Format.forPath(ledger))) {
+            optimizer.setAllocationListener(writer);
+            optimizer.optimize();
+            assertEquals(4, writer.getCount());
+        }
+
+        assertEquals(List.of(
+                "{\"order\":\"ORDER1\",\"value\":100.00,\"rule\":\"R4\",\"discount\":15.00,\"payments\":[{\"method\":\"PUNKTY\",\"amount\":85.00}]}",
+                "{\"order\":\"ORDER3\",\"value\":150.00,\"rule\":\"R2\",\"discount\":15.00,\"payments\":[{\"method\":\"mZysk\",\"amount\":135.00}]}",
+                "{\"order\":\"ORDER2\",\"value\":200.00,\"rule\":\"R2\",\"discount\":10.00,\"payments\":[{\"method\":\"BosBankrut\",\"amount\":190.00}]}",
+                "{\"order\":\"ORDER4\",\"value\":50.00,\"rule\":\"R3\",\"discount\":5.00,\"payments\":[{\"method\":\"PUNKTY\",\"amount\":15.00},{\"method\":\"mZysk\",\"amount\":30.00}]}"),
+                Files.readAllLines(ledger));
+        // Every line is a JSON object, IDs included
+        StringWriter text = new StringWriter();
+        try (AllocationWriter writer = new AllocationWriter(text, AllocationWriter.Format.NDJSON)) {
+            writer.allocated(new Allocation("say \"hi\"\n", 100, AllocationRule.BASE, 0, "Card", 100));
+        }
+        assertEquals("say \"hi\"\n", JsonParser.getMapper().readTree(text.toString()).get("order").asText());
+    }
+
+    @Test
+    @DisplayName("Should write CSV with quoted fields and signed amounts")
+    void writesCsv() throws IOException {
+        StringWriter text = new StringWriter();
+        try (AllocationWriter writer = new AllocationWriter(text, AllocationWriter.Format.CSV)) {
+            writer.allocated(new Allocation("A,\"1\"", 10005, AllocationRule.BASE, 0, "Card", 10005));
+            writer.allocated(new Allocation("B", 7, AllocationRule.R4, 9, null, 0));
+        }
+
+        assertEquals(AllocationWriter.CSV_HEADER + "\n"
+                + "\"A,\"\"1\"\"\",100.05,BASE,0.00,0.00,Card,100.05\n"
+                + "B,0.07,R4,-0.02,0.09,,0.00\n", text.toString());
+        assertEquals(AllocationWriter.Format.CSV, AllocationWriter.Format.forPath(Path.of("out", "ledger.CSV")));
+        assertEquals(AllocationWriter.Format.NDJSON, AllocationWriter.Format.forPath(Path.of("ledger.json")));
+    }
+}
@@ -0,0 +1,104 @@
+package pl.edu.agh.kis.pz1.batch;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRunnerTest {
+
+    private static final String EXAMPLE_ORDERS = """
+            [
+              {"id": "ORDER1", "value": "100.00", "promotions": ["mZysk"]},
+              {"id": "ORDER2", "value": "200.00", "promotions": ["BosBankrut"]},
+              {"id": "ORDER3", "value": "150.00", "promotions": ["mZysk", "BosBankrut"]},
+              {"id": "ORDER4", "value": "50.00"}
+            ]
+            """;
+    private static final String EXAMPLE_METHODS = """
+            [
+              {"id": "PUNKTY", "discount": "15", "limit": "100.00"},
+              {"id": "mZysk", "discount": "10", "limit": "180.00"},
+              {"id": "BosBankrut", "discount": "5", "limit": "200.00"}
+            ]
+            """;
+    private static final List<String> EXAMPLE_RESULTS = List.of("PUNKTY 100.00", "mZysk 165.00", "BosBankrut 190.00");
+
+    @TempDir
+    Path directory;
+
+    private void writeCustomer(String customer, String orders, String methods) throws IOException {
+        Path customerDirectory = Files.createDirectories(directory.resolve("in").resolve(customer));
+        Files.writeString(customerDirectory.resolve(BatchRunner.ORDERS_FILE), orders);
+        Files.writeString(customerDirectory.resolve(BatchRunner.PAYMENT_METHODS_FILE), methods);
+    }
+
+    @Test
+    @DisplayName("Should optimize every customer of a directory and report failures separately")
+    void runsDirectoryBatch() throws IOException, InterruptedException {
+        for (int i = 0; i < 50; i++) {
+            writeCustomer("customer" + i, EXAMPLE_ORDERS, EXAMPLE_METHODS);
+        }
+        writeCustomer("unpayable", "[{\"id\": \"ORDER1\", \"value\": \"100.00\"}]",
+                "[{\"id\": \"CardA\", \"discount\": \"0\", \"limit\": \"50.00\"}]");
+        writeCustomer("malformed", "[{", EXAMPLE_METHODS);
+        Files.createDirectories(directory.resolve("in").resolve("incomplete"));
+
+        List<BatchJob> jobs = BatchRunner.loadJobs(directory.resolve("in"));
+        assertEquals(52, jobs.size());
+
+        Path output = directory.resolve("out");
+        BatchRunner.Summary summary = new BatchRunner(4, BatchRunner.parseSize("64m")).run(jobs, output);
+
+        assertEquals(50, summary.succeeded());
+        assertEquals(2, summary.failures().size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(EXAMPLE_RESULTS, Files.readAllLines(output.resolve("customer" + i + ".txt")));
+        }
+        assertTrue(Files.readString(output.resolve("unpayable.error")).contains("ORDER1"));
+        assertTrue(Files.exists(output.resolve("malformed.error")));
+        assertFalse(Files.exists(output.resolve("unpayable.txt")));
+    }
+
+    @Test
+    @DisplayName("Should resolve manifest paths against the manifest directory")
+    void runsManifestBatch() throws IOException, InterruptedException {
+        writeCustomer("a", EXAMPLE_ORDERS, EXAMPLE_METHODS);
+        Files.writeString(directory.resolve("manifest.txt"), """
+                # customer orders methods
+                first  in/a/orders.json in/a/paymentmethods.json
+
+                second in/a/orders.json in/a/paymentmethods.json
+                """);
+
+        List<BatchJob> jobs = BatchRunner.loadJobs(directory.resolve("manifest.txt"));
+        // A ceiling smaller than one job still runs the jobs, one at a time
+        BatchRunner.Summary summary = new BatchRunner(2, BatchRunner.parseSize("1m")).run(jobs, directory.resolve("out"));
+
+        assertEquals(List.of("first", "second"), jobs.stream().map(BatchJob::customer).toList());
+        assertEquals(2, summary.succeeded());
+        assertEquals(EXAMPLE_RESULTS, Files.readAllLines(directory.resolve("out").resolve("second.txt")));
+    }
+
+    @Test
+    @DisplayName("Should reject invalid manifests and options")
+    void rejectsInvalidInput() throws IOException {
+        Files.writeString(directory.resolve("short.txt"), "customer orders.json\n");
+        Files.writeString(directory.resolve("duplicate.txt"), "a o.json p.json\na o.json p.json\n");
+        Files.writeString(directory.resolve("escape.txt"), "../a o.json p.json\n");
+
+        assertThrows(IOException.class, () -> BatchRunner.readManifest(directory.resolve("short.txt")));
+        assertThrows(IOException.class, () -> BatchRunner.readManifest(directory.resolve("duplicate.txt")));
+        assertThrows(IOException.class, () -> BatchRunner.readManifest(directory.resolve("escape.txt")));
+        assertThrows(IllegalArgumentException.class, () -> new BatchRunner(0, BatchRunner.parseSize("1g")));
+        assertThrows(IllegalArgumentException.class, () -> BatchRunner.parseSize("12x"));
+        assertEquals(3L << 30, BatchRunner.parseSize("3G"));
+        assertEquals(512, BatchRunner.parseSize("512"));
+    }
+}
@@ -0,0 +1,105 @@
+package pl.edu.agh.kis.pz1.binary;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.edu.agh.kis.pz1.domain.MethodDictionary;
+import pl.edu.agh.kis.pz1.domain.OrderTable;
+import pl.edu.agh.kis.pz1.domain.PaymentCatalog;
+import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+import pl.edu.agh.kis.pz1.domain.Result;
+import pl.edu.agh.kis.pz1.generator.WorkloadGenerator;
+import pl.edu.agh.kis.pz1.generator.WorkloadSpec;
+import pl.edu.agh.kis.pz1.optimizer.PaymentOptimizer;
+import pl.edu.agh.kis.pz1.utils.JsonParser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryOrderReaderTest {
+
+    @TempDir
+    Path directory;
+
+    private static final String EXAMPLE_ORDERS = """
+            [
+              {"id": "ORDER1", "value": "100.00", "promotions": ["mZysk"]},
+              {"id": "ORDER2", "value": "200.00", "promotions": ["BosBankrut"]},
+              {"id": "ZAMÓWIENIE3", "value": "150.00", "promotions": ["mZysk", "BosBankrut", "Unknown"]},
+              {"id": "ORDER4", "value": "50.00"}
+            ]
+            """;
+
+    private Path convert(String json) throws IOException {
+        Path ordersJson = Files.writeString(directory.resolve("orders.json"), json);
+        Path binary = directory.resolve("orders.bin");
+        BinaryOrderWriter.convert(ordersJson, binary);
+        return binary;
+    }
+
+    @Test
+    @DisplayName("Should read back the orders of the JSON file, remapping promotions to the given methods")
+    void roundTripsExample() throws IOException {
+        Path binary = convert(EXAMPLE_ORDERS);
+        assertTrue(BinaryOrderReader.isBinary(binary));
+        assertFalse(BinaryOrderReader.isBinary(directory.resolve("orders.json")));
+
+        MethodDictionary dictionary = new MethodDictionary(List.of("PUNKTY", "BosBankrut", "mZysk"));
+        OrderTable table = BinaryOrderReader.read(binary, dictionary);
+
+        assertEquals(4, table.size());
+        assertEquals("ZAMÓWIENIE3", table.getId(2));
+        assertEquals(15000, table.getValueCents(2));
+        assertEquals(1, table.nextPromotion(2, 0));
+        assertEquals(2, table.nextPromotion(2, 2));
+        assertEquals(-1, table.nextPromotion(2, 3));
+        assertEquals(2, table.nextPromotion(0, 0));
+        assertEquals(-1, table.nextPromotion(3, 0));
+        assertFalse(table.isPaid(0));
+        assertEquals(3, table.indexOf("ORDER4"));
+    }
+
+    @Test
+    @DisplayName("Should optimize a binary workload to the same results as its JSON source")
+    void matchesJsonResults() throws IOException, Exception {
+        Path ordersJson = directory.resolve("generated.json");
+        Path methodsJson = directory.resolve("generated-methods.json");
+        new WorkloadGenerator(WorkloadSpec.builder().seed(7).orderCount(5_000).methodCount(70).build())
+                .generate(ordersJson, methodsJson);
+        Path binary = directory.resolve("generated.bin");
+        BinaryOrderWriter.convert(ordersJson, binary);
+
+        List<PaymentMethod> methods = JsonParser.parsePaymentMethods(methodsJson.toString());
+        PaymentCatalog catalog = PaymentCatalog.of(methods);
+        List<Result> fromJson = new PaymentOptimizer(JsonParser.parseOrders(ordersJson.toString()), catalog).optimize();
+        List<Result> fromBinary = new PaymentOptimizer(BinaryOrderReader.read(binary, catalog.getDictionary()), catalog).optimize();
+
+        assertEquals(fromJson.stream().map(Result::toString).toList(), fromBinary.stream().map(Result::toString).toList());
+    }
+
+    @Test
+    @DisplayName("Should reject truncated and corrupt files")
+    void rejectsCorruptFiles() throws IOException {
+        Path binary = convert(EXAMPLE_ORDERS);
+        MethodDictionary dictionary = new MethodDictionary(List.of("PUNKTY", "mZysk", "BosBankrut"));
+
+        Path truncated = directory.resolve("truncated.bin");
+        byte[] bytes = Files.readAllBytes(binary);
+        Files.write(truncated, java.util.Arrays.copyOf(bytes, bytes.length - 3));
+        assertThrows(IOException.class, () -> BinaryOrderReader.read(truncated, dictionary));
+
+        try (FileChannel channel = FileChannel.open(binary, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(Short.BYTES).order(ByteOrder.LITTLE_ENDIAN).putShort(0, (short) 9), 4);
+        }
+        assertThrows(IOException.class, () -> BinaryOrderReader.read(binary, dictionary));
+        assertThrows(IOException.class, () -> BinaryOrderReader.read(directory.resolve("orders.json"), dictionary));
+    }
+}
@@ -0,0 +1,164 @@
+package pl.edu.agh.kis.pz1.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+import pl.edu.agh.kis.pz1.domain.Result;
+import pl.edu.agh.kis.pz1.optimizer.NotFoundPaymentsException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultCacheTest {
+
+    @TempDir
+    Path directory;
+
+    private PaymentMethod createMethod(String id, int discount, String limit) {
+        PaymentMethod method = new PaymentMethod(id, discount, new BigDecimal(limit), null, BigDecimal.ZERO);
+        method.initializeRemainingLimit();
+        return method;
+    }
+
+    private Order createOrder(String id, String value, List<String> promotions) {
+        Order order = new Order(id, new BigDecimal(value), promotions, false, null);
+        order.initializeRemainingValue();
+        return order;
+    }
+
+    private List<Order> exampleOrders() {
+        return List.of(
+                createOrder("ORDER1", "100.00", List.of("mZysk")),
+                createOrder("ORDER2", "200.00", List.of("BosBankrut")),
+                createOrder("ORDER3", "150.00", List.of("mZysk", "BosBankrut")),
+                createOrder("ORDER4", "50.00", null));
+    }
+
+    private List<PaymentMethod> exampleMethods() {
+        return List.of(
+                createMethod("PUNKTY", 15, "100.00"),
+                createMethod("mZysk", 10, "180.00"),
+                createMethod("BosBankrut", 5, "200.00"));
+    }
+
+    private static List<String> lines(List<Result> results) {
+        return results.stream().map(Result::toString).toList();
+    }
+
+    @Test
+    @DisplayName("Should hash inputs independently of the order of promotions, but not of orders and methods")
+    void keyIgnoresPromotionOrder() {
+        List<Order> samePromotions = new ArrayList<>(exampleOrders());
+        samePromotions.set(2, createOrder("ORDER3", "150.0", List.of("BosBankrut", "mZysk", "mZysk")));
+
+        String key = ResultCache.key(exampleOrders(), exampleMethods());
+        assertEquals(64, key.length());
+        assertEquals(key, ResultCache.key(samePromotions, exampleMethods()));
+        samePromotions.set(2, createOrder("ORDER3", "150.0", Arrays.asList("BosBankrut", null, "mZysk")));
+        assertEquals(key, ResultCache.key(samePromotions, exampleMethods()));
+
+        // The order of orders and methods decides tie-breaks and card choices, so it is part of the key
+        List<Order> reversedOrders = new ArrayList<>(exampleOrders());
+        Collections.reverse(reversedOrders);
+        List<PaymentMethod> reversedMethods = new ArrayList<>(exampleMethods());
+        Collections.reverse(reversedMethods);
+        assertNotEquals(key, ResultCache.key(reversedOrders, exampleMethods()));
+        assertNotEquals(key, ResultCache.key(exampleOrders(), reversedMethods));
+
+        List<PaymentMethod> otherLimit = new ArrayList<>(exampleMethods());
+        otherLimit.set(0, createMethod("PUNKTY", 15, "100.01"));
+        assertNotEquals(key, ResultCache.key(exampleOrders(), otherLimit));
+        assertNotEquals(key, ResultCache.key(exampleOrders().subList(0, 3), exampleMethods()));
+    }
+
+    @Test
+    @DisplayName("Should answer repeated inputs from the cache and optimize permuted ones as given")
+    void answersHitsFromCache() throws NotFoundPaymentsException {
+        ResultCache cache = new ResultCache(10);
+
+        assertEquals(List.of("PUNKTY 100.00", "mZysk 165.00", "BosBankrut 190.00"), lines(cache.optimize(exampleOrders(), exampleMethods())));
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        assertEquals(List.of("PUNKTY 100.00", "mZysk 165.00", "BosBankrut 190.00"), lines(cache.optimize(exampleOrders(), exampleMethods())));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.size());
+
+        // Base payments take the first card with enough limit, so the method order can change the results
+        List<PaymentMethod> cards = List.of(createMethod("CardB", 0, "100.00"), createMethod("CardA", 0, "100.00"));
+        List<Order> order = List.of(createOrder("ORDER1", "50.00", null));
+        assertEquals(List.of("CardB 50.00"), lines(cache.optimize(order, cards)));
+        assertEquals(List.of("CardA 50.00"), lines(cache.optimize(order, List.of(cards.get(1), cards.get(0)))));
+        assertEquals(List.of("CardB 50.00"), lines(cache.optimize(order, cards)));
+        assertEquals(2, cache.getHits());
+        assertEquals(3, cache.size());
+
+        // Failures are not cached
+        List<Order> unpayable = List.of(createOrder("ORDER1", "1000.00", null));
+        assertThrows(NotFoundPaymentsException.class, () -> cache.optimize(unpayable, exampleMethods()));
+        assertThrows(NotFoundPaymentsException.class, () -> cache.optimize(unpayable, exampleMethods()));
+        assertEquals(5, cache.getMisses());
+        assertEquals(3, cache.size());
+        assertThrows(IllegalArgumentException.class, () -> new ResultCache(0));
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used entry")
+    void evictsLeastRecentlyUsed() throws NotFoundPaymentsException {
+        ResultCache cache = new ResultCache(2);
+        List<PaymentMethod> methods = List.of(createMethod("CardA", 0, "1000.00"));
+        List<Order> first = List.of(createOrder("A", "1.00", null));
+        List<Order> second = List.of(createOrder("B", "2.00", null));
+        List<Order> third = List.of(createOrder("C", "3.00", null));
+
+        cache.optimize(first, methods);
+        cache.optimize(second, methods);
+        cache.optimize(first, methods);
+        cache.optimize(third, methods);
+        assertEquals(1, cache.getEvictions());
+
+        // The second input was least recently used
+        cache.optimize(first, methods);
+        assertEquals(2, cache.getHits());
+        cache.optimize(second, methods);
+        assertEquals(4, cache.getMisses());
+        assertEquals(2, cache.getEvictions());
+    }
+
+    @Test
+    @DisplayName("Should persist entries and reload the most recent ones")
+    void persistsEntries() throws NotFoundPaymentsException, IOException {
+        ResultCache cache = new ResultCache(2, directory);
+        List<PaymentMethod> methods = List.of(createMethod("CardA", 0, "1000.00"));
+        for (String id : List.of("A", "B", "C")) {
+            cache.optimize(List.of(createOrder(id, "1.50", null)), methods);
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count());
+        }
+        // The newest entry is kept on reload; make it newer than the file system's timestamp resolution
+        Path newest = directory.resolve(ResultCache.key(List.of(createOrder("C", "1.50", null)), methods) + ".txt");
+        Files.setLastModifiedTime(newest, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+
+        ResultCache reloaded = new ResultCache(1, directory);
+        assertEquals(1, reloaded.size());
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count());
+        }
+        assertEquals(List.of("CardA 1.50"), lines(reloaded.optimize(List.of(createOrder("C", "1.50", null)), methods)));
+        assertEquals(1, reloaded.getHits());
+        assertEquals(0, reloaded.getMisses());
+    }
+}
@@ -0,0 +1,48 @@
+package pl.edu.agh.kis.pz1.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MethodDictionaryTest {
+
+    @Test
+    @DisplayName("Interns method IDs into dense indices and separates PUNKTY from cards")
+    void internsIds() {
+        MethodDictionary dictionary = new MethodDictionary(Arrays.asList("mZysk", "PUNKTY", "BosBankrut"));
+
+        assertEquals(3, dictionary.size());
+        assertEquals(0, dictionary.indexOf("mZysk"));
+        assertEquals(2, dictionary.indexOf("BosBankrut"));
+        assertEquals(-1, dictionary.indexOf("unknown"));
+        assertEquals(1, dictionary.getPointsIndex());
+        assertTrue(dictionary.isCard(0));
+        assertFalse(dictionary.isCard(1));
+        assertEquals(2, dictionary.cardCount());
+        assertEquals(1, dictionary.getMaskWords());
+    }
+
+    @Test
+    @DisplayName("Uses several mask words beyond 64 methods and rejects duplicates")
+    void handlesWideDictionaries() {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add("CARD" + i);
+        }
+        ids.add(70, "PUNKTY");
+        MethodDictionary dictionary = new MethodDictionary(ids);
+
+        assertEquals(2, dictionary.getMaskWords());
+        assertEquals(70, dictionary.getPointsIndex());
+        assertFalse(dictionary.isCard(70));
+        assertTrue(dictionary.isCard(100));
+
+        List<String> duplicates = Arrays.asList("CardA", "CardA");
+        assertThrows(IllegalArgumentException.class, () -> new MethodDictionary(duplicates));
+    }
+}
@@ -0,0 +1,103 @@
+package pl.edu.agh.kis.pz1.domain;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderTableTest {
+
+    private Order createOrder(String id, String value, List<String> promotions) {
+        Order order = new Order(id, new BigDecimal(value), promotions, false, null);
+        order.initializeRemainingValue();
+        return order;
+    }
+
+    @Test
+    @DisplayName("Converts orders to columns and back")
+    void roundTripsOrders() {
+        List<String> methodIds = Arrays.asList("PUNKTY", "mZysk", "BosBankrut");
+        List<Order> orders = Arrays.asList(
+                createOrder("ORDER1", "100.00", Collections.singletonList("mZysk")),
+                createOrder("ORDER2", "150.50", Arrays.asList("BosBankrut", "unknown", "mZysk")),
+                createOrder("ORDER3", "50.00", null)
+        );
+
+        OrderTable table = OrderTable.fromOrders(orders, methodIds);
+
+        assertEquals(3, table.size());
+        assertEquals(15050, table.getValueCents(1));
+        assertTrue(table.hasPromotion(1, 1));
+        assertTrue(table.hasPromotion(1, 2));
+        assertFalse(table.hasPromotion(1, 0));
+        assertEquals(-1, table.nextPromotion(2, 0));
+        assertEquals(1, table.indexOf("ORDER2"));
+        assertEquals(-1, table.indexOf("ORDER9"));
+
+        table.markAsPaid(0);
+        List<Order> converted = table.toOrders();
+
+        assertEquals("ORDER2", converted.get(1).getId());
+        assertEquals(0, new BigDecimal("150.50").compareTo(converted.get(1).getValue()));
+        assertEquals(Arrays.asList("mZysk", "BosBankrut"), converted.get(1).getPromotions());
+        assertTrue(converted.get(0).isPaid());
+        assertEquals(0, BigDecimal.ZERO.compareTo(converted.get(0).getRemainingValueToPay()));
+        assertFalse(converted.get(2).isPaid());
+    }
+
+    @Test
+    @DisplayName("Supports more than 64 payment methods and grows beyond its initial capacity")
+    void supportsWideMasksAndGrowth() {
+        List<String> methodIds = new ArrayList<>();
+        for (int i = 0; i < 130; i++) {
+            methodIds.add("CARD" + i);
+        }
+        OrderTable table = new OrderTable(methodIds);
+
+        for (int i = 0; i < 100; i++) {
+            table.add("ORDER" + i, i, Arrays.asList("CARD3", "CARD64", "CARD129"), false);
+        }
+
+        assertEquals(100, table.size());
+        assertEquals(99, table.getValueCents(99));
+        assertEquals(3, table.nextPromotion(99, 0));
+        assertEquals(64, table.nextPromotion(99, 4));
+        assertEquals(129, table.nextPromotion(99, 65));
+        assertEquals(-1, table.nextPromotion(99, 130));
+        assertEquals(99, table.indexOf("ORDER99"));
+    }
+
+    @Test
+    @DisplayName("Appends orders with raw promotion masks, also from an empty initial capacity")
+    void addsRawMasks() {
+        MethodDictionary dictionary = new MethodDictionary(Arrays.asList("PUNKTY", "mZysk", "BosBankrut"));
+        OrderTable table = new OrderTable(dictionary, 0);
+
+        table.addMasked("ORDER1", 100, new long[]{0b110}, true);
+        table.addMasked("ORDER2", 200, new long[]{0}, false);
+
+        assertEquals(2, table.size());
+        assertTrue(table.isPaid(0));
+        assertEquals(1, table.nextPromotion(0, 0));
+        assertEquals(2, table.nextPromotion(0, 2));
+        assertEquals(-1, table.nextPromotion(1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new OrderTable(dictionary, -1));
+    }
+
+    @Test
+    @DisplayName("Skips PUNKTY when iterating promoted cards")
+    void iteratesCardPromotions() {
+        OrderTable table = new OrderTable(Arrays.asList("mZysk", "PUNKTY", "BosBankrut"));
+        int row = table.add("ORDER1", 100, Arrays.asList("PUNKTY", "BosBankrut"), false);
+
+        assertEquals(1, table.nextPromotion(row, 0));
+        assertEquals(2, table.nextCardPromotion(row, 0));
+        assertEquals(-1, table.nextCardPromotion(row, 3));
+    }
+}
@@ -0,0 +1,33 @@
+package pl.edu.agh.kis.pz1.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentCatalogTest {
+
+    @Test
+    void snapshotsRemainingLimits() {
+        PaymentMethod points = new PaymentMethod("PUNKTY", 15, new BigDecimal("100.00"), null, BigDecimal.ZERO);
+        points.initializeRemainingLimit();
+        PaymentMethod card = new PaymentMethod("CardA", 5, new BigDecimal("200.00"), null, BigDecimal.ZERO);
+        card.initializeRemainingLimit();
+        card.deductLimitCents(5000);
+
+        PaymentCatalog catalog = PaymentCatalog.of(List.of(points, card));
+        card.deductLimitCents(1000);
+
+        assertEquals(2, catalog.size());
+        assertEquals(0, catalog.getPointsIndex());
+        assertEquals("CardA", catalog.getId(1));
+        assertEquals(5, catalog.getDiscount(1));
+        assertEquals(15000, catalog.getRemainingLimitCents(1));
+
+        long[] ledger = catalog.copyRemainingLimitsCents();
+        ledger[0] = 0;
+        assertEquals(10000, catalog.getRemainingLimitCents(0));
+    }
+}
@@ -24,4 +24,19 @@ class PaymentMethodTest {
         assertEquals(paymentMethod.getTotalSpent(), new BigDecimal(500));
 
     }
+
+    @Test
+    @DisplayName("Keeps the cents ledger in sync and publishes it with syncFromCents")
+    void tracksCentsLedger() {
+        PaymentMethod paymentMethod = new PaymentMethod("200", 20, new BigDecimal("20.50"), null, BigDecimal.ZERO);
+        paymentMethod.initializeRemainingLimit();
+        assertEquals(2050, paymentMethod.getRemainingLimitCents());
+
+        paymentMethod.deductLimitCents(1025);
+        paymentMethod.addSpentCents(1025);
+        paymentMethod.syncFromCents();
+
+        assertEquals(new BigDecimal("10.25"), paymentMethod.getRemainingLimit());
+        assertEquals(new BigDecimal("10.25"), paymentMethod.getTotalSpent());
+    }
 }
@@ -0,0 +1,118 @@
+package pl.edu.agh.kis.pz1.generator;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+import pl.edu.agh.kis.pz1.optimizer.NotFoundPaymentsException;
+import pl.edu.agh.kis.pz1.optimizer.PaymentOptimizer;
+import pl.edu.agh.kis.pz1.utils.JsonParser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkloadGeneratorTest {
+
+    @TempDir
+    Path directory;
+
+    private List<Order> orders;
+    private List<PaymentMethod> methods;
+
+    private void generate(WorkloadSpec spec) throws IOException {
+        Path ordersPath = directory.resolve("orders.json");
+        Path methodsPath = directory.resolve("paymentmethods.json");
+        new WorkloadGenerator(spec).generate(ordersPath, methodsPath);
+        orders = JsonParser.parseOrders(ordersPath.toString());
+        methods = JsonParser.parsePaymentMethods(methodsPath.toString());
+    }
+
+    @Test
+    @DisplayName("Generated files should be readable by JsonParser and respect the specification")
+    void writesParsableWorkload() throws IOException {
+        WorkloadSpec spec = WorkloadSpec.builder()
+                .orderCount(2000)
+                .methodCount(6)
+                .valueDistribution(ValueDistribution.LOG_NORMAL)
+                .minValue(new BigDecimal("10.00"))
+                .maxValue(new BigDecimal("500.00"))
+                .minDiscount(3)
+                .maxDiscount(7)
+                .build();
+        generate(spec);
+
+        assertEquals(2000, orders.size());
+        assertEquals(6, methods.size());
+        assertEquals("PUNKTY", methods.get(0).getId());
+
+        Set<String> cardIds = methods.stream().skip(1).map(PaymentMethod::getId).collect(Collectors.toSet());
+        for (Order order : orders) {
+            assertTrue(order.getValue().compareTo(new BigDecimal("10.00")) >= 0);
+            assertTrue(order.getValue().compareTo(new BigDecimal("500.00")) <= 0);
+            assertTrue(cardIds.containsAll(order.getPromotions()));
+        }
+        for (PaymentMethod method : methods) {
+            assertTrue(method.getDiscount() >= 3 && method.getDiscount() <= 7);
+        }
+    }
+
+    @Test
+    @DisplayName("The same seed should produce identical files")
+    void isDeterministic() throws IOException {
+        WorkloadSpec spec = WorkloadSpec.builder().seed(7).orderCount(500).valueDistribution(ValueDistribution.PARETO).build();
+
+        ByteArrayOutputStream firstOrders = new ByteArrayOutputStream();
+        ByteArrayOutputStream firstMethods = new ByteArrayOutputStream();
+        new WorkloadGenerator(spec).generate(firstOrders, firstMethods);
+        ByteArrayOutputStream secondOrders = new ByteArrayOutputStream();
+        ByteArrayOutputStream secondMethods = new ByteArrayOutputStream();
+        new WorkloadGenerator(spec).generate(secondOrders, secondMethods);
+
+        assertArrayEquals(firstOrders.toByteArray(), secondOrders.toByteArray());
+        assertArrayEquals(firstMethods.toByteArray(), secondMethods.toByteArray());
+
+        ByteArrayOutputStream otherSeed = new ByteArrayOutputStream();
+        new WorkloadGenerator(spec.toBuilder().seed(8).build()).generate(otherSeed, new ByteArrayOutputStream());
+        assertFalse(Arrays.equals(firstOrders.toByteArray(), otherSeed.toByteArray()));
+    }
+
+    @Test
+    @DisplayName("Card limits with slack 1.0 should exactly cover the order values")
+    void barelyFeasibleLimitsCoverAllOrders() throws IOException {
+        generate(WorkloadSpec.builder().orderCount(1000).methodCount(5).limitSlack(1.0).pointsShare(0).build());
+
+        BigDecimal totalOrders = orders.stream().map(Order::getValue).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal totalCardLimits = methods.stream().skip(1).map(PaymentMethod::getLimit).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, totalOrders.compareTo(totalCardLimits));
+        assertEquals(0, methods.get(0).getLimit().signum());
+    }
+
+    @Test
+    @DisplayName("Loose limits should let the optimizer pay every order")
+    void looseLimitsAreOptimizable() throws IOException, NotFoundPaymentsException {
+        generate(WorkloadSpec.builder().orderCount(3000).methodCount(8).limitSlack(4.0).build());
+
+        assertFalse(new PaymentOptimizer(orders, methods).optimize().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Invalid specifications should be rejected")
+    void rejectsInvalidSpec() {
+        WorkloadSpec noCards = WorkloadSpec.builder().methodCount(1).build();
+        WorkloadSpec tightLimits = WorkloadSpec.builder().limitSlack(0.5).build();
+        WorkloadSpec invertedValues = WorkloadSpec.builder().minValue(BigDecimal.TEN).maxValue(BigDecimal.ONE).build();
+
+        assertThrows(IllegalArgumentException.class, () -> new WorkloadGenerator(noCards));
+        assertThrows(IllegalArgumentException.class, () -> new WorkloadGenerator(tightLimits));
+        assertThrows(IllegalArgumentException.class, () -> new WorkloadGenerator(invertedValues));
+    }
+}
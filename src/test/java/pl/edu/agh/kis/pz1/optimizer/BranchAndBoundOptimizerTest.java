@@ -0,0 +1,170 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+import org.junit.jupiter.api.Test;
+
+import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+import pl.edu.agh.kis.pz1.domain.Result;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class BranchAndBoundOptimizerTest {
+
+    private PaymentMethod createMethod(String id, int discount, String limit) {
+        PaymentMethod method = new PaymentMethod(id, discount, new BigDecimal(limit), null, BigDecimal.ZERO);
+        method.initializeRemainingLimit();
+        return method;
+    }
+
+    private Order createOrder(String id, String value, List<String> promotions) {
+        Order order = new Order(id, new BigDecimal(value), promotions, false, null);
+        order.initializeRemainingValue();
+        return order;
+    }
+
+    private BigDecimal totalSpent(List<Result> results) {
+        return results.stream().map(Result::getAmountSpend).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Test
+    void improvesOnGreedyDiscount() throws NotFoundPaymentsException {
+        // The greedy gives PUNKTY to ORDER1, which leaves ORDER2 without any discount
+        List<Order> orders = List.of(
+                createOrder("ORDER1", "100.00", List.of("CardA")),
+                createOrder("ORDER2", "100.00", List.of()));
+        List<PaymentMethod> methods = List.of(
+                createMethod("PUNKTY", 15, "85.00"),
+                createMethod("CardA", 10, "90.00"),
+                createMethod("CardB", 0, "100.00"));
+
+        BranchAndBoundOptimizer optimizer = new BranchAndBoundOptimizer(orders, methods);
+        Map<String, BigDecimal> spent = optimizer.optimize(Duration.ofSeconds(5)).stream()
+                .collect(Collectors.toMap(Result::getMethodId, Result::getAmountSpend));
+
+        assertEquals(Map.of("PUNKTY", new BigDecimal("85.00"), "CardA", new BigDecimal("90.00")), spent);
+        assertTrue(optimizer.isSearchComplete());
+    }
+
+    @Test
+    void leavesInputUnchangedAcrossRepeatedCalls() throws NotFoundPaymentsException {
+        List<Order> orders = List.of(
+                createOrder("ORDER1", "100.00", List.of("CardA")),
+                createOrder("ORDER2", "100.00", List.of()));
+        List<PaymentMethod> methods = List.of(
+                createMethod("PUNKTY", 15, "85.00"),
+                createMethod("CardA", 10, "90.00"),
+                createMethod("CardB", 0, "100.00"));
+
+        BranchAndBoundOptimizer optimizer = new BranchAndBoundOptimizer(orders, methods);
+        String first = optimizer.optimize(Duration.ofSeconds(5)).toString();
+        String second = optimizer.optimize(Duration.ofSeconds(5)).toString();
+
+        assertEquals(first, second);
+        assertTrue(orders.stream().noneMatch(Order::isPaid));
+        assertEquals(0, new BigDecimal("85.00").compareTo(methods.get(0).getRemainingLimit()));
+        assertEquals(0, new BigDecimal("90.00").compareTo(methods.get(1).getRemainingLimit()));
+        assertEquals(0, new BigDecimal("100.00").compareTo(methods.get(2).getRemainingLimit()));
+    }
+
+    @Test
+    void paysOrdersTheGreedyCannotPay() throws NotFoundPaymentsException {
+        // First fit puts the small order on the large card, so the greedy cannot pay the large order
+        List<Order> orders = List.of(
+                createOrder("ORDER1", "50.00", null),
+                createOrder("ORDER2", "100.00", null));
+        List<PaymentMethod> methods = List.of(
+                createMethod("CardA", 0, "100.00"),
+                createMethod("CardB", 0, "50.00"));
+
+        PaymentOptimizer greedy = new PaymentOptimizer(List.of(
+                createOrder("ORDER1", "50.00", null),
+                createOrder("ORDER2", "100.00", null)), List.of(
+                createMethod("CardA", 0, "100.00"),
+                createMethod("CardB", 0, "50.00")));
+        assertThrows(NotFoundPaymentsException.class, greedy::optimize);
+
+        List<Result> results = new BranchAndBoundOptimizer(orders, methods).optimize(Duration.ofSeconds(5));
+
+        assertEquals(2, results.size());
+        assertEquals(0, new BigDecimal("150.00").compareTo(totalSpent(results)));
+    }
+
+    @Test
+    void throwsWhenNoAllocationExists() {
+        List<Order> orders = List.of(createOrder("ORDER1", "100.00", null));
+        List<PaymentMethod> methods = List.of(createMethod("CardA", 0, "50.00"));
+
+        BranchAndBoundOptimizer optimizer = new BranchAndBoundOptimizer(orders, methods);
+
+        assertThrows(NotFoundPaymentsException.class, () -> optimizer.optimize(Duration.ofSeconds(5)));
+        assertTrue(optimizer.isSearchComplete());
+    }
+
+    @Test
+    void returnsAtLeastGreedyQualityWithinBudget() throws NotFoundPaymentsException {
+        Random random = new Random(11);
+        List<Order> greedyOrders = new ArrayList<>();
+        List<Order> searchOrders = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            List<String> promotions = random.nextBoolean() ? List.of("CardA") : List.of("CardB");
+            String value = BigDecimal.valueOf(100 + random.nextInt(100_000), 2).toPlainString();
+            greedyOrders.add(createOrder("ORDER" + i, value, promotions));
+            searchOrders.add(createOrder("ORDER" + i, value, promotions));
+        }
+
+        BigDecimal greedySpent = totalSpent(new PaymentOptimizer(greedyOrders, methodsForBudgetTest()).optimize());
+
+        long start = System.nanoTime();
+        BranchAndBoundOptimizer optimizer = new BranchAndBoundOptimizer(searchOrders, methodsForBudgetTest());
+        BigDecimal searchSpent = totalSpent(optimizer.optimize(Duration.ofMillis(300)));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 3000, "Search should stop close to its budget, took " + elapsedMillis + " ms");
+        assertTrue(searchSpent.compareTo(greedySpent) <= 0);
+    }
+
+    @Test
+    void searchesQuicklyWithManyCards() {
+        // First fit puts the small order on the only card large enough for the big one. The other orders
+        // fit any of 3000 cards with different limits, in shuffled order
+        List<PaymentMethod> methods = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            methods.add(createMethod("Card" + i, 0, (1000 + i) + ".00"));
+        }
+        Collections.shuffle(methods, new Random(5));
+        methods.addFirst(createMethod("Tight", 0, "5000.00"));
+
+        List<Order> orders = new ArrayList<>();
+        orders.add(createOrder("SMALL", "10.00", null));
+        orders.add(createOrder("BIG", "5000.00", null));
+        for (int i = 0; i < 3000; i++) {
+            orders.add(createOrder("ORDER" + i, "500.00", null));
+        }
+
+        assertThrows(NotFoundPaymentsException.class, () -> new PaymentOptimizer(orders, methods).optimize());
+
+        BranchAndBoundOptimizer optimizer = new BranchAndBoundOptimizer(orders, methods);
+        List<Result> results = assertDoesNotThrow(() -> optimizer.optimize(Duration.ofSeconds(10)));
+
+        assertTrue(optimizer.isSearchComplete());
+        assertEquals(0, new BigDecimal("1505010.00").compareTo(totalSpent(results)));
+    }
+
+    private List<PaymentMethod> methodsForBudgetTest() {
+        return List.of(
+                createMethod("PUNKTY", 15, "5000.00"),
+                createMethod("CardA", 10, "20000.00"),
+                createMethod("CardB", 5, "20000.00"),
+                createMethod("Spare", 0, "1000000.00"));
+    }
+}
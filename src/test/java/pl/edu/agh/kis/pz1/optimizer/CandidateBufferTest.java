@@ -0,0 +1,90 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CandidateBufferTest {
+
+    private record Candidate(int row, int method, long discount) {
+    }
+
+    private static final Comparator<Candidate> GREEDY_ORDER =
+            Comparator.comparingLong(Candidate::discount).reversed()
+                    .thenComparingInt(Candidate::row)
+                    .thenComparingInt(Candidate::method);
+
+    @Test
+    @DisplayName("Radix sort should order candidates by discount descending, then row and method")
+    void sortsLikeComparator() {
+        Random random = new Random(7);
+        CandidateBuffer buffer = new CandidateBuffer();
+        List<Candidate> expected = new ArrayList<>();
+
+        for (int row = 0; row < 20_000; row++) {
+            for (int method = 0; method < 4; method++) {
+                if (random.nextInt(3) == 0) {
+                    // Mix small discounts (many ties) with ones needing several radix digits
+                    long discount = random.nextBoolean() ? 1 + random.nextInt(50) : 1 + random.nextLong(1L << 40);
+                    buffer.add(row, method, discount);
+                    expected.add(new Candidate(row, method, discount));
+                }
+            }
+        }
+        expected.sort(GREEDY_ORDER);
+        buffer.sortByDiscountDescending();
+
+        assertBufferEquals(expected, buffer);
+    }
+
+    @Test
+    @DisplayName("Merging sorted buffers should keep candidates of the first buffer first on ties")
+    void mergesStably() {
+        CandidateBuffer first = new CandidateBuffer();
+        first.add(0, 1, 500);
+        first.add(1, 0, 300);
+        first.add(2, 2, 300);
+        CandidateBuffer second = new CandidateBuffer();
+        second.add(3, 0, 700);
+        second.add(4, 1, 300);
+        second.add(5, 0, 100);
+        first.sortByDiscountDescending();
+        second.sortByDiscountDescending();
+
+        CandidateBuffer merged = CandidateBuffer.merge(first, second);
+
+        assertBufferEquals(List.of(
+                new Candidate(3, 0, 700),
+                new Candidate(0, 1, 500),
+                new Candidate(1, 0, 300),
+                new Candidate(2, 2, 300),
+                new Candidate(4, 1, 300),
+                new Candidate(5, 0, 100)), merged);
+    }
+
+    @Test
+    @DisplayName("Merging with an empty buffer should return the other buffer's candidates")
+    void mergesWithEmptyBuffer() {
+        CandidateBuffer buffer = new CandidateBuffer();
+        buffer.add(1, 2, 42);
+
+        assertBufferEquals(List.of(new Candidate(1, 2, 42)), CandidateBuffer.merge(new CandidateBuffer(), buffer));
+        assertBufferEquals(List.of(new Candidate(1, 2, 42)), CandidateBuffer.merge(buffer, new CandidateBuffer()));
+    }
+
+    private static void assertBufferEquals(List<Candidate> expected, CandidateBuffer buffer) {
+        assertEquals(expected.size(), buffer.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Candidate candidate = expected.get(i);
+            assertEquals(candidate.discount(), buffer.getDiscount(i), "discount at " + i);
+            assertEquals(candidate.row(), buffer.getRow(i), "row at " + i);
+            assertEquals(candidate.method(), buffer.getMethod(i), "method at " + i);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pl.edu.agh.kis.pz1.domain.MethodDictionary;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CardLimitIndexTest {
+
+    private final MethodDictionary dictionary = new MethodDictionary(Arrays.asList("CardA", "PUNKTY", "CardB", "CardC", "CardD"));
+    private final long[] remaining = {5000, 100000, 20000, 8000, 20000};
+
+    @Test
+    @DisplayName("First fit returns the lowest index with enough limit and never PUNKTY")
+    void firstFit() {
+        CardLimitIndex index = new CardLimitIndex(dictionary, remaining, CardFitPolicy.FIRST_FIT);
+
+        assertEquals(0, index.find(5000));
+        assertEquals(2, index.find(5001));
+        assertEquals(-1, index.find(20001));
+
+        index.update(2, 1000);
+        assertEquals(3, index.find(5001));
+        assertEquals(4, index.find(8001));
+    }
+
+    @Test
+    @DisplayName("Best fit returns the smallest sufficient limit, breaking ties by index")
+    void bestFit() {
+        CardLimitIndex index = new CardLimitIndex(dictionary, remaining, CardFitPolicy.BEST_FIT);
+
+        assertEquals(0, index.find(100));
+        assertEquals(3, index.find(6000));
+        assertEquals(2, index.find(9000));
+        assertEquals(-1, index.find(50000));
+
+        index.update(3, 2000);
+        assertEquals(0, index.find(2001));
+        assertEquals(3, index.find(2000));
+    }
+
+    @Test
+    @DisplayName("Worst fit returns the largest limit, breaking ties by index")
+    void worstFit() {
+        CardLimitIndex index = new CardLimitIndex(dictionary, remaining, CardFitPolicy.WORST_FIT);
+
+        assertEquals(2, index.find(100));
+        index.update(2, 0);
+        assertEquals(4, index.find(100));
+        index.update(4, 0);
+        assertEquals(3, index.find(100));
+        assertEquals(-1, index.find(9000));
+    }
+}
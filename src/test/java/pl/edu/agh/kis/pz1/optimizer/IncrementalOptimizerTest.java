@@ -0,0 +1,112 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+import org.junit.jupiter.api.Test;
+
+import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+import pl.edu.agh.kis.pz1.domain.Result;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+class IncrementalOptimizerTest {
+
+    private PaymentMethod createMethod(String id, int discount, String limit) {
+        PaymentMethod method = new PaymentMethod(id, discount, new BigDecimal(limit), null, BigDecimal.ZERO);
+        method.initializeRemainingLimit();
+        return method;
+    }
+
+    private Order createOrder(String id, String value, List<String> promotions) {
+        Order order = new Order(id, new BigDecimal(value), promotions, false, null);
+        order.initializeRemainingValue();
+        return order;
+    }
+
+    private List<PaymentMethod> exampleMethods() {
+        return List.of(
+                createMethod("PUNKTY", 15, "100.00"),
+                createMethod("mZysk", 10, "180.00"),
+                createMethod("BosBankrut", 5, "200.00"));
+    }
+
+    private Map<String, String> spent(IncrementalOptimizer optimizer) {
+        Map<String, String> spent = new LinkedHashMap<>();
+        for (Result result : optimizer.snapshot()) {
+            spent.put(result.getMethodId(), result.getAmountSpend().toPlainString());
+        }
+        return spent;
+    }
+
+    @Test
+    void reproducesExampleWhenOrdersArriveOneByOne() throws NotFoundPaymentsException {
+        List<PaymentMethod> methods = exampleMethods();
+        List<Order> orders = List.of(
+                createOrder("ORDER1", "100.00", List.of("mZysk")),
+                createOrder("ORDER2", "200.00", List.of("BosBankrut")),
+                createOrder("ORDER3", "150.00", List.of("mZysk", "BosBankrut")),
+                createOrder("ORDER4", "50.00", null));
+
+        IncrementalOptimizer optimizer = new IncrementalOptimizer(methods);
+        for (Order order : orders) {
+            optimizer.submit(order);
+        }
+
+        assertEquals(Map.of("PUNKTY", "100.00", "mZysk", "165.00", "BosBankrut", "190.00"), spent(optimizer));
+        assertEquals(List.of("PUNKTY", "mZysk", "BosBankrut"),
+                optimizer.snapshot().stream().map(Result::getMethodId).toList());
+        // Inputs are not modified
+        assertTrue(orders.stream().noneMatch(Order::isPaid));
+        assertEquals(0, new BigDecimal("100.00").compareTo(methods.get(0).getRemainingLimit()));
+        assertEquals(0, methods.get(1).getTotalSpent().signum());
+    }
+
+    @Test
+    void cancelReturnsPaymentToLedgers() throws NotFoundPaymentsException {
+        IncrementalOptimizer optimizer = new IncrementalOptimizer(exampleMethods());
+        optimizer.submit(createOrder("ORDER1", "100.00", List.of("mZysk")));
+        assertEquals(Map.of("PUNKTY", "85.00"), spent(optimizer));
+
+        // ORDER2 only gets R3 with the points ORDER1 left
+        optimizer.submit(createOrder("ORDER2", "100.00", null));
+        assertEquals(Map.of("PUNKTY", "100.00", "mZysk", "75.00"), spent(optimizer));
+
+        assertTrue(optimizer.cancel("ORDER1"));
+        assertTrue(optimizer.cancel("ORDER2"));
+        assertFalse(optimizer.cancel("ORDER2"));
+        assertTrue(optimizer.snapshot().isEmpty());
+
+        // After cancelling, the full limits are available again
+        optimizer.submit(createOrder("ORDER3", "100.00", null));
+        assertEquals(Map.of("PUNKTY", "85.00"), spent(optimizer));
+    }
+
+    @Test
+    void rejectsDuplicateOrderIds() throws NotFoundPaymentsException {
+        IncrementalOptimizer optimizer = new IncrementalOptimizer(exampleMethods());
+        optimizer.submit(createOrder("ORDER1", "10.00", null));
+
+        assertThrows(IllegalArgumentException.class, () -> optimizer.submit(createOrder("ORDER1", "20.00", null)));
+
+        optimizer.cancel("ORDER1");
+        optimizer.submit(createOrder("ORDER1", "20.00", null));
+    }
+
+    @Test
+    void unpayableOrderLeavesLedgersUnchanged() throws NotFoundPaymentsException {
+        IncrementalOptimizer optimizer = new IncrementalOptimizer(List.of(createMethod("CardA", 0, "50.00")));
+        optimizer.submit(createOrder("ORDER1", "30.00", null));
+
+        assertThrows(NotFoundPaymentsException.class, () -> optimizer.submit(createOrder("ORDER2", "30.00", null)));
+
+        assertEquals(Map.of("CardA", "30.00"), spent(optimizer));
+        assertFalse(optimizer.cancel("ORDER2"));
+        optimizer.submit(createOrder("ORDER3", "20.00", null));
+        assertEquals(Map.of("CardA", "50.00"), spent(optimizer));
+    }
+}
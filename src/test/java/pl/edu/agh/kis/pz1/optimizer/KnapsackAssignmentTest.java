@@ -0,0 +1,140 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+import org.junit.jupiter.api.Test;
+
+import pl.edu.agh.kis.pz1.domain.MethodDictionary;
+import pl.edu.agh.kis.pz1.domain.OrderTable;
+import pl.edu.agh.kis.pz1.domain.PaymentCatalog;
+import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+import pl.edu.agh.kis.pz1.utils.MoneyUtil;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KnapsackAssignmentTest {
+
+    private PaymentMethod createMethod(String id, int discount, long limitCents) {
+        PaymentMethod method = new PaymentMethod(id, discount, MoneyUtil.toBigDecimal(limitCents), null, BigDecimal.ZERO);
+        method.initializeRemainingLimit();
+        return method;
+    }
+
+    private int[] assign(OrderTable table, PaymentCatalog catalog, int parallelism) {
+        return KnapsackAssignment.assign(table, catalog, catalog.copyRemainingLimitsCents(), parallelism);
+    }
+
+    @Test
+    void choosesTheBestSubsetForSmallPoints() {
+        List<PaymentMethod> methods = List.of(createMethod("PUNKTY", 10, 10000), createMethod("CardA", 0, 100000));
+        OrderTable table = new OrderTable(MethodDictionary.of(methods));
+        table.add("ORDER1", 6000, null, false);
+        table.add("ORDER2", 5500, null, false);
+        table.add("ORDER3", 5500, null, false);
+        table.add("ORDER4", 1000, null, true);
+
+        // The greedy takes ORDER1 first and has no room left; prices 49.50 + 49.50 fit the limit of 100.00
+        assertArrayEquals(new int[]{-1, 0, 0, -1}, assign(table, PaymentCatalog.of(methods), 1));
+        assertFalse(table.isPaid(1), "the order table must not be modified");
+    }
+
+    @Test
+    void matchesExhaustiveSearchForOneMethod() {
+        Random random = new Random(3);
+        for (int round = 0; round < 200; round++) {
+            List<PaymentMethod> methods = List.of(createMethod("PUNKTY", 0, 0), createMethod("CardA", 1 + random.nextInt(30), random.nextInt(20000)));
+            PaymentCatalog catalog = PaymentCatalog.of(methods);
+            OrderTable table = new OrderTable(MethodDictionary.of(methods));
+            int orders = 1 + random.nextInt(12);
+            for (int i = 0; i < orders; i++) {
+                table.add("ORDER" + i, 1 + random.nextInt(5000), List.of("CardA"), false);
+            }
+
+            long best = 0;
+            for (int subset = 0; subset < 1 << orders; subset++) {
+                long price = 0;
+                long discount = 0;
+                for (int row = 0; row < orders; row++) {
+                    if ((subset & (1 << row)) != 0) {
+                        long rowDiscount = MoneyUtil.calculateDiscountAmount(table.getValueCents(row), catalog.getDiscount(1));
+                        price += table.getValueCents(row) - rowDiscount;
+                        discount += rowDiscount;
+                    }
+                }
+                if (price <= catalog.getRemainingLimitCents(1)) {
+                    best = Math.max(best, discount);
+                }
+            }
+
+            int[] assignment = assign(table, catalog, 1);
+            long price = 0;
+            long discount = 0;
+            for (int row = 0; row < orders; row++) {
+                if (assignment[row] == 1) {
+                    long rowDiscount = MoneyUtil.calculateDiscountAmount(table.getValueCents(row), catalog.getDiscount(1));
+                    price += table.getValueCents(row) - rowDiscount;
+                    discount += rowDiscount;
+                }
+            }
+            assertTrue(price <= catalog.getRemainingLimitCents(1));
+            assertEquals(best, discount, "round " + round);
+        }
+    }
+
+    @Test
+    void leavesOrdersToBetterLargeMethodsAndResolvesConflicts() {
+        List<PaymentMethod> methods = List.of(
+                createMethod("PUNKTY", 10, 20000),
+                createMethod("CardA", 15, 20000),
+                createMethod("Large", 20, 100_000_000_00L));
+        OrderTable table = new OrderTable(MethodDictionary.of(methods));
+        table.add("ORDER0", 10000, List.of("Large"), false);
+        // Too large for dynamic programming, so Large is left to the greedy
+        table.add("ORDER1", 2_000_000, List.of("Large"), false);
+        table.add("ORDER2", 10000, List.of("CardA"), false);
+        table.add("ORDER3", 10000, null, false);
+
+        // ORDER0 gains more with Large, ORDER2 is chosen by PUNKTY and CardA and goes to CardA
+        assertArrayEquals(new int[]{-1, -1, 1, 0}, assign(table, PaymentCatalog.of(methods), 1));
+    }
+
+    @Test
+    void parallelSolveMatchesSequential() {
+        Random random = new Random(8);
+        List<PaymentMethod> methodList = new ArrayList<>();
+        methodList.add(createMethod("PUNKTY", 15, 50_000));
+        for (int i = 1; i < 8; i++) {
+            methodList.add(createMethod("CARD" + i, random.nextInt(20), 10_000 + random.nextInt(100_000)));
+        }
+        methodList.add(createMethod("SPARE", 0, 1_000_000_000));
+        OrderTable table = new OrderTable(MethodDictionary.of(methodList));
+        for (int i = 0; i < 2_000; i++) {
+            List<String> promotions = new ArrayList<>();
+            for (int card = 1; card < 8; card++) {
+                if (random.nextInt(4) == 0) {
+                    promotions.add("CARD" + card);
+                }
+            }
+            table.add("ORDER" + i, 100 + random.nextInt(20_000), promotions, false);
+        }
+        PaymentCatalog catalog = PaymentCatalog.of(methodList);
+
+        int[] sequential = assign(table, catalog, 1);
+        assertArrayEquals(sequential, assign(table, catalog, 4));
+
+        long[] spent = new long[catalog.size()];
+        for (int row = 0; row < table.size(); row++) {
+            int method = sequential[row];
+            if (method >= 0) {
+                assertTrue(method == 0 || table.hasPromotion(row, method));
+                spent[method] += MoneyUtil.applyDiscount(table.getValueCents(row), catalog.getDiscount(method));
+            }
+        }
+        for (int method = 0; method < catalog.size(); method++) {
+            assertTrue(spent[method] <= catalog.getRemainingLimitCents(method));
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+import org.junit.jupiter.api.Test;
+
+import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.domain.PaymentCatalog;
+import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+import pl.edu.agh.kis.pz1.domain.Result;
+import pl.edu.agh.kis.pz1.utils.MoneyUtil;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalSearchOptimizerTest {
+
+    private PaymentMethod createMethod(String id, int discount, String limit) {
+        PaymentMethod method = new PaymentMethod(id, discount, new BigDecimal(limit), null, BigDecimal.ZERO);
+        method.initializeRemainingLimit();
+        return method;
+    }
+
+    private Order createOrder(String id, String value, List<String> promotions) {
+        Order order = new Order(id, new BigDecimal(value), promotions, false, null);
+        order.initializeRemainingValue();
+        return order;
+    }
+
+    private BigDecimal totalSpent(List<Result> results) {
+        return results.stream().map(Result::getAmountSpend).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    @Test
+    void swapsPointsToTheOrderWithoutPromotion() throws NotFoundPaymentsException {
+        // The greedy gives PUNKTY to ORDER1, which could have used CardA, and leaves ORDER2 without a discount
+        List<Order> orders = List.of(
+                createOrder("ORDER1", "100.00", List.of("CardA")),
+                createOrder("ORDER2", "100.00", null));
+        List<PaymentMethod> methods = List.of(
+                createMethod("PUNKTY", 15, "85.00"),
+                createMethod("CardA", 10, "90.00"),
+                createMethod("CardB", 0, "100.00"));
+
+        assertEquals("[PUNKTY 85.00, CardB 100.00]", new PaymentOptimizer(orders, methods).optimize().toString());
+        LocalSearchOptimizer optimizer = new LocalSearchOptimizer(orders, methods);
+        assertEquals("[PUNKTY 85.00, CardA 90.00]", optimizer.optimize(Duration.ofSeconds(30), 10_000).toString());
+    }
+
+    @Test
+    void neverSpendsMoreThanGreedyAndRespectsLimits() throws NotFoundPaymentsException {
+        Random random = new Random(13);
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            List<String> promotions = new ArrayList<>();
+            for (String card : List.of("CardA", "CardB", "CardC")) {
+                if (random.nextInt(3) == 0) {
+                    promotions.add(card);
+                }
+            }
+            orders.add(createOrder("ORDER" + i, BigDecimal.valueOf(100 + random.nextInt(50_000), 2).toPlainString(), promotions));
+        }
+        PaymentCatalog catalog = PaymentCatalog.of(List.of(
+                createMethod("PUNKTY", 15, "40000.00"),
+                createMethod("CardA", 10, "100000.00"),
+                createMethod("CardB", 5, "150000.00"),
+                createMethod("CardC", 20, "60000.00"),
+                createMethod("Spare", 0, "1000000.00")));
+
+        BigDecimal greedySpent = totalSpent(new PaymentOptimizer(orders, catalog).optimize());
+
+        LocalSearchOptimizer optimizer = new LocalSearchOptimizer(orders, catalog);
+        optimizer.setParallelism(4);
+        List<Result> results = optimizer.optimize(Duration.ofSeconds(30), 200_000);
+        assertTrue(totalSpent(results).compareTo(greedySpent) <= 0, "search spent " + totalSpent(results) + ", greedy spent " + greedySpent);
+        for (Result result : results) {
+            int method = catalog.getDictionary().indexOf(result.getMethodId());
+            assertTrue(MoneyUtil.toCents(result.getAmountSpend()) <= catalog.getRemainingLimitCents(method), result.toString());
+        }
+
+        // Workers are seeded, so the same number of moves gives the same results
+        assertEquals(results.toString(), optimizer.optimize(Duration.ofSeconds(30), 200_000).toString());
+    }
+
+    @Test
+    void stopsWithinBudget() throws NotFoundPaymentsException {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            orders.add(createOrder("ORDER" + i, "10.00", List.of("CardA")));
+        }
+        LocalSearchOptimizer optimizer = new LocalSearchOptimizer(orders, List.of(
+                createMethod("PUNKTY", 15, "100.00"),
+                createMethod("CardA", 10, "1000.00"),
+                createMethod("Spare", 0, "10000.00")));
+        optimizer.setParallelism(2);
+
+        long start = System.nanoTime();
+        List<Result> results = optimizer.optimize(Duration.ofMillis(200));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 3000, "Search should stop close to its budget, took " + elapsedMillis + " ms");
+        assertFalse(results.isEmpty());
+    }
+
+    @Test
+    void stopsWhenInterrupted() throws NotFoundPaymentsException {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            orders.add(createOrder("ORDER" + i, "10.00", List.of("CardA")));
+        }
+        List<PaymentMethod> methods = List.of(
+                createMethod("PUNKTY", 15, "100.00"),
+                createMethod("CardA", 10, "1000.00"),
+                createMethod("Spare", 0, "10000.00"));
+        BigDecimal greedySpent = totalSpent(new PaymentOptimizer(orders, methods).optimize());
+
+        for (int parallelism : new int[] {1, 2}) {
+            LocalSearchOptimizer optimizer = new LocalSearchOptimizer(orders, methods);
+            optimizer.setParallelism(parallelism);
+
+            long start = System.nanoTime();
+            Thread.currentThread().interrupt();
+            List<Result> results = optimizer.optimize(Duration.ofMinutes(10));
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            assertTrue(Thread.interrupted(), "The interrupt status should be kept");
+            assertTrue(elapsedMillis < 3000, "Search should stop when interrupted, took " + elapsedMillis + " ms");
+            assertTrue(totalSpent(results).compareTo(greedySpent) <= 0);
+            for (Result result : results) {
+                PaymentMethod method = methods.stream().filter(m -> m.getId().equals(result.getMethodId())).findFirst().orElseThrow();
+                assertTrue(result.getAmountSpend().compareTo(method.getLimit()) <= 0, result.toString());
+            }
+        }
+    }
+
+    @Test
+    void throwsWhenGreedyCannotPay() {
+        LocalSearchOptimizer optimizer = new LocalSearchOptimizer(
+                List.of(createOrder("ORDER1", "100.00", null)),
+                List.of(createMethod("CardA", 0, "50.00")));
+
+        assertThrows(NotFoundPaymentsException.class, () -> optimizer.optimize(Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> optimizer.setParallelism(0));
+    }
+}
@@ -0,0 +1,100 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+import org.junit.jupiter.api.Test;
+
+import pl.edu.agh.kis.pz1.domain.MethodDictionary;
+import pl.edu.agh.kis.pz1.domain.OrderTable;
+import pl.edu.agh.kis.pz1.domain.PaymentCatalog;
+import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+import pl.edu.agh.kis.pz1.utils.MoneyUtil;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MinCostFlowAssignmentTest {
+
+    private PaymentMethod createMethod(String id, int discount, long limitCents) {
+        PaymentMethod method = new PaymentMethod(id, discount, MoneyUtil.toBigDecimal(limitCents), null, BigDecimal.ZERO);
+        method.initializeRemainingLimit();
+        return method;
+    }
+
+    private int[] assign(OrderTable table, PaymentCatalog catalog) {
+        return MinCostFlowAssignment.assign(table, catalog, catalog.copyRemainingLimitsCents());
+    }
+
+    @Test
+    void reroutesFlowToFreeTheBestMethod() {
+        PaymentMethod[] methods = {
+                createMethod("PUNKTY", 15, 8500),
+                createMethod("CardA", 10, 9000)
+        };
+        OrderTable table = new OrderTable(MethodDictionary.of(List.of(methods)));
+        table.add("ORDER1", 10000, List.of("CardA"), false);
+        table.add("ORDER2", 10000, null, false);
+
+        int[] assignment = assign(table, PaymentCatalog.of(List.of(methods)));
+
+        // PUNKTY, opened first, must be handed from ORDER1 to ORDER2 when CardA is opened
+        assertArrayEquals(new int[]{1, 0}, assignment);
+        assertFalse(table.isPaid(0) || table.isPaid(1), "the order table must not be modified");
+    }
+
+    @Test
+    void skipsPaidOrdersAndMethodsWithoutDiscount() {
+        PaymentMethod[] methods = {
+                createMethod("CardA", 0, 100000),
+                createMethod("CardB", 20, 100000)
+        };
+        OrderTable table = new OrderTable(MethodDictionary.of(List.of(methods)));
+        table.add("ORDER1", 10000, List.of("CardA"), false);
+        table.add("ORDER2", 10000, List.of("CardA", "CardB"), true);
+        table.add("ORDER3", 10000, List.of("CardB"), false);
+
+        assertArrayEquals(new int[]{-1, -1, 1}, assign(table, PaymentCatalog.of(List.of(methods))));
+    }
+
+    @Test
+    void respectsLimitsAndEligibility() {
+        Random random = new Random(5);
+        List<PaymentMethod> methodList = new ArrayList<>();
+        methodList.add(createMethod("PUNKTY", 15, 2_000_000));
+        for (int i = 1; i < 8; i++) {
+            methodList.add(createMethod("CARD" + i, random.nextInt(20), 1_000_000 + random.nextInt(5_000_000)));
+        }
+        PaymentMethod[] methods = methodList.toArray(new PaymentMethod[0]);
+        OrderTable table = new OrderTable(MethodDictionary.of(methodList));
+        for (int i = 0; i < 20_000; i++) {
+            List<String> promotions = new ArrayList<>();
+            for (int card = 1; card < 8; card++) {
+                if (random.nextInt(4) == 0) {
+                    promotions.add("CARD" + card);
+                }
+            }
+            table.add("ORDER" + i, 100 + random.nextInt(50_000), promotions, false);
+        }
+
+        int[] assignment = assign(table, PaymentCatalog.of(methodList));
+
+        long[] spent = new long[methods.length];
+        int assigned = 0;
+        for (int row = 0; row < table.size(); row++) {
+            int method = assignment[row];
+            if (method < 0) {
+                continue;
+            }
+            assigned++;
+            assertTrue(methods[method].getDiscount() > 0);
+            assertTrue(method == 0 || table.hasPromotion(row, method));
+            spent[method] += MoneyUtil.applyDiscount(table.getValueCents(row), methods[method].getDiscount());
+        }
+        for (int method = 0; method < methods.length; method++) {
+            assertTrue(spent[method] <= methods[method].getLimitCents());
+        }
+        assertTrue(assigned > 0);
+    }
+}
@@ -0,0 +1,113 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimizationEventTest {
+
+    private static final String OPTIMIZATION = "pl.edu.agh.kis.pz1.Optimization";
+    private static final String PHASE = "pl.edu.agh.kis.pz1.OptimizerPhase";
+
+    @TempDir
+    Path directory;
+
+    private PaymentMethod createMethod(String id, int discount, String limit) {
+        PaymentMethod method = new PaymentMethod(id, discount, new BigDecimal(limit), null, BigDecimal.ZERO);
+        method.initializeRemainingLimit();
+        return method;
+    }
+
+    private Order createOrder(String id, String value, List<String> promotions) {
+        Order order = new Order(id, new BigDecimal(value), promotions, false, null);
+        order.initializeRemainingValue();
+        return order;
+    }
+
+    private List<RecordedEvent> record(PaymentOptimizer optimizer) throws Exception {
+        Path recordingFile = directory.resolve("optimize.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(OPTIMIZATION);
+            recording.enable(PHASE);
+            recording.start();
+            try {
+                optimizer.optimize();
+            } catch (NotFoundPaymentsException e) {
+                // The events of failed optimizations are checked as well
+            }
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+        return RecordingFile.readAllEvents(recordingFile);
+    }
+
+    @Test
+    @DisplayName("Should record the optimization and its phases with their counts")
+    void recordsPhasesOfExample() throws Exception {
+        List<Order> orders = List.of(
+                createOrder("ORDER1", "100.00", List.of("mZysk")),
+                createOrder("ORDER2", "200.00", List.of("BosBankrut")),
+                createOrder("ORDER3", "150.00", List.of("mZysk", "BosBankrut")),
+                createOrder("ORDER4", "50.00", null));
+        List<PaymentMethod> methods = List.of(
+                createMethod("PUNKTY", 15, "100.00"),
+                createMethod("mZysk", 10, "180.00"),
+                createMethod("BosBankrut", 5, "200.00"));
+
+        List<RecordedEvent> events = record(new PaymentOptimizer(orders, methods));
+
+        Map<String, RecordedEvent> phases = events.stream()
+                .filter(event -> event.getEventType().getName().equals(PHASE))
+                .collect(Collectors.toMap(event -> event.getString("phase"), event -> event));
+        assertEquals(5, phases.size());
+        assertEquals(4, phases.get(OptimizerPhaseListener.CANDIDATES).getInt("orders"));
+        // PUNKTY for every order, plus one candidate per promotion
+        assertEquals(8, phases.get(OptimizerPhaseListener.CANDIDATES).getLong("candidatesGenerated"));
+
+        RecordedEvent fullPayments = phases.get(OptimizerPhaseListener.FULL_PAYMENTS);
+        assertEquals(8, fullPayments.getLong("candidates"));
+        assertEquals(3, fullPayments.getLong("fullPayments"));
+        assertEquals(0, fullPayments.getLong("r3Payments"));
+
+        RecordedEvent remainingPayments = phases.get(OptimizerPhaseListener.REMAINING_PAYMENTS);
+        assertEquals(1, remainingPayments.getLong("r3Payments") + remainingPayments.getLong("basePayments"));
+
+        RecordedEvent optimization = events.stream()
+                .filter(event -> event.getEventType().getName().equals(OPTIMIZATION))
+                .findFirst().orElseThrow();
+        assertTrue(optimization.getBoolean("succeeded"));
+        assertFalse(optimization.getBoolean("sharedLimits"));
+        assertEquals("KNAPSACK", optimization.getString("engine"));
+        assertEquals(3, optimization.getInt("paymentMethods"));
+        assertEquals(fullPayments.getLong("candidatesRejectedForLimit"), optimization.getLong("candidatesRejectedForLimit"));
+    }
+
+    @Test
+    @DisplayName("Should record a failed optimization")
+    void recordsFailedOptimization() throws Exception {
+        List<Order> orders = List.of(createOrder("ORDER1", "100.00", List.of("CardA")));
+        List<PaymentMethod> methods = List.of(createMethod("CardA", 10, "50.00"));
+
+        List<RecordedEvent> events = record(new PaymentOptimizer(orders, methods));
+
+        RecordedEvent optimization = events.stream()
+                .filter(event -> event.getEventType().getName().equals(OPTIMIZATION))
+                .findFirst().orElseThrow();
+        assertFalse(optimization.getBoolean("succeeded"));
+        assertEquals(1, optimization.getLong("candidatesRejectedForLimit"));
+        assertEquals(0, optimization.getLong("basePayments"));
+    }
+}
@@ -0,0 +1,60 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pl.edu.agh.kis.pz1.domain.OrderTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaymentComponentsTest {
+
+    private static List<List<Integer>> rowsOf(PaymentComponents components) {
+        List<List<Integer>> rows = new ArrayList<>();
+        for (int component = 0; component < components.count(); component++) {
+            List<Integer> componentRows = new ArrayList<>();
+            for (int i = 0; i < components.size(component); i++) {
+                componentRows.add(components.row(component, i));
+            }
+            rows.add(componentRows);
+        }
+        return rows;
+    }
+
+    @Test
+    @DisplayName("Should group orders sharing promoted cards, ignoring PUNKTY and paid orders")
+    void groupsOrdersByCards() {
+        OrderTable table = new OrderTable(List.of("PUNKTY", "A", "B", "C", "D", "E"));
+        table.add("O0", 100, List.of("C"), false);
+        table.add("O1", 100, List.of("A"), false);
+        table.add("O2", 100, List.of("D", "B"), false);
+        table.add("O3", 100, List.of("PUNKTY"), false);
+        table.add("O4", 100, List.of("C", "E"), true);
+        table.add("O5", 100, List.of("B", "A"), false);
+        table.add("O6", 100, List.of("E"), false);
+        table.add("O7", 100, null, false);
+        table.add("O8", 100, List.of("PUNKTY", "C"), false);
+
+        boolean[] paid = new boolean[table.size()];
+        for (int row = 0; row < paid.length; row++) {
+            paid[row] = table.isPaid(row);
+        }
+        // A, B and D are joined through O2 and O5; the paid O4 does not join C and E
+        assertEquals(List.of(List.of(0, 8), List.of(1, 2, 5), List.of(6)), rowsOf(PaymentComponents.find(table, paid)));
+
+        // Rows beyond the paid flags are not considered, so A and B stay apart without O5
+        assertEquals(List.of(List.of(0), List.of(1), List.of(2)), rowsOf(PaymentComponents.find(table, new boolean[3])));
+    }
+
+    @Test
+    @DisplayName("Should find no components without promoted cards")
+    void findsNoComponentsWithoutCards() {
+        OrderTable table = new OrderTable(List.of("PUNKTY", "A"));
+        table.add("O0", 100, List.of("PUNKTY"), false);
+        table.add("O1", 100, null, false);
+
+        assertEquals(0, PaymentComponents.find(table, new boolean[table.size()]).count());
+    }
+}
@@ -3,14 +3,22 @@ package pl.edu.agh.kis.pz1.optimizer;
 import org.junit.jupiter.api.Test;
 
 import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.domain.OrderTable;
+import pl.edu.agh.kis.pz1.domain.PaymentCatalog;
 import pl.edu.agh.kis.pz1.domain.PaymentMethod;
 import pl.edu.agh.kis.pz1.domain.Result;
 
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.ArrayList;
 
@@ -47,12 +55,13 @@ class PaymentOptimizerTest {
         assertEquals(0, new BigDecimal("90.00").compareTo(results.getFirst().getAmountSpend()));
         assertEquals("CardA", results.getFirst().getMethodId());
 
-        assertTrue(orders.getFirst().isPaid());
-        assertEquals(0, BigDecimal.ZERO.compareTo(orders.getFirst().getRemainingValueToPay()));
+        // The inputs are not modified
+        assertFalse(orders.getFirst().isPaid());
+        assertEquals(0, new BigDecimal("100.00").compareTo(orders.getFirst().getRemainingValueToPay()));
 
         PaymentMethod cardA = methods.getFirst();
-        assertEquals(0, new BigDecimal("90.00").compareTo(cardA.getTotalSpent()));
-        assertEquals(0, new BigDecimal("10.00").compareTo(cardA.getRemainingLimit()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(cardA.getTotalSpent()));
+        assertEquals(0, new BigDecimal("100.00").compareTo(cardA.getRemainingLimit()));
     }
 
     @Test
@@ -74,15 +83,9 @@ class PaymentOptimizerTest {
         assertEquals(0, new BigDecimal("50.00").compareTo(spentAmounts.get("PUNKTY")));
         assertEquals(0, new BigDecimal("40.00").compareTo(spentAmounts.get("CardA")));
 
-        assertTrue(orders.getFirst().isPaid());
-        assertEquals(0, BigDecimal.ZERO.compareTo(orders.getFirst().getRemainingValueToPay()));
-
-        PaymentMethod punkty = methods.stream().filter(m -> "PUNKTY".equals(m.getId())).findFirst().get();
-        PaymentMethod cardA = methods.stream().filter(m -> "CardA".equals(m.getId())).findFirst().get();
-        assertEquals(0, new BigDecimal("50.00").compareTo(punkty.getTotalSpent()));
-        assertEquals(0, BigDecimal.ZERO.compareTo(punkty.getRemainingLimit()));
-        assertEquals(0, new BigDecimal("40.00").compareTo(cardA.getTotalSpent()));
-        assertEquals(0, new BigDecimal("60.00").compareTo(cardA.getRemainingLimit()));
+        assertFalse(orders.getFirst().isPaid());
+        assertEquals(0, new BigDecimal("50.00").compareTo(methods.get(0).getRemainingLimit()));
+        assertEquals(0, new BigDecimal("100.00").compareTo(methods.get(1).getRemainingLimit()));
     }
 
 
@@ -117,12 +120,346 @@ class PaymentOptimizerTest {
         assertEquals(0, new BigDecimal("100.00").compareTo(results.getFirst().getAmountSpend()));
         assertEquals("CardA", results.getFirst().getMethodId());
 
-        assertTrue(orders.getFirst().isPaid());
-        assertEquals(0, BigDecimal.ZERO.compareTo(orders.getFirst().getRemainingValueToPay()));
+        assertFalse(orders.getFirst().isPaid());
+        assertEquals(0, new BigDecimal("100.00").compareTo(methods.getFirst().getRemainingLimit()));
+    }
 
-        PaymentMethod cardA = methods.getFirst();
-        assertEquals(0, new BigDecimal("100.00").compareTo(cardA.getTotalSpent()));
-        assertEquals(0, BigDecimal.ZERO.compareTo(cardA.getRemainingLimit()));
+    @Test
+    void incrementallyAddedOrdersMatchBatch() throws NotFoundPaymentsException {
+        List<PaymentMethod> batchMethods = Arrays.asList(
+                createMethod("PUNKTY", 15, "100.00"),
+                createMethod("mZysk", 10, "180.00"),
+                createMethod("BosBankrut", 5, "200.00")
+        );
+        List<PaymentMethod> streamedMethods = Arrays.asList(
+                createMethod("PUNKTY", 15, "100.00"),
+                createMethod("mZysk", 10, "180.00"),
+                createMethod("BosBankrut", 5, "200.00")
+        );
+
+        List<Order> batchOrders = sampleOrders();
+        Map<String, BigDecimal> batch = new PaymentOptimizer(batchOrders, batchMethods).optimize().stream()
+                .collect(Collectors.toMap(Result::getMethodId, Result::getAmountSpend));
+
+        PaymentOptimizer streaming = new PaymentOptimizer(streamedMethods);
+        sampleOrders().forEach(streaming::addOrder);
+        Map<String, BigDecimal> streamed = streaming.optimize().stream()
+                .collect(Collectors.toMap(Result::getMethodId, Result::getAmountSpend));
+
+        assertEquals(batch, streamed);
+        assertEquals(0, new BigDecimal("165.00").compareTo(streamed.get("mZysk")));
+        assertEquals(0, new BigDecimal("190.00").compareTo(streamed.get("BosBankrut")));
+        assertEquals(0, new BigDecimal("100.00").compareTo(streamed.get("PUNKTY")));
+    }
+
+    @Test
+    void optimizesOrderTableDirectly() throws NotFoundPaymentsException {
+        List<PaymentMethod> methods = Arrays.asList(
+                createMethod("PUNKTY", 15, "100.00"),
+                createMethod("mZysk", 10, "180.00"),
+                createMethod("BosBankrut", 5, "200.00")
+        );
+        OrderTable table = OrderTable.fromOrders(sampleOrders(), Arrays.asList("PUNKTY", "mZysk", "BosBankrut"));
+
+        Map<String, BigDecimal> spent = new PaymentOptimizer(table, methods).optimize().stream()
+                .collect(Collectors.toMap(Result::getMethodId, Result::getAmountSpend));
+
+        assertEquals(0, new BigDecimal("165.00").compareTo(spent.get("mZysk")));
+        assertEquals(0, new BigDecimal("190.00").compareTo(spent.get("BosBankrut")));
+        assertEquals(0, new BigDecimal("100.00").compareTo(spent.get("PUNKTY")));
+        for (int row = 0; row < table.size(); row++) {
+            assertFalse(table.isPaid(row));
+        }
+    }
+
+    @Test
+    void rejectsOrderTableForOtherMethods() {
+        List<PaymentMethod> methods = Collections.singletonList(createMethod("CardA", 10, "100.00"));
+        OrderTable table = new OrderTable(Collections.singletonList("CardB"));
+
+        assertThrows(IllegalArgumentException.class, () -> new PaymentOptimizer(table, methods));
+    }
+
+    @Test
+    void basePaymentFollowsCardFitPolicy() throws NotFoundPaymentsException {
+        List<Order> orders = Collections.singletonList(createOrder("ORDER1", "40.00", null));
+        List<PaymentMethod> methods = Arrays.asList(
+                createMethod("CardA", 0, "500.00"),
+                createMethod("CardB", 0, "50.00"),
+                createMethod("CardC", 0, "45.00")
+        );
+
+        PaymentOptimizer optimizer = new PaymentOptimizer(orders, methods);
+        optimizer.setCardFitPolicy(CardFitPolicy.BEST_FIT);
+        List<Result> results = optimizer.optimize();
+
+        assertEquals(1, results.size());
+        assertEquals("CardC", results.getFirst().getMethodId());
+        assertEquals(0, new BigDecimal("40.00").compareTo(results.getFirst().getAmountSpend()));
+    }
+
+    @Test
+    void parallelCandidateGenerationMatchesSequential() throws NotFoundPaymentsException {
+        List<Order> sequentialOrders = randomOrders(30_000, 7);
+        List<Order> parallelOrders = randomOrders(30_000, 7);
+        List<PaymentMethod> sequentialMethods = randomMethods();
+        List<PaymentMethod> parallelMethods = randomMethods();
+
+        List<Result> sequential = new PaymentOptimizer(sequentialOrders, sequentialMethods).optimize();
+        PaymentOptimizer parallelOptimizer = new PaymentOptimizer(parallelOrders, parallelMethods);
+        parallelOptimizer.setParallelism(4);
+        List<Result> parallel = parallelOptimizer.optimize();
+
+        assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.get(i).getMethodId(), parallel.get(i).getMethodId());
+            assertEquals(sequential.get(i).getAmountSpend(), parallel.get(i).getAmountSpend());
+        }
+    }
+
+    @Test
+    void minCostFlowEngineResolvesContendedPoints() throws NotFoundPaymentsException {
+        // The greedy gives PUNKTY to ORDER1, which could have used CardA, and leaves ORDER2 without a discount
+        List<Order> orders = Arrays.asList(
+                createOrder("ORDER1", "100.00", Collections.singletonList("CardA")),
+                createOrder("ORDER2", "100.00", null)
+        );
+        List<PaymentMethod> methods = Arrays.asList(
+                createMethod("PUNKTY", 15, "85.00"),
+                createMethod("CardA", 10, "90.00"),
+                createMethod("CardB", 0, "100.00")
+        );
+
+        PaymentOptimizer optimizer = new PaymentOptimizer(orders, methods);
+        optimizer.setFullPaymentEngine(FullPaymentEngine.MIN_COST_FLOW);
+        Map<String, BigDecimal> spentAmounts = optimizer.optimize().stream()
+                .collect(Collectors.toMap(Result::getMethodId, Result::getAmountSpend));
+
+        assertEquals(Map.of("PUNKTY", new BigDecimal("85.00"), "CardA", new BigDecimal("90.00")), spentAmounts);
+    }
+
+    @Test
+    void minCostFlowEngineSpendsNoMoreThanGreedy() throws NotFoundPaymentsException {
+        PaymentOptimizer greedyOptimizer = new PaymentOptimizer(randomOrders(30_000, 3), randomMethods());
+        greedyOptimizer.setFullPaymentEngine(FullPaymentEngine.GREEDY);
+        List<Result> greedy = greedyOptimizer.optimize();
+        PaymentOptimizer flowOptimizer = new PaymentOptimizer(randomOrders(30_000, 3), randomMethods());
+        flowOptimizer.setFullPaymentEngine(FullPaymentEngine.MIN_COST_FLOW);
+        List<Result> flow = flowOptimizer.optimize();
+
+        BigDecimal greedySpent = greedy.stream().map(Result::getAmountSpend).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal flowSpent = flow.stream().map(Result::getAmountSpend).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertTrue(flowSpent.compareTo(greedySpent) <= 0, "flow spent " + flowSpent + ", greedy spent " + greedySpent);
+    }
+
+    @Test
+    void knapsackEngineFillsSmallPointsLimit() throws NotFoundPaymentsException {
+        List<Order> orders = Arrays.asList(
+                createOrder("ORDER1", "70.00", null),
+                createOrder("ORDER2", "60.00", null),
+                createOrder("ORDER3", "60.00", null)
+        );
+        List<PaymentMethod> methods = Arrays.asList(
+                createMethod("PUNKTY", 20, "100.00"),
+                createMethod("CardA", 0, "1000.00")
+        );
+
+        // The greedy pays ORDER1 with 56.00 points and uses the remaining 44.00 for R3 on ORDER2
+        PaymentOptimizer greedy = new PaymentOptimizer(orders, methods);
+        greedy.setFullPaymentEngine(FullPaymentEngine.GREEDY);
+        assertEquals("[PUNKTY 100.00, CardA 70.00]", greedy.optimize().toString());
+
+        // Paying ORDER2 and ORDER3 with points costs 96.00 and saves 24.00 instead of 20.00
+        assertEquals("[PUNKTY 96.00, CardA 70.00]", new PaymentOptimizer(orders, methods).optimize().toString());
+    }
+
+    @Test
+    void defaultEngineSpendsNoMoreThanGreedy() throws NotFoundPaymentsException {
+        List<PaymentMethod> methods = new ArrayList<>();
+        methods.add(createMethod("PUNKTY", 15, "300.00"));
+        for (int i = 0; i < 5; i++) {
+            methods.add(createMethod("CARD" + i, 5 * i, "400.00"));
+        }
+        methods.add(createMethod("SPARE", 0, "10000000.00"));
+        PaymentCatalog catalog = PaymentCatalog.of(methods);
+
+        for (int seed = 0; seed < 20; seed++) {
+            PaymentOptimizer greedyOptimizer = new PaymentOptimizer(randomOrders(100, seed), catalog);
+            greedyOptimizer.setFullPaymentEngine(FullPaymentEngine.GREEDY);
+            BigDecimal greedySpent = greedyOptimizer.optimize().stream()
+                    .map(Result::getAmountSpend).reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal spent = new PaymentOptimizer(randomOrders(100, seed), catalog).optimize().stream()
+                    .map(Result::getAmountSpend).reduce(BigDecimal.ZERO, BigDecimal::add);
+            assertTrue(spent.compareTo(greedySpent) <= 0, "seed " + seed + ": spent " + spent + ", greedy spent " + greedySpent);
+        }
+    }
+
+    @Test
+    void knapsackEngineIsIndependentOfParallelism() throws NotFoundPaymentsException {
+        List<PaymentMethod> methods = new ArrayList<>();
+        methods.add(createMethod("PUNKTY", 15, "2000.00"));
+        for (int i = 0; i < 5; i++) {
+            methods.add(createMethod("CARD" + i, 5 * i, "1500.00"));
+        }
+        methods.add(createMethod("SPARE", 0, "10000000.00"));
+        PaymentCatalog catalog = PaymentCatalog.of(methods);
+        List<Order> orders = randomOrders(300, 4);
+
+        PaymentOptimizer sequential = new PaymentOptimizer(orders, catalog);
+        sequential.setFullPaymentEngine(FullPaymentEngine.KNAPSACK);
+        PaymentOptimizer parallel = new PaymentOptimizer(orders, catalog);
+        parallel.setFullPaymentEngine(FullPaymentEngine.KNAPSACK);
+        parallel.setParallelism(4);
+
+        assertEquals(sequential.optimize().toString(), parallel.optimize().toString());
+    }
+
+    @Test
+    void repeatedOptimizationsReturnSameResults() throws NotFoundPaymentsException {
+        PaymentOptimizer optimizer = new PaymentOptimizer(sampleOrders(), Arrays.asList(
+                createMethod("PUNKTY", 15, "100.00"),
+                createMethod("mZysk", 10, "180.00"),
+                createMethod("BosBankrut", 5, "200.00")
+        ));
+
+        String first = optimizer.optimize().toString();
+        assertEquals(first, optimizer.optimize().toString());
+
+        // Orders added later are merged with the candidates sorted by the earlier run
+        optimizer.addOrder(createOrder("ORDER5", "10.00", Collections.singletonList("mZysk")));
+        String withNewOrder = optimizer.optimize().toString();
+        assertNotEquals(first, withNewOrder);
+        assertEquals(withNewOrder, optimizer.optimize().toString());
+    }
+
+    @Test
+    void concurrentOptimizationsShareCatalog() throws Exception {
+        PaymentCatalog catalog = PaymentCatalog.of(randomMethods());
+        List<Result> expected = new PaymentOptimizer(randomOrders(5_000, 9), catalog).optimize();
+        PaymentOptimizer shared = new PaymentOptimizer(randomOrders(5_000, 9), catalog);
+
+        List<Callable<List<Result>>> tasks = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            boolean ownOptimizer = i % 2 == 0;
+            tasks.add(() -> ownOptimizer ? new PaymentOptimizer(randomOrders(5_000, 9), catalog).optimize() : shared.optimize());
+        }
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (Future<List<Result>> future : executor.invokeAll(tasks)) {
+                assertEquals(expected.toString(), future.get().toString());
+            }
+        }
+    }
+
+    @Test
+    void reportedAllocationsAddUpToResults() throws NotFoundPaymentsException {
+        for (FullPaymentEngine engine : FullPaymentEngine.values()) {
+            PaymentOptimizer optimizer = new PaymentOptimizer(randomOrders(5_000, 5), randomMethods());
+            optimizer.setFullPaymentEngine(engine);
+            List<Allocation> allocations = new ArrayList<>();
+            optimizer.setAllocationListener(allocations::add);
+            List<Result> results = optimizer.optimize();
+
+            assertEquals(5_000, allocations.stream().map(Allocation::orderId).distinct().count());
+            Map<String, Long> spent = new HashMap<>();
+            for (Allocation allocation : allocations) {
+                spent.merge("PUNKTY", allocation.pointsCents(), Long::sum);
+                if (allocation.cardId() != null) {
+                    spent.merge(allocation.cardId(), allocation.cardCents(), Long::sum);
+                }
+                assertEquals(allocation.rule() == AllocationRule.R4, allocation.cardId() == null);
+                assertTrue(allocation.discountCents() >= 0);
+                if (allocation.rule() == AllocationRule.BASE) {
+                    assertEquals(0, allocation.discountCents());
+                }
+            }
+            for (Result result : results) {
+                assertEquals(result.getAmountSpend().movePointRight(2).longValueExact(), spent.get(result.getMethodId()), engine.name());
+            }
+
+            // Without a listener, the next optimization reports nothing
+            optimizer.setAllocationListener(AllocationListener.NONE);
+            optimizer.optimize();
+            assertEquals(5_000, allocations.size());
+        }
+    }
+
+    @Test
+    void componentDecompositionMatchesUndecomposed() throws NotFoundPaymentsException {
+        // Cards come in groups of three that orders never mix, so every group is a component;
+        // PUNKTY offers no R4 and the limits are tight, so R3 and base payments cross the groups
+        Random random = new Random(5);
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            int group = random.nextInt(4);
+            List<String> promotions = new ArrayList<>();
+            for (int p = random.nextInt(3); p > 0; p--) {
+                promotions.add("CARD" + (3 * group + random.nextInt(3)));
+            }
+            orders.add(createOrder("ORDER" + i, BigDecimal.valueOf(100 + random.nextInt(49_901), 2).toPlainString(), promotions));
+        }
+        List<PaymentMethod> methods = new ArrayList<>();
+        methods.add(createMethod("PUNKTY", 0, "50000.00"));
+        for (int i = 0; i < 12; i++) {
+            methods.add(createMethod("CARD" + i, 5 + i, "200000.00"));
+        }
+        methods.add(createMethod("SPARE", 0, "10000000.00"));
+        PaymentCatalog catalog = PaymentCatalog.of(methods);
+
+        assertEquals(4, PaymentComponents.find(OrderTable.fromOrders(orders, catalog.getDictionary()), new boolean[orders.size()]).count());
+
+        String expected = new PaymentOptimizer(orders, catalog).optimize().toString();
+        for (int parallelism : new int[]{1, 4}) {
+            PaymentOptimizer optimizer = new PaymentOptimizer(orders, catalog);
+            optimizer.setComponentDecomposition(true);
+            optimizer.setParallelism(parallelism);
+            assertEquals(expected, optimizer.optimize().toString());
+        }
+
+        // R4 links every order to PUNKTY, so the optimizer falls back to allocating all orders at once
+        PaymentOptimizer fallback = new PaymentOptimizer(randomOrders(5_000, 9), randomMethods());
+        fallback.setComponentDecomposition(true);
+        assertEquals(new PaymentOptimizer(randomOrders(5_000, 9), randomMethods()).optimize().toString(), fallback.optimize().toString());
+    }
+
+    @Test
+    void rejectsInvalidParallelism() {
+        PaymentOptimizer optimizer = new PaymentOptimizer(randomMethods());
+        assertThrows(IllegalArgumentException.class, () -> optimizer.setParallelism(0));
+    }
+
+    // Orders with values 1.00-500.00 and up to three promotions among CARD0-CARD4; equal seeds give equal lists
+    private List<Order> randomOrders(int count, long seed) {
+        Random random = new Random(seed);
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            List<String> promotions = new ArrayList<>();
+            int promotionCount = random.nextInt(4);
+            for (int p = 0; p < promotionCount; p++) {
+                promotions.add("CARD" + random.nextInt(5));
+            }
+            String value = BigDecimal.valueOf(100 + random.nextInt(49_901), 2).toPlainString();
+            orders.add(createOrder("ORDER" + i, value, promotions));
+        }
+        return orders;
+    }
+
+    private List<PaymentMethod> randomMethods() {
+        List<PaymentMethod> methods = new ArrayList<>();
+        methods.add(createMethod("PUNKTY", 15, "300000.00"));
+        for (int i = 0; i < 5; i++) {
+            methods.add(createMethod("CARD" + i, 5 * i, "1000000.00"));
+        }
+        methods.add(createMethod("SPARE", 0, "10000000.00"));
+        return methods;
+    }
+
+    private List<Order> sampleOrders() {
+        return Arrays.asList(
+                createOrder("ORDER1", "100.00", Collections.singletonList("mZysk")),
+                createOrder("ORDER2", "200.00", Collections.singletonList("BosBankrut")),
+                createOrder("ORDER3", "150.00", Arrays.asList("mZysk", "BosBankrut")),
+                createOrder("ORDER4", "50.00", null)
+        );
     }
 
-}
\ No newline at end of file
+}
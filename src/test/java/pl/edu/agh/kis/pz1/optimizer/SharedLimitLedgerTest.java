@@ -0,0 +1,141 @@
+package pl.edu.agh.kis.pz1.optimizer;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.domain.PaymentCatalog;
+import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+import pl.edu.agh.kis.pz1.domain.Result;
+import pl.edu.agh.kis.pz1.utils.MoneyUtil;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SharedLimitLedgerTest {
+
+    private PaymentMethod createMethod(String id, int discount, String limit) {
+        PaymentMethod method = new PaymentMethod(id, discount, new BigDecimal(limit), null, BigDecimal.ZERO);
+        method.initializeRemainingLimit();
+        return method;
+    }
+
+    private Order createOrder(String id, String value, List<String> promotions) {
+        Order order = new Order(id, new BigDecimal(value), promotions, false, null);
+        order.initializeRemainingValue();
+        return order;
+    }
+
+    @Test
+    @DisplayName("Should never overdraw a limit under concurrent reservations")
+    void concurrentReservationsStayWithinLimit() throws Exception {
+        SharedLimitLedger ledger = SharedLimitLedger.of(List.of(createMethod("CardA", 0, "1000.00")));
+        AtomicInteger reserved = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        if (ledger.tryReserve(0, 7)) {
+                            reserved.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        // 100000 cents fit 14285 reservations of 7 cents
+        assertEquals(14285, reserved.get());
+        assertEquals(5, ledger.getRemainingCents(0));
+        assertEquals(99_995, ledger.getSpentCents(0));
+        assertThrows(IllegalArgumentException.class, () -> ledger.tryReserve(0, -1));
+
+        ledger.release(0, 95);
+        assertEquals(100, ledger.getRemainingCents(0));
+        assertEquals(99_900, ledger.getSpentCents(0));
+    }
+
+    @Test
+    @DisplayName("Should split shared limits between concurrent optimizations")
+    void concurrentOptimizationsShareLimits() throws Exception {
+        List<PaymentMethod> methods = List.of(
+                createMethod("PUNKTY", 15, "300.00"),
+                createMethod("CardA", 10, "400.00"),
+                createMethod("CardB", 0, "100000.00"));
+        PaymentCatalog catalog = PaymentCatalog.of(methods);
+        SharedLimitLedger pool = new SharedLimitLedger(catalog);
+
+        List<List<Result>> runs = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            List<Future<List<Result>>> futures = new ArrayList<>();
+            for (int stream = 0; stream < 16; stream++) {
+                List<Order> orders = new ArrayList<>();
+                for (int i = 0; i < 20; i++) {
+                    orders.add(createOrder("S" + stream + "-" + i, (10 + i) + ".00", List.of("CardA")));
+                }
+                futures.add(executor.submit(() -> new PaymentOptimizer(orders, catalog).optimize(pool)));
+            }
+            for (Future<List<Result>> future : futures) {
+                runs.add(future.get());
+            }
+        }
+
+        long[] spentByRuns = new long[catalog.size()];
+        for (List<Result> run : runs) {
+            for (Result result : run) {
+                int method = catalog.getDictionary().indexOf(result.getMethodId());
+                spentByRuns[method] += MoneyUtil.toCents(result.getAmountSpend());
+            }
+        }
+        for (int method = 0; method < catalog.size(); method++) {
+            assertEquals(spentByRuns[method], pool.getSpentCents(method));
+            assertEquals(catalog.getRemainingLimitCents(method), pool.getSpentCents(method) + pool.getRemainingCents(method));
+            assertTrue(pool.getRemainingCents(method) >= 0);
+        }
+        // The contended promotions and points are used up by the streams together
+        assertTrue(pool.getRemainingCents(0) < 1_000);
+        assertTrue(pool.getRemainingCents(1) < 1_000);
+        assertEquals(pool.getTotals().size(), 3);
+    }
+
+    @Test
+    @DisplayName("Should release everything reserved by a failed optimization")
+    void failedOptimizationRollsBack() throws NotFoundPaymentsException {
+        List<PaymentMethod> methods = List.of(createMethod("CardA", 10, "100.00"), createMethod("CardB", 0, "50.00"));
+        SharedLimitLedger pool = SharedLimitLedger.of(methods);
+        List<Order> orders = List.of(
+                createOrder("ORDER1", "100.00", List.of("CardA")),
+                createOrder("ORDER2", "60.00", List.of()));
+
+        PaymentOptimizer optimizer = new PaymentOptimizer(orders, methods);
+        assertThrows(NotFoundPaymentsException.class, () -> optimizer.optimize(pool));
+        assertEquals(10_000, pool.getRemainingCents(0));
+        assertEquals(5_000, pool.getRemainingCents(1));
+        assertTrue(pool.getTotals().isEmpty());
+
+        // The same orders fit once the other order is dropped
+        List<Result> results = new PaymentOptimizer(orders.subList(0, 1), methods).optimize(pool);
+        assertEquals(0, new BigDecimal("90.00").compareTo(results.getFirst().getAmountSpend()));
+        assertEquals(1_000, pool.getRemainingCents(0));
+    }
+
+    @Test
+    @DisplayName("Should reject a pool of other payment methods")
+    void rejectsForeignPool() {
+        List<PaymentMethod> methods = List.of(createMethod("CardA", 10, "100.00"));
+        SharedLimitLedger pool = SharedLimitLedger.of(List.of(createMethod("CardB", 10, "100.00")));
+
+        PaymentOptimizer optimizer = new PaymentOptimizer(List.of(createOrder("ORDER1", "10.00", List.of())), methods);
+        assertThrows(IllegalArgumentException.class, () -> optimizer.optimize(pool));
+    }
+}
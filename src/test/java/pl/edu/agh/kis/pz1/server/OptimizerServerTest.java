@@ -0,0 +1,217 @@
+package pl.edu.agh.kis.pz1.server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pl.edu.agh.kis.pz1.cache.ResultCache;
+import pl.edu.agh.kis.pz1.utils.JsonParser;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimizerServerTest {
+
+    private static final String EXAMPLE_REQUEST = """
+            {
+              "orders": [
+                {"id": "ORDER1", "value": "100.00", "promotions": ["mZysk"]},
+                {"id": "ORDER2", "value": "200.00", "promotions": ["BosBankrut"]},
+                {"id": "ORDER3", "value": "150.00", "promotions": ["mZysk", "BosBankrut"]},
+                {"id": "ORDER4", "value": "50.00"}
+              ],
+              "paymentMethods": [
+                {"id": "PUNKTY", "discount": "15", "limit": "100.00"},
+                {"id": "mZysk", "discount": "10", "limit": "180.00"},
+                {"id": "BosBankrut", "discount": "5", "limit": "200.00"}
+              ]
+            }
+            """;
+
+    private OptimizerServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new OptimizerServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.close();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getPort() + path);
+    }
+
+    private HttpResponse<String> post(String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri("/optimize"))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private Map<String, String> spent(String body) throws IOException {
+        Map<String, String> spent = new HashMap<>();
+        for (JsonNode result : JsonParser.getMapper().readTree(body)) {
+            spent.put(result.get("methodId").asText(), result.get("amountSpend").decimalValue().setScale(2).toPlainString());
+        }
+        return spent;
+    }
+
+    @Test
+    @DisplayName("Should return the results of the example as JSON")
+    void optimizesExampleRequest() throws IOException, InterruptedException {
+        HttpResponse<String> response = post(EXAMPLE_REQUEST);
+
+        assertEquals(200, response.statusCode());
+        assertEquals("application/json", response.headers().firstValue("Content-Type").orElse(null));
+        assertEquals(Map.of("PUNKTY", "100.00", "mZysk", "165.00", "BosBankrut", "190.00"), spent(response.body()));
+    }
+
+    @Test
+    @DisplayName("Concurrent requests should not share state")
+    void servesConcurrentRequests() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(uri("/optimize"))
+                .POST(HttpRequest.BodyPublishers.ofString(EXAMPLE_REQUEST))
+                .build();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(200, response.get().statusCode());
+            assertEquals(Map.of("PUNKTY", "100.00", "mZysk", "165.00", "BosBankrut", "190.00"), spent(response.get().body()));
+        }
+    }
+
+    @Test
+    @DisplayName("Should reject malformed and incomplete requests with 400")
+    void rejectsMalformedRequests() throws IOException, InterruptedException {
+        HttpResponse<String> malformed = post("{\"orders\": [");
+        HttpResponse<String> incomplete = post("{\"orders\": []}");
+
+        assertEquals(400, malformed.statusCode());
+        assertTrue(JsonParser.getMapper().readTree(malformed.body()).has("error"));
+        assertEquals(400, incomplete.statusCode());
+    }
+
+    @Test
+    @DisplayName("Should answer 422 when the orders cannot be paid")
+    void reportsUnpayableOrders() throws IOException, InterruptedException {
+        HttpResponse<String> response = post("""
+                {"orders": [{"id": "ORDER1", "value": "100.00"}],
+                 "paymentMethods": [{"id": "CardA", "discount": "0", "limit": "50.00"}]}
+                """);
+
+        assertEquals(422, response.statusCode());
+        assertTrue(JsonParser.getMapper().readTree(response.body()).get("error").asText().contains("ORDER1"));
+    }
+
+    @Test
+    @DisplayName("Should reject null orders and payment methods with 400")
+    void rejectsNullElements() throws IOException, InterruptedException {
+        HttpResponse<String> nullOrder = post("""
+                {"orders": [null],
+                 "paymentMethods": [{"id": "CardA", "discount": "0", "limit": "500.00"}]}
+                """);
+        HttpResponse<String> nullMethod = post("""
+                {"orders": [{"id": "ORDER1", "value": "100.00"}],
+                 "paymentMethods": [{"id": "CardA", "discount": "0", "limit": "500.00"}, null]}
+                """);
+
+        assertEquals(400, nullOrder.statusCode());
+        assertTrue(JsonParser.getMapper().readTree(nullOrder.body()).has("error"));
+        assertEquals(400, nullMethod.statusCode());
+    }
+
+    @Test
+    @DisplayName("Should reject duplicate payment method IDs with 400")
+    void rejectsDuplicatePaymentMethods() throws IOException, InterruptedException {
+        HttpResponse<String> response = post("""
+                {"orders": [{"id": "ORDER1", "value": "100.00"}],
+                 "paymentMethods": [{"id": "CardA", "discount": "0", "limit": "500.00"},
+                                    {"id": "CardA", "discount": "5", "limit": "500.00"}]}
+                """);
+
+        assertEquals(400, response.statusCode());
+        assertTrue(JsonParser.getMapper().readTree(response.body()).get("error").asText().contains("CardA"));
+    }
+
+    @Test
+    @DisplayName("Should only accept POST on /optimize and answer health checks")
+    void checksMethodsAndHealth() throws IOException, InterruptedException {
+        HttpResponse<String> get = client.send(HttpRequest.newBuilder(uri("/optimize")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        HttpResponse<String> health = client.send(HttpRequest.newBuilder(uri("/health")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(405, get.statusCode());
+        assertEquals(200, health.statusCode());
+    }
+
+    @Test
+    @DisplayName("Should answer repeated requests from the result cache")
+    void answersFromCache() throws IOException, InterruptedException {
+        server.close();
+        server = new OptimizerServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), new ResultCache(16));
+        server.start();
+
+        HttpResponse<String> first = post(EXAMPLE_REQUEST);
+        HttpResponse<String> second = post(EXAMPLE_REQUEST);
+        JsonNode health = JsonParser.getMapper().readTree(client.send(HttpRequest.newBuilder(uri("/health")).GET().build(),
+                HttpResponse.BodyHandlers.ofString()).body());
+
+        assertEquals(200, second.statusCode());
+        assertEquals(spent(first.body()), spent(second.body()));
+        assertEquals("UP", health.get("status").asText());
+        assertEquals(1, health.get("cacheHits").asLong());
+        assertEquals(1, health.get("cacheMisses").asLong());
+        assertEquals(1, health.get("cacheEntries").asInt());
+    }
+
+    @Test
+    @DisplayName("Should give the same response with and without the result cache")
+    void cacheDoesNotChangeResponses() throws IOException, InterruptedException {
+        // Base payments take the first card in request order with enough limit; a null promotion matches nothing
+        String request = """
+                {
+                  "orders": [{"id": "ORDER1", "value": "50.00", "promotions": ["CardA", null]}],
+                  "paymentMethods": [
+                    {"id": "CardB", "discount": "0", "limit": "100.00"},
+                    {"id": "CardA", "discount": "0", "limit": "100.00"}
+                  ]
+                }
+                """;
+        HttpResponse<String> uncached = post(request);
+
+        server.close();
+        server = new OptimizerServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), new ResultCache(16));
+        server.start();
+        HttpResponse<String> miss = post(request);
+        HttpResponse<String> hit = post(request);
+
+        assertEquals(200, uncached.statusCode());
+        assertEquals(Map.of("CardB", "50.00"), spent(uncached.body()));
+        assertEquals(uncached.statusCode(), miss.statusCode());
+        assertEquals(uncached.body(), miss.body());
+        assertEquals(uncached.body(), hit.body());
+    }
+}
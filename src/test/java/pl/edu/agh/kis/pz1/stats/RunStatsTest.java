@@ -0,0 +1,93 @@
+package pl.edu.agh.kis.pz1.stats;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import pl.edu.agh.kis.pz1.domain.Order;
+import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+import pl.edu.agh.kis.pz1.optimizer.NotFoundPaymentsException;
+import pl.edu.agh.kis.pz1.optimizer.OptimizerPhaseListener;
+import pl.edu.agh.kis.pz1.optimizer.PaymentOptimizer;
+import pl.edu.agh.kis.pz1.utils.JsonParser;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RunStatsTest {
+
+    private PaymentOptimizer createExampleOptimizer() {
+        List<Order> orders = List.of(
+                new Order("ORDER1", new BigDecimal("100.00"), List.of("mZysk"), false, null),
+                new Order("ORDER2", new BigDecimal("200.00"), List.of("BosBankrut"), false, null),
+                new Order("ORDER3", new BigDecimal("150.00"), List.of("mZysk", "BosBankrut"), false, null),
+                new Order("ORDER4", new BigDecimal("50.00"), null, false, null));
+        orders.forEach(Order::initializeRemainingValue);
+        List<PaymentMethod> methods = List.of(
+                new PaymentMethod("PUNKTY", 15, new BigDecimal("100.00"), null, BigDecimal.ZERO),
+                new PaymentMethod("mZysk", 10, new BigDecimal("180.00"), null, BigDecimal.ZERO),
+                new PaymentMethod("BosBankrut", 5, new BigDecimal("200.00"), null, BigDecimal.ZERO));
+        methods.forEach(PaymentMethod::initializeRemainingLimit);
+        return new PaymentOptimizer(orders, methods);
+    }
+
+    @Test
+    @DisplayName("Should report the phases, throughput and latency of repeated optimizations")
+    void reportsRepeatedOptimizations() throws Exception {
+        RunStats stats = new RunStats();
+        stats.phaseStarted(OptimizerPhaseListener.PARSE);
+        PaymentOptimizer optimizer = createExampleOptimizer();
+        stats.phaseCompleted(OptimizerPhaseListener.PARSE);
+
+        optimizer.setPhaseListener(stats);
+        for (int i = 0; i < 10; i++) {
+            optimizer.optimize();
+        }
+        RunReport report = stats.report();
+
+        assertEquals(10, report.optimizations());
+        assertEquals(40, report.orders());
+        assertEquals(80, report.candidates());
+        assertTrue(report.ordersPerSecond() > 0);
+        assertEquals(List.of(OptimizerPhaseListener.PARSE, OptimizerPhaseListener.CANDIDATES, OptimizerPhaseListener.FULL_PAYMENTS,
+                        OptimizerPhaseListener.REMAINING_PAYMENTS, OptimizerPhaseListener.VERIFY, OptimizerPhaseListener.COLLECT_RESULTS),
+                report.phases().stream().map(RunReport.Phase::name).toList());
+        assertEquals(10, report.phases().get(1).calls());
+        assertTrue(report.phases().getFirst().allocatedBytes() > 0);
+        assertTrue(report.peakHeapBytes() > 0);
+        assertEquals(10, report.latency().count());
+        assertTrue(report.latency().p50Nanos() <= report.latency().maxNanos());
+
+        JsonNode json = JsonParser.getMapper().readTree(report.toJson());
+        assertEquals(40, json.get("orders").asLong());
+        assertEquals(6, json.get("phases").size());
+        assertTrue(report.toText().contains("remainingPayments"));
+        assertTrue(report.toText().contains("Latency"));
+    }
+
+    @Test
+    @DisplayName("Should leave out latency and failed optimizations for a single problem")
+    void omitsLatencyOfSingleOptimization() throws NotFoundPaymentsException {
+        RunStats stats = new RunStats();
+        PaymentOptimizer optimizer = createExampleOptimizer();
+        optimizer.setPhaseListener(stats);
+        optimizer.optimize();
+
+        PaymentMethod card = new PaymentMethod("CardA", 0, new BigDecimal("1.00"), null, BigDecimal.ZERO);
+        card.initializeRemainingLimit();
+        Order order = new Order("ORDER1", new BigDecimal("100.00"), null, false, null);
+        order.initializeRemainingValue();
+        PaymentOptimizer failing = new PaymentOptimizer(List.of(order), List.of(card));
+        failing.setPhaseListener(stats);
+        assertThrows(NotFoundPaymentsException.class, failing::optimize);
+
+        RunReport report = stats.report();
+        assertEquals(1, report.optimizations());
+        assertNull(report.latency());
+        assertFalse(report.toJson().contains("latency"));
+        // The failed optimization completed its first two phases
+        assertEquals(2, report.phases().get(1).calls());
+        assertEquals(1, report.phases().get(2).calls());
+    }
+}
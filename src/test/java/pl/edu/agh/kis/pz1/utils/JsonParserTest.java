@@ -5,9 +5,16 @@ import org.junit.jupiter.api.Test; // Keep Test annotation
 
 import pl.edu.agh.kis.pz1.domain.Order;
 import pl.edu.agh.kis.pz1.domain.PaymentMethod;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -63,4 +70,51 @@ class JsonParserTest {
         assertEquals("BosBankrut", paymentMethods.get(1).getId());
     }
 
-}
\ No newline at end of file
+    @Test
+    void testStreamOrdersMatchesParseOrders() throws Exception {
+        String ordersPath = getResourcePath("orders3.json");
+        String paymentmethodsPath = getResourcePath("paymentmethods3.json");
+
+        List<Order> streamed = new ArrayList<>();
+        JsonParser.streamOrders(ordersPath, streamed::add);
+        List<Order> parsed = JsonParser.parseOrders(ordersPath);
+
+        assertEquals(parsed.size(), streamed.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            assertEquals(parsed.get(i).getId(), streamed.get(i).getId());
+            assertEquals(parsed.get(i).getValueCents(), streamed.get(i).getValueCents());
+            assertEquals(parsed.get(i).getPromotions(), streamed.get(i).getPromotions());
+        }
+        assertEquals(0, new BigDecimal("300.00").compareTo(streamed.get(1).getRemainingValueToPay()));
+
+        List<PaymentMethod> paymentMethods = JsonParser.parsePaymentMethodsAsync(paymentmethodsPath).get();
+        assertEquals(2, paymentMethods.size());
+        assertEquals(20000, paymentMethods.getFirst().getRemainingLimitCents());
+    }
+
+    @Test
+    void testParsesAreRecordedAsJfrEvents() throws Exception {
+        String ordersPath = getResourcePath("orders3.json");
+        String paymentmethodsPath = getResourcePath("paymentmethods3.json");
+        Path recordingFile = Files.createTempFile("parse", ".jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable("pl.edu.agh.kis.pz1.JsonParse");
+            recording.start();
+            JsonParser.parseOrders(ordersPath);
+            JsonParser.streamOrders(ordersPath, order -> { });
+            JsonParser.parsePaymentMethods(paymentmethodsPath);
+            recording.stop();
+            recording.dump(recordingFile);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+            assertEquals(List.of("orders", "orders", "paymentMethods"), events.stream().map(event -> event.getString("content")).toList());
+            assertEquals(3, events.getFirst().getInt("items"));
+            assertEquals(Files.size(Paths.get(ordersPath)), events.getFirst().getLong("bytes"));
+            assertEquals(2, events.get(2).getInt("items"));
+        } finally {
+            Files.deleteIfExists(recordingFile);
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package pl.edu.agh.kis.pz1.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyUtilTest {
+
+    @Test
+    @DisplayName("toCents should normalize to two decimal places rounding half up")
+    void toCents_shouldNormalize() {
+        assertEquals(12346, MoneyUtil.toCents(new BigDecimal("123.455")));
+        assertEquals(12345, MoneyUtil.toCents(new BigDecimal("123.4549")));
+        assertEquals(10000, MoneyUtil.toCents(new BigDecimal("100")));
+        assertEquals(-151, MoneyUtil.toCents(new BigDecimal("-1.505")));
+        assertEquals(0, MoneyUtil.toCents(null));
+    }
+
+    @Test
+    @DisplayName("toCents should reject values that do not fit into a long")
+    void toCents_shouldDetectOverflow() {
+        BigDecimal huge = new BigDecimal("1e20");
+        assertThrows(ArithmeticException.class, () -> MoneyUtil.toCents(huge));
+    }
+
+    @Test
+    @DisplayName("toBigDecimal should produce a value with two decimal places")
+    void toBigDecimal_shouldUseStandardScale() {
+        assertEquals(new BigDecimal("150.50"), MoneyUtil.toBigDecimal(15050));
+        assertEquals(new BigDecimal("0.00"), MoneyUtil.toBigDecimal(0));
+    }
+
+    @Test
+    @DisplayName("percentage, applyDiscount and calculateDiscountAmount should calculate correctly")
+    void arithmetic_shouldCalculateCorrectly() {
+        assertEquals(3763, MoneyUtil.percentage(15050, 25));
+        assertEquals(11288, MoneyUtil.applyDiscount(15050, 25));
+        assertEquals(3762, MoneyUtil.calculateDiscountAmount(15050, 25));
+        assertEquals(0, MoneyUtil.percentage(10000, -5));
+        assertEquals(10000, MoneyUtil.applyDiscount(10000, 110));
+        assertEquals(0, MoneyUtil.calculateDiscountAmount(10000, 110));
+    }
+
+    @Test
+    @DisplayName("cents arithmetic should match BigDecimalUtil for normalized values")
+    void arithmetic_shouldMatchBigDecimalUtil() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            long cents = random.nextInt(10_000_000) - 1_000_000L;
+            int percent = random.nextInt(101);
+            BigDecimal value = MoneyUtil.toBigDecimal(cents);
+
+            assertEquals(MoneyUtil.toCents(BigDecimalUtil.percentage(value, percent)), MoneyUtil.percentage(cents, percent));
+            assertEquals(MoneyUtil.toCents(BigDecimalUtil.applyDiscount(value, percent)), MoneyUtil.applyDiscount(cents, percent));
+            assertEquals(MoneyUtil.toCents(BigDecimalUtil.calculateDiscountAmount(value, percent)), MoneyUtil.calculateDiscountAmount(cents, percent));
+        }
+    }
+
+    @Test
+    @DisplayName("arithmetic should detect overflow instead of wrapping")
+    void arithmetic_shouldDetectOverflow() {
+        assertThrows(ArithmeticException.class, () -> MoneyUtil.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> MoneyUtil.subtract(Long.MIN_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> MoneyUtil.applyDiscount(Long.MAX_VALUE / 10, 10));
+    }
+}
@@ -0,0 +1,101 @@
+package pl.edu.agh.kis.pz1.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import pl.edu.agh.kis.pz1.domain.MethodDictionary;
+import pl.edu.agh.kis.pz1.domain.OrderTable;
+import pl.edu.agh.kis.pz1.generator.WorkloadGenerator;
+import pl.edu.agh.kis.pz1.generator.WorkloadSpec;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelOrderScannerTest {
+
+    @TempDir
+    Path directory;
+
+    private static void assertSameTable(OrderTable expected, OrderTable actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int row = 0; row < expected.size(); row++) {
+            assertEquals(expected.getId(row), actual.getId(row));
+            assertEquals(expected.getValueCents(row), actual.getValueCents(row), expected.getId(row));
+            assertEquals(expected.isPaid(row), actual.isPaid(row));
+            for (int method = 0; method < expected.getDictionary().size(); method++) {
+                assertEquals(expected.nextPromotion(row, method), actual.nextPromotion(row, method), expected.getId(row));
+            }
+        }
+    }
+
+    private void assertScansLikeJackson(Path orders, MethodDictionary dictionary) throws IOException {
+        OrderTable expected = OrderTable.fromOrders(JsonParser.parseOrders(orders.toString()), dictionary);
+        // Chunks of a few bytes start inside strings, escapes and numbers
+        for (long chunkBytes : new long[]{1, 2, 3, 7, 16, 61, 1 << 20}) {
+            assertSameTable(expected, ParallelOrderScanner.scan(orders, dictionary, 3, chunkBytes));
+        }
+        assertSameTable(expected, ParallelOrderScanner.scan(orders, dictionary, 2));
+    }
+
+    @Test
+    @DisplayName("Should read the same orders as Jackson, wherever the chunks start")
+    void matchesJacksonOnTrickyInput() throws IOException {
+        Path orders = Files.writeString(directory.resolve("orders.json"), """
+                \uFEFF[ {"id": "ORDER1", "value": "100.00", "promotions": ["mZysk"]},
+                  {"promotions": ["BosBankrut", "Unknown", null], "value": 200.5, "id": "{\\"id\\": \\"X\\"},{"},
+                  {"id":"ZAMÓWIENIE \\u017b\\\\","value":"0.005","promotions":["m\\u005Aysk","BosBankrut"],"paid":true},
+                  {"id": "ORDER4", "value": "-1.235", "promotions": null, "remainingValueToPay": "3.00"},
+                  {"id": "ORDER5", "value": "12", "promotions": []},
+                  {"id": "ORDER6", "value": "1.5e1"},
+                  {}
+                ]
+                """);
+        assertScansLikeJackson(orders, new MethodDictionary(List.of("PUNKTY", "mZysk", "BosBankrut")));
+    }
+
+    @Test
+    @DisplayName("Should read a generated workload like Jackson")
+    void matchesJacksonOnWorkload() throws IOException {
+        Path orders = directory.resolve("orders.json");
+        Path methods = directory.resolve("paymentmethods.json");
+        new WorkloadGenerator(WorkloadSpec.builder().seed(11).orderCount(2_000).methodCount(70).build()).generate(orders, methods);
+        MethodDictionary dictionary = MethodDictionary.of(JsonParser.parsePaymentMethods(methods.toString()));
+
+        OrderTable expected = OrderTable.fromOrders(JsonParser.parseOrders(orders.toString()), dictionary);
+        for (long chunkBytes : new long[]{97, 4096, 1 << 20}) {
+            assertSameTable(expected, ParallelOrderScanner.scan(orders, dictionary, 4, chunkBytes));
+        }
+    }
+
+    @Test
+    @DisplayName("Should read empty arrays and reject malformed files")
+    void rejectsMalformedFiles() throws IOException {
+        MethodDictionary dictionary = new MethodDictionary(List.of("PUNKTY"));
+        Path empty = Files.writeString(directory.resolve("empty.json"), " [ ] ");
+        assertEquals(0, ParallelOrderScanner.scan(empty, dictionary, 2, 1).size());
+
+        List<String> malformed = List.of(
+                "",
+                "{}",
+                "[{\"id\": \"A\", \"value\": \"1.00\"}",
+                "[{\"id\": \"A\", \"value\": \"1.00\"},]",
+                "[{\"id\": \"A\", \"value\": \"1.00\"} {\"id\": \"B\"}]",
+                "[{\"id\": \"A\", \"value\": \"1.00\"}] {\"id\": \"B\"}",
+                "[{\"id\": \"A\", \"value\": \"1.0x\"}]",
+                "[{\"id\": \"A\", \"value\": \"99999999999999999999\"}]",
+                "[{\"id\": \"A\", \"price\": \"1.00\"}]",
+                "[{\"id\": \"A\nB\"}]",
+                "[{\"id\": \"A\", \"paid\": \"yes\"}]");
+        for (String json : malformed) {
+            Path file = Files.writeString(directory.resolve("malformed.json"), json);
+            for (long chunkBytes : new long[]{1, 5, 1 << 20}) {
+                assertThrows(IOException.class, () -> ParallelOrderScanner.scan(file, dictionary, 2, chunkBytes), json);
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> ParallelOrderScanner.scan(empty, dictionary, 0));
+    }
+}